@@ -0,0 +1,60 @@
+package com.fidelity.promptlab.models;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One audited mutation: what changed on which entity, with before and after
+ * values for each changed field. Written as one NDJSON line by AuditLog.
+ */
+public record AuditRecord(
+    long sequence,
+    Instant recordedAt,
+    String entityType,
+    String entityId,
+    String action,
+    List<FieldChange> changes
+) {
+    public record FieldChange(String field, Object before, Object after) {}
+
+    public static AuditRecord of(String entityType, String entityId, String action, List<FieldChange> changes) {
+        return new AuditRecord(0, Instant.now(), entityType, entityId, action, changes);
+    }
+
+    // Sequence numbers are assigned by the log writer, in file order
+    public AuditRecord withSequence(long sequence) {
+        return new AuditRecord(sequence, recordedAt, entityType, entityId, action, changes);
+    }
+
+    /**
+     * Collects field changes, skipping fields whose value did not change.
+     *
+     * Usage:
+     *   List<FieldChange> changes = AuditRecord.diff()
+     *       .field("email", oldEmail, newEmail)
+     *       .field("firstName", oldFirst, newFirst)
+     *       .build();
+     */
+    public static Diff diff() {
+        return new Diff();
+    }
+
+    public static final class Diff {
+        private final List<FieldChange> changes = new ArrayList<>(4);
+
+        private Diff() {}
+
+        public Diff field(String name, Object before, Object after) {
+            if (!Objects.equals(before, after)) {
+                changes.add(new FieldChange(name, before, after));
+            }
+            return this;
+        }
+
+        public List<FieldChange> build() {
+            return List.copyOf(changes);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.fidelity.promptlab.models;
+
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns ISO 4217 currency codes into dense int ordinals so FX rates and
+ * per-holding currencies can be held in primitive arrays.
+ *
+ * Ordinals are assigned in first-seen order and never change. The base
+ * currency, USD, is always ordinal 0, so an unset currency column defaults
+ * to it. Codes are normalized (trimmed, upper-cased) before every lookup and
+ * only canonical codes are stored, so differently spelled input cannot grow
+ * the table.
+ */
+public class CurrencyTable {
+    public static final String BASE_CURRENCY = "USD";
+    public static final int BASE = 0;
+    // Ordinal for a valid ISO 4217 code that has not been interned; no matrix holds rates for it
+    public static final int UNLISTED = Integer.MAX_VALUE;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] codes = new String[32];
+    private int size;
+
+    public CurrencyTable() {
+        intern(BASE_CURRENCY);
+    }
+
+    /**
+     * Returns the ordinal for a currency code, assigning the next free one if it is new.
+     *
+     * @throws IllegalArgumentException if the code is not an ISO 4217 currency
+     */
+    public int intern(String code) {
+        String normalized = normalize(code);
+        Integer id = ids.get(normalized);
+        if (id != null) {
+            return id;
+        }
+        return internSlow(normalized);
+    }
+
+    private synchronized int internSlow(String normalized) {
+        String canonical = Currency.getInstance(normalized).getCurrencyCode();
+        Integer existing = ids.get(canonical);
+        if (existing == null) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            existing = size;
+            codes[existing] = canonical;
+            size = existing + 1;
+            ids.put(canonical, existing);
+        }
+        return existing;
+    }
+
+    /**
+     * Read-path counterpart of {@link #intern(String)}: the ordinal if the code
+     * is in the table, {@link #UNLISTED} if it is a valid code that is not.
+     * Never adds to the table.
+     *
+     * @throws IllegalArgumentException if the code is not an ISO 4217 currency
+     */
+    public int lookup(String code) {
+        String normalized = normalize(code);
+        Integer id = ids.get(normalized);
+        if (id != null) {
+            return id;
+        }
+        Currency.getInstance(normalized);
+        return UNLISTED;
+    }
+
+    public Optional<Integer> find(String code) {
+        return code == null ? Optional.empty() : Optional.ofNullable(ids.get(normalize(code)));
+    }
+
+    public String code(int id) {
+        return codes[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // trim and toUpperCase return the same instance when nothing changes, so canonical input does not allocate
+    private static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+}
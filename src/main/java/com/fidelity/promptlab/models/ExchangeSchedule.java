@@ -0,0 +1,130 @@
+package com.fidelity.promptlab.models;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Trading hours of one exchange: a regular weekday session in the
+ * exchange's time zone, full-day holidays and early-close half days.
+ *
+ * Sessions are [open, close) in local time, so daylight-saving changes are
+ * handled by the zone rules rather than by fixed UTC offsets.
+ */
+public record ExchangeSchedule(
+    String exchange,
+    ZoneId zone,
+    LocalTime open,
+    LocalTime close,
+    LocalTime earlyClose,
+    Set<LocalDate> holidays,
+    Set<LocalDate> halfDays
+) {
+    public ExchangeSchedule {
+        if (!open.isBefore(close) || !open.isBefore(earlyClose)) {
+            throw new IllegalArgumentException("Session must close after it opens");
+        }
+        holidays = Set.copyOf(holidays);
+        halfDays = Set.copyOf(halfDays);
+    }
+
+    /**
+     * Session close for a date, or null if the exchange is closed all day.
+     */
+    public LocalTime closeOn(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        if (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY || holidays.contains(date)) {
+            return null;
+        }
+        return halfDays.contains(date) ? earlyClose : close;
+    }
+
+    /**
+     * A US equity exchange (09:30-16:00 New York, 13:00 early close) with the
+     * NYSE holiday and half-day rules applied for the given years.
+     */
+    public static ExchangeSchedule usEquities(String exchange, int fromYear, int toYear) {
+        Set<LocalDate> holidays = new HashSet<>();
+        Set<LocalDate> halfDays = new HashSet<>();
+        for (int year = fromYear; year <= toYear; year++) {
+            addUsHolidays(year, holidays, halfDays);
+        }
+        return new ExchangeSchedule(exchange, ZoneId.of("America/New_York"),
+                LocalTime.of(9, 30), LocalTime.of(16, 0), LocalTime.of(13, 0), holidays, halfDays);
+    }
+
+    private static void addUsHolidays(int year, Set<LocalDate> holidays, Set<LocalDate> halfDays) {
+        // New Year's Day falling on a Saturday is not observed on the Friday before
+        LocalDate newYear = LocalDate.of(year, Month.JANUARY, 1);
+        if (newYear.getDayOfWeek() != DayOfWeek.SATURDAY) {
+            holidays.add(observed(newYear));
+        }
+        if (year >= 1998) {
+            holidays.add(nth(year, Month.JANUARY, DayOfWeek.MONDAY, 3));
+        }
+        holidays.add(nth(year, Month.FEBRUARY, DayOfWeek.MONDAY, 3));
+        holidays.add(easterSunday(year).minusDays(2));
+        holidays.add(LocalDate.of(year, Month.MAY, 1).with(TemporalAdjusters.lastInMonth(DayOfWeek.MONDAY)));
+        if (year >= 2022) {
+            holidays.add(observed(LocalDate.of(year, Month.JUNE, 19)));
+        }
+        LocalDate independence = observed(LocalDate.of(year, Month.JULY, 4));
+        holidays.add(independence);
+        holidays.add(nth(year, Month.SEPTEMBER, DayOfWeek.MONDAY, 1));
+        LocalDate thanksgiving = nth(year, Month.NOVEMBER, DayOfWeek.THURSDAY, 4);
+        holidays.add(thanksgiving);
+        LocalDate christmas = observed(LocalDate.of(year, Month.DECEMBER, 25));
+        holidays.add(christmas);
+
+        LocalDate julyThird = LocalDate.of(year, Month.JULY, 3);
+        if (isWeekday(julyThird) && !julyThird.equals(independence)) {
+            halfDays.add(julyThird);
+        }
+        halfDays.add(thanksgiving.plusDays(1));
+        LocalDate christmasEve = LocalDate.of(year, Month.DECEMBER, 24);
+        if (isWeekday(christmasEve) && !christmasEve.equals(christmas)) {
+            halfDays.add(christmasEve);
+        }
+    }
+
+    // Saturday holidays move to Friday, Sunday holidays to Monday
+    private static LocalDate observed(LocalDate date) {
+        return switch (date.getDayOfWeek()) {
+            case SATURDAY -> date.minusDays(1);
+            case SUNDAY -> date.plusDays(1);
+            default -> date;
+        };
+    }
+
+    private static LocalDate nth(int year, Month month, DayOfWeek day, int n) {
+        return LocalDate.of(year, month, 1).with(TemporalAdjusters.dayOfWeekInMonth(n, day));
+    }
+
+    private static boolean isWeekday(LocalDate date) {
+        return date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY;
+    }
+
+    // Anonymous Gregorian algorithm
+    private static LocalDate easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(year, month, day);
+    }
+}
@@ -0,0 +1,95 @@
+package com.fidelity.promptlab.models;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Instant;
+
+/**
+ * Immutable cross-rate matrix over the currencies of a {@link CurrencyTable}.
+ *
+ * Rates are stored densely at [from * size + to], as doubles for fast
+ * estimates and as BigDecimals (17 significant digits) for money, so a
+ * conversion is one array lookup and one multiply. A missing rate is NaN /
+ * null. Currencies interned after the matrix was built are outside it until
+ * the next refresh.
+ */
+public final class FxRateMatrix {
+    public static final MathContext RATE_CONTEXT = MathContext.DECIMAL64;
+
+    private final int size;
+    private final double[] rates;
+    private final BigDecimal[] exactRates;
+    private final long version;
+    private final Instant asOf;
+
+    /**
+     * @param pivotValues value of one unit of each currency, by ordinal, in a common unit; null when unknown
+     */
+    public static FxRateMatrix of(BigDecimal[] pivotValues, long version, Instant asOf) {
+        int n = pivotValues.length;
+        double[] rates = new double[n * n];
+        BigDecimal[] exactRates = new BigDecimal[n * n];
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                int cell = from * n + to;
+                BigDecimal fromValue = pivotValues[from];
+                BigDecimal toValue = pivotValues[to];
+                if (fromValue == null || toValue == null || toValue.signum() <= 0) {
+                    rates[cell] = Double.NaN;
+                } else if (from == to) {
+                    exactRates[cell] = BigDecimal.ONE;
+                    rates[cell] = 1.0;
+                } else {
+                    exactRates[cell] = fromValue.divide(toValue, RATE_CONTEXT);
+                    rates[cell] = exactRates[cell].doubleValue();
+                }
+            }
+        }
+        return new FxRateMatrix(n, rates, exactRates, version, asOf);
+    }
+
+    public static FxRateMatrix empty() {
+        return of(new BigDecimal[] {BigDecimal.ONE}, 0, Instant.EPOCH);
+    }
+
+    private FxRateMatrix(int size, double[] rates, BigDecimal[] exactRates, long version, Instant asOf) {
+        this.size = size;
+        this.rates = rates;
+        this.exactRates = exactRates;
+        this.version = version;
+        this.asOf = asOf;
+    }
+
+    public boolean hasRate(int from, int to) {
+        return from < size && to < size && exactRates[from * size + to] != null;
+    }
+
+    /**
+     * Units of {@code to} per unit of {@code from}, or NaN if unknown.
+     */
+    public double rate(int from, int to) {
+        return from < size && to < size ? rates[from * size + to] : Double.NaN;
+    }
+
+    /**
+     * Exact rate for money arithmetic, or null if unknown.
+     */
+    public BigDecimal exactRate(int from, int to) {
+        return from < size && to < size ? exactRates[from * size + to] : null;
+    }
+
+    /**
+     * Converts an amount, or returns null if the rate is unknown.
+     */
+    public BigDecimal convert(BigDecimal amount, int from, int to) {
+        if (from == to) {
+            return amount;
+        }
+        BigDecimal rate = exactRate(from, to);
+        return rate == null ? null : amount.multiply(rate);
+    }
+
+    public int size() { return size; }
+    public long version() { return version; }
+    public Instant asOf() { return asOf; }
+}
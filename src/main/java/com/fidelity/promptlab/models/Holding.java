@@ -14,6 +14,7 @@ public class Holding {
     private BigDecimal marketValue;
     private BigDecimal gainLoss;
     private BigDecimal gainLossPercent;
+    private String currency;
 
     public Holding() {}
 
@@ -62,4 +63,8 @@ public class Holding {
 
     public BigDecimal getGainLossPercent() { return gainLossPercent; }
     public void setGainLossPercent(BigDecimal gainLossPercent) { this.gainLossPercent = gainLossPercent; }
+
+    // ISO 4217 code the prices are quoted in; null means the base currency (USD)
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
 }
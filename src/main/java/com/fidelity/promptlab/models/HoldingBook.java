@@ -0,0 +1,491 @@
+package com.fidelity.promptlab.models;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Structure-of-arrays representation of a portfolio's holdings.
+ *
+ * Each position is one slot across parallel primitive arrays (symbol id,
+ * quantity, average cost, current price, currency ordinal) rather than a
+ * {@link Holding} object with five BigDecimal fields, so valuation and
+ * sorting walk contiguous memory. Prices are stored as fixed-point longs with
+ * {@link #PRICE_SCALE} decimal places, in the position's currency (the base
+ * currency unless set).
+ *
+ * Not thread-safe; callers that share a book must synchronize externally.
+ *
+ * Usage:
+ *   HoldingBook book = HoldingBook.of(portfolio.getHoldings(), symbols);
+ *   BigDecimal total = book.totalMarketValue();
+ *   List<Holding> view = book.asHoldings();
+ */
+public class HoldingBook {
+    public static final int PRICE_SCALE = 4;
+    private static final int NO_SLOT = -1;
+
+    private final SymbolTable symbolTable;
+    private int[] symbolIds;
+    private long[] quantities;
+    private long[] averageCosts;
+    private long[] prices;
+    private int[] currencyIds;
+    private CurrencyTable currencyTable;
+    private int size;
+
+    // Open-addressing index from symbol id to slot, keys stored as id + 1 so 0 means empty
+    private int[] indexKeys;
+    private int[] indexSlots;
+
+    public HoldingBook(SymbolTable symbolTable) {
+        this(symbolTable, 16);
+    }
+
+    public HoldingBook(SymbolTable symbolTable, int initialCapacity) {
+        this.symbolTable = symbolTable;
+        int capacity = Math.max(initialCapacity, 4);
+        this.symbolIds = new int[capacity];
+        this.quantities = new long[capacity];
+        this.averageCosts = new long[capacity];
+        this.prices = new long[capacity];
+        this.currencyIds = new int[capacity];
+        allocateIndex(capacity);
+    }
+
+    public static HoldingBook of(List<Holding> holdings, SymbolTable symbolTable) {
+        HoldingBook book = new HoldingBook(symbolTable, holdings.size());
+        for (Holding h : holdings) {
+            book.put(h.getSymbol(), h.getName(), h.getQuantity(), h.getAverageCost(), h.getCurrentPrice());
+        }
+        return book;
+    }
+
+    /**
+     * As {@link #of(List, SymbolTable)}, also recording each holding's currency.
+     *
+     * @throws IllegalArgumentException if a holding has an unknown currency code
+     */
+    public static HoldingBook of(List<Holding> holdings, SymbolTable symbolTable, CurrencyTable currencyTable) {
+        HoldingBook book = new HoldingBook(symbolTable, holdings.size());
+        for (Holding h : holdings) {
+            int slot = book.put(h.getSymbol(), h.getName(), h.getQuantity(), h.getAverageCost(), h.getCurrentPrice());
+            if (h.getCurrency() != null) {
+                book.setCurrency(slot, currencyTable.intern(h.getCurrency()));
+            }
+        }
+        book.currencyTable = currencyTable;
+        return book;
+    }
+
+    /**
+     * Adds a position, or replaces the existing position for the same symbol.
+     */
+    public int put(String symbol, String name, long quantity, BigDecimal averageCost, BigDecimal currentPrice) {
+        int symbolId = symbolTable.intern(symbol, name);
+        return put(symbolId, quantity, toFixed(averageCost), toFixed(currentPrice));
+    }
+
+    /**
+     * Primitive overload of {@link #put(String, String, long, BigDecimal, BigDecimal)};
+     * cost and price are fixed-point values at {@link #PRICE_SCALE}.
+     */
+    public int put(int symbolId, long quantity, long averageCost, long price) {
+        int slot = slotOf(symbolId);
+        if (slot == NO_SLOT) {
+            ensureCapacity(size + 1);
+            slot = size++;
+            symbolIds[slot] = symbolId;
+            currencyIds[slot] = CurrencyTable.BASE;
+            indexInsert(symbolId, slot);
+        }
+        quantities[slot] = quantity;
+        averageCosts[slot] = averageCost;
+        prices[slot] = price;
+        return slot;
+    }
+
+    /**
+     * Updates the price for a symbol if the book holds it.
+     *
+     * @return true if a position was updated
+     */
+    public boolean updatePrice(int symbolId, long price) {
+        int slot = slotOf(symbolId);
+        if (slot == NO_SLOT) {
+            return false;
+        }
+        prices[slot] = price;
+        return true;
+    }
+
+    /**
+     * Sets the currency (a {@link CurrencyTable} ordinal) the slot's prices are quoted in.
+     */
+    public void setCurrency(int slot, int currencyId) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " out of bounds for size " + size);
+        }
+        currencyIds[slot] = currencyId;
+    }
+
+    /**
+     * Removes the position for a symbol by moving the last slot into its place.
+     *
+     * Only the removed and moved entries are touched in the index, so this is
+     * O(1) expected rather than a rebuild of the whole table.
+     */
+    public boolean remove(int symbolId) {
+        int position = indexPosition(symbolId);
+        if (position == NO_SLOT) {
+            return false;
+        }
+        int slot = indexSlots[position];
+        indexDelete(position);
+        int last = --size;
+        if (slot != last) {
+            copySlot(last, slot);
+            indexSlots[indexPosition(symbolIds[slot])] = slot;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the slot for a symbol id, or -1 if the book does not hold it.
+     */
+    public int slotOf(int symbolId) {
+        int position = indexPosition(symbolId);
+        return position == NO_SLOT ? NO_SLOT : indexSlots[position];
+    }
+
+    // ============================================================
+    // Valuation
+    // ============================================================
+
+    /**
+     * Sum of quantity * price across all positions, at {@link #PRICE_SCALE}.
+     */
+    public BigDecimal totalMarketValue() {
+        return sumProducts(prices);
+    }
+
+    /**
+     * Sum of quantity * averageCost across all positions, at {@link #PRICE_SCALE}.
+     */
+    public BigDecimal totalCostBasis() {
+        return sumProducts(averageCosts);
+    }
+
+    /**
+     * Market value converted into the target currency, or null if a rate is missing.
+     *
+     * Values are summed per currency in fixed point (one array index per
+     * position, no allocation per position) and each subtotal is converted
+     * once, so the result is exact up to the matrix's rate precision.
+     */
+    public BigDecimal totalMarketValue(FxRateMatrix fx, int targetCurrencyId) {
+        int currencyCount = 0;
+        for (int i = 0; i < size; i++) {
+            currencyCount = Math.max(currencyCount, currencyIds[i] + 1);
+        }
+        long[] subtotals = new long[currencyCount];
+        BigInteger[] overflowed = null;
+        for (int i = 0; i < size; i++) {
+            int currency = currencyIds[i];
+            try {
+                subtotals[currency] = Math.addExact(subtotals[currency], Math.multiplyExact(quantities[i], prices[i]));
+            } catch (ArithmeticException overflow) {
+                if (overflowed == null) {
+                    overflowed = new BigInteger[currencyCount];
+                }
+                BigInteger carried = overflowed[currency] == null ? BigInteger.ZERO : overflowed[currency];
+                overflowed[currency] = carried.add(BigInteger.valueOf(subtotals[currency]))
+                        .add(BigInteger.valueOf(quantities[i]).multiply(BigInteger.valueOf(prices[i])));
+                subtotals[currency] = 0;
+            }
+        }
+        BigDecimal total = BigDecimal.ZERO.setScale(PRICE_SCALE);
+        for (int currency = 0; currency < currencyCount; currency++) {
+            BigInteger wide = overflowed == null ? null : overflowed[currency];
+            if (subtotals[currency] == 0 && wide == null) {
+                continue;
+            }
+            BigDecimal subtotal = wide == null
+                    ? BigDecimal.valueOf(subtotals[currency], PRICE_SCALE)
+                    : new BigDecimal(wide.add(BigInteger.valueOf(subtotals[currency])), PRICE_SCALE);
+            BigDecimal converted = fx.convert(subtotal, currency, targetCurrencyId);
+            if (converted == null) {
+                return null;
+            }
+            total = total.add(converted);
+        }
+        return total;
+    }
+
+    public long marketValueFixed(int slot) {
+        return Math.multiplyExact(quantities[slot], prices[slot]);
+    }
+
+    private BigDecimal sumProducts(long[] perUnit) {
+        long total = 0;
+        int i = 0;
+        try {
+            for (; i < size; i++) {
+                total = Math.addExact(total, Math.multiplyExact(quantities[i], perUnit[i]));
+            }
+            return BigDecimal.valueOf(total, PRICE_SCALE);
+        } catch (ArithmeticException overflow) {
+            // Rare for real portfolios; finish the remaining slots in arbitrary precision
+            BigInteger wide = BigInteger.valueOf(total);
+            for (; i < size; i++) {
+                wide = wide.add(BigInteger.valueOf(quantities[i]).multiply(BigInteger.valueOf(perUnit[i])));
+            }
+            return new BigDecimal(wide, PRICE_SCALE);
+        }
+    }
+
+    // ============================================================
+    // Sorting
+    // ============================================================
+
+    /**
+     * Reorders the slots by market value, largest first.
+     */
+    public void sortByMarketValueDescending() {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = -saturatingMultiply(quantities[i], prices[i]);
+        }
+        sortByKeys(keys);
+    }
+
+    /**
+     * Reorders the slots by symbol id, ascending.
+     */
+    public void sortBySymbolId() {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = symbolIds[i];
+        }
+        sortByKeys(keys);
+    }
+
+    private void sortByKeys(long[] keys) {
+        // Sort a slot permutation by key, then permute each column once
+        int n = size;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        quickSort(order, keys, 0, n - 1);
+        symbolIds = permute(symbolIds, order);
+        quantities = permute(quantities, order);
+        averageCosts = permute(averageCosts, order);
+        prices = permute(prices, order);
+        currencyIds = permute(currencyIds, order);
+        rebuildIndex();
+    }
+
+    private static void quickSort(int[] order, long[] keys, int lo, int hi) {
+        while (lo < hi) {
+            if (hi - lo < 16) {
+                for (int i = lo + 1; i <= hi; i++) {
+                    int v = order[i];
+                    int j = i - 1;
+                    while (j >= lo && keys[order[j]] > keys[v]) {
+                        order[j + 1] = order[j];
+                        j--;
+                    }
+                    order[j + 1] = v;
+                }
+                return;
+            }
+            long pivot = keys[order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[order[i]] < pivot) i++;
+                while (keys[order[j]] > pivot) j--;
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i++] = order[j];
+                    order[j--] = tmp;
+                }
+            }
+            // Recurse into the smaller half to bound stack depth
+            if (j - lo < hi - i) {
+                quickSort(order, keys, lo, j);
+                lo = i;
+            } else {
+                quickSort(order, keys, i, hi);
+                hi = j;
+            }
+        }
+    }
+
+    private int[] permute(int[] column, int[] order) {
+        int[] out = new int[column.length];
+        for (int i = 0; i < size; i++) {
+            out[i] = column[order[i]];
+        }
+        return out;
+    }
+
+    private long[] permute(long[] column, int[] order) {
+        long[] out = new long[column.length];
+        for (int i = 0; i < size; i++) {
+            out[i] = column[order[i]];
+        }
+        return out;
+    }
+
+    private static long saturatingMultiply(long a, long b) {
+        long hi = Math.multiplyHigh(a, b);
+        long lo = a * b;
+        if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) {
+            return lo;
+        }
+        return hi < 0 ? Long.MIN_VALUE + 1 : Long.MAX_VALUE;
+    }
+
+    // ============================================================
+    // Views and accessors
+    // ============================================================
+
+    /**
+     * Read-only view that materializes a {@link Holding} per access,
+     * for callers that still expect the object layout.
+     */
+    public List<Holding> asHoldings() {
+        return new AbstractList<>() {
+            @Override
+            public Holding get(int index) {
+                return toHolding(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public Holding toHolding(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " out of bounds for size " + size);
+        }
+        int symbolId = symbolIds[slot];
+        Holding holding = new Holding(
+                symbolTable.symbol(symbolId),
+                symbolTable.name(symbolId),
+                Math.toIntExact(quantities[slot]),
+                fromFixed(averageCosts[slot]),
+                fromFixed(prices[slot]));
+        if (currencyTable != null && currencyIds[slot] != CurrencyTable.BASE) {
+            holding.setCurrency(currencyTable.code(currencyIds[slot]));
+        }
+        return holding;
+    }
+
+    public int size() { return size; }
+    public SymbolTable getSymbolTable() { return symbolTable; }
+    public int symbolIdAt(int slot) { return symbolIds[slot]; }
+    public long quantityAt(int slot) { return quantities[slot]; }
+    public long averageCostAt(int slot) { return averageCosts[slot]; }
+    public long priceAt(int slot) { return prices[slot]; }
+    public int currencyIdAt(int slot) { return currencyIds[slot]; }
+
+    public static long toFixed(BigDecimal value) {
+        return value.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromFixed(long value) {
+        return BigDecimal.valueOf(value, PRICE_SCALE);
+    }
+
+    // ============================================================
+    // Internal storage
+    // ============================================================
+
+    private void copySlot(int from, int to) {
+        symbolIds[to] = symbolIds[from];
+        quantities[to] = quantities[from];
+        averageCosts[to] = averageCosts[from];
+        prices[to] = prices[from];
+        currencyIds[to] = currencyIds[from];
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= symbolIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, symbolIds.length * 2);
+        symbolIds = Arrays.copyOf(symbolIds, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        averageCosts = Arrays.copyOf(averageCosts, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        currencyIds = Arrays.copyOf(currencyIds, capacity);
+        allocateIndex(capacity);
+        for (int i = 0; i < size; i++) {
+            indexInsert(symbolIds[i], i);
+        }
+    }
+
+    private void allocateIndex(int capacity) {
+        int tableSize = Integer.highestOneBit(Math.max(capacity * 2, 8) - 1) << 1;
+        indexKeys = new int[tableSize];
+        indexSlots = new int[tableSize];
+    }
+
+    private void rebuildIndex() {
+        Arrays.fill(indexKeys, 0);
+        for (int i = 0; i < size; i++) {
+            indexInsert(symbolIds[i], i);
+        }
+    }
+
+    private void indexInsert(int symbolId, int slot) {
+        int mask = indexKeys.length - 1;
+        int key = symbolId + 1;
+        int i = mix(symbolId) & mask;
+        while (indexKeys[i] != 0 && indexKeys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        indexKeys[i] = key;
+        indexSlots[i] = slot;
+    }
+
+    private int indexPosition(int symbolId) {
+        int mask = indexKeys.length - 1;
+        int key = symbolId + 1;
+        for (int i = mix(symbolId) & mask; ; i = (i + 1) & mask) {
+            int k = indexKeys[i];
+            if (k == key) return i;
+            if (k == 0) return NO_SLOT;
+        }
+    }
+
+    private void indexDelete(int position) {
+        // Backward-shift deletion: pull later entries of the probe run into the
+        // hole unless that would move them before their home bucket
+        int mask = indexKeys.length - 1;
+        int hole = position;
+        for (int i = (hole + 1) & mask; indexKeys[i] != 0; i = (i + 1) & mask) {
+            int home = mix(indexKeys[i] - 1) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                indexKeys[hole] = indexKeys[i];
+                indexSlots[hole] = indexSlots[i];
+                hole = i;
+            }
+        }
+        indexKeys[hole] = 0;
+    }
+
+    private static int mix(int x) {
+        int h = x * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
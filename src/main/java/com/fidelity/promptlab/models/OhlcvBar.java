@@ -0,0 +1,37 @@
+package com.fidelity.promptlab.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Aggregated fills for one symbol over [start, end).
+ *
+ * Open and close are the prices of the earliest and latest fills by
+ * executedAt; volume is the total quantity traded, buys and sells alike,
+ * and notional the total of price times quantity.
+ */
+public record OhlcvBar(
+    String symbol,
+    LocalDateTime start,
+    LocalDateTime end,
+    BigDecimal open,
+    BigDecimal high,
+    BigDecimal low,
+    BigDecimal close,
+    long count,
+    long volume,
+    BigDecimal notional
+) {
+    public static final int VWAP_SCALE = 6;
+
+    /**
+     * Volume-weighted average price, absent when nothing traded.
+     */
+    public Optional<BigDecimal> getVwap() {
+        return volume == 0
+                ? Optional.empty()
+                : Optional.of(notional.divide(BigDecimal.valueOf(volume), VWAP_SCALE, RoundingMode.HALF_UP));
+    }
+}
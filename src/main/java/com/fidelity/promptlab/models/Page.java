@@ -0,0 +1,31 @@
+package com.fidelity.promptlab.models;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One page of a keyset-paginated query.
+ *
+ * The cursor is opaque to callers: pass it back unchanged to fetch the
+ * next page. It is absent on the last page.
+ *
+ * @param <T> The item type
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+
+    public Page {
+        items = List.copyOf(items);
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(List.of(), null);
+    }
+
+    public Optional<String> getNextCursor() {
+        return Optional.ofNullable(nextCursor);
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.fidelity.promptlab.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Portfolio performance over a period.
+ *
+ * Both returns are percentages rounded to 2 decimal places, like
+ * Challenge2Tests.PortfolioReturn. The time-weighted return chains daily
+ * sub-period returns and is unaffected by the size or timing of cash flows.
+ * The money-weighted return is the annualized internal rate of return of
+ * the period's cash flows, and is absent when it cannot be solved.
+ */
+public record PerformanceReturn(
+    String portfolioId,
+    LocalDate from,
+    LocalDate to,
+    BigDecimal timeWeightedReturn,
+    BigDecimal moneyWeightedReturn
+) {
+    public Optional<BigDecimal> getMoneyWeightedReturn() {
+        return Optional.ofNullable(moneyWeightedReturn);
+    }
+}
@@ -0,0 +1,27 @@
+package com.fidelity.promptlab.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Immutable, versioned snapshot of a portfolio's valuation.
+ *
+ * Amounts are in {@code currency} (the base currency unless converted),
+ * rounded to 2 decimal places; allocation weights are fractions of total
+ * value rounded to 4 decimal places.
+ */
+public record PortfolioAnalytics(
+    String portfolioId,
+    long version,
+    String currency,
+    BigDecimal totalValue,
+    BigDecimal costBasis,
+    BigDecimal unrealizedGainLoss,
+    Map<String, BigDecimal> allocationBySymbol,
+    LocalDateTime computedAt
+) {
+    public PortfolioAnalytics {
+        allocationBySymbol = Map.copyOf(allocationBySymbol);
+    }
+}
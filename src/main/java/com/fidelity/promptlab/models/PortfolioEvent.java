@@ -0,0 +1,28 @@
+package com.fidelity.promptlab.models;
+
+import java.time.Instant;
+
+/**
+ * Change events published on the PortfolioEventBus. Every event belongs to
+ * one portfolio; events for the same portfolio are delivered in publish order.
+ *
+ * Usage:
+ *   bus.subscribe("valuation", 256, 10_000, PortfolioEventBus.Backpressure.DROP, events -> {
+ *       for (PortfolioEvent event : events) {
+ *           if (event instanceof PortfolioEvent.TransactionRecorded recorded) { ... }
+ *       }
+ *   });
+ */
+public sealed interface PortfolioEvent
+        permits PortfolioEvent.PortfolioSaved, PortfolioEvent.TransactionRecorded, PortfolioEvent.TransactionCompleted {
+
+    String portfolioId();
+
+    Instant occurredAt();
+
+    record PortfolioSaved(String portfolioId, Portfolio portfolio, Instant occurredAt) implements PortfolioEvent {}
+
+    record TransactionRecorded(String portfolioId, Transaction transaction, Instant occurredAt) implements PortfolioEvent {}
+
+    record TransactionCompleted(String portfolioId, Transaction transaction, Instant occurredAt) implements PortfolioEvent {}
+}
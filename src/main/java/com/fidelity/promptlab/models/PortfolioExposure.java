@@ -0,0 +1,16 @@
+package com.fidelity.promptlab.models;
+
+import java.math.BigDecimal;
+
+/**
+ * One portfolio's position in a symbol and its share of the portfolio's value.
+ *
+ * Market value is in the base currency; weight is a fraction (0.05 = 5%).
+ */
+public record PortfolioExposure(
+    String portfolioId,
+    String symbol,
+    long quantity,
+    BigDecimal marketValue,
+    BigDecimal weight
+) {}
@@ -0,0 +1,15 @@
+package com.fidelity.promptlab.models;
+
+import java.math.BigDecimal;
+
+/**
+ * Quantity and average cost of one symbol, derived from the transaction ledger.
+ *
+ * A negative quantity is a short position. Average cost includes fees paid
+ * on the trades that opened or added to the position.
+ */
+public record Position(
+    String symbol,
+    long quantity,
+    BigDecimal averageCost
+) {}
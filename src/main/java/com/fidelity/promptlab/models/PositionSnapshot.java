@@ -0,0 +1,21 @@
+package com.fidelity.promptlab.models;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Positions of a portfolio as of a point in time, ordered by symbol.
+ *
+ * replayedTransactions is how many ledger entries were replayed on top of
+ * the checkpoint the snapshot started from.
+ */
+public record PositionSnapshot(
+    String portfolioId,
+    LocalDateTime asOf,
+    List<Position> positions,
+    long replayedTransactions
+) {
+    public PositionSnapshot {
+        positions = List.copyOf(positions);
+    }
+}
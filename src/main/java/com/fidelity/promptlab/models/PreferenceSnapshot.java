@@ -0,0 +1,55 @@
+package com.fidelity.promptlab.models;
+
+/**
+ * Immutable, versioned view of a user's preferences.
+ *
+ * Snapshots never change, so request threads can read or cache one without
+ * synchronization; an update installs a new snapshot with the next version.
+ *
+ * Usage:
+ *   PreferenceSnapshot prefs = userService.getPreferences(userId).orElseThrow();
+ *   userService.updatePreferences(userId, prefs.version(), p -> p.withTheme(UserPreferences.Theme.DARK));
+ */
+public record PreferenceSnapshot(
+    long version,
+    UserPreferences.Theme theme,
+    boolean notifications,
+    boolean twoFactorEnabled,
+    String defaultCurrency
+) {
+    public static PreferenceSnapshot from(UserPreferences preferences) {
+        UserPreferences source = preferences != null ? preferences : new UserPreferences();
+        return new PreferenceSnapshot(1, source.getTheme(), source.isNotifications(),
+                source.isTwoFactorEnabled(), source.getDefaultCurrency());
+    }
+
+    // Fresh mutable copy for code that still reads User.getPreferences()
+    public UserPreferences toPreferences() {
+        UserPreferences preferences = new UserPreferences();
+        preferences.setTheme(theme);
+        preferences.setNotifications(notifications);
+        preferences.setTwoFactorEnabled(twoFactorEnabled);
+        preferences.setDefaultCurrency(defaultCurrency);
+        return preferences;
+    }
+
+    public PreferenceSnapshot withTheme(UserPreferences.Theme theme) {
+        return new PreferenceSnapshot(version, theme, notifications, twoFactorEnabled, defaultCurrency);
+    }
+
+    public PreferenceSnapshot withNotifications(boolean notifications) {
+        return new PreferenceSnapshot(version, theme, notifications, twoFactorEnabled, defaultCurrency);
+    }
+
+    public PreferenceSnapshot withTwoFactorEnabled(boolean twoFactorEnabled) {
+        return new PreferenceSnapshot(version, theme, notifications, twoFactorEnabled, defaultCurrency);
+    }
+
+    public PreferenceSnapshot withDefaultCurrency(String defaultCurrency) {
+        return new PreferenceSnapshot(version, theme, notifications, twoFactorEnabled, defaultCurrency);
+    }
+
+    public PreferenceSnapshot withVersion(long version) {
+        return new PreferenceSnapshot(version, theme, notifications, twoFactorEnabled, defaultCurrency);
+    }
+}
@@ -0,0 +1,16 @@
+package com.fidelity.promptlab.models;
+
+import java.math.BigDecimal;
+
+/**
+ * Firm-wide exposure to one symbol across every indexed portfolio.
+ *
+ * Market value is in the base currency, at the symbol's latest known price.
+ */
+public record SymbolExposure(
+    String symbol,
+    int holders,
+    long quantity,
+    BigDecimal price,
+    BigDecimal marketValue
+) {}
@@ -0,0 +1,86 @@
+package com.fidelity.promptlab.models;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns ticker symbols into dense int ids so holdings can be stored
+ * in primitive arrays instead of by String.
+ *
+ * Ids are assigned in first-seen order starting at 0 and never change,
+ * which lets other structures use them directly as array indexes.
+ */
+public class SymbolTable {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[64];
+    private volatile String[] names = new String[64];
+    private int size;
+
+    /**
+     * Returns the id for the symbol, assigning the next free id if it is new.
+     */
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        return internSlow(symbol, null);
+    }
+
+    /**
+     * Same as {@link #intern(String)} but also records the display name
+     * used when materializing {@link Holding} views.
+     */
+    public int intern(String symbol, String name) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            if (name != null && names[id] == null) {
+                recordName(id, name);
+            }
+            return id;
+        }
+        return internSlow(symbol, name);
+    }
+
+    private synchronized int internSlow(String symbol, String name) {
+        Integer existing = ids.get(symbol);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == symbols.length) {
+            names = Arrays.copyOf(names, size * 2);
+            symbols = Arrays.copyOf(symbols, size * 2);
+        }
+        int id = size;
+        names[id] = name;
+        symbols[id] = symbol;
+        size = id + 1;
+        ids.put(symbol, id);
+        return id;
+    }
+
+    private synchronized void recordName(int id, String name) {
+        // Under the same lock as growth, so the write cannot land in an array being replaced
+        if (names[id] == null) {
+            names[id] = name;
+        }
+    }
+
+    public Optional<Integer> find(String symbol) {
+        return Optional.ofNullable(ids.get(symbol));
+    }
+
+    public String symbol(int id) {
+        return symbols[id];
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
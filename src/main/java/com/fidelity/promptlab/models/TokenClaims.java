@@ -0,0 +1,20 @@
+package com.fidelity.promptlab.models;
+
+import java.time.Instant;
+
+/**
+ * Verified contents of a signed session token. generation is the user's
+ * revocation generation when the token was issued.
+ */
+public record TokenClaims(
+    String tokenId,
+    String userId,
+    UserRole role,
+    Instant issuedAt,
+    Instant expiresAt,
+    long generation
+) {
+    public boolean isExpiredAt(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+}
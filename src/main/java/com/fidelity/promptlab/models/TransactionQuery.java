@@ -0,0 +1,72 @@
+package com.fidelity.promptlab.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Criteria for a paginated transaction query.
+ *
+ * Results are ordered by (executedAt, id). Optional filters are null when unset;
+ * the date range is inclusive on both ends, matching getTransactionHistory.
+ *
+ * Usage:
+ *   TransactionQuery query = TransactionQuery.forPortfolio(portfolioId)
+ *           .between(start, end)
+ *           .withType(Transaction.TransactionType.SELL)
+ *           .newestFirst()
+ *           .limit(100);
+ *   Page<Transaction> page = portfolioService.queryTransactions(query);
+ *   page = portfolioService.queryTransactions(query.after(page.nextCursor()));
+ */
+public record TransactionQuery(
+    String portfolioId,
+    LocalDateTime from,
+    LocalDateTime to,
+    Transaction.TransactionType type,
+    String symbol,
+    boolean descending,
+    int limit,
+    String cursor
+) {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 1000;
+
+    public TransactionQuery {
+        if (portfolioId == null || portfolioId.isBlank()) {
+            throw new IllegalArgumentException("Portfolio id is required");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+    }
+
+    public static TransactionQuery forPortfolio(String portfolioId) {
+        return new TransactionQuery(portfolioId, null, null, null, null, false, DEFAULT_LIMIT, null);
+    }
+
+    public TransactionQuery between(LocalDateTime from, LocalDateTime to) {
+        return new TransactionQuery(portfolioId, from, to, type, symbol, descending, limit, cursor);
+    }
+
+    public TransactionQuery withType(Transaction.TransactionType type) {
+        return new TransactionQuery(portfolioId, from, to, type, symbol, descending, limit, cursor);
+    }
+
+    public TransactionQuery withSymbol(String symbol) {
+        return new TransactionQuery(portfolioId, from, to, type, symbol, descending, limit, cursor);
+    }
+
+    public TransactionQuery newestFirst() {
+        return new TransactionQuery(portfolioId, from, to, type, symbol, true, limit, cursor);
+    }
+
+    public TransactionQuery limit(int limit) {
+        return new TransactionQuery(portfolioId, from, to, type, symbol, descending, limit, cursor);
+    }
+
+    public TransactionQuery after(String cursor) {
+        return new TransactionQuery(portfolioId, from, to, type, symbol, descending, limit, cursor);
+    }
+}
@@ -0,0 +1,75 @@
+package com.fidelity.promptlab.models;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Criteria for a transaction scan across many portfolios.
+ *
+ * Unlike {@link TransactionQuery}, which pages through one portfolio, a scan
+ * fans out over a set of portfolios (all of them when portfolioIds is null)
+ * and returns the first {@code limit} matches in (executedAt, id) order. A
+ * scan that stops at the limit returns a keyset cursor; pass it back through
+ * {@link #after(String)} to continue from the last row returned.
+ *
+ * Usage:
+ *   TransactionScanQuery query = TransactionScanQuery.allPortfolios()
+ *           .withType(Transaction.TransactionType.SELL)
+ *           .withSymbol("AAPL")
+ *           .between(quarterStart, quarterEnd)
+ *           .limit(100_000);
+ */
+public record TransactionScanQuery(
+    Set<String> portfolioIds,
+    LocalDateTime from,
+    LocalDateTime to,
+    Transaction.TransactionType type,
+    String symbol,
+    boolean descending,
+    int limit,
+    String cursor
+) {
+    public static final int DEFAULT_LIMIT = 10_000;
+
+    public TransactionScanQuery {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        portfolioIds = portfolioIds == null ? null : Set.copyOf(portfolioIds);
+    }
+
+    public static TransactionScanQuery allPortfolios() {
+        return new TransactionScanQuery(null, null, null, null, null, false, DEFAULT_LIMIT, null);
+    }
+
+    public static TransactionScanQuery forPortfolios(Set<String> portfolioIds) {
+        return new TransactionScanQuery(portfolioIds, null, null, null, null, false, DEFAULT_LIMIT, null);
+    }
+
+    public TransactionScanQuery between(LocalDateTime from, LocalDateTime to) {
+        return new TransactionScanQuery(portfolioIds, from, to, type, symbol, descending, limit, cursor);
+    }
+
+    public TransactionScanQuery withType(Transaction.TransactionType type) {
+        return new TransactionScanQuery(portfolioIds, from, to, type, symbol, descending, limit, cursor);
+    }
+
+    public TransactionScanQuery withSymbol(String symbol) {
+        return new TransactionScanQuery(portfolioIds, from, to, type, symbol, descending, limit, cursor);
+    }
+
+    public TransactionScanQuery newestFirst() {
+        return new TransactionScanQuery(portfolioIds, from, to, type, symbol, true, limit, cursor);
+    }
+
+    public TransactionScanQuery limit(int limit) {
+        return new TransactionScanQuery(portfolioIds, from, to, type, symbol, descending, limit, cursor);
+    }
+
+    public TransactionScanQuery after(String cursor) {
+        return new TransactionScanQuery(portfolioIds, from, to, type, symbol, descending, limit, cursor);
+    }
+}
@@ -1,5 +1,7 @@
 package com.fidelity.promptlab.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.time.LocalDateTime;
 import java.util.Optional;
 
@@ -15,6 +17,8 @@ public class User {
     private LocalDateTime createdAt;
     private LocalDateTime lastLogin;
     private UserPreferences preferences;
+    private String passwordHash;
+    private LocalDateTime deletedAt;
 
     public User() {}
 
@@ -52,4 +56,16 @@ public class User {
 
     public UserPreferences getPreferences() { return preferences; }
     public void setPreferences(UserPreferences preferences) { this.preferences = preferences; }
+
+    // Encoded PBKDF2 hash (see PasswordHasher); never serialized
+    @JsonIgnore
+    public String getPasswordHash() { return passwordHash; }
+    public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; }
+
+    // Set when the user is soft-deleted; the record is purged after the retention period
+    public Optional<LocalDateTime> getDeletedAt() { return Optional.ofNullable(deletedAt); }
+    public void setDeletedAt(LocalDateTime deletedAt) { this.deletedAt = deletedAt; }
+
+    @JsonIgnore
+    public boolean isDeleted() { return deletedAt != null; }
 }
@@ -1,10 +1,18 @@
 package com.fidelity.promptlab.models;
 
 /**
- * Enum representing user roles in the system.
+ * Enum representing user roles in the system, declared in ascending privilege.
  */
 public enum UserRole {
     CUSTOMER,
     ADVISOR,
-    ADMIN
+    ADMIN;
+
+    /**
+     * Whether a holder of this role may create accounts with the given role:
+     * only roles at or below its own.
+     */
+    public boolean canGrant(UserRole role) {
+        return role.compareTo(this) <= 0;
+    }
 }
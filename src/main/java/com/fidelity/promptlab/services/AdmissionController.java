@@ -0,0 +1,281 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.Result;
+import com.fidelity.promptlab.models.UserRole;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Role-weighted admission control with an adaptive concurrency limit.
+ *
+ * There is one limit on calls in flight, shared by every role, but each role
+ * may only fill its share of it: with the default shares advisors are
+ * turned away once half the limit is in use, leaving the rest for customer
+ * trades. Nothing queues; a call over its role's share fails at once with
+ * OVERLOADED so callers can back off instead of stacking up.
+ *
+ * The limit itself follows observed latency, TCP Vegas style. Over each
+ * window of completed calls the average latency is compared with the lowest
+ * latency seen (the no-load latency) to estimate how many calls are queued
+ * downstream; the limit grows while that queue is short, shrinks when it
+ * grows, and is cut by 10% when calls fail (AIMD). The no-load latency is
+ * re-sampled periodically so the limit can recover after a baseline shift.
+ *
+ * Completing a call never blocks: window statistics accumulate in striped
+ * adders, and only the call that completes a window takes the lock to adjust
+ * the limit. If another call already holds it, that call does the adjusting.
+ * Samples that land while a window is being closed may count towards either
+ * window, which skews an average over a hundred calls by at most a few.
+ *
+ * Usage:
+ *   Result<Transaction, ApiError> result = admission.execute(UserRole.CUSTOMER,
+ *           () -> Result.success(portfolioService.recordTransaction(transaction)));
+ */
+@Service
+public class AdmissionController {
+
+    public record Settings(
+        int initialLimit,
+        int minLimit,
+        int maxLimit,
+        Map<UserRole, Double> shares,
+        int sampleWindow,
+        int windowsPerProbe
+    ) {
+        public Settings {
+            if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+                throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+            }
+            if (sampleWindow < 1 || windowsPerProbe < 1) {
+                throw new IllegalArgumentException("Sample window and probe interval must be positive");
+            }
+            for (UserRole role : UserRole.values()) {
+                Double share = shares.get(role);
+                if (share == null || share <= 0 || share > 1) {
+                    throw new IllegalArgumentException("Share for " + role + " must be in (0, 1]");
+                }
+            }
+            shares = Map.copyOf(shares);
+        }
+
+        public static Settings defaults() {
+            return new Settings(20, 4, 1_000,
+                    Map.of(UserRole.CUSTOMER, 1.0, UserRole.ADMIN, 0.8, UserRole.ADVISOR, 0.5),
+                    100, 50);
+        }
+    }
+
+    /**
+     * Point-in-time metrics. Latencies are in microseconds.
+     */
+    public record Metrics(
+        int limit,
+        int inFlight,
+        Map<UserRole, Long> admitted,
+        Map<UserRole, Long> rejected,
+        long noLoadLatencyMicros,
+        long latencyP50Micros,
+        long latencyP99Micros
+    ) {}
+
+    /**
+     * An admitted call; close it exactly once when the call finishes.
+     */
+    public final class Permit implements AutoCloseable {
+        private final long startedAt = System.nanoTime();
+        private final int inFlightAtStart;
+        private boolean failed;
+        private boolean closed;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Marks the call as failed (error or timeout), which backs the limit off.
+         */
+        public void markFailed() {
+            failed = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            inFlight.decrementAndGet();
+            long elapsed = System.nanoTime() - startedAt;
+            latency.recordNanos(elapsed);
+            onSample(elapsed, inFlightAtStart, failed);
+        }
+    }
+
+    private final Settings settings;
+    private final double[] shares = new double[UserRole.values().length];
+    private final UserRole unidentified;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<UserRole, LongAdder> admitted = new EnumMap<>(UserRole.class);
+    private final Map<UserRole, LongAdder> rejected = new EnumMap<>(UserRole.class);
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile int limit;
+    private volatile long noLoadNanos = Long.MAX_VALUE;
+
+    // Current window, written by every completing call without locking
+    private final LongAdder windowSamples = new LongAdder();
+    private final LongAdder windowSumNanos = new LongAdder();
+    private final LongAccumulator windowMinNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator windowMaxInFlight = new LongAccumulator(Math::max, 0);
+    private final LongAdder windowFailures = new LongAdder();
+
+    // Taken only to close a window; guards exactLimit and windows
+    private final ReentrantLock windowLock = new ReentrantLock();
+    private double exactLimit;
+    private int windows;
+
+    public AdmissionController() {
+        this(Settings.defaults());
+    }
+
+    public AdmissionController(Settings settings) {
+        this.settings = settings;
+        UserRole smallest = null;
+        for (UserRole role : UserRole.values()) {
+            shares[role.ordinal()] = settings.shares().get(role);
+            admitted.put(role, new LongAdder());
+            rejected.put(role, new LongAdder());
+            if (smallest == null || shares[role.ordinal()] < shares[smallest.ordinal()]) {
+                smallest = role;
+            }
+        }
+        this.unidentified = smallest;
+        this.exactLimit = settings.initialLimit();
+        this.limit = settings.initialLimit();
+    }
+
+    /**
+     * Admits a call if the role is under its share of the limit. A call with
+     * no role is held to the smallest share, never a privileged one.
+     */
+    public Result<Permit, ApiError> tryAcquire(UserRole role) {
+        UserRole effective = role == null ? unidentified : role;
+        int allowed = Math.max(1, (int) (limit * shares[effective.ordinal()]));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                rejected.get(effective).increment();
+                return Result.failure(new ApiError("OVERLOADED", "Service is at capacity, retry later")
+                        .addDetail("role", effective)
+                        .addDetail("limit", allowed));
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.get(effective).increment();
+                return Result.success(new Permit(current + 1));
+            }
+        }
+    }
+
+    /**
+     * Runs the work under a permit. An exception counts as a failed call; a
+     * failure result does not, since it is a business outcome, not overload.
+     */
+    public <T> Result<T, ApiError> execute(UserRole role, Supplier<Result<T, ApiError>> work) {
+        Result<Permit, ApiError> admission = tryAcquire(role);
+        if (admission.isFailure()) {
+            return Result.failure(admission.getError().orElseThrow());
+        }
+        try (Permit permit = admission.getData().orElseThrow()) {
+            try {
+                return work.get();
+            } catch (RuntimeException e) {
+                permit.markFailed();
+                throw e;
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public Metrics getMetrics() {
+        Map<UserRole, Long> admittedCounts = new EnumMap<>(UserRole.class);
+        Map<UserRole, Long> rejectedCounts = new EnumMap<>(UserRole.class);
+        for (UserRole role : UserRole.values()) {
+            admittedCounts.put(role, admitted.get(role).sum());
+            rejectedCounts.put(role, rejected.get(role).sum());
+        }
+        long noLoad = noLoadNanos;
+        return new Metrics(limit, inFlight.get(), admittedCounts, rejectedCounts,
+                noLoad == Long.MAX_VALUE ? 0 : noLoad / 1_000,
+                latency.percentileMicros(50), latency.percentileMicros(99));
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private void onSample(long nanos, int inFlightAtStart, boolean failed) {
+        windowSumNanos.add(nanos);
+        windowMinNanos.accumulate(nanos);
+        windowMaxInFlight.accumulate(inFlightAtStart);
+        if (failed) {
+            windowFailures.increment();
+        }
+        windowSamples.increment();
+        if (windowSamples.sum() < settings.sampleWindow() || !windowLock.tryLock()) {
+            return;
+        }
+        try {
+            // Re-check: the call holding the lock before us may have closed this window already
+            if (windowSamples.sum() >= settings.sampleWindow()) {
+                closeWindow();
+            }
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    // Caller holds windowLock
+    private void closeWindow() {
+        long samples = windowSamples.sumThenReset();
+        long sumNanos = windowSumNanos.sumThenReset();
+        long minNanos = windowMinNanos.getThenReset();
+        long maxInFlight = windowMaxInFlight.getThenReset();
+        boolean windowFailed = windowFailures.sumThenReset() > 0;
+
+        long baseline = noLoadNanos;
+        if (++windows % settings.windowsPerProbe() == 0) {
+            // Re-sample the baseline so a lasting slowdown is not read as queueing forever
+            baseline = minNanos;
+        } else {
+            baseline = Math.min(baseline, minNanos);
+        }
+        noLoadNanos = baseline;
+
+        double next = exactLimit;
+        if (windowFailed) {
+            next = exactLimit * 0.9;
+        } else {
+            double step = Math.max(1, Math.log10(exactLimit));
+            double averageNanos = (double) sumNanos / samples;
+            double queued = exactLimit * (1 - baseline / averageNanos);
+            if (queued >= 6 * step) {
+                next = exactLimit - step;
+            } else if (queued <= 3 * step && maxInFlight * 2 >= exactLimit) {
+                // Only grow when the limit was actually being used
+                next = exactLimit + step;
+            }
+        }
+        exactLimit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(), next));
+        limit = (int) exactLimit;
+    }
+}
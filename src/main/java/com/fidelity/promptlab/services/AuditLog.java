@@ -0,0 +1,414 @@
+package com.fidelity.promptlab.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fidelity.promptlab.models.AuditRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, batched, append-only audit log.
+ *
+ * Callers build an {@link AuditRecord} (field diffs included) on their own
+ * thread and publish it into a bounded lock-free ring buffer: one CAS and
+ * one array store, no I/O. A single writer thread drains the ring in batches,
+ * appends them as NDJSON to the log file and fsyncs at most once per
+ * fsyncInterval, so write latency is decoupled from disk latency.
+ *
+ * When the ring is full the overflow policy decides:
+ * - BLOCK: the caller waits for space (no loss, back-pressures writers)
+ * - DROP:  the record is discarded and counted
+ * - SPILL: the record goes to an unbounded side queue drained after the
+ *          ring; order between spilled and ring records is not preserved,
+ *          but sequence numbers in the file are
+ *
+ * {@link #flush(Duration)} waits until everything accepted so far is on disk.
+ * A batch that fails mid-write is truncated back to the last complete line,
+ * so the file never holds a torn record.
+ *
+ * There is no default location: the application supplies the Settings (as a
+ * bean under Spring). The writer thread starts with the first record, not
+ * during construction.
+ *
+ * Usage:
+ *   AuditLog audit = new AuditLog(AuditLog.Settings.defaults(Path.of("audit.ndjson")));
+ *   audit.record(AuditRecord.of("User", id, "UPDATE", changes));
+ *   audit.flush(Duration.ofSeconds(1));
+ */
+@Service
+public class AuditLog implements AutoCloseable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    public enum OverflowPolicy {
+        BLOCK, DROP, SPILL
+    }
+
+    public record Settings(
+        Path file,
+        int capacity,
+        int maxBatchSize,
+        Duration fsyncInterval,
+        OverflowPolicy overflowPolicy
+    ) {
+        public Settings {
+            if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("Capacity must be a power of two");
+            }
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("Batch size must be positive");
+            }
+        }
+
+        public static Settings defaults(Path file) {
+            return new Settings(file, 1 << 16, 1_024, Duration.ofMillis(50), OverflowPolicy.BLOCK);
+        }
+    }
+
+    /**
+     * Point-in-time metrics. Latencies are in microseconds.
+     */
+    public record Metrics(
+        long accepted,
+        long written,
+        long durable,
+        long dropped,
+        long spilled,
+        long failed,
+        long fsyncs,
+        long fsyncP99Micros,
+        long batchP99Micros
+    ) {}
+
+    private final Settings settings;
+    private final FileChannel channel;
+    private final ObjectMapper objectMapper;
+    private final AtomicReferenceArray<AuditRecord> ring;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+    private final Queue<AuditRecord> spill = new ConcurrentLinkedQueue<>();
+    // Started by the first record; guarded by this for the start/close handoff
+    private volatile Thread writer;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    // Records lost to write or fsync errors
+    private final LongAdder failedRecords = new LongAdder();
+    private final LatencyHistogram fsyncTime = new LatencyHistogram();
+    private final LatencyHistogram batchTime = new LatencyHistogram();
+    // Records handed to the file, and records either fsynced or lost (settled)
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong settled = new AtomicLong();
+    private volatile long fsyncs;
+
+    private volatile boolean running = true;
+    private volatile boolean writerIdle;
+    private volatile boolean flushRequested;
+    // Writer thread only: a failed batch could not be truncated, so the next one starts on a fresh line
+    private boolean tornTail;
+
+    @Autowired
+    public AuditLog(Settings settings) {
+        this(settings, open(settings.file()));
+    }
+
+    // Test seam for injecting I/O failures
+    AuditLog(Settings settings, FileChannel channel) {
+        this.settings = settings;
+        this.channel = channel;
+        this.objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.ring = new AtomicReferenceArray<>(settings.capacity());
+        this.mask = settings.capacity() - 1;
+    }
+
+    private static FileChannel open(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit log " + file, e);
+        }
+    }
+
+    /**
+     * Publishes a record for the writer thread.
+     *
+     * @return false if the record was dropped (DROP policy with a full ring, or the log is closed)
+     */
+    public boolean record(AuditRecord record) {
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        if (writer == null) {
+            startWriter();
+        }
+        while (!tryPublish(record)) {
+            switch (settings.overflowPolicy()) {
+                case DROP -> {
+                    dropped.increment();
+                    return false;
+                }
+                case SPILL -> {
+                    spill.add(record);
+                    spilled.increment();
+                    wakeWriter();
+                    return true;
+                }
+                case BLOCK -> {
+                    wakeWriter();
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    if (!running) {
+                        dropped.increment();
+                        return false;
+                    }
+                }
+            }
+        }
+        if (writerIdle) {
+            wakeWriter();
+        }
+        return true;
+    }
+
+    /**
+     * Blocks until every record accepted before this call has been written
+     * and fsynced, or the timeout passes.
+     *
+     * @return true if the records are durable; false on timeout or if an I/O error lost records meanwhile
+     */
+    public boolean flush(Duration timeout) {
+        long target = producerIndex.get() + spilled.sum();
+        long failedBefore = failedRecords.sum();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (settled.get() < target) {
+            Thread current = writer;
+            if (System.nanoTime() - deadline >= 0 || current == null || !current.isAlive()) {
+                return false;
+            }
+            flushRequested = true;
+            wakeWriter();
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        return failedRecords.sum() == failedBefore;
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(
+                producerIndex.get() + spilled.sum(),
+                written.get(),
+                settled.get() - failedRecords.sum(),
+                dropped.sum(),
+                spilled.sum(),
+                failedRecords.sum(),
+                fsyncs,
+                fsyncTime.percentileMicros(99),
+                batchTime.percentileMicros(99));
+    }
+
+    /**
+     * Stops accepting records, drains what was accepted, fsyncs and closes the file.
+     */
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = writer;
+        }
+        if (current != null) {
+            LockSupport.unpark(current);
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to do with a close failure; every accepted record has already settled
+        }
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    // Multi-producer claim: reserve a slot by CAS, then publish with a release store
+    private boolean tryPublish(AuditRecord record) {
+        while (true) {
+            long position = producerIndex.get();
+            if (position - consumerIndex.get() >= ring.length()) {
+                return false;
+            }
+            if (producerIndex.compareAndSet(position, position + 1)) {
+                ring.lazySet((int) (position & mask), record);
+                return true;
+            }
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writer != null || !running) {
+            return;
+        }
+        Thread thread = new Thread(this::runWriter, "audit-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        writer = thread;
+    }
+
+    private void wakeWriter() {
+        Thread current = writer;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    private void runWriter() {
+        List<AuditRecord> batch = new ArrayList<>(settings.maxBatchSize());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+        long fsyncIntervalNanos = settings.fsyncInterval().toNanos();
+        long lastFsync = System.nanoTime();
+        long sequence = 0;
+
+        while (true) {
+            boolean stopping = !running;
+            drain(batch);
+            if (!batch.isEmpty()) {
+                long started = System.nanoTime();
+                sequence = writeBatch(batch, buffer, sequence);
+                batchTime.recordNanos(System.nanoTime() - started);
+                batch.clear();
+            }
+            long now = System.nanoTime();
+            boolean dirty = settled.get() < written.get();
+            if (dirty && (flushRequested || stopping || now - lastFsync >= fsyncIntervalNanos)) {
+                flushRequested = false;
+                fsync();
+                lastFsync = System.nanoTime();
+            } else if (!dirty && flushRequested) {
+                flushRequested = false;
+            }
+            if (stopping && isEmpty()) {
+                fsync();
+                return;
+            }
+            if (isEmpty()) {
+                writerIdle = true;
+                // Re-check after announcing idleness so a publish in between is not missed
+                if (isEmpty() && running && !flushRequested) {
+                    LockSupport.parkNanos(dirty ? Math.max(1, fsyncIntervalNanos - (now - lastFsync)) : IDLE_PARK_NANOS);
+                }
+                writerIdle = false;
+            }
+        }
+    }
+
+    private void drain(List<AuditRecord> batch) {
+        long consumed = consumerIndex.get();
+        long available = producerIndex.get();
+        int limit = settings.maxBatchSize();
+        while (consumed < available && batch.size() < limit) {
+            int slot = (int) (consumed & mask);
+            AuditRecord record = ring.get(slot);
+            if (record == null) {
+                // Slot claimed but the producer has not stored it yet; pick it up next round
+                break;
+            }
+            ring.lazySet(slot, null);
+            batch.add(record);
+            consumed++;
+        }
+        consumerIndex.lazySet(consumed);
+        AuditRecord spilledRecord;
+        while (batch.size() < limit && (spilledRecord = spill.poll()) != null) {
+            batch.add(spilledRecord);
+        }
+    }
+
+    private boolean isEmpty() {
+        return consumerIndex.get() == producerIndex.get() && spill.isEmpty();
+    }
+
+    private long writeBatch(List<AuditRecord> batch, ByteArrayOutputStream buffer, long sequence) {
+        buffer.reset();
+        long next = sequence;
+        long start = -1;
+        try {
+            if (tornTail) {
+                buffer.write('\n');
+            }
+            for (AuditRecord record : batch) {
+                objectMapper.writeValue(buffer, record.withSequence(++next));
+                buffer.write('\n');
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            start = channel.size();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            tornTail = false;
+        } catch (IOException e) {
+            // The batch is lost; it still settles so flush() reports the failure instead of timing out
+            failedRecords.add(batch.size());
+            if (start >= 0) {
+                discardPartialWrite(start);
+            }
+        }
+        written.addAndGet(batch.size());
+        return next;
+    }
+
+    // Cuts the file back to where the failed batch began
+    private void discardPartialWrite(long start) {
+        try {
+            if (channel.size() > start) {
+                channel.truncate(start);
+            }
+        } catch (IOException e) {
+            tornTail = true;
+        }
+    }
+
+    private void fsync() {
+        long target = written.get();
+        long started = System.nanoTime();
+        try {
+            channel.force(false);
+            fsyncs++;
+            fsyncTime.recordNanos(System.nanoTime() - started);
+        } catch (IOException e) {
+            // Whatever was written since the last good fsync may not be on disk
+            failedRecords.add(target - settled.get());
+        }
+        settled.set(target);
+    }
+}
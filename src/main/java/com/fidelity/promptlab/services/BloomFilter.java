@@ -0,0 +1,227 @@
+package com.fidelity.promptlab.services;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Scalable, thread-safe Bloom filter over String keys.
+ *
+ * Keys go into the newest of a chain of stages. When a stage reaches its
+ * capacity a new one is added with twice the capacity and half the target
+ * false-positive rate, so the overall rate stays under the configured one
+ * however many keys arrive (Almeida et al., "Scalable Bloom Filters").
+ * Bits are set with CAS on an AtomicLongArray, so adds and lookups never
+ * lock; only adding a stage does. Each key's probes fall in one 64-byte
+ * block of a stage, so a lookup touches one cache line per stage.
+ *
+ * Each key is hashed once to 64 bits; one mix of it picks the block and
+ * another supplies the probe positions within it. String.hashCode is not
+ * used: sequential ids such as "u-1000".."u-9999" collide often enough
+ * under it to swamp the target rate. Keys cannot be removed; see
+ * {@link KeyFilter} for rebuilding after deletes.
+ */
+public class BloomFilter {
+    private static final double TIGHTENING_RATIO = 0.5;
+    private static final double LN2 = Math.log(2);
+
+    private final double falsePositiveRate;
+    private volatile Stage[] stages;
+
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys < 1) {
+            throw new IllegalArgumentException("Expected keys must be positive");
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1");
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        // The first stage gets half the budget so the geometric series of stages sums to the target
+        this.stages = new Stage[] {new Stage(expectedKeys, falsePositiveRate * (1 - TIGHTENING_RATIO))};
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        long h1 = mix(hash ^ 0x9E3779B97F4A7C15L);
+        long h2 = mix(hash ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        Stage[] current = stages;
+        Stage last = current[current.length - 1];
+        if (last.count.get() >= last.capacity) {
+            last = grow(last);
+        }
+        last.add(h1, h2);
+    }
+
+    /**
+     * False means the key was definitely never added.
+     */
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        long h1 = mix(hash ^ 0x9E3779B97F4A7C15L);
+        long h2 = mix(hash ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        for (Stage stage : stages) {
+            if (stage.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * False-positive rate implied by the current fill of every stage.
+     */
+    public double expectedFalsePositiveRate() {
+        double allNegative = 1;
+        for (Stage stage : stages) {
+            allNegative *= 1 - stage.expectedFalsePositiveRate();
+        }
+        return 1 - allNegative;
+    }
+
+    public long approximateSize() {
+        long size = 0;
+        for (Stage stage : stages) {
+            size += stage.count.get();
+        }
+        return size;
+    }
+
+    public long bitCount() {
+        long bits = 0;
+        for (Stage stage : stages) {
+            bits += stage.bits;
+        }
+        return bits;
+    }
+
+    public int stageCount() {
+        return stages.length;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    private synchronized Stage grow(Stage full) {
+        Stage[] current = stages;
+        Stage last = current[current.length - 1];
+        if (last != full) {
+            return last;
+        }
+        Stage[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = new Stage(full.capacity * 2, full.targetRate * TIGHTENING_RATIO);
+        stages = grown;
+        return grown[current.length];
+    }
+
+    // ==================== Internals ====================
+
+    // Blocked layout: a key's probes all fall in one 512-bit block, so a lookup costs one cache line per stage
+    private static final class Stage {
+        static final int WORDS_PER_BLOCK = 8;
+        static final int BITS_PER_BLOCK = WORDS_PER_BLOCK * 64;
+        // Each probe takes its own 9 bits of hash; stepping one position by a stride would
+        // make keys that share a block and a stride overlap on most of their bits
+        static final int PROBE_BITS = 9;
+        static final int PROBES_PER_HASH = 64 / PROBE_BITS;
+
+        final long capacity;
+        final double targetRate;
+        final int hashes;
+        final long bits;
+        final int blockMask;
+        final AtomicLongArray words;
+        final AtomicLong count = new AtomicLong();
+
+        Stage(long capacity, double targetRate) {
+            this.capacity = capacity;
+            this.targetRate = targetRate;
+            // Blocking costs some accuracy; a little over the textbook size recovers it
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(targetRate) / (LN2 * LN2) * 1.2);
+            long blocks = Math.max(1, Long.highestOneBit(Math.max(1, optimalBits / BITS_PER_BLOCK) - 1) << 1);
+            this.bits = blocks * BITS_PER_BLOCK;
+            this.blockMask = Math.toIntExact(blocks - 1);
+            this.hashes = Math.max(1, (int) Math.round(-Math.log(targetRate) / LN2));
+            this.words = new AtomicLongArray(Math.toIntExact(blocks * WORDS_PER_BLOCK));
+        }
+
+        void add(long h1, long h2) {
+            int base = ((int) h1 & blockMask) * WORDS_PER_BLOCK;
+            long probes = h2;
+            boolean changed = false;
+            for (int i = 0; i < hashes; i++, probes >>>= PROBE_BITS) {
+                if (i % PROBES_PER_HASH == 0 && i > 0) {
+                    probes = mix(h2 + i);
+                }
+                int probe = (int) probes;
+                int word = base + ((probe >>> 6) & (WORDS_PER_BLOCK - 1));
+                long flag = 1L << probe;
+                long value = words.get(word);
+                while ((value & flag) == 0) {
+                    long witness = words.compareAndExchange(word, value, value | flag);
+                    if (witness == value) {
+                        changed = true;
+                        break;
+                    }
+                    value = witness;
+                }
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+        }
+
+        boolean mightContain(long h1, long h2) {
+            int base = ((int) h1 & blockMask) * WORDS_PER_BLOCK;
+            long probes = h2;
+            for (int i = 0; i < hashes; i++, probes >>>= PROBE_BITS) {
+                if (i % PROBES_PER_HASH == 0 && i > 0) {
+                    probes = mix(h2 + i);
+                }
+                int probe = (int) probes;
+                if ((words.get(base + ((probe >>> 6) & (WORDS_PER_BLOCK - 1))) & (1L << probe)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Averaged per block from actual bit counts, since blocks fill unevenly
+        double expectedFalsePositiveRate() {
+            int blocks = blockMask + 1;
+            double sum = 0;
+            for (int block = 0; block < blocks; block++) {
+                int set = 0;
+                for (int w = 0; w < WORDS_PER_BLOCK; w++) {
+                    set += Long.bitCount(words.get(block * WORDS_PER_BLOCK + w));
+                }
+                sum += Math.pow((double) set / BITS_PER_BLOCK, hashes);
+            }
+            return sum / blocks;
+        }
+    }
+
+    // FNV-1a style, two chars per multiply to halve the dependency chain
+    private static long hash(String key) {
+        int length = key.length();
+        long h = 0xCBF29CE484222325L ^ length;
+        int i = 0;
+        for (; i + 1 < length; i += 2) {
+            h = (h ^ (key.charAt(i) | (long) key.charAt(i + 1) << 16)) * 0x100000001B3L;
+        }
+        if (i < length) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    // MurmurHash3 finalizer, so nearby hashes land on unrelated probe positions
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE1A85A4DL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,108 @@
+package com.fidelity.promptlab.services;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free circuit breaker for calls to a remote dependency.
+ *
+ * CLOSED lets calls through and counts consecutive failures; reaching the
+ * threshold moves to OPEN, which rejects calls until the open duration has
+ * elapsed. The first call after that moves to HALF_OPEN as a single trial:
+ * success closes the circuit, failure re-opens it.
+ *
+ * Usage:
+ *   if (!breaker.tryAcquire()) { return failFast(); }
+ *   ... call ...
+ *   breaker.onSuccess();   // or breaker.onFailure();
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private record Snapshot(State state, int consecutiveFailures, long openedAtMillis) {}
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Clock clock;
+    private final AtomicReference<Snapshot> snapshot =
+            new AtomicReference<>(new Snapshot(State.CLOSED, 0, 0));
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Returns true if a call may proceed. Only one caller wins the half-open trial.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            Snapshot current = snapshot.get();
+            if (current.state() == State.CLOSED) {
+                return true;
+            }
+            if (current.state() == State.HALF_OPEN
+                    || clock.millis() - current.openedAtMillis() < openMillis) {
+                return false;
+            }
+            if (snapshot.compareAndSet(current, new Snapshot(State.HALF_OPEN, current.consecutiveFailures(), 0))) {
+                return true;
+            }
+        }
+    }
+
+    public void onSuccess() {
+        Snapshot current = snapshot.get();
+        if (current.state() != State.CLOSED || current.consecutiveFailures() != 0) {
+            snapshot.set(new Snapshot(State.CLOSED, 0, 0));
+        }
+    }
+
+    public void onFailure() {
+        while (true) {
+            Snapshot current = snapshot.get();
+            Snapshot next;
+            if (current.state() == State.HALF_OPEN) {
+                next = new Snapshot(State.OPEN, current.consecutiveFailures() + 1, clock.millis());
+            } else if (current.state() == State.OPEN) {
+                return;
+            } else {
+                int failures = current.consecutiveFailures() + 1;
+                next = failures >= failureThreshold
+                        ? new Snapshot(State.OPEN, failures, clock.millis())
+                        : new Snapshot(State.CLOSED, failures, 0);
+            }
+            if (snapshot.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Releases a half-open trial whose call was abandoned without an outcome,
+     * so the next caller can run the trial instead.
+     */
+    public void onCancelled() {
+        Snapshot current = snapshot.get();
+        if (current.state() == State.HALF_OPEN) {
+            snapshot.compareAndSet(current,
+                    new Snapshot(State.OPEN, current.consecutiveFailures(), clock.millis() - openMillis));
+        }
+    }
+
+    public State getState() {
+        return snapshot.get().state();
+    }
+}
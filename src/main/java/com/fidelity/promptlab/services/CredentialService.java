@@ -0,0 +1,156 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.Result;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on a dedicated, bounded thread pool.
+ *
+ * PBKDF2 is deliberately slow, so a login storm would otherwise occupy every
+ * request thread. Here hashing has its own fixed pool and a bounded queue;
+ * when the queue is full the call fails immediately with AUTH_OVERLOADED
+ * instead of piling up. Queue wait and hash time are recorded separately so
+ * saturation (rising wait) can be told apart from slow hashing.
+ *
+ * Verification upgrades hashes in the same task: when a password matches a
+ * hash made with older parameters, the result carries a fresh hash for the
+ * caller to store.
+ */
+@Service
+public class CredentialService {
+
+    public record Settings(int threads, int queueCapacity, int iterations) {
+        public Settings {
+            if (threads < 1 || queueCapacity < 1) {
+                throw new IllegalArgumentException("Threads and queue capacity must be positive");
+            }
+        }
+
+        public static Settings defaults() {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            return new Settings(threads, threads * 64, PasswordHasher.DEFAULT_ITERATIONS);
+        }
+    }
+
+    /**
+     * Outcome of a verification; upgradedHash is non-null when the stored hash should be replaced.
+     */
+    public record CredentialCheck(boolean matches, String upgradedHash) {}
+
+    /**
+     * Point-in-time metrics. Latencies are in microseconds.
+     */
+    public record Metrics(
+        long completed,
+        long rejected,
+        int queueDepth,
+        long queueWaitP50Micros,
+        long queueWaitP99Micros,
+        long hashP50Micros,
+        long hashP99Micros
+    ) {}
+
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram hashTime = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    // Verified against when the user does not exist, so unknown emails cost the same as wrong passwords
+    private final String decoyHash;
+
+    public CredentialService() {
+        this(Settings.defaults());
+    }
+
+    public CredentialService(Settings settings) {
+        this.hasher = new PasswordHasher(settings.iterations());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                settings.threads(), settings.threads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.queueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "credential-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.decoyHash = hasher.hash("decoy-" + System.nanoTime());
+    }
+
+    public CompletableFuture<Result<String, ApiError>> hash(String password) {
+        if (password == null || password.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    Result.failure(new ApiError("INVALID_PASSWORD", "Password is required")));
+        }
+        return submit(() -> hasher.hash(password));
+    }
+
+    /**
+     * Verifies a password against a stored hash. A null stored hash is
+     * checked against a decoy so the call takes the same time and never matches.
+     */
+    public CompletableFuture<Result<CredentialCheck, ApiError>> verify(String password, String storedHash) {
+        if (password == null) {
+            return CompletableFuture.completedFuture(Result.success(new CredentialCheck(false, null)));
+        }
+        return submit(() -> {
+            if (storedHash == null) {
+                hasher.verify(password, decoyHash);
+                return new CredentialCheck(false, null);
+            }
+            PasswordHasher.Verification verification = hasher.verify(password, storedHash);
+            String upgraded = verification.needsRehash() ? hasher.hash(password) : null;
+            return new CredentialCheck(verification.matches(), upgraded);
+        });
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(
+                completed.sum(),
+                rejected.sum(),
+                executor.getQueue().size(),
+                queueWait.percentileMicros(50),
+                queueWait.percentileMicros(99),
+                hashTime.percentileMicros(50),
+                hashTime.percentileMicros(99));
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<Result<T, ApiError>> submit(Supplier<T> work) {
+        CompletableFuture<Result<T, ApiError>> future = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.recordNanos(startedAt - enqueuedAt);
+                try {
+                    future.complete(Result.success(work.get()));
+                } catch (RuntimeException e) {
+                    future.complete(Result.failure(new ApiError("AUTH_ERROR", "Credential check failed")));
+                } finally {
+                    hashTime.recordNanos(System.nanoTime() - startedAt);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.complete(Result.failure(new ApiError("AUTH_OVERLOADED", "Too many concurrent sign-in attempts")
+                    .addDetail("queueCapacity", executor.getQueue().remainingCapacity() + executor.getQueue().size())));
+        }
+        return future;
+    }
+}
@@ -0,0 +1,386 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.CurrencyTable;
+import com.fidelity.promptlab.models.FxRateMatrix;
+import com.fidelity.promptlab.models.Holding;
+import com.fidelity.promptlab.models.Portfolio;
+import com.fidelity.promptlab.models.PortfolioExposure;
+import com.fidelity.promptlab.models.SymbolExposure;
+import com.fidelity.promptlab.models.SymbolTable;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from symbol to the portfolios holding it, for concentration
+ * and firm-exposure queries that would otherwise scan every holding.
+ *
+ * Each symbol id owns a posting per holder with the quantity held and that
+ * quantity converted to base-currency units (quantity x FX rate), plus
+ * running firm-wide totals of both. A symbol's firm market value is then its
+ * price times its base quantity, kept in an immutable {@link SymbolExposure}
+ * that is republished on every change and read without locking.
+ *
+ * The index is maintained incrementally:
+ * - a saved portfolio re-posts only that portfolio's holdings, and is
+ *   skipped if they have not changed; recorded transactions do not touch
+ *   holdings, so they are not listened to;
+ * - a price tick updates the symbol's totals in O(1) and each holder's total
+ *   value in O(holders of that symbol);
+ * - an FX refresh revalues everything, since every base quantity moves.
+ *
+ * Weights (a holding's share of its portfolio's value) move whenever any
+ * symbol the portfolio holds is repriced, so they are not stored; threshold
+ * and top-k queries compute them while walking the one symbol's postings.
+ *
+ * Symbols are valued at their latest tick from {@link PortfolioAnalyticsService};
+ * a symbol that has had no tick takes the first Holding.currentPrice seen for
+ * it. Holdings whose currency has no rate are left out, as in the analytics.
+ *
+ * Usage:
+ *   exposureIndex.firmExposure("AAPL");
+ *   exposureIndex.holdersAbove("AAPL", new BigDecimal("0.05"));
+ */
+@Service
+public class ExposureIndexService {
+    private static final int AMOUNT_SCALE = 2;
+    private static final int WEIGHT_SCALE = 4;
+
+    private final PortfolioService portfolioService;
+    private final FxRateService fxRateService;
+    private final SymbolTable symbols = new SymbolTable();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Indexed by symbol id; grown and written under the write lock, read lock-free for totals
+    private volatile SymbolState[] states = new SymbolState[64];
+    // Guarded by lock
+    private final Map<String, PortfolioState> portfolios = new HashMap<>();
+
+    public ExposureIndexService(PortfolioService portfolioService, PortfolioAnalyticsService analyticsService,
+                                FxRateService fxRateService) {
+        this.portfolioService = portfolioService;
+        this.fxRateService = fxRateService;
+        portfolioService.addSaveListener(this::reindex);
+        analyticsService.addPriceTickListener(this::onPriceTick);
+        fxRateService.addRefreshListener(this::revalueAll);
+    }
+
+    /**
+     * Firm-wide totals for the symbol in O(1), or empty if no portfolio has held it.
+     */
+    public Optional<SymbolExposure> firmExposure(String symbol) {
+        return symbols.find(symbol).map(id -> {
+            SymbolState[] current = states;
+            return id < current.length && current[id] != null ? current[id].totals : null;
+        });
+    }
+
+    /**
+     * The k symbols with the largest firm-wide market value, largest first.
+     */
+    public List<SymbolExposure> topSymbols(int k) {
+        PriorityQueue<SymbolExposure> top = new PriorityQueue<>(Comparator.comparing(SymbolExposure::marketValue));
+        for (SymbolState state : states) {
+            SymbolExposure totals = state == null ? null : state.totals;
+            if (totals == null || totals.holders() == 0) {
+                continue;
+            }
+            top.add(totals);
+            if (top.size() > k) {
+                top.poll();
+            }
+        }
+        List<SymbolExposure> result = new ArrayList<>(top);
+        result.sort(Comparator.comparing(SymbolExposure::marketValue).reversed());
+        return result;
+    }
+
+    /**
+     * Portfolios holding more than minWeight (0.05 = 5%) of their value in the
+     * symbol, by weight, largest first.
+     */
+    public List<PortfolioExposure> holdersAbove(String symbol, BigDecimal minWeight) {
+        List<PortfolioExposure> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            SymbolState state = stateOf(symbol);
+            if (state == null || state.price == null) {
+                return result;
+            }
+            for (Posting posting : state.holders.values()) {
+                BigDecimal value = state.price.multiply(posting.baseQuantity);
+                BigDecimal total = posting.portfolio.totalValue;
+                // value / total > minWeight, without dividing
+                if (total.signum() > 0 && value.compareTo(minWeight.multiply(total)) > 0) {
+                    result.add(exposure(state, posting, value));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparing(PortfolioExposure::weight).reversed());
+        return result;
+    }
+
+    /**
+     * The k portfolios with the most weight in the symbol, largest first.
+     */
+    public List<PortfolioExposure> topHolders(String symbol, int k) {
+        PriorityQueue<PortfolioExposure> top = new PriorityQueue<>(Comparator.comparing(PortfolioExposure::weight));
+        lock.readLock().lock();
+        try {
+            SymbolState state = stateOf(symbol);
+            if (state == null || state.price == null) {
+                return List.of();
+            }
+            for (Posting posting : state.holders.values()) {
+                top.add(exposure(state, posting, state.price.multiply(posting.baseQuantity)));
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<PortfolioExposure> result = new ArrayList<>(top);
+        result.sort(Comparator.comparing(PortfolioExposure::weight).reversed());
+        return result;
+    }
+
+    /**
+     * Re-posts one portfolio's holdings; called on every portfolio save.
+     */
+    public void reindex(String portfolioId) {
+        lock.writeLock().lock();
+        try {
+            // Read under the lock so concurrent changes to one portfolio are applied in order
+            List<Lot> lots = portfolioService.getPortfolio(portfolioId).map(this::lotsOf).orElse(List.of());
+            PortfolioState previous = portfolios.get(portfolioId);
+            if (previous != null && previous.lots.equals(lots)) {
+                // Saved with the holdings it already had
+                return;
+            }
+            List<SymbolState> touched = new ArrayList<>();
+            if (previous != null) {
+                detach(previous, touched);
+                portfolios.remove(portfolioId);
+            }
+            if (!lots.isEmpty()) {
+                PortfolioState state = new PortfolioState(portfolioId, lots);
+                portfolios.put(portfolioId, state);
+                attach(state, fxRateService.current(), touched);
+            }
+            for (SymbolState symbol : touched) {
+                publish(symbol);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onPriceTick(String symbol, BigDecimal price) {
+        int id = symbols.intern(symbol);
+        lock.writeLock().lock();
+        try {
+            SymbolState state = stateFor(id);
+            reprice(state, price);
+            state.ticked = true;
+            publish(state);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds every posting at current FX rates; called on each FX refresh.
+     */
+    public void revalueAll() {
+        lock.writeLock().lock();
+        try {
+            FxRateMatrix fx = fxRateService.current();
+            for (SymbolState state : states) {
+                if (state != null) {
+                    state.holders.clear();
+                    state.quantity = 0;
+                    state.baseQuantity = BigDecimal.ZERO;
+                }
+            }
+            List<SymbolState> touched = new ArrayList<>();
+            for (PortfolioState portfolio : portfolios.values()) {
+                portfolio.postings.clear();
+                attach(portfolio, fx, touched);
+            }
+            for (SymbolState state : states) {
+                if (state != null) {
+                    publish(state);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private record Lot(int symbolId, String currency, long quantity, BigDecimal currentPrice) {}
+
+    private static final class SymbolState {
+        final String symbol;
+        final Map<String, Posting> holders = new HashMap<>();
+        BigDecimal price;
+        boolean ticked;
+        long quantity;
+        // Sum of quantity x FX rate to base over all holders
+        BigDecimal baseQuantity = BigDecimal.ZERO;
+        volatile SymbolExposure totals;
+
+        SymbolState(String symbol) {
+            this.symbol = symbol;
+            this.totals = new SymbolExposure(symbol, 0, 0, null, BigDecimal.ZERO);
+        }
+    }
+
+    private static final class PortfolioState {
+        final String id;
+        final List<Lot> lots;
+        final Map<Integer, Posting> postings = new HashMap<>();
+        BigDecimal totalValue = BigDecimal.ZERO;
+
+        PortfolioState(String id, List<Lot> lots) {
+            this.id = id;
+            this.lots = lots;
+        }
+    }
+
+    private static final class Posting {
+        final PortfolioState portfolio;
+        long quantity;
+        BigDecimal baseQuantity = BigDecimal.ZERO;
+
+        Posting(PortfolioState portfolio) {
+            this.portfolio = portfolio;
+        }
+    }
+
+    private List<Lot> lotsOf(Portfolio portfolio) {
+        if (portfolio.getHoldings() == null) {
+            return List.of();
+        }
+        List<Lot> lots = new ArrayList<>(portfolio.getHoldings().size());
+        for (Holding h : portfolio.getHoldings()) {
+            if (h != null && h.getSymbol() != null && h.getQuantity() != 0) {
+                lots.add(new Lot(symbols.intern(h.getSymbol()), h.getCurrency(), h.getQuantity(), h.getCurrentPrice()));
+            }
+        }
+        return List.copyOf(lots);
+    }
+
+    // Posts each lot and sets the portfolio's total value; caller holds the write lock
+    private void attach(PortfolioState portfolio, FxRateMatrix fx, List<SymbolState> touched) {
+        for (Lot lot : portfolio.lots) {
+            BigDecimal rate = rateToBase(lot.currency(), fx);
+            if (rate == null) {
+                continue;
+            }
+            SymbolState state = stateFor(lot.symbolId());
+            if (state.price == null && !state.ticked && lot.currentPrice() != null) {
+                // Holders posted before the symbol had a price carry it at zero, so seed like a tick
+                reprice(state, lot.currentPrice());
+            }
+            BigDecimal baseQuantity = rate.multiply(BigDecimal.valueOf(lot.quantity()));
+            Posting posting = portfolio.postings.computeIfAbsent(lot.symbolId(), id -> new Posting(portfolio));
+            posting.quantity += lot.quantity();
+            posting.baseQuantity = posting.baseQuantity.add(baseQuantity);
+            state.holders.put(portfolio.id, posting);
+            state.quantity += lot.quantity();
+            state.baseQuantity = state.baseQuantity.add(baseQuantity);
+            touched.add(state);
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Integer, Posting> entry : portfolio.postings.entrySet()) {
+            BigDecimal price = states[entry.getKey()].price;
+            if (price != null) {
+                total = total.add(price.multiply(entry.getValue().baseQuantity));
+            }
+        }
+        portfolio.totalValue = total;
+    }
+
+    private void detach(PortfolioState portfolio, List<SymbolState> touched) {
+        for (Map.Entry<Integer, Posting> entry : portfolio.postings.entrySet()) {
+            SymbolState state = states[entry.getKey()];
+            Posting posting = entry.getValue();
+            state.holders.remove(portfolio.id);
+            state.quantity -= posting.quantity;
+            state.baseQuantity = state.baseQuantity.subtract(posting.baseQuantity);
+            touched.add(state);
+        }
+    }
+
+    // Moves every holder's total by its base quantity times the price change
+    private void reprice(SymbolState state, BigDecimal price) {
+        BigDecimal delta = state.price == null ? price : price.subtract(state.price);
+        state.price = price;
+        if (delta.signum() == 0) {
+            return;
+        }
+        for (Posting posting : state.holders.values()) {
+            posting.portfolio.totalValue = posting.portfolio.totalValue.add(delta.multiply(posting.baseQuantity));
+        }
+    }
+
+    private void publish(SymbolState state) {
+        BigDecimal value = state.price == null ? BigDecimal.ZERO : state.price.multiply(state.baseQuantity);
+        state.totals = new SymbolExposure(state.symbol, state.holders.size(), state.quantity, state.price,
+                value.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP));
+    }
+
+    private PortfolioExposure exposure(SymbolState state, Posting posting, BigDecimal value) {
+        BigDecimal total = posting.portfolio.totalValue;
+        BigDecimal weight = total.signum() > 0
+                ? value.divide(total, MathContext.DECIMAL64).setScale(WEIGHT_SCALE, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO.setScale(WEIGHT_SCALE);
+        return new PortfolioExposure(posting.portfolio.id, state.symbol, posting.quantity,
+                value.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP), weight);
+    }
+
+    private BigDecimal rateToBase(String code, FxRateMatrix fx) {
+        if (code == null) {
+            return BigDecimal.ONE;
+        }
+        return fxRateService.currencies().find(code)
+                .map(ordinal -> fx.exactRate(ordinal, CurrencyTable.BASE))
+                .orElse(null);
+    }
+
+    private SymbolState stateOf(String symbol) {
+        Optional<Integer> id = symbols.find(symbol);
+        SymbolState[] current = states;
+        return id.isPresent() && id.get() < current.length ? current[id.get()] : null;
+    }
+
+    // Caller holds the write lock
+    private SymbolState stateFor(int id) {
+        SymbolState[] current = states;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length * 2, id + 1));
+        }
+        SymbolState state = current[id];
+        if (state == null) {
+            state = new SymbolState(symbols.symbol(id));
+            current[id] = state;
+        }
+        states = current;
+        return state;
+    }
+}
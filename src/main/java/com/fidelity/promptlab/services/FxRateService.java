@@ -0,0 +1,167 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.CurrencyTable;
+import com.fidelity.promptlab.models.FxRateMatrix;
+import com.fidelity.promptlab.models.Result;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Currency conversion backed by an immutable {@link FxRateMatrix}.
+ *
+ * A refresh loads rates from the {@link FxRateSource}, builds a complete new
+ * matrix off to the side and publishes it with one reference swap, so
+ * readers always see a consistent set of cross rates and never lock. Code
+ * that converts many amounts should take {@link #current()} once and index
+ * it by currency ordinal (see {@link #currencies()}).
+ *
+ * Usage:
+ *   FxRateService fx = new FxRateService(FxRateSource.fixed(Map.of("USD", BigDecimal.ONE, "EUR", eurInUsd)));
+ *   Result<BigDecimal, ApiError> eur = fx.convert(amount, "USD", "EUR");
+ */
+@Service
+public class FxRateService {
+    private final FxRateSource source;
+    private final CurrencyTable currencies = new CurrencyTable();
+    private final AtomicReference<FxRateMatrix> matrix = new AtomicReference<>(FxRateMatrix.empty());
+    private final AtomicLong versions = new AtomicLong();
+    private final List<Runnable> refreshListeners = new CopyOnWriteArrayList<>();
+    private final LongAdder failedRefreshes = new LongAdder();
+    private ScheduledExecutorService refresher;
+
+    // Base currency only until a real source is configured
+    public FxRateService() {
+        this(FxRateSource.fixed(Map.of(CurrencyTable.BASE_CURRENCY, BigDecimal.ONE)));
+    }
+
+    public FxRateService(FxRateSource source) {
+        this.source = source;
+        refresh();
+    }
+
+    /**
+     * Loads rates and publishes a new matrix. Unknown currency codes are
+     * skipped; on a source failure the previous matrix stays in place.
+     *
+     * @return true if a new matrix was published
+     */
+    public synchronized boolean refresh() {
+        Map<String, BigDecimal> loaded;
+        try {
+            loaded = source.loadRates();
+        } catch (RuntimeException e) {
+            failedRefreshes.increment();
+            return false;
+        }
+        for (String code : loaded.keySet()) {
+            try {
+                currencies.intern(code);
+            } catch (IllegalArgumentException e) {
+                // Not an ISO 4217 code; ignore it rather than reject the whole refresh
+            }
+        }
+        BigDecimal[] pivotValues = new BigDecimal[currencies.size()];
+        for (Map.Entry<String, BigDecimal> entry : loaded.entrySet()) {
+            currencies.find(entry.getKey()).ifPresent(id -> {
+                if (entry.getValue() != null && entry.getValue().signum() > 0) {
+                    pivotValues[id] = entry.getValue();
+                }
+            });
+        }
+        matrix.set(FxRateMatrix.of(pivotValues, versions.incrementAndGet(), Instant.now()));
+        for (Runnable listener : refreshListeners) {
+            listener.run();
+        }
+        return true;
+    }
+
+    /**
+     * Refreshes on a daemon thread at a fixed interval. Idempotent.
+     */
+    public synchronized void startRefresher(Duration interval) {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fx-rate-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refresh, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (refresher != null) {
+            refresher.shutdown();
+            refresher = null;
+        }
+    }
+
+    /**
+     * Called after each successful refresh, on the refreshing thread.
+     */
+    public void addRefreshListener(Runnable listener) {
+        refreshListeners.add(listener);
+    }
+
+    public FxRateMatrix current() {
+        return matrix.get();
+    }
+
+    public CurrencyTable currencies() {
+        return currencies;
+    }
+
+    /**
+     * Ordinal for a currency code; null means the base currency. A valid code
+     * with no loaded rate maps to {@link CurrencyTable#UNLISTED}, which every
+     * matrix treats as rate-unavailable; only refreshes add currencies.
+     *
+     * @throws IllegalArgumentException if the code is not an ISO 4217 currency
+     */
+    public int ordinalOf(String currencyCode) {
+        return currencyCode == null ? CurrencyTable.BASE : currencies.lookup(currencyCode);
+    }
+
+    public Result<BigDecimal, ApiError> convert(BigDecimal amount, String fromCurrency, String toCurrency) {
+        int from;
+        int to;
+        try {
+            from = ordinalOf(fromCurrency);
+            to = ordinalOf(toCurrency);
+        } catch (IllegalArgumentException e) {
+            return Result.failure(new ApiError("INVALID_CURRENCY", "Unknown currency code")
+                    .addDetail("from", fromCurrency)
+                    .addDetail("to", toCurrency));
+        }
+        BigDecimal converted = matrix.get().convert(amount, from, to);
+        if (converted == null) {
+            return Result.failure(rateUnavailable(fromCurrency, toCurrency));
+        }
+        return Result.success(converted);
+    }
+
+    public long getFailedRefreshes() {
+        return failedRefreshes.sum();
+    }
+
+    static ApiError rateUnavailable(String fromCurrency, String toCurrency) {
+        return new ApiError("FX_RATE_UNAVAILABLE", "No exchange rate available")
+                .addDetail("from", fromCurrency)
+                .addDetail("to", toCurrency);
+    }
+}
@@ -0,0 +1,26 @@
+package com.fidelity.promptlab.services;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Source of FX rates for {@link FxRateService}.
+ */
+@FunctionalInterface
+public interface FxRateSource {
+
+    /**
+     * Returns the value of one unit of each currency (ISO code) in a common
+     * pivot unit; any pivot works as long as it is the same for every entry.
+     * For example {USD=1, EUR=1.08, JPY=0.0067}.
+     */
+    Map<String, BigDecimal> loadRates();
+
+    /**
+     * Source that always returns the given rates.
+     */
+    static FxRateSource fixed(Map<String, BigDecimal> pivotValues) {
+        Map<String, BigDecimal> copy = Map.copyOf(pivotValues);
+        return () -> copy;
+    }
+}
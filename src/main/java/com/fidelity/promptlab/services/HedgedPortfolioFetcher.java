@@ -0,0 +1,355 @@
+package com.fidelity.promptlab.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.Portfolio;
+import com.fidelity.promptlab.models.Result;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Fan-out facade over {@link RemotePortfolioClient} for bulk jobs.
+ *
+ * Two techniques cut tail latency:
+ * - Coalescing: single-user fetches arriving within a short window are sent
+ *   as one bulk request ({@code GET portfolios?userIds=a,b,c} returning a JSON
+ *   object of userId to portfolio list). If the upstream answers the bulk
+ *   endpoint with 404, 405 or 501, bulk is switched off and users are fetched
+ *   individually.
+ * - Hedging: if a request has not completed after the observed p95 latency,
+ *   a second identical request is issued; the first success wins and the
+ *   other is cancelled. A primary that fails early with a transient error
+ *   triggers the hedge immediately. The bulk and single-user endpoints have
+ *   very different latencies, so each keeps its own histogram and delay.
+ *
+ * Usage:
+ *   HedgedPortfolioFetcher fetcher = new HedgedPortfolioFetcher(client, HedgedPortfolioFetcher.Settings.defaults());
+ *   fetcher.fetchAll(userIds).thenAccept(results -> ...);
+ *   HedgedPortfolioFetcher.Metrics metrics = fetcher.getMetrics();
+ */
+public class HedgedPortfolioFetcher {
+    private static final TypeReference<List<Portfolio>> PORTFOLIO_LIST = new TypeReference<>() {};
+    private static final TypeReference<Map<String, List<Portfolio>>> PORTFOLIOS_BY_USER = new TypeReference<>() {};
+    private static final int HEDGE_DELAY_REFRESH_INTERVAL = 64;
+
+    /**
+     * Facade configuration. Each endpoint's hedge delay is its p95 leg latency
+     * clamped to [minHedgeDelay, maxHedgeDelay], or initialHedgeDelay until
+     * minSamplesForHedgeDelay latencies have been observed on that endpoint.
+     */
+    public record Settings(
+        boolean bulkEnabled,
+        int maxBatchSize,
+        Duration batchWindow,
+        boolean hedgingEnabled,
+        Duration initialHedgeDelay,
+        Duration minHedgeDelay,
+        Duration maxHedgeDelay,
+        int minSamplesForHedgeDelay
+    ) {
+        public Settings {
+            if (maxBatchSize < 1 || minSamplesForHedgeDelay < 1) {
+                throw new IllegalArgumentException("Batch size and sample count must be positive");
+            }
+        }
+
+        public static Settings defaults() {
+            return new Settings(true, 100, Duration.ofMillis(5), true,
+                    Duration.ofMillis(200), Duration.ofMillis(5), Duration.ofSeconds(2), 100);
+        }
+    }
+
+    /**
+     * Point-in-time metrics. Latencies are in microseconds.
+     */
+    public record Metrics(
+        long requests,
+        long hedgesIssued,
+        long hedgeWins,
+        long bulkRequests,
+        long bulkUsers,
+        double hedgeRate,
+        long singleHedgeDelayMicros,
+        long bulkHedgeDelayMicros,
+        long p50Micros,
+        long p95Micros,
+        long p99Micros
+    ) {}
+
+    private final RemotePortfolioClient client;
+    private final Settings settings;
+    private final Endpoint single;
+    private final Endpoint bulk;
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedgesIssued = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder bulkRequests = new LongAdder();
+    private final LongAdder bulkUsers = new LongAdder();
+    private volatile boolean bulkSupported;
+
+    private final Object batchLock = new Object();
+    private Map<String, List<CompletableFuture<Result<List<Portfolio>, ApiError>>>> batch = new LinkedHashMap<>();
+
+    public HedgedPortfolioFetcher(RemotePortfolioClient client, Settings settings) {
+        this.client = client;
+        this.settings = settings;
+        this.bulkSupported = settings.bulkEnabled();
+        this.single = new Endpoint();
+        this.bulk = new Endpoint();
+    }
+
+    /**
+     * Fetches one user's portfolios, coalesced into a bulk request when supported.
+     */
+    public CompletableFuture<Result<List<Portfolio>, ApiError>> fetch(String userId) {
+        if (userId == null || userId.isBlank()) {
+            return CompletableFuture.completedFuture(
+                    Result.failure(new ApiError("INVALID_USER_ID", "User id is required")));
+        }
+        if (!bulkSupported) {
+            return fetchSingle(userId);
+        }
+        CompletableFuture<Result<List<Portfolio>, ApiError>> future = new CompletableFuture<>();
+        Map<String, List<CompletableFuture<Result<List<Portfolio>, ApiError>>>> full = null;
+        boolean first;
+        synchronized (batchLock) {
+            first = batch.isEmpty();
+            batch.computeIfAbsent(userId, k -> new ArrayList<>(1)).add(future);
+            if (batch.size() >= settings.maxBatchSize()) {
+                full = batch;
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (full != null) {
+            sendBatch(full);
+        } else if (first) {
+            Executor later = CompletableFuture.delayedExecutor(
+                    settings.batchWindow().toNanos(), TimeUnit.NANOSECONDS);
+            later.execute(this::flush);
+        }
+        return future;
+    }
+
+    public CompletableFuture<Map<String, Result<List<Portfolio>, ApiError>>> fetchAll(Collection<String> userIds) {
+        Map<String, CompletableFuture<Result<List<Portfolio>, ApiError>>> pending = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            pending.computeIfAbsent(userId, this::fetch);
+        }
+        flush();
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    Map<String, Result<List<Portfolio>, ApiError>> results = new LinkedHashMap<>();
+                    pending.forEach((userId, future) -> results.put(userId, future.join()));
+                    return results;
+                });
+    }
+
+    /**
+     * Sends whatever is waiting in the current batch without waiting for the window.
+     */
+    public void flush() {
+        Map<String, List<CompletableFuture<Result<List<Portfolio>, ApiError>>>> pending;
+        synchronized (batchLock) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            pending = batch;
+            batch = new LinkedHashMap<>();
+        }
+        sendBatch(pending);
+    }
+
+    public Metrics getMetrics() {
+        long total = requests.sum();
+        long hedges = hedgesIssued.sum();
+        return new Metrics(
+                total,
+                hedges,
+                hedgeWins.sum(),
+                bulkRequests.sum(),
+                bulkUsers.sum(),
+                total == 0 ? 0.0 : (double) hedges / total,
+                single.hedgeDelayMicros.get(),
+                bulk.hedgeDelayMicros.get(),
+                requestLatency.percentileMicros(50),
+                requestLatency.percentileMicros(95),
+                requestLatency.percentileMicros(99));
+    }
+
+    public boolean isBulkSupported() {
+        return bulkSupported;
+    }
+
+    // ============================================================
+    // Bulk coalescing
+    // ============================================================
+
+    private void sendBatch(Map<String, List<CompletableFuture<Result<List<Portfolio>, ApiError>>>> pending) {
+        if (pending.size() == 1 || !bulkSupported) {
+            pending.forEach((userId, waiters) -> fetchSingle(userId).thenAccept(r -> completeAll(waiters, r)));
+            return;
+        }
+        String ids = pending.keySet().stream()
+                .map(id -> URLEncoder.encode(id, StandardCharsets.UTF_8))
+                .collect(Collectors.joining(","));
+        URI uri = client.getSettings().baseUri().resolve("portfolios?userIds=" + ids);
+        bulkRequests.increment();
+        bulkUsers.add(pending.size());
+
+        hedged(uri, PORTFOLIOS_BY_USER, bulk).thenAccept(result -> {
+            if (result.isSuccess()) {
+                Map<String, List<Portfolio>> byUser = result.getOrThrow();
+                pending.forEach((userId, waiters) -> {
+                    List<Portfolio> portfolios = byUser.get(userId);
+                    completeAll(waiters, portfolios != null
+                            ? Result.success(portfolios)
+                            : Result.failure(new ApiError("NOT_FOUND", "No portfolios returned for user")
+                                    .addDetail("userId", userId)));
+                });
+                return;
+            }
+            ApiError error = result.getError().orElseThrow();
+            Object status = error.getDetails().get("status");
+            if (status instanceof Integer code && (code == 404 || code == 405 || code == 501)) {
+                // Upstream has no bulk endpoint; stop trying and fall back to single fetches
+                bulkSupported = false;
+                pending.forEach((userId, waiters) -> fetchSingle(userId).thenAccept(r -> completeAll(waiters, r)));
+                return;
+            }
+            pending.values().forEach(waiters -> completeAll(waiters, Result.failure(error)));
+        });
+    }
+
+    private static <T> void completeAll(List<CompletableFuture<T>> waiters, T value) {
+        for (CompletableFuture<T> waiter : waiters) {
+            waiter.complete(value);
+        }
+    }
+
+    private CompletableFuture<Result<List<Portfolio>, ApiError>> fetchSingle(String userId) {
+        String segment = URLEncoder.encode(userId, StandardCharsets.UTF_8).replace("+", "%20");
+        return hedged(client.getSettings().baseUri().resolve("users/" + segment + "/portfolios"), PORTFOLIO_LIST,
+                single);
+    }
+
+    // ============================================================
+    // Hedging
+    // ============================================================
+
+    // Latency statistics for one endpoint; hedge delays are never shared between endpoints
+    private final class Endpoint {
+        final LatencyHistogram legLatency = new LatencyHistogram();
+        final AtomicLong samplesSinceRefresh = new AtomicLong();
+        final AtomicLong hedgeDelayMicros =
+                new AtomicLong(TimeUnit.NANOSECONDS.toMicros(settings.initialHedgeDelay().toNanos()));
+
+        void recordLegLatency(long nanos) {
+            legLatency.recordNanos(nanos);
+            if (samplesSinceRefresh.incrementAndGet() % HEDGE_DELAY_REFRESH_INTERVAL != 0
+                    || legLatency.count() < settings.minSamplesForHedgeDelay()) {
+                return;
+            }
+            long min = TimeUnit.NANOSECONDS.toMicros(settings.minHedgeDelay().toNanos());
+            long max = TimeUnit.NANOSECONDS.toMicros(settings.maxHedgeDelay().toNanos());
+            hedgeDelayMicros.set(Math.max(min, Math.min(max, legLatency.percentileMicros(95))));
+        }
+    }
+
+    private <T> CompletableFuture<Result<T, ApiError>> hedged(URI uri, TypeReference<T> type, Endpoint endpoint) {
+        requests.increment();
+        long start = System.nanoTime();
+        CompletableFuture<Result<T, ApiError>> outcome = new CompletableFuture<>();
+        HedgeState<T> state = new HedgeState<>(endpoint);
+
+        launchLeg(uri, type, 0, outcome, state);
+        if (settings.hedgingEnabled()) {
+            CompletableFuture.delayedExecutor(endpoint.hedgeDelayMicros.get(), TimeUnit.MICROSECONDS)
+                    .execute(() -> launchHedge(uri, type, outcome, state));
+        }
+        outcome.whenComplete((result, error) -> requestLatency.recordNanos(System.nanoTime() - start));
+        return outcome;
+    }
+
+    private static final class HedgeState<T> {
+        final Endpoint endpoint;
+        final AtomicInteger launched = new AtomicInteger(1);
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicReference<CompletableFuture<Result<T, ApiError>>> primary = new AtomicReference<>();
+        final AtomicReference<CompletableFuture<Result<T, ApiError>>> hedge = new AtomicReference<>();
+
+        HedgeState(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private <T> void launchHedge(URI uri, TypeReference<T> type,
+                                 CompletableFuture<Result<T, ApiError>> outcome, HedgeState<T> state) {
+        if (!outcome.isDone() && state.launched.compareAndSet(1, 2)) {
+            hedgesIssued.increment();
+            launchLeg(uri, type, 1, outcome, state);
+        }
+    }
+
+    private <T> void launchLeg(URI uri, TypeReference<T> type, int leg,
+                               CompletableFuture<Result<T, ApiError>> outcome, HedgeState<T> state) {
+        long legStart = System.nanoTime();
+        CompletableFuture<Result<T, ApiError>> call = client.attemptOnce(uri, type);
+        (leg == 0 ? state.primary : state.hedge).set(call);
+
+        call.whenComplete((result, error) -> {
+            if (call.isCancelled()) {
+                return;
+            }
+            if (result != null && result.isSuccess()) {
+                state.endpoint.recordLegLatency(System.nanoTime() - legStart);
+                if (outcome.complete(result)) {
+                    if (leg == 1) {
+                        hedgeWins.increment();
+                    }
+                    CompletableFuture<Result<T, ApiError>> loser = (leg == 0 ? state.hedge : state.primary).get();
+                    if (loser != null) {
+                        loser.cancel(true);
+                    }
+                }
+                return;
+            }
+            int failures = state.failed.incrementAndGet();
+            if (leg == 0 && settings.hedgingEnabled() && state.launched.get() == 1 && isTransient(result)) {
+                // Primary failed before the hedge fired: use the hedge as an immediate retry
+                launchHedge(uri, type, outcome, state);
+                if (state.launched.get() == 2 && state.hedge.get() != null) {
+                    return;
+                }
+            }
+            if (failures >= state.launched.get()) {
+                outcome.complete(result != null ? result
+                        : Result.failure(new ApiError("REMOTE_UNAVAILABLE", "Remote portfolio request failed")));
+            }
+        });
+    }
+
+    private static boolean isTransient(Result<?, ApiError> result) {
+        if (result == null) {
+            return true;
+        }
+        String code = result.getError().map(ApiError::getCode).orElse("");
+        return code.equals("REMOTE_UNAVAILABLE") || code.equals("REMOTE_TIMEOUT");
+    }
+}
@@ -0,0 +1,190 @@
+package com.fidelity.promptlab.services;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link BloomFilter} guard in front of a keyed store, so lookups for keys
+ * that were never added are rejected without touching the store.
+ *
+ * The owner calls {@link #add} after storing a key and {@link #onDeleted}
+ * after removing one. Deleted keys stay in the filter and only cost a wasted
+ * lookup, but once deletes since the last rebuild exceed a fraction of the
+ * keys the filter is rebuilt from the store in the background. A filter that
+ * has grown past a few stages is rebuilt the same way into one stage sized
+ * for its keys, since every stage costs a memory access on a miss. Keys
+ * added during a rebuild go into both filters, so none are lost at the swap.
+ *
+ * {@link #guard} counts definite misses and false positives (maybe answers
+ * the store then missed, including deleted keys), giving a measured
+ * false-positive rate to set against the one the filter's fill implies.
+ *
+ * Usage:
+ *   KeyFilter ids = new KeyFilter(sink -> users.keySet().forEach(sink));
+ *   Optional<User> user = ids.guard(id, key -> Optional.ofNullable(users.get(key)));
+ */
+public class KeyFilter {
+    public static final long DEFAULT_EXPECTED_KEYS = 1 << 16;
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    public static final double DEFAULT_REBUILD_RATIO = 0.25;
+    public static final int MAX_STAGES = 3;
+
+    public record Stats(
+        long keys,
+        long deletesSinceRebuild,
+        long checks,
+        long rejected,
+        long falsePositives,
+        double measuredFalsePositiveRate,
+        double expectedFalsePositiveRate,
+        long bits,
+        long rebuilds
+    ) {}
+
+    private final Consumer<Consumer<String>> source;
+    private final long expectedKeys;
+    private final double falsePositiveRate;
+    private final double rebuildRatio;
+    private final Executor rebuilder;
+
+    private volatile BloomFilter filter;
+    // Non-null while a rebuild is filling it; adds go here too
+    private volatile BloomFilter next;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong deletes = new AtomicLong();
+    private final LongAdder checks = new LongAdder();
+    // Reset at each rebuild, so the measured rate describes the current filter
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * @param source feeds every key currently in the store to the given sink
+     */
+    public KeyFilter(Consumer<Consumer<String>> source) {
+        this(source, DEFAULT_EXPECTED_KEYS, DEFAULT_FALSE_POSITIVE_RATE, DEFAULT_REBUILD_RATIO, ForkJoinPool.commonPool());
+    }
+
+    public KeyFilter(Consumer<Consumer<String>> source, long expectedKeys, double falsePositiveRate,
+                     double rebuildRatio, Executor rebuilder) {
+        if (rebuildRatio <= 0) {
+            throw new IllegalArgumentException("Rebuild ratio must be positive");
+        }
+        this.source = source;
+        this.expectedKeys = expectedKeys;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildRatio = rebuildRatio;
+        this.rebuilder = rebuilder;
+        this.filter = new BloomFilter(expectedKeys, falsePositiveRate);
+    }
+
+    public void add(String key) {
+        // Read next before filter: a rebuild publishes the new filter before clearing next
+        BloomFilter pending = next;
+        BloomFilter current = filter;
+        current.add(key);
+        if (pending != null) {
+            pending.add(key);
+        } else if (current.stageCount() > MAX_STAGES) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * False means the key is definitely not in the store.
+     */
+    public boolean mightContain(String key) {
+        return filter.mightContain(key);
+    }
+
+    /**
+     * Runs the lookup only if the key might exist, recording the outcome.
+     */
+    public <T> Optional<T> guard(String key, Function<String, Optional<T>> lookup) {
+        checks.increment();
+        if (!filter.mightContain(key)) {
+            rejected.increment();
+            return Optional.empty();
+        }
+        Optional<T> found = lookup.apply(key);
+        if (found.isEmpty()) {
+            falsePositives.increment();
+        }
+        return found;
+    }
+
+    /**
+     * Records a removal, scheduling a rebuild once deletes pass the rebuild ratio.
+     */
+    public void onDeleted() {
+        long deleted = deletes.incrementAndGet();
+        long keys = Math.max(filter.approximateSize(), 1);
+        if (deleted > keys * rebuildRatio) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the filter from the store on the calling thread.
+     */
+    public void rebuild() {
+        while (!rebuilding.compareAndSet(false, true)) {
+            Thread.onSpinWait();
+        }
+        rebuildNow();
+    }
+
+    public Stats stats() {
+        long misses = rejected.sum();
+        long wasted = falsePositives.sum();
+        BloomFilter current = filter;
+        return new Stats(
+                current.approximateSize(),
+                deletes.get(),
+                checks.sum(),
+                misses,
+                wasted,
+                misses + wasted == 0 ? 0 : (double) wasted / (misses + wasted),
+                current.expectedFalsePositiveRate(),
+                current.bitCount(),
+                rebuilds.sum());
+    }
+
+    // ==================== Internals ====================
+
+    private void scheduleRebuild() {
+        if (rebuilding.compareAndSet(false, true)) {
+            try {
+                rebuilder.execute(this::rebuildNow);
+            } catch (RuntimeException e) {
+                rebuilding.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private void rebuildNow() {
+        try {
+            long deletesAtStart = deletes.get();
+            BloomFilter fresh = new BloomFilter(
+                    Math.max(expectedKeys, filter.approximateSize() - deletesAtStart), falsePositiveRate);
+            next = fresh;
+            source.accept(fresh::add);
+            filter = fresh;
+            next = null;
+            deletes.addAndGet(-deletesAtStart);
+            rejected.reset();
+            falsePositives.reset();
+            rebuilds.increment();
+        } finally {
+            next = null;
+            rebuilding.set(false);
+        }
+    }
+}
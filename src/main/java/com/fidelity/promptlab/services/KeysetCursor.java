@@ -0,0 +1,69 @@
+package com.fidelity.promptlab.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque cursors handed out with {@link com.fidelity.promptlab.models.Page}.
+ *
+ * Cursors are URL-safe Base64 of a versioned, colon-separated payload so they
+ * can be passed through query strings unchanged.
+ */
+final class KeysetCursor {
+    private static final String TRANSACTION_PREFIX = "t1:";
+    private static final String ID_PREFIX = "i1:";
+
+    private KeysetCursor() {}
+
+    static String encode(TransactionIndex.Key key) {
+        long seconds = key.executedAt().toEpochSecond(ZoneOffset.UTC);
+        int nanos = key.executedAt().getNano();
+        return wrap(TRANSACTION_PREFIX + seconds + ":" + nanos + ":" + key.id());
+    }
+
+    static TransactionIndex.Key decodeTransaction(String cursor) {
+        String payload = unwrap(cursor, TRANSACTION_PREFIX);
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3) {
+            throw invalid();
+        }
+        try {
+            LocalDateTime executedAt = LocalDateTime.ofEpochSecond(
+                    Long.parseLong(parts[0]), Integer.parseInt(parts[1]), ZoneOffset.UTC);
+            return new TransactionIndex.Key(executedAt, parts[2]);
+        } catch (RuntimeException e) {
+            throw invalid();
+        }
+    }
+
+    static String encodeId(String id) {
+        return wrap(ID_PREFIX + id);
+    }
+
+    static String decodeId(String cursor) {
+        return unwrap(cursor, ID_PREFIX);
+    }
+
+    private static String wrap(String payload) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String unwrap(String cursor, String prefix) {
+        String payload;
+        try {
+            payload = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        if (!payload.startsWith(prefix)) {
+            throw invalid();
+        }
+        return payload.substring(prefix.length());
+    }
+
+    private static IllegalArgumentException invalid() {
+        return new IllegalArgumentException("Invalid page cursor");
+    }
+}
@@ -0,0 +1,303 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.User;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a {@link SyntheticWorkload} through the user, portfolio and
+ * transaction services at a fixed rate from many threads, and reports
+ * throughput and latency percentiles per operation.
+ *
+ * The replay runs in three phases, each paced at the target rate: create the
+ * users, save their portfolios, then the workload's trades and ticks in time
+ * order interleaved with reads (getPortfolio, getUser, transaction history).
+ * Each trade is recorded through PortfolioService and then processed through
+ * TransactionService; ticks go to PortfolioAnalyticsService. The sequence of
+ * operations is fixed by the workload and the replay seed, so two runs differ
+ * only in timing.
+ *
+ * Pacing is open loop: operation i is due at start + i / rate whatever
+ * happened to earlier ones, and its latency is measured from when it was
+ * due, not from when a thread got round to it. A service that falls behind
+ * therefore shows up as growing latency rather than as a quietly lower
+ * request rate. An operation that throws is counted as an error, and a
+ * replay with any errors fails with the counts per operation and the first
+ * failure as the cause; a run that completes is a clean one.
+ *
+ * Usage:
+ *   LoadReplayHarness harness = new LoadReplayHarness(users, portfolios, transactions, analytics);
+ *   LoadReplayHarness.Report report = harness.run(workload, LoadReplayHarness.Settings.defaults());
+ */
+public class LoadReplayHarness {
+
+    public enum Operation {
+        CREATE_USER, SAVE_PORTFOLIO, RECORD_TRANSACTION, PROCESS_TRANSACTION, PRICE_TICK,
+        GET_PORTFOLIO, GET_USER, TRANSACTION_HISTORY
+    }
+
+    public record Settings(int threads, double targetOpsPerSecond, double readsPerEvent, long seed) {
+        public Settings {
+            if (threads < 1 || targetOpsPerSecond <= 0 || readsPerEvent < 0) {
+                throw new IllegalArgumentException("Threads and rate must be positive; reads per event not negative");
+            }
+        }
+
+        public static Settings defaults() {
+            return new Settings(8, 5_000, 2.0, 7L);
+        }
+    }
+
+    /**
+     * Latencies are in microseconds, from the operation's scheduled start.
+     */
+    public record OperationStats(
+        Operation operation,
+        long count,
+        long errors,
+        double opsPerSecond,
+        double meanMicros,
+        long p50Micros,
+        long p90Micros,
+        long p99Micros,
+        long p999Micros
+    ) {}
+
+    public record Report(
+        Duration elapsed,
+        long operations,
+        double targetOpsPerSecond,
+        double achievedOpsPerSecond,
+        Map<Operation, OperationStats> byOperation
+    ) {}
+
+    // One scheduled call; index points into the list its operation reads from
+    private record Step(Operation operation, int index) {}
+
+    private final UserService userService;
+    private final PortfolioService portfolioService;
+    private final TransactionService transactionService;
+    private final PortfolioAnalyticsService analyticsService;
+
+    public LoadReplayHarness(UserService userService, PortfolioService portfolioService,
+                             TransactionService transactionService, PortfolioAnalyticsService analyticsService) {
+        this.userService = userService;
+        this.portfolioService = portfolioService;
+        this.transactionService = transactionService;
+        this.analyticsService = analyticsService;
+    }
+
+    /**
+     * Replays the workload into the services, which should not already hold its users.
+     *
+     * @throws IllegalStateException if any operation threw during the replay
+     */
+    public Report run(SyntheticWorkload workload, Settings settings) {
+        Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            errors.put(operation, new LongAdder());
+        }
+        String[] userIds = new String[workload.users().size()];
+        Replay replay = new Replay(workload, userIds, latencies, errors);
+
+        List<Step> users = new ArrayList<>(userIds.length);
+        for (int i = 0; i < userIds.length; i++) {
+            users.add(new Step(Operation.CREATE_USER, i));
+        }
+        List<Step> portfolios = new ArrayList<>(workload.portfolios().size());
+        for (int i = 0; i < workload.portfolios().size(); i++) {
+            portfolios.add(new Step(Operation.SAVE_PORTFOLIO, i));
+        }
+        List<Step> traffic = trafficSteps(workload, settings);
+
+        // Each phase finishes before the next starts, so later phases see every user id
+        Map<Operation, Long> activeNanos = new EnumMap<>(Operation.class);
+        long started = System.nanoTime();
+        for (List<Step> phase : List.of(users, portfolios, traffic)) {
+            long phaseNanos = drive(phase, replay, settings);
+            phase.stream().map(Step::operation).distinct()
+                    .forEach(operation -> activeNanos.merge(operation, phaseNanos, Long::sum));
+        }
+        long elapsed = System.nanoTime() - started;
+        replay.failIfAnyErrors();
+
+        double seconds = elapsed / 1e9;
+        Map<Operation, OperationStats> byOperation = new EnumMap<>(Operation.class);
+        long total = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latencies.get(operation);
+            long count = histogram.count();
+            if (count == 0) {
+                continue;
+            }
+            total += count;
+            // Throughput over the phases the operation ran in, not the whole replay
+            byOperation.put(operation, new OperationStats(operation, count, errors.get(operation).sum(),
+                    count / (activeNanos.get(operation) / 1e9), histogram.meanMicros(),
+                    histogram.percentileMicros(50), histogram.percentileMicros(90),
+                    histogram.percentileMicros(99), histogram.percentileMicros(99.9)));
+        }
+        return new Report(Duration.ofNanos(elapsed), total, settings.targetOpsPerSecond(), total / seconds,
+                byOperation);
+    }
+
+    // ==================== Internals ====================
+
+    // Merged timeline with reads mixed in; reads favour portfolios that have just traded
+    private static List<Step> trafficSteps(SyntheticWorkload workload, Settings settings) {
+        SplittableRandom random = new SplittableRandom(settings.seed());
+        Map<String, Integer> portfolioIndex = new HashMap<>();
+        for (int i = 0; i < workload.portfolios().size(); i++) {
+            portfolioIndex.put(workload.portfolios().get(i).id(), i);
+        }
+        List<Step> steps = new ArrayList<>();
+        int trade = 0;
+        int tick = 0;
+        int recentPortfolio = 0;
+        for (SyntheticWorkload.Event event : workload.events()) {
+            if (event.trade() != null) {
+                steps.add(new Step(Operation.RECORD_TRANSACTION, trade));
+                steps.add(new Step(Operation.PROCESS_TRANSACTION, trade));
+                recentPortfolio = portfolioIndex.get(event.trade().portfolioId());
+                trade++;
+            } else {
+                steps.add(new Step(Operation.PRICE_TICK, tick++));
+            }
+            int reads = (int) settings.readsPerEvent();
+            if (random.nextDouble() < settings.readsPerEvent() - reads) {
+                reads++;
+            }
+            for (int r = 0; r < reads; r++) {
+                double kind = random.nextDouble();
+                int portfolio = random.nextBoolean()
+                        ? recentPortfolio : random.nextInt(workload.portfolios().size());
+                if (kind < 0.6) {
+                    steps.add(new Step(Operation.GET_PORTFOLIO, portfolio));
+                } else if (kind < 0.85) {
+                    steps.add(new Step(Operation.GET_USER, workload.portfolios().get(portfolio).ownerIndex()));
+                } else {
+                    steps.add(new Step(Operation.TRANSACTION_HISTORY, portfolio));
+                }
+            }
+        }
+        return steps;
+    }
+
+    // Returns the phase's wall-clock time in nanoseconds
+    private long drive(List<Step> steps, Replay replay, Settings settings) {
+        if (steps.isEmpty()) {
+            return 0;
+        }
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        double nanosPerOp = 1e9 / settings.targetOpsPerSecond();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < steps.size(); i = next.getAndIncrement()) {
+                long due = start + (long) (i * nanosPerOp);
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                replay.execute(steps.get(i), due);
+            }
+        };
+        List<Thread> threads = new ArrayList<>(settings.threads());
+        for (int t = 0; t < settings.threads(); t++) {
+            Thread thread = new Thread(worker, "load-replay-" + t);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while replaying", e);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private final class Replay {
+        private final SyntheticWorkload workload;
+        private final String[] userIds;
+        private final Map<Operation, LatencyHistogram> latencies;
+        private final Map<Operation, LongAdder> errors;
+        private final AtomicReference<RuntimeException> firstError = new AtomicReference<>();
+
+        Replay(SyntheticWorkload workload, String[] userIds,
+               Map<Operation, LatencyHistogram> latencies, Map<Operation, LongAdder> errors) {
+            this.workload = workload;
+            this.userIds = userIds;
+            this.latencies = latencies;
+            this.errors = errors;
+        }
+
+        void execute(Step step, long due) {
+            try {
+                call(step);
+            } catch (RuntimeException e) {
+                errors.get(step.operation()).increment();
+                firstError.compareAndSet(null, e);
+            } finally {
+                latencies.get(step.operation()).recordNanos(System.nanoTime() - due);
+            }
+        }
+
+        void failIfAnyErrors() {
+            StringJoiner counts = new StringJoiner(", ");
+            errors.forEach((operation, count) -> {
+                if (count.sum() > 0) {
+                    counts.add(operation + "=" + count.sum());
+                }
+            });
+            if (firstError.get() != null) {
+                throw new IllegalStateException("Replay had errors: " + counts, firstError.get());
+            }
+        }
+
+        private void call(Step step) {
+            switch (step.operation()) {
+                case CREATE_USER -> {
+                    User user = userService.createUser(workload.users().get(step.index()).toRequest());
+                    userIds[step.index()] = user.getId();
+                }
+                case SAVE_PORTFOLIO -> {
+                    SyntheticWorkload.PortfolioSpec spec = workload.portfolios().get(step.index());
+                    portfolioService.savePortfolio(
+                            spec.toPortfolio(userIds[spec.ownerIndex()], workload.settings().start()));
+                }
+                case RECORD_TRANSACTION ->
+                        portfolioService.recordTransaction(workload.trades().get(step.index()).toTransaction());
+                case PROCESS_TRANSACTION ->
+                        transactionService.processTransaction(workload.trades().get(step.index()).toTransaction());
+                case PRICE_TICK -> {
+                    SyntheticWorkload.PriceTick tick = workload.priceTicks().get(step.index());
+                    analyticsService.onPriceTick(tick.symbol(), tick.price());
+                }
+                case GET_PORTFOLIO -> portfolioService.getPortfolio(workload.portfolios().get(step.index()).id());
+                case GET_USER -> userService.getUser(userIds[step.index()]);
+                case TRANSACTION_HISTORY -> {
+                    // The workload's first day, the busiest window for the recently traded portfolios it favours
+                    LocalDateTime from = workload.settings().start();
+                    portfolioService.getTransactionHistory(
+                            workload.portfolios().get(step.index()).id(), from, from.plusDays(1));
+                }
+            }
+        }
+    }
+}
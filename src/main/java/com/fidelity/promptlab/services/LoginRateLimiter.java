@@ -0,0 +1,71 @@
+package com.fidelity.promptlab.services;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate limits login attempts per account and per client address.
+ *
+ * Checked before any password hashing, so a credential-stuffing wave is
+ * rejected in O(1) without reaching CredentialService. The address bucket is
+ * charged first: an attempt rejected for the account still counts against
+ * the address that made it.
+ */
+@Service
+public class LoginRateLimiter {
+
+    public record Settings(
+        int accountBurst,
+        double accountRefillPerMinute,
+        int addressBurst,
+        double addressRefillPerMinute,
+        int maxTrackedKeys,
+        int overflowBuckets
+    ) {
+        public static Settings defaults() {
+            return new Settings(5, 5, 30, 60, 1 << 20, 1 << 16);
+        }
+    }
+
+    public enum Decision {
+        ALLOWED, ACCOUNT_LIMITED, ADDRESS_LIMITED
+    }
+
+    private final TokenBucketLimiter byAccount;
+    private final TokenBucketLimiter byAddress;
+    private final LongAdder accountRejections = new LongAdder();
+    private final LongAdder addressRejections = new LongAdder();
+
+    public LoginRateLimiter() {
+        this(Settings.defaults());
+    }
+
+    public LoginRateLimiter(Settings settings) {
+        this.byAccount = new TokenBucketLimiter(settings.accountBurst(), settings.accountRefillPerMinute(),
+                settings.maxTrackedKeys(), settings.overflowBuckets());
+        this.byAddress = new TokenBucketLimiter(settings.addressBurst(), settings.addressRefillPerMinute(),
+                settings.maxTrackedKeys(), settings.overflowBuckets());
+    }
+
+    /**
+     * Charges one attempt to the address and the account. Null keys are not limited.
+     */
+    public Decision check(String email, String clientAddress) {
+        if (clientAddress != null && !byAddress.tryAcquire(clientAddress)) {
+            addressRejections.increment();
+            return Decision.ADDRESS_LIMITED;
+        }
+        if (email != null && !byAccount.tryAcquire(email.trim().toLowerCase(Locale.ROOT))) {
+            accountRejections.increment();
+            return Decision.ACCOUNT_LIMITED;
+        }
+        return Decision.ALLOWED;
+    }
+
+    public long getAccountRejections() { return accountRejections.sum(); }
+    public long getAddressRejections() { return addressRejections.sum(); }
+    public int getTrackedAccounts() { return byAccount.trackedKeys(); }
+    public int getTrackedAddresses() { return byAddress.trackedKeys(); }
+}
@@ -0,0 +1,149 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ExchangeSchedule;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Trading calendars with precomputed minute-level session bitmaps.
+ *
+ * Each exchange's sessions are rendered into bitmaps of UTC epoch minutes,
+ * one bit per minute, in chunks of 2^19 minutes (about a year, 64 KB) built
+ * the first time a minute in them is asked about. "Open at t?" is then a
+ * shift, an array load and a bit test, with no time-zone arithmetic; the
+ * zone rules, holidays and half days are applied once when a chunk is
+ * built. Minutes before 1970 or after 2200 fall back to evaluating the
+ * schedule directly.
+ *
+ * XNYS and XNAS are registered by default with NYSE holidays for 2000-2100.
+ *
+ * Usage:
+ *   MarketCalendarService.SessionCalendar nyse = calendars.calendar("XNYS").orElseThrow();
+ *   nyse.isOpen(Instant.now());
+ */
+@Service
+public class MarketCalendarService {
+    public static final String DEFAULT_EXCHANGE = "XNYS";
+
+    private final Map<String, SessionCalendar> calendars = new ConcurrentHashMap<>();
+
+    public MarketCalendarService() {
+        register(ExchangeSchedule.usEquities("XNYS", 2000, 2100));
+        register(ExchangeSchedule.usEquities("XNAS", 2000, 2100));
+    }
+
+    /**
+     * Adds or replaces an exchange's schedule; its bitmaps are rebuilt on demand.
+     */
+    public SessionCalendar register(ExchangeSchedule schedule) {
+        SessionCalendar calendar = new SessionCalendar(schedule);
+        calendars.put(schedule.exchange(), calendar);
+        return calendar;
+    }
+
+    /**
+     * Hold on to the returned calendar to skip the exchange lookup on hot paths.
+     */
+    public Optional<SessionCalendar> calendar(String exchange) {
+        return Optional.ofNullable(calendars.get(exchange));
+    }
+
+    public SessionCalendar defaultCalendar() {
+        return calendars.get(DEFAULT_EXCHANGE);
+    }
+
+    /**
+     * One exchange's sessions as lazily built minute bitmaps.
+     */
+    public static final class SessionCalendar {
+        private static final int CHUNK_BITS = 19;
+        private static final long CHUNK_MINUTES = 1L << CHUNK_BITS;
+        // Chunks cover epoch minutes from 1970 up to about 2200
+        private static final int MAX_CHUNKS = 231;
+
+        private final ExchangeSchedule schedule;
+        private final AtomicReferenceArray<long[]> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+        private SessionCalendar(ExchangeSchedule schedule) {
+            this.schedule = schedule;
+        }
+
+        public ExchangeSchedule schedule() {
+            return schedule;
+        }
+
+        /**
+         * Whether the exchange is in session during the given UTC epoch minute.
+         */
+        public boolean isOpen(long epochMinute) {
+            long chunk = epochMinute >> CHUNK_BITS;
+            if (chunk < 0 || chunk >= MAX_CHUNKS) {
+                return evaluate(epochMinute);
+            }
+            long[] bits = chunks.get((int) chunk);
+            if (bits == null) {
+                bits = build((int) chunk);
+            }
+            int offset = (int) (epochMinute & (CHUNK_MINUTES - 1));
+            return (bits[offset >>> 6] & (1L << offset)) != 0;
+        }
+
+        public boolean isOpen(Instant instant) {
+            return isOpen(Math.floorDiv(instant.getEpochSecond(), 60));
+        }
+
+        /**
+         * Whether the exchange is in session at a wall-clock time read in the given zone.
+         */
+        public boolean isOpen(LocalDateTime dateTime, ZoneId zone) {
+            return isOpen(dateTime.atZone(zone).toInstant());
+        }
+
+        // Concurrent first reads may both build a chunk; the first to publish wins
+        private long[] build(int chunk) {
+            long[] bits = new long[(int) (CHUNK_MINUTES >>> 6)];
+            long startMinute = chunk * CHUNK_MINUTES;
+            long endMinute = startMinute + CHUNK_MINUTES;
+            LocalDate first = Instant.ofEpochSecond(startMinute * 60).atZone(schedule.zone()).toLocalDate();
+            LocalDate last = Instant.ofEpochSecond(endMinute * 60).atZone(schedule.zone()).toLocalDate();
+            for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+                LocalTime close = schedule.closeOn(date);
+                if (close == null) {
+                    continue;
+                }
+                long open = toEpochMinute(date, schedule.open());
+                long end = toEpochMinute(date, close);
+                setRange(bits, Math.max(open, startMinute) - startMinute, Math.min(end, endMinute) - startMinute);
+            }
+            return chunks.compareAndSet(chunk, null, bits) ? bits : chunks.get(chunk);
+        }
+
+        private boolean evaluate(long epochMinute) {
+            ZonedDateTime local = Instant.ofEpochSecond(epochMinute * 60).atZone(schedule.zone());
+            LocalTime close = schedule.closeOn(local.toLocalDate());
+            LocalTime time = local.toLocalTime();
+            return close != null && !time.isBefore(schedule.open()) && time.isBefore(close);
+        }
+
+        private long toEpochMinute(LocalDate date, LocalTime time) {
+            return ZonedDateTime.of(date, time, schedule.zone()).toEpochSecond() / 60;
+        }
+
+        // Sets bits [from, to) of the chunk
+        private static void setRange(long[] bits, long from, long to) {
+            for (long minute = from; minute < to; minute++) {
+                bits[(int) (minute >>> 6)] |= 1L << minute;
+            }
+        }
+    }
+}
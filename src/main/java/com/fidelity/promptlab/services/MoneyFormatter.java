@@ -0,0 +1,161 @@
+package com.fidelity.promptlab.services;
+
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Locale-aware BigDecimal currency formatting for any ISO 4217 currency.
+ *
+ * The locale's currency pattern (prefixes, suffixes, separators, grouping
+ * size and the currency's minor units) is extracted once from
+ * {@link NumberFormat#getCurrencyInstance(Locale)} and cached per locale and
+ * currency. Formatting then appends straight into a caller-supplied
+ * StringBuilder: amounts with up to 18 significant digits are written digit
+ * by digit with no intermediate Strings, so a report can reuse one builder
+ * for millions of amounts. Output matches NumberFormat with
+ * HALF_EVEN rounding, except that an amount rounding to zero is never signed.
+ *
+ * Usage:
+ *   MoneyFormatter.CompiledFormat usd = formatter.compile(Currency.getInstance("USD"), Locale.US);
+ *   StringBuilder line = new StringBuilder();
+ *   usd.appendTo(line, new BigDecimal("-1234.5"));   // -$1,234.50
+ *   formatter.format(new BigDecimal("1234.5"), "EUR", Locale.GERMANY);   // 1.234,50 €
+ */
+@Service
+public class MoneyFormatter {
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        long power = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    private final Map<Locale, Map<Currency, CompiledFormat>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @throws IllegalArgumentException if the currency code is not a valid ISO 4217 code
+     */
+    public String format(BigDecimal amount, String currencyCode, Locale locale) {
+        return appendTo(new StringBuilder(24), amount, Currency.getInstance(currencyCode), locale).toString();
+    }
+
+    public StringBuilder appendTo(StringBuilder out, BigDecimal amount, Currency currency, Locale locale) {
+        return compile(currency, locale).appendTo(out, amount);
+    }
+
+    /**
+     * Returns the cached compiled format; hold on to it to skip the cache lookup entirely.
+     */
+    public CompiledFormat compile(Currency currency, Locale locale) {
+        return cache.computeIfAbsent(locale, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(currency, c -> CompiledFormat.of(c, locale));
+    }
+
+    /**
+     * Immutable, thread-safe formatting pattern for one locale and currency.
+     */
+    public static final class CompiledFormat {
+        private final String positivePrefix;
+        private final String positiveSuffix;
+        private final String negativePrefix;
+        private final String negativeSuffix;
+        private final char groupingSeparator;
+        private final char decimalSeparator;
+        private final char zeroDigit;
+        private final int groupingSize;
+        private final int fractionDigits;
+
+        private CompiledFormat(DecimalFormat format, int fractionDigits) {
+            DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+            this.positivePrefix = format.getPositivePrefix();
+            this.positiveSuffix = format.getPositiveSuffix();
+            this.negativePrefix = format.getNegativePrefix();
+            this.negativeSuffix = format.getNegativeSuffix();
+            this.groupingSeparator = symbols.getMonetaryGroupingSeparator();
+            this.decimalSeparator = symbols.getMonetaryDecimalSeparator();
+            this.zeroDigit = symbols.getZeroDigit();
+            this.groupingSize = format.isGroupingUsed() ? format.getGroupingSize() : 0;
+            this.fractionDigits = fractionDigits;
+        }
+
+        static CompiledFormat of(Currency currency, Locale locale) {
+            NumberFormat numberFormat = NumberFormat.getCurrencyInstance(locale);
+            if (!(numberFormat instanceof DecimalFormat decimalFormat)) {
+                throw new IllegalArgumentException("No decimal currency pattern for locale " + locale);
+            }
+            decimalFormat.setCurrency(currency);
+            // Pseudo-currencies such as XAU report -1 minor units; show them without decimals
+            return new CompiledFormat(decimalFormat, Math.max(0, currency.getDefaultFractionDigits()));
+        }
+
+        public String format(BigDecimal amount) {
+            return appendTo(new StringBuilder(24), amount).toString();
+        }
+
+        public StringBuilder appendTo(StringBuilder out, BigDecimal amount) {
+            BigDecimal rounded = amount.scale() == fractionDigits
+                    ? amount
+                    : amount.setScale(fractionDigits, RoundingMode.HALF_EVEN);
+            boolean negative = rounded.signum() < 0;
+            out.append(negative ? negativePrefix : positivePrefix);
+            if (rounded.precision() <= 18) {
+                appendDigits(out, Math.abs(rounded.unscaledValue().longValue()));
+            } else {
+                appendDigits(out, rounded.unscaledValue().abs().toString());
+            }
+            return out.append(negative ? negativeSuffix : positiveSuffix);
+        }
+
+        // Writes an unscaled value with grouping and the decimal separator, without allocating
+        private void appendDigits(StringBuilder out, long unscaled) {
+            int totalDigits = Math.max(digitCount(unscaled), fractionDigits + 1);
+            for (int i = totalDigits - 1; i >= 0; i--) {
+                int digit = (int) ((unscaled / POWERS_OF_TEN[i]) % 10);
+                int position = i - fractionDigits;
+                out.append((char) (zeroDigit + digit));
+                if (position > 0 && groupingSize > 0 && position % groupingSize == 0) {
+                    out.append(groupingSeparator);
+                } else if (position == 0 && fractionDigits > 0) {
+                    out.append(decimalSeparator);
+                }
+            }
+        }
+
+        // Slow path for amounts beyond 18 significant digits
+        private void appendDigits(StringBuilder out, String unscaled) {
+            int padding = Math.max(0, fractionDigits + 1 - unscaled.length());
+            int totalDigits = unscaled.length() + padding;
+            for (int i = totalDigits - 1; i >= 0; i--) {
+                int index = totalDigits - 1 - i - padding;
+                out.append((char) (zeroDigit + (index < 0 ? 0 : unscaled.charAt(index) - '0')));
+                int position = i - fractionDigits;
+                if (position > 0 && groupingSize > 0 && position % groupingSize == 0) {
+                    out.append(groupingSeparator);
+                } else if (position == 0 && fractionDigits > 0) {
+                    out.append(decimalSeparator);
+                }
+            }
+        }
+
+        private static int digitCount(long value) {
+            for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+                if (value < POWERS_OF_TEN[i]) {
+                    return i;
+                }
+            }
+            return POWERS_OF_TEN.length;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.fidelity.promptlab.services;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 password hashing.
+ *
+ * Hashes are self-describing strings, {@code pbkdf2-sha256$iterations$salt$hash}
+ * with Base64 salt and hash, so the work factor can be raised without
+ * invalidating stored hashes: {@link #verify} reports when a hash was made
+ * with weaker parameters than the current ones.
+ *
+ * CPU-heavy by design; call through {@link CredentialService} rather than on
+ * request threads.
+ */
+public class PasswordHasher {
+    public static final int DEFAULT_ITERATIONS = 210_000;
+
+    private static final String SCHEME = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public record Verification(boolean matches, boolean needsRehash) {}
+
+    public PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] derived = derive(password, salt, iterations, KEY_BITS);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return SCHEME + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(derived);
+    }
+
+    /**
+     * Checks a password against an encoded hash in constant time.
+     * Malformed hashes never match.
+     */
+    public Verification verify(String password, String encoded) {
+        if (password == null || encoded == null) {
+            return new Verification(false, false);
+        }
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 4 || !SCHEME.equals(parts[0])) {
+            return new Verification(false, false);
+        }
+        int storedIterations;
+        byte[] salt;
+        byte[] expected;
+        try {
+            storedIterations = Integer.parseInt(parts[1]);
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+        } catch (IllegalArgumentException e) {
+            return new Verification(false, false);
+        }
+        if (storedIterations < 1 || expected.length == 0) {
+            return new Verification(false, false);
+        }
+        byte[] actual = derive(password, salt, storedIterations, expected.length * 8);
+        boolean matches = MessageDigest.isEqual(expected, actual);
+        boolean weaker = storedIterations < iterations || salt.length < SALT_BYTES || expected.length * 8 < KEY_BITS;
+        return new Verification(matches, matches && weaker);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int keyBits) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyBits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.PerformanceReturn;
+import com.fidelity.promptlab.models.Transaction;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Time-weighted and money-weighted returns computed from transaction history.
+ *
+ * {@link #rebuild} makes one streaming pass over a portfolio's transactions in
+ * (executedAt, id) order alongside a daily price series, producing a daily
+ * rollup of start value, end value, net external flow and income. Daily
+ * growth factors are stored as a prefix sum of log(1 + r), so the
+ * time-weighted return for any period is O(1) by index arithmetic, and the
+ * money-weighted return solves over daily rollups rather than raw fills.
+ *
+ * Cash-flow model:
+ * - BUY and TRANSFER (positive quantity) are external inflows; SELL and
+ *   negative TRANSFER are outflows. Flows are assumed at the start of the day.
+ * - DIVIDEND is income paid out at the end of the day.
+ * - Only COMPLETED transactions count, matching the transaction rollups;
+ *   PENDING, FAILED and CANCELLED ones are ignored.
+ */
+@Service
+public class PerformanceService {
+    private static final int PERCENT_SCALE = 2;
+    private static final double DAYS_PER_YEAR = 365.0;
+
+    private final PortfolioService portfolioService;
+    private final Map<String, DailyRollups> rollupsByPortfolio = new ConcurrentHashMap<>();
+
+    public PerformanceService(PortfolioService portfolioService) {
+        this.portfolioService = portfolioService;
+    }
+
+    /**
+     * One day of a portfolio's performance.
+     */
+    public record DailyRollup(
+        LocalDate date,
+        BigDecimal startValue,
+        BigDecimal endValue,
+        BigDecimal netFlow,
+        BigDecimal income
+    ) {}
+
+    /**
+     * Rebuilds the daily rollups for one portfolio from its first transaction through asOf.
+     *
+     * @return false if the portfolio has no transactions
+     */
+    public boolean rebuild(String portfolioId, PriceSeries prices, LocalDate asOf) {
+        Optional<TransactionIndex> index = portfolioService.transactionIndex(portfolioId);
+        if (index.isEmpty() || index.get().size() == 0) {
+            rollupsByPortfolio.remove(portfolioId);
+            return false;
+        }
+        Iterator<Transaction> ordered = index.get().select(null, null).values().iterator();
+        DailyRollups rollups = DailyRollups.build(ordered, prices, asOf);
+        if (rollups == null) {
+            rollupsByPortfolio.remove(portfolioId);
+            return false;
+        }
+        rollupsByPortfolio.put(portfolioId, rollups);
+        return true;
+    }
+
+    /**
+     * Rebuilds rollups for every portfolio with transactions, in parallel.
+     *
+     * @return the number of portfolios rebuilt
+     */
+    public long rebuildAll(PriceSeries prices, LocalDate asOf) {
+        return portfolioService.indexedPortfolioIds().parallelStream()
+                .filter(id -> rebuild(id, prices, asOf))
+                .count();
+    }
+
+    /**
+     * Computes returns for a period from previously built rollups.
+     * The period is clamped to the range covered by the rollups.
+     */
+    public Optional<PerformanceReturn> calculateReturn(String portfolioId, LocalDate from, LocalDate to) {
+        DailyRollups rollups = rollupsByPortfolio.get(portfolioId);
+        if (rollups == null) {
+            return Optional.empty();
+        }
+        return rollups.calculate(portfolioId, from, to);
+    }
+
+    /**
+     * Computes returns for a period for every portfolio with rollups, in parallel.
+     */
+    public Map<String, PerformanceReturn> calculateAll(LocalDate from, LocalDate to) {
+        return rollupsByPortfolio.entrySet().parallelStream()
+                .map(e -> e.getValue().calculate(e.getKey(), from, to))
+                .flatMap(Optional::stream)
+                .collect(Collectors.toConcurrentMap(PerformanceReturn::portfolioId, r -> r));
+    }
+
+    public Optional<DailyRollup> getRollup(String portfolioId, LocalDate date) {
+        DailyRollups rollups = rollupsByPortfolio.get(portfolioId);
+        return rollups == null ? Optional.empty() : rollups.get(date);
+    }
+
+    // ============================================================
+    // Daily rollups
+    // ============================================================
+
+    private static final class DailyRollups {
+        final long firstDay;
+        final BigDecimal[] startValues;
+        final BigDecimal[] endValues;
+        final BigDecimal[] netFlows;
+        final BigDecimal[] incomes;
+        // cumulativeLogGrowth[i] = sum of log(1 + r) for days 0..i-1
+        final double[] cumulativeLogGrowth;
+
+        private DailyRollups(long firstDay, int days) {
+            this.firstDay = firstDay;
+            this.startValues = new BigDecimal[days];
+            this.endValues = new BigDecimal[days];
+            this.netFlows = new BigDecimal[days];
+            this.incomes = new BigDecimal[days];
+            this.cumulativeLogGrowth = new double[days + 1];
+        }
+
+        static DailyRollups build(Iterator<Transaction> ordered, PriceSeries prices, LocalDate asOf) {
+            Transaction next = nextCounted(ordered);
+            if (next == null || next.getExecutedAt().toLocalDate().isAfter(asOf)) {
+                return null;
+            }
+            long firstDay = next.getExecutedAt().toLocalDate().toEpochDay();
+            int days = (int) (asOf.toEpochDay() - firstDay + 1);
+            DailyRollups rollups = new DailyRollups(firstDay, days);
+
+            Map<String, Long> positions = new HashMap<>();
+            Map<String, BigDecimal> lastPrices = new HashMap<>();
+            BigDecimal previousEnd = BigDecimal.ZERO;
+
+            for (int d = 0; d < days; d++) {
+                LocalDate date = LocalDate.ofEpochDay(firstDay + d);
+                BigDecimal flow = BigDecimal.ZERO;
+                BigDecimal income = BigDecimal.ZERO;
+
+                while (next != null && !next.getExecutedAt().toLocalDate().isAfter(date)) {
+                    // Only fills carry a share price; a dividend's price is the amount per share
+                    if (isFill(next) && next.getSymbol() != null && next.getPrice() != null) {
+                        lastPrices.put(next.getSymbol(), next.getPrice());
+                    }
+                    BigDecimal amount = amountOf(next, prices, date, lastPrices);
+                    switch (next.getType()) {
+                        case BUY -> {
+                            positions.merge(next.getSymbol(), (long) next.getQuantity(), Long::sum);
+                            flow = flow.add(amount);
+                        }
+                        case SELL -> {
+                            positions.merge(next.getSymbol(), (long) -next.getQuantity(), Long::sum);
+                            flow = flow.subtract(amount);
+                        }
+                        case TRANSFER -> {
+                            positions.merge(next.getSymbol(), (long) next.getQuantity(), Long::sum);
+                            flow = next.getQuantity() >= 0 ? flow.add(amount) : flow.subtract(amount);
+                        }
+                        case DIVIDEND -> income = income.add(amount);
+                    }
+                    next = nextCounted(ordered);
+                }
+
+                BigDecimal endValue = BigDecimal.ZERO;
+                for (Map.Entry<String, Long> position : positions.entrySet()) {
+                    if (position.getValue() == 0) {
+                        continue;
+                    }
+                    BigDecimal close = prices.closeOn(position.getKey(), date);
+                    if (close != null) {
+                        lastPrices.put(position.getKey(), close);
+                    } else {
+                        close = lastPrices.get(position.getKey());
+                    }
+                    if (close != null) {
+                        endValue = endValue.add(close.multiply(BigDecimal.valueOf(position.getValue())));
+                    }
+                }
+
+                rollups.startValues[d] = previousEnd;
+                rollups.endValues[d] = endValue;
+                rollups.netFlows[d] = flow;
+                rollups.incomes[d] = income;
+                rollups.cumulativeLogGrowth[d + 1] = rollups.cumulativeLogGrowth[d]
+                        + Math.log1p(dailyReturn(previousEnd, endValue, flow, income));
+                previousEnd = endValue;
+            }
+            return rollups;
+        }
+
+        private static Transaction nextCounted(Iterator<Transaction> ordered) {
+            while (ordered.hasNext()) {
+                Transaction t = ordered.next();
+                if (t.getType() != null && t.getStatus() == Transaction.TransactionStatus.COMPLETED) {
+                    return t;
+                }
+            }
+            return null;
+        }
+
+        private static boolean isFill(Transaction t) {
+            return t.getType() == Transaction.TransactionType.BUY || t.getType() == Transaction.TransactionType.SELL;
+        }
+
+        private static BigDecimal amountOf(Transaction t, PriceSeries prices, LocalDate date,
+                                           Map<String, BigDecimal> lastPrices) {
+            if (t.getTotal() != null) {
+                return t.getTotal().abs();
+            }
+            BigDecimal price = t.getPrice();
+            if (price == null && t.getSymbol() != null) {
+                price = prices.closeOn(t.getSymbol(), date);
+                if (price == null) {
+                    price = lastPrices.get(t.getSymbol());
+                }
+            }
+            return price == null ? BigDecimal.ZERO : price.multiply(BigDecimal.valueOf(Math.abs(t.getQuantity())));
+        }
+
+        private static double dailyReturn(BigDecimal start, BigDecimal end, BigDecimal flow, BigDecimal income) {
+            double invested = start.add(flow).doubleValue();
+            if (invested <= 0) {
+                return 0.0;
+            }
+            // A total loss (or worse, with short positions) would make log(1 + r) undefined
+            return Math.max((end.add(income).doubleValue() - invested) / invested, -0.999999);
+        }
+
+        Optional<DailyRollup> get(LocalDate date) {
+            long i = date.toEpochDay() - firstDay;
+            if (i < 0 || i >= endValues.length) {
+                return Optional.empty();
+            }
+            int d = (int) i;
+            return Optional.of(new DailyRollup(date, startValues[d], endValues[d], netFlows[d], incomes[d]));
+        }
+
+        Optional<PerformanceReturn> calculate(String portfolioId, LocalDate from, LocalDate to) {
+            int first = (int) Math.max(0, from.toEpochDay() - firstDay);
+            int last = (int) Math.min(endValues.length - 1, to.toEpochDay() - firstDay);
+            if (first > last) {
+                return Optional.empty();
+            }
+            double twr = Math.expm1(cumulativeLogGrowth[last + 1] - cumulativeLogGrowth[first]);
+            Double mwr = moneyWeightedReturn(first, last);
+            return Optional.of(new PerformanceReturn(
+                    portfolioId,
+                    LocalDate.ofEpochDay(firstDay + first),
+                    LocalDate.ofEpochDay(firstDay + last),
+                    percent(twr),
+                    mwr == null ? null : percent(mwr)));
+        }
+
+        /**
+         * Annualized IRR over days first..last, solved by bisection on the
+         * future value of all flows at the end of the period.
+         */
+        private Double moneyWeightedReturn(int first, int last) {
+            double periodYears = (last - first + 1) / DAYS_PER_YEAR;
+            double low = -0.9999;
+            double high = 10.0;
+            double fLow = futureValueGap(low, first, last, periodYears);
+            double fHigh = futureValueGap(high, first, last, periodYears);
+            if (Double.isNaN(fLow) || Double.isNaN(fHigh) || fLow * fHigh > 0) {
+                return null;
+            }
+            for (int iteration = 0; iteration < 200 && high - low > 1e-10; iteration++) {
+                double mid = (low + high) / 2;
+                double fMid = futureValueGap(mid, first, last, periodYears);
+                if (fMid * fLow <= 0) {
+                    high = mid;
+                } else {
+                    low = mid;
+                    fLow = fMid;
+                }
+            }
+            return (low + high) / 2;
+        }
+
+        // Future value at period end of money put in, minus what came out; zero at the IRR
+        private double futureValueGap(double rate, int first, int last, double periodYears) {
+            double growth = Math.log1p(rate);
+            double gap = startValues[first].doubleValue() * Math.exp(growth * periodYears);
+            for (int d = first; d <= last; d++) {
+                double yearsRemaining = (last - d + 1) / DAYS_PER_YEAR;
+                gap += netFlows[d].doubleValue() * Math.exp(growth * yearsRemaining);
+                gap -= incomes[d].doubleValue() * Math.exp(growth * (yearsRemaining - 1 / DAYS_PER_YEAR));
+            }
+            return gap - endValues[last].doubleValue();
+        }
+
+        private static BigDecimal percent(double fraction) {
+            return BigDecimal.valueOf(fraction * 100).setScale(PERCENT_SCALE, RoundingMode.HALF_UP);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.CurrencyTable;
+import com.fidelity.promptlab.models.FxRateMatrix;
+import com.fidelity.promptlab.models.Holding;
+import com.fidelity.promptlab.models.Portfolio;
+import com.fidelity.promptlab.models.PortfolioAnalytics;
+import com.fidelity.promptlab.models.Result;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Precomputed, versioned valuation snapshots per portfolio.
+ *
+ * Each portfolio has a version counter that is bumped when the portfolio is
+ * saved, a transaction is recorded against it, or a price tick arrives for a
+ * symbol it holds. Snapshots are immutable and published through an
+ * AtomicReference, so a read whose snapshot matches the current version is a
+ * map lookup plus two volatile loads. The first read after an invalidation
+ * recomputes the snapshot and installs it with a CAS; readers that can
+ * tolerate staleness use {@link #peekAnalytics(String)}, which never computes.
+ * A recompute registers the portfolio and subscribes its symbols before it
+ * reads the portfolio or any price, so a change racing with it always bumps
+ * the version, and it reads again if the version moved before it finished.
+ *
+ * Snapshots are valued in the base currency: each holding is converted with
+ * one lookup into the current {@link FxRateMatrix}, and an FX refresh
+ * invalidates every snapshot. {@link #getAnalytics(String, String)} converts
+ * a snapshot's totals into another currency, such as the user's
+ * defaultCurrency. Holdings whose currency has no rate are left out.
+ */
+@Service
+public class PortfolioAnalyticsService {
+    private static final int AMOUNT_SCALE = 2;
+    private static final int WEIGHT_SCALE = 4;
+    // Recomputes when invalidated mid-compute; the last attempt is published even if already stale
+    private static final int MAX_COMPUTE_ATTEMPTS = 3;
+
+    private final PortfolioService portfolioService;
+    private final FxRateService fxRateService;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> portfoliosBySymbol = new ConcurrentHashMap<>();
+    private final Map<String, BigDecimal> latestPrices = new ConcurrentHashMap<>();
+    // Notified with each tick after it is recorded
+    private final List<BiConsumer<String, BigDecimal>> priceTickListeners = new CopyOnWriteArrayList<>();
+
+    private static final class Entry {
+        final AtomicLong version = new AtomicLong();
+        final AtomicReference<PortfolioAnalytics> snapshot = new AtomicReference<>();
+        volatile Set<String> symbols = Set.of();
+    }
+
+    public PortfolioAnalyticsService(PortfolioService portfolioService, FxRateService fxRateService) {
+        this.portfolioService = portfolioService;
+        this.fxRateService = fxRateService;
+        portfolioService.addChangeListener(this::invalidate);
+        fxRateService.addRefreshListener(this::invalidateAll);
+    }
+
+    /**
+     * Returns an up-to-date snapshot, recomputing it only if it was invalidated.
+     */
+    public Optional<PortfolioAnalytics> getAnalytics(String portfolioId) {
+        Entry entry = entries.get(portfolioId);
+        if (entry != null) {
+            PortfolioAnalytics current = entry.snapshot.get();
+            if (current != null && current.version() == entry.version.get()) {
+                return Optional.of(current);
+            }
+        }
+        return refresh(portfolioId);
+    }
+
+    /**
+     * Returns an up-to-date snapshot with amounts converted into the given currency.
+     */
+    public Result<PortfolioAnalytics, ApiError> getAnalytics(String portfolioId, String currencyCode) {
+        Optional<PortfolioAnalytics> base = getAnalytics(portfolioId);
+        if (base.isEmpty()) {
+            return Result.failure(new ApiError("NOT_FOUND", "Portfolio not found")
+                    .addDetail("portfolioId", portfolioId));
+        }
+        PortfolioAnalytics snapshot = base.get();
+        int target;
+        try {
+            target = fxRateService.ordinalOf(currencyCode);
+        } catch (IllegalArgumentException e) {
+            return Result.failure(new ApiError("INVALID_CURRENCY", "Unknown currency code")
+                    .addDetail("currency", currencyCode));
+        }
+        if (target == CurrencyTable.BASE) {
+            return Result.success(snapshot);
+        }
+        BigDecimal rate = fxRateService.current().exactRate(CurrencyTable.BASE, target);
+        if (rate == null) {
+            return Result.failure(FxRateService.rateUnavailable(CurrencyTable.BASE_CURRENCY, currencyCode));
+        }
+        return Result.success(new PortfolioAnalytics(
+                snapshot.portfolioId(),
+                snapshot.version(),
+                fxRateService.currencies().code(target),
+                snapshot.totalValue().multiply(rate).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP),
+                snapshot.costBasis().multiply(rate).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP),
+                snapshot.unrealizedGainLoss().multiply(rate).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP),
+                snapshot.allocationBySymbol(),
+                snapshot.computedAt()));
+    }
+
+    /**
+     * Returns the last published snapshot without recomputing, even if stale.
+     */
+    public Optional<PortfolioAnalytics> peekAnalytics(String portfolioId) {
+        Entry entry = entries.get(portfolioId);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.snapshot.get());
+    }
+
+    /**
+     * Records a price and invalidates every portfolio known to hold the symbol.
+     * Prices recorded here take precedence over Holding.currentPrice.
+     */
+    public void onPriceTick(String symbol, BigDecimal price) {
+        latestPrices.put(symbol, price);
+        Set<String> holders = portfoliosBySymbol.get(symbol);
+        if (holders != null) {
+            for (String portfolioId : holders) {
+                invalidate(portfolioId);
+            }
+        }
+        for (BiConsumer<String, BigDecimal> listener : priceTickListeners) {
+            listener.accept(symbol, price);
+        }
+    }
+
+    public void addPriceTickListener(BiConsumer<String, BigDecimal> listener) {
+        priceTickListeners.add(listener);
+    }
+
+    public void invalidate(String portfolioId) {
+        Entry entry = entries.get(portfolioId);
+        if (entry != null) {
+            entry.version.incrementAndGet();
+        }
+    }
+
+    public void invalidateAll() {
+        for (Entry entry : entries.values()) {
+            entry.version.incrementAndGet();
+        }
+    }
+
+    private Optional<PortfolioAnalytics> refresh(String portfolioId) {
+        // Register before reading anything, so a save or tick from here on bumps this entry's version
+        Entry entry = entries.computeIfAbsent(portfolioId, k -> new Entry());
+        PortfolioAnalytics computed;
+        int attempts = 0;
+        long version;
+        do {
+            version = entry.version.get();
+            Optional<Portfolio> portfolio = portfolioService.getPortfolio(portfolioId);
+            if (portfolio.isEmpty()) {
+                if (entry.snapshot.get() == null) {
+                    entries.remove(portfolioId, entry);
+                }
+                return Optional.empty();
+            }
+            computed = compute(portfolio.get(), version, entry);
+            // Invalidated while computing: the inputs may predate the change, so read them again
+        } while (entry.version.get() != version && ++attempts < MAX_COMPUTE_ATTEMPTS);
+
+        while (true) {
+            PortfolioAnalytics current = entry.snapshot.get();
+            if (current != null && current.version() >= version) {
+                return Optional.of(current);
+            }
+            if (entry.snapshot.compareAndSet(current, computed)) {
+                return Optional.of(computed);
+            }
+        }
+    }
+
+    private PortfolioAnalytics compute(Portfolio portfolio, long version, Entry entry) {
+        // Every held symbol, priced or not, is subscribed before any price is read, so a tick
+        // landing mid-compute bumps the version instead of being missed
+        Set<String> held = new HashSet<>();
+        for (Holding h : portfolio.getHoldings()) {
+            if (h != null && h.getSymbol() != null) {
+                held.add(h.getSymbol());
+            }
+        }
+        trackSymbols(portfolio.getId(), entry, held);
+
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal costBasis = BigDecimal.ZERO;
+        Map<String, BigDecimal> valueBySymbol = new HashMap<>();
+        FxRateMatrix fx = fxRateService.current();
+        String lastCode = null;
+        BigDecimal lastRate = BigDecimal.ONE;
+
+        for (Holding h : portfolio.getHoldings()) {
+            if (h == null || h.getSymbol() == null) {
+                continue;
+            }
+            BigDecimal toBase = BigDecimal.ONE;
+            String code = h.getCurrency();
+            if (code != null) {
+                if (!code.equals(lastCode)) {
+                    lastCode = code;
+                    lastRate = fxRateService.currencies().find(code)
+                            .map(ordinal -> fx.exactRate(ordinal, CurrencyTable.BASE))
+                            .orElse(null);
+                }
+                toBase = lastRate;
+                if (toBase == null) {
+                    continue;
+                }
+            }
+            BigDecimal quantity = BigDecimal.valueOf(h.getQuantity());
+            BigDecimal price = latestPrices.getOrDefault(h.getSymbol(), h.getCurrentPrice());
+            if (price != null) {
+                BigDecimal value = price.multiply(quantity).multiply(toBase);
+                totalValue = totalValue.add(value);
+                valueBySymbol.merge(h.getSymbol(), value, BigDecimal::add);
+            }
+            if (h.getAverageCost() != null) {
+                costBasis = costBasis.add(h.getAverageCost().multiply(quantity).multiply(toBase));
+            }
+        }
+
+        Map<String, BigDecimal> allocation = new HashMap<>(valueBySymbol.size());
+        if (totalValue.signum() != 0) {
+            for (Map.Entry<String, BigDecimal> e : valueBySymbol.entrySet()) {
+                allocation.put(e.getKey(), e.getValue().divide(totalValue, WEIGHT_SCALE, RoundingMode.HALF_UP));
+            }
+        }
+
+        return new PortfolioAnalytics(
+                portfolio.getId(),
+                version,
+                CurrencyTable.BASE_CURRENCY,
+                totalValue.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP),
+                costBasis.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP),
+                totalValue.subtract(costBasis).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP),
+                allocation,
+                LocalDateTime.now());
+    }
+
+    // Keeps the symbol -> portfolios index in step with what each portfolio currently holds
+    private void trackSymbols(String portfolioId, Entry entry, Set<String> held) {
+        Set<String> current = Set.copyOf(held);
+        for (String symbol : entry.symbols) {
+            if (!current.contains(symbol)) {
+                Set<String> holders = portfoliosBySymbol.get(symbol);
+                if (holders != null) {
+                    holders.remove(portfolioId);
+                }
+            }
+        }
+        for (String symbol : current) {
+            portfoliosBySymbol.computeIfAbsent(symbol, k -> ConcurrentHashMap.newKeySet()).add(portfolioId);
+        }
+        entry.symbols = current;
+    }
+}
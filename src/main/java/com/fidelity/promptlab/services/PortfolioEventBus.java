@@ -0,0 +1,277 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.PortfolioEvent;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * In-process event bus partitioned by portfolio id.
+ *
+ * Each subscriber has its own thread pool and one lane per partition: a
+ * lock-free queue drained by at most one pool thread at a time, so events for
+ * the same portfolio reach a subscriber in publish order, while different
+ * partitions (and different subscribers) are delivered in parallel. Handlers
+ * receive batches of up to maxBatchSize events.
+ *
+ * Publishing is an enqueue per subscriber and never runs handler code.
+ * Backpressure is per subscriber: once a lane holds maxPending events, a
+ * DROP subscriber loses new events (counted), and a BLOCK subscriber makes
+ * publishers wait. A slow subscriber never delays other subscribers. BLOCK
+ * handlers must not publish to the bus themselves.
+ *
+ * Usage:
+ *   PortfolioEventBus.Subscription sub = bus.subscribe("fraud", 128, 50_000,
+ *       PortfolioEventBus.Backpressure.BLOCK, events -> fraudScorer.score(events));
+ *   bus.publish(new PortfolioEvent.TransactionRecorded(portfolioId, tx, Instant.now()));
+ *   sub.close();
+ */
+@Service
+public class PortfolioEventBus implements AutoCloseable {
+    // Batches a lane delivers before yielding its pool thread to other lanes
+    private static final int BATCHES_PER_RUN = 8;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    public enum Backpressure {
+        BLOCK, DROP
+    }
+
+    public record Settings(int partitions, int threads) {
+        public Settings {
+            if (partitions < 1 || threads < 1) {
+                throw new IllegalArgumentException("Partitions and threads must be positive");
+            }
+        }
+
+        public static Settings defaults() {
+            int threads = Runtime.getRuntime().availableProcessors();
+            return new Settings(threads * 4, threads);
+        }
+    }
+
+    /**
+     * Point-in-time metrics for one subscriber. Latencies are in microseconds.
+     */
+    public record SubscriberMetrics(
+        String name,
+        long pending,
+        long delivered,
+        long dropped,
+        long failedBatches,
+        long handlerP99Micros
+    ) {}
+
+    private final Settings settings;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder published = new LongAdder();
+    private volatile boolean closed;
+
+    public PortfolioEventBus() {
+        this(Settings.defaults());
+    }
+
+    public PortfolioEventBus(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * @param maxBatchSize largest batch passed to the handler
+     * @param maxPending   events buffered per partition before backpressure applies
+     */
+    public Subscription subscribe(String name, int maxBatchSize, int maxPending, Backpressure backpressure,
+                                  Consumer<List<PortfolioEvent>> handler) {
+        if (maxBatchSize < 1 || maxPending < 1) {
+            throw new IllegalArgumentException("Batch size and pending limit must be positive");
+        }
+        Subscription subscription = new Subscription(name, maxBatchSize, maxPending, backpressure, handler);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public void publish(PortfolioEvent event) {
+        if (closed) {
+            return;
+        }
+        published.increment();
+        int partition = partitionOf(event.portfolioId());
+        for (Subscription subscription : subscriptions) {
+            subscription.lanes[partition].offer(event);
+        }
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public List<SubscriberMetrics> getMetrics() {
+        List<SubscriberMetrics> metrics = new ArrayList<>(subscriptions.size());
+        for (Subscription subscription : subscriptions) {
+            metrics.add(subscription.getMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Stops accepting events and returns; events already queued are still
+     * delivered, each lane draining to empty on its pool thread. An event
+     * published concurrently with close may be discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions) {
+            subscription.executor.shutdown();
+        }
+    }
+
+    private int partitionOf(String portfolioId) {
+        int hash = portfolioId == null ? 0 : portfolioId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), settings.partitions());
+    }
+
+    public final class Subscription implements AutoCloseable {
+        private final String name;
+        private final int maxBatchSize;
+        private final int maxPending;
+        private final Backpressure backpressure;
+        private final Consumer<List<PortfolioEvent>> handler;
+        private final Lane[] lanes;
+        private final ThreadPoolExecutor executor;
+
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder failedBatches = new LongAdder();
+        private final LatencyHistogram handlerTime = new LatencyHistogram();
+        private volatile boolean active = true;
+
+        private Subscription(String name, int maxBatchSize, int maxPending, Backpressure backpressure,
+                             Consumer<List<PortfolioEvent>> handler) {
+            this.name = name;
+            this.maxBatchSize = maxBatchSize;
+            this.maxPending = maxPending;
+            this.backpressure = backpressure;
+            this.handler = handler;
+            this.lanes = new Lane[settings.partitions()];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new Lane();
+            }
+            AtomicInteger threadCount = new AtomicInteger();
+            // Unbounded queue is safe: each lane has at most one task queued or running
+            this.executor = new ThreadPoolExecutor(
+                    settings.threads(), settings.threads(), 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "portfolio-events-" + name + "-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        public SubscriberMetrics getMetrics() {
+            long pending = 0;
+            for (Lane lane : lanes) {
+                pending += lane.size.get();
+            }
+            return new SubscriberMetrics(name, pending, delivered.sum(), dropped.sum(), failedBatches.sum(),
+                    handlerTime.percentileMicros(99));
+        }
+
+        /**
+         * Unsubscribes; events already queued for this subscriber are discarded.
+         */
+        @Override
+        public void close() {
+            active = false;
+            subscriptions.remove(this);
+            executor.shutdown();
+        }
+
+        private final class Lane implements Runnable {
+            private final Queue<PortfolioEvent> queue = new ConcurrentLinkedQueue<>();
+            private final AtomicInteger size = new AtomicInteger();
+            private final AtomicBoolean scheduled = new AtomicBoolean();
+
+            void offer(PortfolioEvent event) {
+                while (size.incrementAndGet() > maxPending) {
+                    size.decrementAndGet();
+                    if (backpressure == Backpressure.DROP || !active || closed) {
+                        dropped.increment();
+                        return;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                queue.add(event);
+                schedule();
+            }
+
+            private void schedule() {
+                if (scheduled.compareAndSet(false, true) && !handOff()) {
+                    // Bus is shut down; an event offered concurrently with close is not delivered
+                    scheduled.set(false);
+                }
+            }
+
+            @Override
+            public void run() {
+                do {
+                    drain();
+                    scheduled.set(false);
+                    // Re-check: an offer between the last poll and the reset above saw scheduled == true.
+                    // Once the pool is shut down the lane cannot be requeued, so this thread keeps draining
+                } while (!queue.isEmpty() && active && scheduled.compareAndSet(false, true) && !handOff());
+            }
+
+            // Queues the lane behind other lanes; false once the pool no longer accepts tasks
+            private boolean handOff() {
+                try {
+                    executor.execute(this);
+                    return true;
+                } catch (RejectedExecutionException e) {
+                    return false;
+                }
+            }
+
+            private void drain() {
+                List<PortfolioEvent> batch = new ArrayList<>(Math.min(maxBatchSize, 256));
+                for (int run = 0; run < BATCHES_PER_RUN && active; run++) {
+                    PortfolioEvent event;
+                    while (batch.size() < maxBatchSize && (event = queue.poll()) != null) {
+                        batch.add(event);
+                    }
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    deliver(batch);
+                    size.addAndGet(-batch.size());
+                    batch = new ArrayList<>(Math.min(maxBatchSize, 256));
+                }
+            }
+
+            private void deliver(List<PortfolioEvent> batch) {
+                long started = System.nanoTime();
+                try {
+                    handler.accept(batch);
+                    delivered.add(batch.size());
+                } catch (RuntimeException e) {
+                    // A failing handler loses this batch but keeps its lane moving
+                    failedBatches.increment();
+                } finally {
+                    handlerTime.recordNanos(System.nanoTime() - started);
+                }
+            }
+        }
+    }
+}
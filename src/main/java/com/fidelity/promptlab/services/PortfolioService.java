@@ -4,9 +4,15 @@ import com.fidelity.promptlab.models.*;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Service for Lab 2 exercises.
@@ -18,28 +24,145 @@ import java.util.stream.Collectors;
  * 3. No proper error handling/transformation
  * 4. No @Transactional for database operations
  * 5. Performance issues with large data sets
- * 6. No pagination support
+ *
+ * Paginated access is available through findPortfoliosByUser and
+ * queryTransactions, which page with keyset cursors over ordered indexes.
  */
 @Service
 public class PortfolioService {
 
     // Challenge: In-memory storage - should use PortfolioRepository
-    private final Map<String, Portfolio> portfolios = new HashMap<>();
-    private final Map<String, List<Transaction>> transactions = new HashMap<>();
+    // Concurrent so cache loads and filter rebuilds can read while saves write
+    private final Map<String, Portfolio> portfolios = new ConcurrentHashMap<>();
+
+    // Ordered indexes backing the paginated query API
+    private final Map<String, NavigableMap<String, Portfolio>> portfoliosByUser = new ConcurrentHashMap<>();
+    // The userId each portfolio is indexed under, kept apart from the Portfolio itself so a
+    // caller mutating userId on the saved instance cannot lose track of the old entry
+    private final Map<String, String> indexedOwners = new ConcurrentHashMap<>();
+    private final Map<String, TransactionIndex> transactionIndexes = new ConcurrentHashMap<>();
+
+    // Notified with the portfolio id whenever a portfolio or its transactions change
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+    // Notified with the portfolio id after each save; recorded transactions do not fire these
+    private final List<Consumer<String>> saveListeners = new CopyOnWriteArrayList<>();
+    // Notified synchronously with each transaction once it is indexed
+    private final List<Consumer<Transaction>> transactionListeners = new CopyOnWriteArrayList<>();
+    // Portfolios are never removed, but the filter still rebuilds in the background once
+    // growth passes KeyFilter.MAX_STAGES; the rebuild iterates the concurrent map while saves go on
+    private final KeyFilter portfolioIdFilter = new KeyFilter(sink -> portfolios.keySet().forEach(sink));
+    private final Function<String, Optional<Portfolio>> portfolioLookup = id -> Optional.ofNullable(portfolios.get(id));
+    // Invalidated through notifyChanged, so saves and recorded transactions both stale it
+    private final TieredCache<Portfolio> portfolioCache = new TieredCache<>(TieredCache.Settings.defaults());
+    private final Function<String, Portfolio> portfolioLoader = id -> portfolioIdFilter.guard(id, portfolioLookup).orElse(null);
+
+    private final AuditLog auditLog;
+    private final PortfolioEventBus eventBus;
+    private final FxRateService fxRateService;
+    private final TransactionRollupService rollups;
+    private final AdmissionController admission;
+
+    public PortfolioService(AuditLog auditLog, PortfolioEventBus eventBus, FxRateService fxRateService,
+                            TransactionRollupService rollups, AdmissionController admission) {
+        this.auditLog = auditLog;
+        this.eventBus = eventBus;
+        this.fxRateService = fxRateService;
+        this.rollups = rollups;
+        this.admission = admission;
+        // The one rollup feed: published once per fill, when recorded settled or when it settles later.
+        // DROP so a stalled roll-up never blocks recordTransaction; fills lost to a full lane are
+        // counted in the bus metrics under "rollups"
+        eventBus.subscribe("rollups", 256, 100_000, PortfolioEventBus.Backpressure.DROP, events -> {
+            for (PortfolioEvent event : events) {
+                if (event instanceof PortfolioEvent.TransactionCompleted completed) {
+                    rollups.record(completed.transaction());
+                }
+            }
+        });
+    }
 
     // Challenge: Should be @Cacheable("portfolios")
     // Should return Optional<Portfolio>
+    // Served from a near/shared TieredCache; on a miss, ids that were never saved are
+    // rejected by a Bloom filter before the map lookup
     public Optional<Portfolio> getPortfolio(String portfolioId) {
-        return Optional.ofNullable(portfolios.get(portfolioId));
+        if (portfolioId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(portfolioCache.get(portfolioId, portfolioLoader));
     }
 
-    // Challenge: Fetches all then filters - should use query
+    // Challenge: No validation, no @Transactional
+    // Keeps the userId index used by getPortfoliosByUser and findPortfoliosByUser in step
+    public Portfolio savePortfolio(Portfolio portfolio) {
+        if (portfolio.getId() == null) {
+            portfolio.setId(UUID.randomUUID().toString().substring(0, 7));
+        }
+        portfolios.put(portfolio.getId(), portfolio);
+        portfolioIdFilter.add(portfolio.getId());
+        // compute serializes index moves for one portfolio id
+        String owner = portfolio.getUserId();
+        indexedOwners.compute(portfolio.getId(), (id, indexedOwner) -> {
+            if (indexedOwner != null && !indexedOwner.equals(owner)) {
+                NavigableMap<String, Portfolio> owned = portfoliosByUser.get(indexedOwner);
+                if (owned != null) {
+                    owned.remove(id);
+                }
+            }
+            if (owner != null) {
+                portfoliosByUser.computeIfAbsent(owner, k -> new ConcurrentSkipListMap<>()).put(id, portfolio);
+            }
+            return owner;
+        });
+        notifyChanged(portfolio.getId());
+        for (Consumer<String> listener : saveListeners) {
+            listener.accept(portfolio.getId());
+        }
+        eventBus.publish(new PortfolioEvent.PortfolioSaved(portfolio.getId(), portfolio, Instant.now()));
+        return portfolio;
+    }
+
+    // Served from the userId index instead of scanning every portfolio
     // Should be: portfolioRepository.findByUserId(userId)
     public List<Portfolio> getPortfoliosByUser(String userId) {
-        return portfolios.values().stream()
-                .filter(p -> p.getUserId().equals(userId))
-                .collect(Collectors.toList());
-        // Bug: Fetches all portfolios to find user's - O(n) instead of indexed query
+        NavigableMap<String, Portfolio> owned = userId == null ? null : portfoliosByUser.get(userId);
+        return owned == null ? new ArrayList<>() : new ArrayList<>(owned.values());
+    }
+
+    // O(1) through the userId index; used to block deleting users who still own portfolios
+    public boolean hasPortfolios(String userId) {
+        NavigableMap<String, Portfolio> owned = userId == null ? null : portfoliosByUser.get(userId);
+        return owned != null && !owned.isEmpty();
+    }
+
+    /**
+     * Returns one page of a user's portfolios ordered by portfolio id.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the limit is out of range or the cursor is malformed
+     */
+    public Page<Portfolio> findPortfoliosByUser(String userId, int limit, String cursor) {
+        if (limit < 1 || limit > TransactionQuery.MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + TransactionQuery.MAX_LIMIT);
+        }
+        NavigableMap<String, Portfolio> owned = userId == null ? null : portfoliosByUser.get(userId);
+        if (owned == null) {
+            return Page.empty();
+        }
+        NavigableMap<String, Portfolio> view = cursor == null
+                ? owned
+                : owned.tailMap(KeysetCursor.decodeId(cursor), false);
+
+        List<Portfolio> items = new ArrayList<>(Math.min(limit, 64));
+        String lastId = null;
+        for (Map.Entry<String, Portfolio> entry : view.entrySet()) {
+            if (items.size() == limit) {
+                return new Page<>(items, KeysetCursor.encodeId(lastId));
+            }
+            items.add(entry.getValue());
+            lastId = entry.getKey();
+        }
+        return new Page<>(items, null);
     }
 
     // Challenge: Simplistic calculation
@@ -56,6 +179,60 @@ public class PortfolioService {
         // Bug: Should round to 2 decimal places for currency
     }
 
+    /**
+     * Total market value converted into the target currency (for example the
+     * user's defaultCurrency), rounded to 2 decimal places. Holdings without
+     * a price are skipped.
+     *
+     * Values are summed per source currency and each subtotal is converted
+     * once against a single matrix snapshot, so a refresh mid-call cannot mix
+     * rates and only one rate is applied per currency.
+     */
+    public Result<BigDecimal, ApiError> calculateTotalValue(List<Holding> holdings, String targetCurrency) {
+        FxRateMatrix fx = fxRateService.current();
+        int target;
+        try {
+            target = fxRateService.ordinalOf(targetCurrency);
+        } catch (IllegalArgumentException e) {
+            return Result.failure(new ApiError("INVALID_CURRENCY", "Unknown currency code")
+                    .addDetail("currency", targetCurrency));
+        }
+        BigDecimal[] subtotals = new BigDecimal[fx.size()];
+        String lastCode = null;
+        int lastOrdinal = CurrencyTable.BASE;
+        for (Holding h : holdings) {
+            if (h == null || h.getCurrentPrice() == null) {
+                continue;
+            }
+            String code = h.getCurrency();
+            if (code != null && !code.equals(lastCode)) {
+                // Holdings mostly share a currency, so the code is resolved once per run of equal codes
+                Optional<Integer> ordinal = fxRateService.currencies().find(code);
+                if (ordinal.isEmpty() || ordinal.get() >= subtotals.length) {
+                    return Result.failure(FxRateService.rateUnavailable(code, targetCurrency));
+                }
+                lastCode = code;
+                lastOrdinal = ordinal.get();
+            }
+            int ordinal = code == null ? CurrencyTable.BASE : lastOrdinal;
+            BigDecimal value = h.getCurrentPrice().multiply(BigDecimal.valueOf(h.getQuantity()));
+            subtotals[ordinal] = subtotals[ordinal] == null ? value : subtotals[ordinal].add(value);
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (int ordinal = 0; ordinal < subtotals.length; ordinal++) {
+            if (subtotals[ordinal] == null) {
+                continue;
+            }
+            BigDecimal converted = fx.convert(subtotals[ordinal], ordinal, target);
+            if (converted == null) {
+                return Result.failure(FxRateService.rateUnavailable(
+                        fxRateService.currencies().code(ordinal), targetCurrency));
+            }
+            total = total.add(converted);
+        }
+        return Result.success(total.setScale(2, RoundingMode.HALF_UP));
+    }
+
     // Challenge: No caching, no retry, no error handling
     // Should use: @Cacheable, @Retryable, proper exception handling
     // Should call: external market data API with circuit breaker
@@ -73,36 +250,124 @@ public class PortfolioService {
     // Challenge: No transaction validation
     // Should: validate transaction, check sufficient funds, use @Transactional
     public Transaction recordTransaction(Transaction transaction) {
+        // Checked before any store is touched, so a rejected transaction leaves no trace
+        if (transaction.getPortfolioId() == null || transaction.getExecutedAt() == null) {
+            throw new IllegalArgumentException("Transaction must have a portfolioId and executedAt");
+        }
         String id = UUID.randomUUID().toString().substring(0, 7);
         transaction.setId(id);
 
-        List<Transaction> existing = transactions.computeIfAbsent(
-                transaction.getPortfolioId(), k -> new ArrayList<>());
-        existing.add(transaction);
+        transactionIndexes.computeIfAbsent(transaction.getPortfolioId(), k -> new TransactionIndex())
+                .add(transaction);
+        boolean settled = transaction.getStatus() == Transaction.TransactionStatus.COMPLETED;
+        for (Consumer<Transaction> listener : transactionListeners) {
+            listener.accept(transaction);
+        }
+        auditLog.record(AuditRecord.of("Transaction", id, "RECORD", AuditRecord.diff()
+                .field("portfolioId", null, transaction.getPortfolioId())
+                .field("type", null, transaction.getType())
+                .field("symbol", null, transaction.getSymbol())
+                .field("quantity", null, transaction.getQuantity())
+                .field("price", null, transaction.getPrice())
+                .field("total", null, transaction.getTotal())
+                .field("status", null, transaction.getStatus())
+                .build()));
+        notifyChanged(transaction.getPortfolioId());
+        eventBus.publish(new PortfolioEvent.TransactionRecorded(transaction.getPortfolioId(), transaction, Instant.now()));
+        if (settled) {
+            eventBus.publish(new PortfolioEvent.TransactionCompleted(transaction.getPortfolioId(), transaction, Instant.now()));
+        }
 
         return transaction;
-        // Bug: No validation, no idempotency key, no event publishing
+        // Bug: No validation, no idempotency key
+    }
+
+    /**
+     * Records a transaction on behalf of a caller, subject to admission
+     * control; fails with OVERLOADED when the caller's role is over its share.
+     */
+    public Result<Transaction, ApiError> recordTransaction(Transaction transaction, UserRole caller) {
+        return admission.execute(caller, () -> Result.success(recordTransaction(transaction)));
     }
 
     // Challenge: Performance issues with large portfolios
-    // - Fetches ALL transactions then filters client-side
-    // - No pagination
-    // - No server-side date filtering
+    // - No pagination (see queryTransactions for the paged form)
+    // Served from the portfolio's concurrent index, so it is safe against
+    // recordTransaction on other threads and ordered by execution time
     public List<Transaction> getTransactionHistory(
             String portfolioId,
             LocalDateTime startDate,
             LocalDateTime endDate) {
 
-        List<Transaction> all = transactions.getOrDefault(portfolioId, new ArrayList<>());
-
-        // Bug: Inefficient client-side filtering
-        return all.stream()
-                .filter(t -> {
-                    if (startDate != null && t.getExecutedAt().isBefore(startDate)) return false;
-                    if (endDate != null && t.getExecutedAt().isAfter(endDate)) return false;
-                    return true;
-                })
-                .collect(Collectors.toList());
-        // Should: use repository query with date parameters
+        TransactionIndex index = transactionIndexes.get(portfolioId);
+        if (index == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(index.range(null, null, startDate, endDate, null, false).values());
+    }
+
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    public void addSaveListener(Consumer<String> listener) {
+        saveListeners.add(listener);
+    }
+
+    public KeyFilter.Stats portfolioIdFilterStats() {
+        return portfolioIdFilter.stats();
+    }
+
+    public TieredCache.Metrics portfolioCacheMetrics() {
+        return portfolioCache.metrics();
+    }
+
+    public void addTransactionListener(Consumer<Transaction> listener) {
+        transactionListeners.add(listener);
+    }
+
+    private void notifyChanged(String portfolioId) {
+        portfolioCache.invalidate(portfolioId);
+        for (Consumer<String> listener : changeListeners) {
+            listener.accept(portfolioId);
+        }
+    }
+
+    // Read access for scans that push filters down into each portfolio's index
+    Optional<TransactionIndex> transactionIndex(String portfolioId) {
+        return Optional.ofNullable(transactionIndexes.get(portfolioId));
+    }
+
+    Set<String> indexedPortfolioIds() {
+        return Collections.unmodifiableSet(transactionIndexes.keySet());
+    }
+
+    /**
+     * Returns one page of transactions matching the query, ordered by (executedAt, id).
+     *
+     * Each type/symbol combination has its own ordered index, so a page costs
+     * one O(log n) seek plus the page size, however deep the cursor is.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public Page<Transaction> queryTransactions(TransactionQuery query) {
+        TransactionIndex index = transactionIndexes.get(query.portfolioId());
+        if (index == null) {
+            return Page.empty();
+        }
+        TransactionIndex.Key after = query.cursor() == null ? null : KeysetCursor.decodeTransaction(query.cursor());
+        NavigableMap<TransactionIndex.Key, Transaction> view = index.range(
+                query.type(), query.symbol(), query.from(), query.to(), after, query.descending());
+
+        List<Transaction> items = new ArrayList<>(Math.min(query.limit(), 64));
+        TransactionIndex.Key lastKey = null;
+        for (Map.Entry<TransactionIndex.Key, Transaction> entry : view.entrySet()) {
+            if (items.size() == query.limit()) {
+                return new Page<>(items, KeysetCursor.encode(lastKey));
+            }
+            items.add(entry.getValue());
+            lastKey = entry.getKey();
+        }
+        return new Page<>(items, null);
     }
 }
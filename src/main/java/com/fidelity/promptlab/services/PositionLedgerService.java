@@ -0,0 +1,263 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.Position;
+import com.fidelity.promptlab.models.PositionSnapshot;
+import com.fidelity.promptlab.models.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rebuilds positions (quantity and average cost per symbol) from the
+ * transaction ledger as of any point in time.
+ *
+ * Replays walk a portfolio's {@link TransactionIndex} in (executedAt, id)
+ * order. Every {@code checkpointInterval} transactions the running positions
+ * are saved as a checkpoint, so an as-of query starts from the nearest
+ * checkpoint at or before its timestamp and replays only the delta. Recording
+ * a back-dated transaction drops the checkpoints it would change.
+ *
+ * BUY adds and SELL removes quantity; TRANSFER moves a signed quantity (in
+ * when positive) and, without a price, carries the existing average cost.
+ * Adding to a position re-averages its cost including fees, reducing leaves
+ * it unchanged, and crossing zero starts again at the trade price. DIVIDEND,
+ * FAILED and CANCELLED transactions do not affect positions. Editing a
+ * recorded transaction in place is not detected; call {@link #invalidate}
+ * or {@link #rebuildAll()} after such a fix.
+ *
+ * Usage:
+ *   Optional<PositionSnapshot> yearEnd = ledger.positionsAsOf(portfolioId, LocalDateTime.of(2025, 12, 31, 23, 59, 59));
+ *   PositionLedgerService.RebuildReport report = ledger.rebuildAll();
+ */
+@Service
+public class PositionLedgerService {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1_000;
+
+    private static final int COST_SCALE = 10;
+    private static final int REPORTED_COST_SCALE = 4;
+
+    public record RebuildReport(int portfolios, long transactions, long checkpoints, Duration elapsed) {}
+
+    private final PortfolioService portfolioService;
+    private final ForkJoinPool pool;
+    private final int checkpointInterval;
+    private final Map<String, Ledger> ledgers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PositionLedgerService(PortfolioService portfolioService) {
+        this(portfolioService, ForkJoinPool.commonPool(), DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public PositionLedgerService(PortfolioService portfolioService, ForkJoinPool pool, int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.portfolioService = portfolioService;
+        this.pool = pool;
+        this.checkpointInterval = checkpointInterval;
+        portfolioService.addTransactionListener(this::onRecorded);
+    }
+
+    /**
+     * Positions including every transaction executed at or before asOf, or
+     * empty if no transactions were ever recorded for the portfolio.
+     */
+    public Optional<PositionSnapshot> positionsAsOf(String portfolioId, LocalDateTime asOf) {
+        return portfolioService.transactionIndex(portfolioId).map(index -> {
+            Replay replay = replay(ledgerFor(portfolioId), index, TransactionIndex.Key.highest(asOf));
+            return snapshot(portfolioId, asOf, replay);
+        });
+    }
+
+    /**
+     * Positions including every transaction recorded so far.
+     */
+    public Optional<PositionSnapshot> currentPositions(String portfolioId) {
+        return portfolioService.transactionIndex(portfolioId).map(index -> {
+            NavigableMap<TransactionIndex.Key, Transaction> all = index.select(null, null);
+            if (all.isEmpty()) {
+                return new PositionSnapshot(portfolioId, LocalDateTime.now(), List.of(), 0);
+            }
+            TransactionIndex.Key last = all.lastKey();
+            return snapshot(portfolioId, last.executedAt(), replay(ledgerFor(portfolioId), index, last));
+        });
+    }
+
+    /**
+     * Drops a portfolio's checkpoints; the next query replays from the start.
+     */
+    public void invalidate(String portfolioId) {
+        Ledger ledger = ledgers.get(portfolioId);
+        if (ledger != null) {
+            ledger.invalidateFrom(null);
+        }
+    }
+
+    /**
+     * Discards every checkpoint and replays every portfolio's full ledger in
+     * parallel, leaving fresh checkpoints behind. Use after a data fix.
+     */
+    public RebuildReport rebuildAll() {
+        long started = System.nanoTime();
+        List<String> portfolioIds = List.copyOf(portfolioService.indexedPortfolioIds());
+        LongAdder transactions = new LongAdder();
+        List<CompletableFuture<Void>> rebuilds = new ArrayList<>(portfolioIds.size());
+        for (String portfolioId : portfolioIds) {
+            rebuilds.add(CompletableFuture.runAsync(() -> {
+                Ledger ledger = ledgerFor(portfolioId);
+                ledger.invalidateFrom(null);
+                portfolioService.transactionIndex(portfolioId).ifPresent(index -> {
+                    NavigableMap<TransactionIndex.Key, Transaction> all = index.select(null, null);
+                    if (!all.isEmpty()) {
+                        transactions.add(replay(ledger, index, all.lastKey()).replayed());
+                    }
+                });
+            }, pool));
+        }
+        CompletableFuture.allOf(rebuilds.toArray(new CompletableFuture<?>[0])).join();
+
+        long checkpoints = 0;
+        for (String portfolioId : portfolioIds) {
+            checkpoints += ledgerFor(portfolioId).checkpoints.size();
+        }
+        return new RebuildReport(portfolioIds.size(), transactions.sum(), checkpoints,
+                Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    private void onRecorded(Transaction transaction) {
+        Ledger ledger = ledgers.get(transaction.getPortfolioId());
+        if (ledger != null) {
+            ledger.invalidateFrom(TransactionIndex.Key.of(transaction));
+        }
+    }
+
+    private Ledger ledgerFor(String portfolioId) {
+        return ledgers.computeIfAbsent(portfolioId, k -> new Ledger());
+    }
+
+    // ==================== Internals ====================
+
+    // Immutable position state at full cost precision, shared by checkpoints
+    private record Lot(long quantity, BigDecimal averageCost) {}
+
+    private record Checkpoint(Map<String, Lot> lots) {}
+
+    private record Replay(Map<String, Lot> lots, long replayed) {}
+
+    private static final class Ledger {
+        final NavigableMap<TransactionIndex.Key, Checkpoint> checkpoints = new ConcurrentSkipListMap<>();
+        // Bumped whenever checkpoints are dropped, so replays already under way don't re-add stale ones
+        long generation;
+        // Highest key any replay has been bounded by; later transactions cannot affect a checkpoint
+        TransactionIndex.Key coveredUpTo;
+
+        synchronized void invalidateFrom(TransactionIndex.Key key) {
+            if (key == null) {
+                generation++;
+                checkpoints.clear();
+            } else if (coveredUpTo != null && key.compareTo(coveredUpTo) <= 0) {
+                generation++;
+                checkpoints.tailMap(key, true).clear();
+            }
+        }
+
+        synchronized void checkpoint(long expectedGeneration, TransactionIndex.Key key, Map<String, Lot> lots) {
+            if (generation == expectedGeneration) {
+                checkpoints.putIfAbsent(key, new Checkpoint(Map.copyOf(lots)));
+            }
+        }
+    }
+
+    private Replay replay(Ledger ledger, TransactionIndex index, TransactionIndex.Key upTo) {
+        long generation;
+        Map.Entry<TransactionIndex.Key, Checkpoint> start;
+        synchronized (ledger) {
+            generation = ledger.generation;
+            if (ledger.coveredUpTo == null || upTo.compareTo(ledger.coveredUpTo) > 0) {
+                ledger.coveredUpTo = upTo;
+            }
+            start = ledger.checkpoints.floorEntry(upTo);
+        }
+
+        Map<String, Lot> lots = start == null ? new HashMap<>() : new HashMap<>(start.getValue().lots());
+        NavigableMap<TransactionIndex.Key, Transaction> delta = index.select(null, null);
+        if (start != null) {
+            delta = delta.tailMap(start.getKey(), false);
+        }
+        long replayed = 0;
+        for (Map.Entry<TransactionIndex.Key, Transaction> entry : delta.headMap(upTo, true).entrySet()) {
+            apply(lots, entry.getValue());
+            replayed++;
+            if (replayed % checkpointInterval == 0) {
+                ledger.checkpoint(generation, entry.getKey(), lots);
+            }
+        }
+        return new Replay(lots, replayed);
+    }
+
+    private static void apply(Map<String, Lot> lots, Transaction t) {
+        if (t.getSymbol() == null || t.getType() == null
+                || t.getStatus() == Transaction.TransactionStatus.FAILED
+                || t.getStatus() == Transaction.TransactionStatus.CANCELLED) {
+            return;
+        }
+        long delta = switch (t.getType()) {
+            case BUY -> t.getQuantity();
+            case SELL -> -(long) t.getQuantity();
+            case TRANSFER -> t.getQuantity();
+            case DIVIDEND -> 0;
+        };
+        if (delta == 0) {
+            return;
+        }
+        Lot lot = lots.get(t.getSymbol());
+        long held = lot == null ? 0 : lot.quantity();
+        long next = held + delta;
+        if (next == 0) {
+            lots.remove(t.getSymbol());
+            return;
+        }
+        BigDecimal averageCost = lot == null ? BigDecimal.ZERO : lot.averageCost();
+        BigDecimal price = t.getPrice();
+        BigDecimal fees = t.getFees() == null ? BigDecimal.ZERO : t.getFees();
+        BigDecimal traded = BigDecimal.valueOf(Math.abs(delta));
+        if (held == 0 || Long.signum(next) != Long.signum(held)) {
+            // Opened or flipped: what is left was all acquired by this trade
+            if (price != null) {
+                averageCost = price.add(fees.divide(traded, COST_SCALE, RoundingMode.HALF_EVEN));
+            }
+        } else if (Math.abs(next) > Math.abs(held) && price != null) {
+            averageCost = averageCost.multiply(BigDecimal.valueOf(Math.abs(held)))
+                    .add(price.multiply(traded))
+                    .add(fees)
+                    .divide(BigDecimal.valueOf(Math.abs(next)), COST_SCALE, RoundingMode.HALF_EVEN);
+        }
+        lots.put(t.getSymbol(), new Lot(next, averageCost));
+    }
+
+    private static PositionSnapshot snapshot(String portfolioId, LocalDateTime asOf, Replay replay) {
+        List<Position> positions = new ArrayList<>(replay.lots().size());
+        for (Map.Entry<String, Lot> e : replay.lots().entrySet()) {
+            positions.add(new Position(e.getKey(), e.getValue().quantity(),
+                    e.getValue().averageCost().setScale(REPORTED_COST_SCALE, RoundingMode.HALF_UP)));
+        }
+        positions.sort(Comparator.comparing(Position::symbol));
+        return new PositionSnapshot(portfolioId, asOf, positions, replay.replayed());
+    }
+}
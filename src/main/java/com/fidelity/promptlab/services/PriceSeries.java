@@ -0,0 +1,33 @@
+package com.fidelity.promptlab.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Source of daily closing prices for valuation.
+ */
+@FunctionalInterface
+public interface PriceSeries {
+
+    /**
+     * Returns the closing price of the symbol on the date, or null if none is known.
+     */
+    BigDecimal closeOn(String symbol, LocalDate date);
+
+    /**
+     * Price series backed by per-symbol date maps. Missing dates carry the
+     * most recent earlier close forward (weekends, holidays).
+     */
+    static PriceSeries of(Map<String, NavigableMap<LocalDate, BigDecimal>> closesBySymbol) {
+        return (symbol, date) -> {
+            NavigableMap<LocalDate, BigDecimal> closes = closesBySymbol.get(symbol);
+            if (closes == null) {
+                return null;
+            }
+            Map.Entry<LocalDate, BigDecimal> entry = closes.floorEntry(date);
+            return entry == null ? null : entry.getValue();
+        };
+    }
+}
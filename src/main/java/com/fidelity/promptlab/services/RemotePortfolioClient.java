@@ -0,0 +1,410 @@
+package com.fidelity.promptlab.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.Portfolio;
+import com.fidelity.promptlab.models.Result;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking client for the remote user-portfolios endpoint.
+ *
+ * Replaces the pattern in Challenge4Errors.fetchUserPortfolios: requests go
+ * through one shared, connection-pooling HttpClient using sendAsync, with
+ * connect and per-request timeouts, bounded in-flight requests, retries with
+ * full-jitter exponential backoff, and a circuit breaker. Response bodies are
+ * fed chunk by chunk into Jackson's non-blocking parser as they arrive, so no
+ * thread blocks on I/O and the body is never buffered into a String.
+ *
+ * Retries cover transport errors, timeouts, 429 and 5xx. Other 4xx responses
+ * fail immediately. Every outcome is a Result; the returned future never
+ * completes exceptionally.
+ *
+ * Usage:
+ *   RemotePortfolioClient client = new RemotePortfolioClient(
+ *           RemotePortfolioClient.Settings.defaults(URI.create("http://localhost:8080/api/")));
+ *   client.fetchUserPortfolios(userId).thenAccept(result -> ...);
+ */
+public class RemotePortfolioClient {
+    private static final TypeReference<List<Portfolio>> PORTFOLIO_LIST = new TypeReference<>() {};
+
+    /**
+     * Client configuration; baseUri is normalized to end with '/'.
+     */
+    public record Settings(
+        URI baseUri,
+        Duration connectTimeout,
+        Duration requestTimeout,
+        int maxAttempts,
+        Duration initialBackoff,
+        Duration maxBackoff,
+        int maxConcurrentRequests,
+        int failureThreshold,
+        Duration openDuration
+    ) {
+        public Settings {
+            if (baseUri == null) {
+                throw new IllegalArgumentException("Base URI is required");
+            }
+            if (maxAttempts < 1 || maxConcurrentRequests < 1) {
+                throw new IllegalArgumentException("Attempts and concurrency must be positive");
+            }
+            if (!baseUri.toString().endsWith("/")) {
+                baseUri = URI.create(baseUri + "/");
+            }
+        }
+
+        public static Settings defaults(URI baseUri) {
+            return new Settings(baseUri, Duration.ofSeconds(2), Duration.ofSeconds(5), 3,
+                    Duration.ofMillis(100), Duration.ofSeconds(2), 256, 20, Duration.ofSeconds(30));
+        }
+    }
+
+    private final Settings settings;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final CircuitBreaker circuitBreaker;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    public RemotePortfolioClient(Settings settings) {
+        this(settings, HttpClient.newBuilder().connectTimeout(settings.connectTimeout()).build());
+    }
+
+    public RemotePortfolioClient(Settings settings, HttpClient httpClient) {
+        this.settings = settings;
+        this.httpClient = httpClient;
+        this.objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.circuitBreaker = new CircuitBreaker(settings.failureThreshold(), settings.openDuration());
+    }
+
+    public CompletableFuture<Result<List<Portfolio>, ApiError>> fetchUserPortfolios(String userId) {
+        if (userId == null || userId.isBlank()) {
+            return CompletableFuture.completedFuture(
+                    Result.failure(new ApiError("INVALID_USER_ID", "User id is required")));
+        }
+        String segment = URLEncoder.encode(userId, StandardCharsets.UTF_8).replace("+", "%20");
+        return get(settings.baseUri().resolve("users/" + segment + "/portfolios"), PORTFOLIO_LIST);
+    }
+
+    /**
+     * Fetches many users concurrently; in-flight requests are capped by
+     * maxConcurrentRequests and the rest queue without holding threads.
+     */
+    public CompletableFuture<Map<String, Result<List<Portfolio>, ApiError>>> fetchAll(Collection<String> userIds) {
+        Map<String, CompletableFuture<Result<List<Portfolio>, ApiError>>> pending = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            pending.putIfAbsent(userId, fetchUserPortfolios(userId));
+        }
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    Map<String, Result<List<Portfolio>, ApiError>> results = new LinkedHashMap<>();
+                    pending.forEach((userId, future) -> results.put(userId, future.join()));
+                    return results;
+                });
+    }
+
+    /**
+     * GETs a JSON resource with the client's timeout, retry and breaker policy.
+     */
+    <T> CompletableFuture<Result<T, ApiError>> get(URI uri, TypeReference<T> type) {
+        return attempt(requestFor(uri), type, 1);
+    }
+
+    /**
+     * Builds the GET request the client would send for a URI.
+     */
+    HttpRequest requestFor(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(settings.requestTimeout())
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    /**
+     * Single attempt with no retry, still subject to the breaker and the
+     * concurrency limit. Cancelling the returned future cancels the exchange
+     * without counting as a failure.
+     */
+    <T> CompletableFuture<Result<T, ApiError>> attemptOnce(URI uri, TypeReference<T> type) {
+        HttpRequest request = requestFor(uri);
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.completedFuture(circuitOpen(request));
+        }
+        CompletableFuture<HttpResponse<T>> exchange = limited(() -> httpClient.sendAsync(request, bodyHandler(type)));
+        CompletableFuture<Result<T, ApiError>> result = exchange
+                .handle((response, error) -> classify(request, response, error, 1).result());
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public int getInFlightRequests() {
+        return inFlight.get();
+    }
+
+    // ============================================================
+    // Retry, breaker and concurrency limit
+    // ============================================================
+
+    private <T> CompletableFuture<Result<T, ApiError>> attempt(HttpRequest request, TypeReference<T> type, int attempt) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.completedFuture(circuitOpen(request));
+        }
+        return limited(() -> httpClient.sendAsync(request, bodyHandler(type)))
+                .handle((response, error) -> classify(request, response, error, attempt))
+                .thenCompose(outcome -> {
+                    if (outcome.retryable() && attempt < settings.maxAttempts()) {
+                        return CompletableFuture
+                                .supplyAsync(() -> null, CompletableFuture.delayedExecutor(
+                                        backoffMillis(attempt), TimeUnit.MILLISECONDS))
+                                .thenCompose(ignored -> attempt(request, type, attempt + 1));
+                    }
+                    return CompletableFuture.completedFuture(outcome.result());
+                });
+    }
+
+    private <T> HttpResponse.BodyHandler<T> bodyHandler(TypeReference<T> type) {
+        return info -> info.statusCode() / 100 == 2
+                ? new JsonBodySubscriber<>(objectMapper, type)
+                : HttpResponse.BodySubscribers.replacing(null);
+    }
+
+    private static <T> Result<T, ApiError> circuitOpen(HttpRequest request) {
+        return Result.failure(new ApiError("CIRCUIT_OPEN", "Remote portfolio service is unavailable")
+                .addDetail("uri", request.uri().toString()));
+    }
+
+    private record Outcome<T>(Result<T, ApiError> result, boolean retryable) {}
+
+    private <T> Outcome<T> classify(HttpRequest request, HttpResponse<T> response, Throwable error, int attempt) {
+        String uri = request.uri().toString();
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                circuitBreaker.onCancelled();
+                return new Outcome<>(Result.failure(new ApiError("CANCELLED", "Remote portfolio request was cancelled")
+                        .addDetail("uri", uri)), false);
+            }
+            circuitBreaker.onFailure();
+            if (cause instanceof JsonProcessingException) {
+                return new Outcome<>(Result.failure(new ApiError("INVALID_RESPONSE", "Malformed portfolio response")
+                        .addDetail("uri", uri)), false);
+            }
+            String code = cause instanceof HttpTimeoutException ? "REMOTE_TIMEOUT" : "REMOTE_UNAVAILABLE";
+            return new Outcome<>(Result.failure(new ApiError(code, "Remote portfolio request failed")
+                    .addDetail("uri", uri)
+                    .addDetail("attempts", attempt)
+                    .addDetail("cause", cause.getClass().getSimpleName())), cause instanceof IOException);
+        }
+
+        int status = response.statusCode();
+        if (status / 100 == 2) {
+            circuitBreaker.onSuccess();
+            T body = response.body();
+            if (body == null) {
+                return new Outcome<>(Result.failure(new ApiError("INVALID_RESPONSE", "Empty portfolio response")
+                        .addDetail("uri", uri)), false);
+            }
+            return new Outcome<>(Result.success(body), false);
+        }
+        boolean retryable = status == 429 || status >= 500;
+        if (retryable) {
+            circuitBreaker.onFailure();
+        } else {
+            // The upstream answered coherently, so it counts as healthy for the breaker
+            circuitBreaker.onSuccess();
+        }
+        String code = status == 404 ? "NOT_FOUND" : retryable ? "REMOTE_UNAVAILABLE" : "REMOTE_REJECTED";
+        return new Outcome<>(Result.failure(new ApiError(code, "Remote portfolio request returned HTTP " + status)
+                .addDetail("uri", uri)
+                .addDetail("status", status)
+                .addDetail("attempts", attempt)), retryable);
+    }
+
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(settings.maxBackoff().toMillis(),
+                settings.initialBackoff().toMillis() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private <T> CompletableFuture<T> limited(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        waiting.add(() -> {
+            if (result.isDone()) {
+                // Cancelled while queued; give the permit straight back
+                inFlight.decrementAndGet();
+                drainWaiting();
+                return;
+            }
+            CompletableFuture<T> stage;
+            try {
+                stage = call.get();
+            } catch (RuntimeException e) {
+                stage = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<T> started = stage;
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    started.cancel(true);
+                }
+            });
+            started.whenComplete((value, error) -> {
+                inFlight.decrementAndGet();
+                drainWaiting();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+        drainWaiting();
+        return result;
+    }
+
+    private void drainWaiting() {
+        while (!waiting.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= settings.maxConcurrentRequests()) {
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Runnable next = waiting.poll();
+            if (next == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            next.run();
+        }
+    }
+
+    // ============================================================
+    // Streaming JSON body
+    // ============================================================
+
+    /**
+     * Feeds each body chunk into a non-blocking Jackson parser, buffering
+     * tokens rather than text, and binds them when the body completes.
+     */
+    private static final class JsonBodySubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final ObjectMapper objectMapper;
+        private final TypeReference<T> type;
+        private final CompletableFuture<T> body = new CompletableFuture<>();
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private final TokenBuffer tokens;
+        private Flow.Subscription subscription;
+
+        JsonBodySubscriber(ObjectMapper objectMapper, TypeReference<T> type) {
+            this.objectMapper = objectMapper;
+            this.type = type;
+            try {
+                this.parser = objectMapper.getFactory().createNonBlockingByteBufferParser();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot create JSON parser", e);
+            }
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+            this.tokens = new TokenBuffer(parser);
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    feeder.feedInput(buffer);
+                    drainTokens();
+                }
+                subscription.request(1);
+            } catch (IOException e) {
+                subscription.cancel();
+                body.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            body.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                feeder.endOfInput();
+                drainTokens();
+                try (JsonParser buffered = tokens.asParser(objectMapper)) {
+                    body.complete(objectMapper.readValue(buffered, type));
+                }
+            } catch (IOException e) {
+                body.completeExceptionally(e);
+            }
+        }
+
+        private void drainTokens() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                tokens.copyCurrentEvent(parser);
+            }
+        }
+    }
+}
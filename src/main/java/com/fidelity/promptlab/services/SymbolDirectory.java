@@ -0,0 +1,63 @@
+package com.fidelity.promptlab.services;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Tradable symbols and their display names, used to validate transactions.
+ *
+ * Existence checks go through a {@link KeyFilter}, so the common case of an
+ * unknown or mistyped symbol is rejected without a map lookup. Delisting
+ * a symbol counts towards the filter's rebuild threshold.
+ *
+ * Usage:
+ *   directory.register("AAPL", "Apple Inc.");
+ *   directory.isKnown("AAPL");   // true
+ */
+@Service
+public class SymbolDirectory {
+    private final Map<String, String> namesBySymbol = new ConcurrentHashMap<>();
+    private final KeyFilter filter = new KeyFilter(sink -> namesBySymbol.keySet().forEach(sink));
+    private final Function<String, Optional<String>> lookup = symbol -> Optional.ofNullable(namesBySymbol.get(symbol));
+
+    public void register(String symbol, String name) {
+        namesBySymbol.put(symbol, name == null ? symbol : name);
+        filter.add(symbol);
+    }
+
+    public void registerAll(Map<String, String> namesBySymbol) {
+        namesBySymbol.forEach(this::register);
+    }
+
+    public boolean delist(String symbol) {
+        if (symbol == null || namesBySymbol.remove(symbol) == null) {
+            return false;
+        }
+        filter.onDeleted();
+        return true;
+    }
+
+    public boolean isKnown(String symbol) {
+        return findName(symbol).isPresent();
+    }
+
+    public Optional<String> findName(String symbol) {
+        return symbol == null ? Optional.empty() : filter.guard(symbol, lookup);
+    }
+
+    public boolean isEmpty() {
+        return namesBySymbol.isEmpty();
+    }
+
+    public int size() {
+        return namesBySymbol.size();
+    }
+
+    public KeyFilter.Stats filterStats() {
+        return filter.stats();
+    }
+}
@@ -0,0 +1,446 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.Holding;
+import com.fidelity.promptlab.models.Portfolio;
+import com.fidelity.promptlab.models.Transaction;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded synthetic data set for load tests: users, portfolios, trades and
+ * price ticks, identical for the same seed and settings on every run.
+ *
+ * The shapes follow what skews real traffic rather than uniform noise:
+ * - symbol popularity is Zipf distributed, so a few symbols appear in most
+ *   portfolios and most trades;
+ * - portfolios per user, holdings per portfolio and position sizes are
+ *   heavy tailed, giving a handful of very large portfolios;
+ * - trading activity per portfolio is Zipf distributed;
+ * - trades and ticks arrive as a Markov-modulated Poisson process that
+ *   flips between a calm rate and a burst rate, and a burst concentrates on
+ *   one "news" symbol;
+ * - prices follow a geometric random walk per symbol, trades execute near
+ *   the latest tick, and all activity falls inside exchange sessions.
+ *
+ * Each kind of data draws from its own random stream, so changing, say, the
+ * number of trades leaves the generated users and portfolios unchanged.
+ * Timestamps, start included, are wall-clock times in the system default
+ * zone, as Transaction() stamps executedAt.
+ *
+ * Usage:
+ *   SyntheticWorkload workload = SyntheticWorkload.generate(SyntheticWorkload.Settings.defaults());
+ *   workload.trades().forEach(trade -> portfolioService.recordTransaction(trade.toTransaction()));
+ */
+public final class SyntheticWorkload {
+
+    public record Settings(
+        long seed,
+        int users,
+        int symbols,
+        int maxPortfoliosPerUser,
+        int maxHoldingsPerPortfolio,
+        int trades,
+        int priceTicks,
+        double eventsPerSecond,
+        double burstFactor,
+        double zipfExponent,
+        LocalDateTime start
+    ) {
+        public Settings {
+            if (users < 1 || symbols < 1 || maxPortfoliosPerUser < 1 || maxHoldingsPerPortfolio < 1) {
+                throw new IllegalArgumentException("Users, symbols, portfolios and holdings must be positive");
+            }
+            if (trades < 0 || priceTicks < 0) {
+                throw new IllegalArgumentException("Trade and tick counts must not be negative");
+            }
+            if (eventsPerSecond <= 0 || burstFactor < 1 || zipfExponent <= 0) {
+                throw new IllegalArgumentException("Rates and exponents must be positive; burst factor at least 1");
+            }
+        }
+
+        public static Settings defaults() {
+            return new Settings(42L, 1_000, 500, 5, 60, 50_000, 50_000, 20.0, 25.0, 1.1,
+                    LocalDateTime.of(2024, 1, 2, 14, 30));
+        }
+
+        public Settings withSeed(long seed) {
+            return new Settings(seed, users, symbols, maxPortfoliosPerUser, maxHoldingsPerPortfolio,
+                    trades, priceTicks, eventsPerSecond, burstFactor, zipfExponent, start);
+        }
+    }
+
+    /**
+     * Data for UserService.createUser; the service assigns the id.
+     */
+    public record UserSpec(int index, String email, String firstName, String lastName) {
+        public Map<String, Object> toRequest() {
+            Map<String, Object> data = new HashMap<>();
+            data.put("email", email);
+            data.put("firstName", firstName);
+            data.put("lastName", lastName);
+            return data;
+        }
+    }
+
+    public record HoldingSpec(String symbol, int quantity, BigDecimal averageCost, BigDecimal currentPrice) {}
+
+    /**
+     * A portfolio owned by the user at ownerIndex; the caller maps that to the created user's id.
+     */
+    public record PortfolioSpec(
+        String id,
+        int ownerIndex,
+        String name,
+        Portfolio.RiskProfile riskProfile,
+        List<HoldingSpec> holdings
+    ) {
+        /**
+         * Builds a fresh, mutable Portfolio, so one workload can be replayed many times.
+         */
+        public Portfolio toPortfolio(String userId, LocalDateTime asOf) {
+            Portfolio portfolio = new Portfolio();
+            portfolio.setId(id);
+            portfolio.setUserId(userId);
+            portfolio.setName(name);
+            portfolio.setRiskProfile(riskProfile);
+            portfolio.setLastUpdated(asOf);
+            List<Holding> built = new ArrayList<>(holdings.size());
+            BigDecimal total = BigDecimal.ZERO;
+            for (HoldingSpec spec : holdings) {
+                Holding holding = new Holding(spec.symbol(), spec.symbol(), spec.quantity(),
+                        spec.averageCost(), spec.currentPrice());
+                built.add(holding);
+                total = total.add(holding.getMarketValue());
+            }
+            portfolio.setHoldings(built);
+            portfolio.setTotalValue(total);
+            return portfolio;
+        }
+    }
+
+    public record TradeSpec(
+        String portfolioId,
+        Transaction.TransactionType type,
+        String symbol,
+        int quantity,
+        BigDecimal price,
+        LocalDateTime executedAt
+    ) {
+        /**
+         * Builds a fresh PENDING transaction; services mutate and id the ones they are given.
+         */
+        public Transaction toTransaction() {
+            Transaction transaction = new Transaction();
+            transaction.setPortfolioId(portfolioId);
+            transaction.setType(type);
+            transaction.setSymbol(symbol);
+            transaction.setQuantity(quantity);
+            transaction.setPrice(price);
+            transaction.setTotal(price.multiply(BigDecimal.valueOf(quantity)));
+            transaction.setExecutedAt(executedAt);
+            return transaction;
+        }
+    }
+
+    public record PriceTick(String symbol, BigDecimal price, LocalDateTime at) {}
+
+    /**
+     * One step of the merged timeline: exactly one of trade and tick is set.
+     */
+    public record Event(TradeSpec trade, PriceTick tick) {
+        public LocalDateTime at() {
+            return trade != null ? trade.executedAt() : tick.at();
+        }
+    }
+
+    private static final String[] FIRST_NAMES = {
+        "Ava", "Ben", "Chloe", "Dev", "Elena", "Felix", "Grace", "Hiro", "Isla", "Jon",
+        "Kai", "Lena", "Mateo", "Nina", "Omar", "Priya", "Quinn", "Rosa", "Sam", "Tara"
+    };
+    private static final String[] LAST_NAMES = {
+        "Adams", "Brown", "Chen", "Diaz", "Evans", "Fischer", "Garcia", "Hughes", "Ito", "Jones",
+        "Kim", "Lopez", "Moore", "Nguyen", "Okafor", "Patel", "Rossi", "Smith", "Tanaka", "Weber"
+    };
+    // Per-stream seed offsets, so each kind of data has an independent sequence
+    private static final long USER_STREAM = 0x5DEECE66DL;
+    private static final long SYMBOL_STREAM = 0x9E3779B97F4A7C15L;
+    private static final long PORTFOLIO_STREAM = 0xC2B2AE3D27D4EB4FL;
+    private static final long EVENT_STREAM = 0x165667B19E3779F9L;
+    // Chance per event of entering or leaving a burst
+    private static final double BURST_ENTER = 0.002;
+    private static final double BURST_EXIT = 0.02;
+    private static final double DAILY_VOLATILITY = 0.02;
+    private static final double SESSION_SECONDS = 6.5 * 3600;
+
+    private final Settings settings;
+    private final List<UserSpec> users;
+    private final List<String> symbols;
+    private final List<PortfolioSpec> portfolios;
+    private final List<Event> events;
+    private final List<TradeSpec> trades;
+    private final List<PriceTick> priceTicks;
+
+    private SyntheticWorkload(Settings settings, List<UserSpec> users, List<String> symbols,
+                              List<PortfolioSpec> portfolios, List<Event> events) {
+        this.settings = settings;
+        this.users = List.copyOf(users);
+        this.symbols = List.copyOf(symbols);
+        this.portfolios = List.copyOf(portfolios);
+        this.events = List.copyOf(events);
+        List<TradeSpec> tradeList = new ArrayList<>();
+        List<PriceTick> tickList = new ArrayList<>();
+        for (Event event : events) {
+            if (event.trade() != null) {
+                tradeList.add(event.trade());
+            } else {
+                tickList.add(event.tick());
+            }
+        }
+        this.trades = List.copyOf(tradeList);
+        this.priceTicks = List.copyOf(tickList);
+    }
+
+    public static SyntheticWorkload generate(Settings settings) {
+        return generate(settings, new MarketCalendarService().defaultCalendar());
+    }
+
+    /**
+     * Generates the workload, placing trades and ticks inside the given calendar's sessions.
+     */
+    public static SyntheticWorkload generate(Settings settings, MarketCalendarService.SessionCalendar calendar) {
+        List<UserSpec> users = generateUsers(settings);
+        Map<String, BigDecimal> basePrices = generateSymbols(settings);
+        List<String> symbols = new ArrayList<>(basePrices.keySet());
+        List<PortfolioSpec> portfolios = generatePortfolios(settings, symbols, basePrices);
+        List<Event> events = generateEvents(settings, calendar, symbols, basePrices, portfolios);
+        return new SyntheticWorkload(settings, users, symbols, portfolios, events);
+    }
+
+    public Settings settings() {
+        return settings;
+    }
+
+    public List<UserSpec> users() {
+        return users;
+    }
+
+    /**
+     * Symbols in popularity order, most popular first.
+     */
+    public List<String> symbols() {
+        return symbols;
+    }
+
+    public List<PortfolioSpec> portfolios() {
+        return portfolios;
+    }
+
+    /**
+     * Trades and ticks merged in time order.
+     */
+    public List<Event> events() {
+        return events;
+    }
+
+    public List<TradeSpec> trades() {
+        return trades;
+    }
+
+    public List<PriceTick> priceTicks() {
+        return priceTicks;
+    }
+
+    // ==================== Internals ====================
+
+    private static List<UserSpec> generateUsers(Settings settings) {
+        SplittableRandom random = new SplittableRandom(settings.seed() ^ USER_STREAM);
+        String tag = Long.toHexString(settings.seed());
+        List<UserSpec> users = new ArrayList<>(settings.users());
+        for (int i = 0; i < settings.users(); i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            // Index and seed keep emails unique across users and across workloads
+            String email = (first + "." + last + "." + i + "." + tag + "@synthetic.example").toLowerCase();
+            users.add(new UserSpec(i, email, first, last));
+        }
+        return users;
+    }
+
+    // Unique tickers with log-normal prices, in popularity rank order
+    private static Map<String, BigDecimal> generateSymbols(Settings settings) {
+        SplittableRandom random = new SplittableRandom(settings.seed() ^ SYMBOL_STREAM);
+        Map<String, BigDecimal> prices = new LinkedHashMap<>();
+        Set<String> taken = new HashSet<>();
+        while (prices.size() < settings.symbols()) {
+            int length = 2 + random.nextInt(3);
+            StringBuilder ticker = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                ticker.append((char) ('A' + random.nextInt(26)));
+            }
+            if (taken.add(ticker.toString())) {
+                double price = Math.exp(Math.log(50) + random.nextGaussian());
+                prices.put(ticker.toString(), money(Math.max(1.0, Math.min(5_000.0, price))));
+            }
+        }
+        return prices;
+    }
+
+    private static List<PortfolioSpec> generatePortfolios(Settings settings, List<String> symbols,
+                                                          Map<String, BigDecimal> basePrices) {
+        SplittableRandom random = new SplittableRandom(settings.seed() ^ PORTFOLIO_STREAM);
+        ZipfSampler popularity = new ZipfSampler(symbols.size(), settings.zipfExponent());
+        ZipfSampler portfolioCount = new ZipfSampler(settings.maxPortfoliosPerUser(), 2.0);
+        ZipfSampler holdingCount = new ZipfSampler(settings.maxHoldingsPerPortfolio(), 0.8);
+        Portfolio.RiskProfile[] profiles = Portfolio.RiskProfile.values();
+        List<PortfolioSpec> portfolios = new ArrayList<>();
+        for (int owner = 0; owner < settings.users(); owner++) {
+            int count = portfolioCount.sample(random) + 1;
+            for (int p = 0; p < count; p++) {
+                int wanted = Math.min(holdingCount.sample(random) + 1, symbols.size());
+                Set<Integer> chosen = new HashSet<>();
+                List<HoldingSpec> holdings = new ArrayList<>(wanted);
+                // Popular symbols are drawn far more often; give up on duplicates after a few tries
+                for (int attempt = 0; holdings.size() < wanted && attempt < wanted * 4; attempt++) {
+                    int rank = popularity.sample(random);
+                    if (!chosen.add(rank)) {
+                        continue;
+                    }
+                    BigDecimal price = basePrices.get(symbols.get(rank));
+                    int quantity = (int) Math.max(1, Math.round(Math.exp(Math.log(40) + 1.2 * random.nextGaussian())));
+                    BigDecimal cost = money(price.doubleValue() * Math.exp(0.25 * random.nextGaussian()));
+                    holdings.add(new HoldingSpec(symbols.get(rank), quantity, cost, price));
+                }
+                String id = String.format("S%07d", portfolios.size());
+                portfolios.add(new PortfolioSpec(id, owner, "Portfolio " + (p + 1),
+                        profiles[random.nextInt(profiles.length)], holdings));
+            }
+        }
+        return portfolios;
+    }
+
+    private static List<Event> generateEvents(Settings settings, MarketCalendarService.SessionCalendar calendar,
+                                              List<String> symbols, Map<String, BigDecimal> basePrices,
+                                              List<PortfolioSpec> portfolios) {
+        SplittableRandom random = new SplittableRandom(settings.seed() ^ EVENT_STREAM);
+        ZipfSampler popularity = new ZipfSampler(symbols.size(), settings.zipfExponent());
+        // Trading activity is skewed independently of portfolio size
+        int[] activityRank = shuffledIndexes(portfolios.size(), random);
+        ZipfSampler activity = new ZipfSampler(portfolios.size(), settings.zipfExponent());
+        double[] prices = new double[symbols.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = basePrices.get(symbols.get(i)).doubleValue();
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        long start = settings.start().atZone(zone).toEpochSecond();
+        long[] lastTick = new long[symbols.size()];
+        Arrays.fill(lastTick, start);
+
+        List<Event> events = new ArrayList<>(settings.trades() + settings.priceTicks());
+        long second = start;
+        double fraction = 0;
+        boolean burst = false;
+        int newsSymbol = 0;
+        int tradesLeft = settings.trades();
+        int ticksLeft = settings.priceTicks();
+        while (tradesLeft + ticksLeft > 0) {
+            if (burst ? random.nextDouble() < BURST_EXIT : random.nextDouble() < BURST_ENTER) {
+                burst = !burst;
+                newsSymbol = popularity.sample(random);
+            }
+            double rate = settings.eventsPerSecond() * (burst ? settings.burstFactor() : 1);
+            fraction += -Math.log(1 - random.nextDouble()) / rate;
+            second += (long) fraction;
+            fraction -= (long) fraction;
+            second = nextOpenSecond(calendar, second);
+            LocalDateTime at = LocalDateTime.ofInstant(Instant.ofEpochSecond(second, (long) (fraction * 1e9)), zone);
+
+            int rank = burst && random.nextBoolean() ? newsSymbol : popularity.sample(random);
+            if (random.nextInt(tradesLeft + ticksLeft) < ticksLeft) {
+                // Geometric random walk; variance grows with the time since the symbol's last tick
+                double elapsed = Math.max(1, second - lastTick[rank]);
+                double step = DAILY_VOLATILITY * Math.sqrt(Math.min(elapsed, SESSION_SECONDS) / SESSION_SECONDS);
+                lastTick[rank] = second;
+                prices[rank] = Math.max(0.01, prices[rank] * Math.exp(step * random.nextGaussian() - step * step / 2));
+                events.add(new Event(null, new PriceTick(symbols.get(rank), money(prices[rank]), at)));
+                ticksLeft--;
+            } else {
+                PortfolioSpec portfolio = portfolios.get(activityRank[activity.sample(random)]);
+                String symbol = symbols.get(rank);
+                boolean held = portfolio.holdings().stream().anyMatch(h -> h.symbol().equals(symbol));
+                Transaction.TransactionType type = held && random.nextDouble() < 0.45
+                        ? Transaction.TransactionType.SELL : Transaction.TransactionType.BUY;
+                int quantity = (int) Math.max(1, Math.round(Math.exp(Math.log(20) + 1.5 * random.nextGaussian())));
+                double slippage = 1 + 0.0005 * random.nextGaussian();
+                events.add(new Event(new TradeSpec(portfolio.id(), type, symbol, quantity,
+                        money(prices[rank] * slippage), at), null));
+                tradesLeft--;
+            }
+        }
+        return events;
+    }
+
+    // Skips forward a minute at a time to the next session; each step is a bitmap lookup
+    private static long nextOpenSecond(MarketCalendarService.SessionCalendar calendar, long second) {
+        long minute = Math.floorDiv(second, 60);
+        if (calendar.isOpen(minute)) {
+            return second;
+        }
+        do {
+            minute++;
+        } while (!calendar.isOpen(minute));
+        return minute * 60;
+    }
+
+    private static int[] shuffledIndexes(int n, SplittableRandom random) {
+        int[] indexes = new int[n];
+        Arrays.setAll(indexes, i -> i);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = swap;
+        }
+        return indexes;
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^s.
+     */
+    private static final class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+}
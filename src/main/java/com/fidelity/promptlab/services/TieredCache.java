@@ -0,0 +1,360 @@
+package com.fidelity.promptlab.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Two-tier read-through cache: a small per-thread near cache in front of a
+ * shared, bounded cache with W-TinyLFU admission.
+ *
+ * Coherence comes from version stamps rather than broadcast invalidation.
+ * Every key that has been written has a version counter, and each cached
+ * entry holds the counter together with the version it was loaded at. The
+ * owner calls {@link #invalidate} after changing the backing store, which
+ * bumps the counter; from then on every copy of the old entry, in the
+ * shared tier or in any thread's near cache, fails its stamp check and is
+ * reloaded. The version is read before the load, so a load racing a write
+ * can only produce an entry that is already stale, never a stale hit.
+ *
+ * The near cache is direct-mapped and needs no synchronisation; its hits
+ * skip the shared tier entirely and are not counted towards frequency. The
+ * shared tier keeps a 1% LRU window in front of a segmented LRU main area
+ * (20% probation, 80% protected). When the window overflows, its oldest
+ * entry only displaces the main area's victim if a count-min sketch of
+ * recent accesses says it is used more often, so one-off reads cannot flush
+ * the hot set. Reads update the policy only when its lock is free; writes
+ * always do.
+ *
+ * Null loads are not cached.
+ *
+ * Usage:
+ *   TieredCache<Portfolio> cache = new TieredCache<>(TieredCache.Settings.defaults());
+ *   Portfolio portfolio = cache.get(id, key -> store.get(key));
+ *   store.put(id, updated);
+ *   cache.invalidate(id);
+ */
+public class TieredCache<V> {
+
+    public record Settings(int capacity, int nearCacheSize) {
+        public Settings {
+            if (capacity < 2) {
+                throw new IllegalArgumentException("Capacity must be at least 2");
+            }
+            if (nearCacheSize < 1 || Integer.bitCount(nearCacheSize) != 1) {
+                throw new IllegalArgumentException("Near cache size must be a power of two");
+            }
+        }
+
+        public static Settings defaults() {
+            return new Settings(10_000, 64);
+        }
+    }
+
+    /**
+     * Point-in-time metrics. Stale reads are cached copies found to be out of
+     * date and reloaded; they are also counted as misses.
+     */
+    public record Metrics(
+        long nearHits,
+        long sharedHits,
+        long misses,
+        long staleReads,
+        long evictions,
+        int size,
+        double hitRatio
+    ) {}
+
+    private final Settings settings;
+    private final Map<String, Node<V>> data = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final ThreadLocal<Node<?>[]> near;
+    private final int nearMask;
+
+    private final LongAdder nearHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleReads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Policy state, guarded by policyLock
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Queue<V> window = new Queue<>();
+    private final Queue<V> probation = new Queue<>();
+    private final Queue<V> protectedQueue = new Queue<>();
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+
+    public TieredCache(Settings settings) {
+        this.settings = settings;
+        this.nearMask = settings.nearCacheSize() - 1;
+        this.near = ThreadLocal.withInitial(() -> new Node<?>[settings.nearCacheSize()]);
+        this.windowCapacity = Math.max(1, settings.capacity() / 100);
+        this.mainCapacity = settings.capacity() - windowCapacity;
+        this.protectedCapacity = (int) (mainCapacity * 0.8);
+        this.sketch = new FrequencySketch(settings.capacity());
+    }
+
+    /**
+     * Returns the cached value or loads, caches and returns it; null if the
+     * loader returns null.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String key, Function<String, V> loader) {
+        Node<?>[] slots = near.get();
+        int slot = spread(key.hashCode()) & nearMask;
+        Node<V> local = (Node<V>) slots[slot];
+        if (local != null && local.key.equals(key)) {
+            if (local.isCurrent()) {
+                nearHits.increment();
+                return local.value;
+            }
+            slots[slot] = null;
+        }
+
+        Node<V> shared = data.get(key);
+        if (shared != null) {
+            if (shared.isCurrent()) {
+                sharedHits.increment();
+                onRead(shared);
+                slots[slot] = shared;
+                return shared.value;
+            }
+            staleReads.increment();
+        }
+
+        misses.increment();
+        // Read the version before loading: a write that lands during the load bumps it past our stamp
+        AtomicLong version = versions.get(key);
+        long stamp = version == null ? 0 : version.get();
+        V value = loader.apply(key);
+        if (value == null) {
+            return null;
+        }
+        if (version == null) {
+            // Writers create the counter, so one that appeared during the load has already moved past 0
+            version = versions.computeIfAbsent(key, k -> new AtomicLong());
+        }
+        Node<V> node = new Node<>(key, value, version, stamp);
+        onWrite(node);
+        slots[slot] = node;
+        return value;
+    }
+
+    /**
+     * Invalidates every cached copy of the key; call after the store changes.
+     */
+    public void invalidate(String key) {
+        versions.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public Metrics metrics() {
+        long near = nearHits.sum();
+        long shared = sharedHits.sum();
+        long missed = misses.sum();
+        long total = near + shared + missed;
+        return new Metrics(near, shared, missed, staleReads.sum(), evictions.sum(), data.size(),
+                total == 0 ? 0.0 : (double) (near + shared) / total);
+    }
+
+    // ==================== Internals ====================
+
+    private static final class Node<V> {
+        final String key;
+        final V value;
+        final AtomicLong version;
+        final long stamp;
+        // Policy links, guarded by policyLock
+        Queue<V> queue;
+        Node<V> prev;
+        Node<V> next;
+
+        Node(String key, V value, AtomicLong version, long stamp) {
+            this.key = key;
+            this.value = value;
+            this.version = version;
+            this.stamp = stamp;
+        }
+
+        boolean isCurrent() {
+            return stamp == version.get();
+        }
+    }
+
+    // Doubly linked LRU list; head is the eldest
+    private static final class Queue<V> {
+        Node<V> head;
+        Node<V> tail;
+        int size;
+
+        void addLast(Node<V> node) {
+            node.queue = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        void remove(Node<V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.queue = null;
+            size--;
+        }
+    }
+
+    // Lossy: a contended read skips the policy update rather than waiting
+    private void onRead(Node<V> node) {
+        if (!policyLock.tryLock()) {
+            return;
+        }
+        try {
+            sketch.increment(node.key);
+            Queue<V> queue = node.queue;
+            if (queue == null) {
+                return;
+            }
+            queue.remove(node);
+            if (queue == probation) {
+                protectedQueue.addLast(node);
+                if (protectedQueue.size > protectedCapacity) {
+                    Node<V> demoted = protectedQueue.head;
+                    protectedQueue.remove(demoted);
+                    probation.addLast(demoted);
+                }
+            } else {
+                queue.addLast(node);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void onWrite(Node<V> node) {
+        policyLock.lock();
+        try {
+            Node<V> previous = data.get(node.key);
+            if (previous != null && previous.stamp > node.stamp) {
+                // A newer load beat us here
+                return;
+            }
+            data.put(node.key, node);
+            sketch.increment(node.key);
+            if (previous != null && previous.queue != null) {
+                previous.queue.remove(previous);
+            }
+            window.addLast(node);
+            if (window.size > windowCapacity) {
+                Node<V> candidate = window.head;
+                window.remove(candidate);
+                probation.addLast(candidate);
+                if (probation.size + protectedQueue.size > mainCapacity) {
+                    evictFromMain(candidate);
+                }
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    // The candidate just left the window; it stays only if it is used more than the victim
+    private void evictFromMain(Node<V> candidate) {
+        Node<V> victim = probation.head;
+        if (victim == candidate) {
+            victim = protectedQueue.head;
+        }
+        Node<V> evicted = victim != null && sketch.frequency(candidate.key) > sketch.frequency(victim.key)
+                ? victim : candidate;
+        evicted.queue.remove(evicted);
+        data.remove(evicted.key, evicted);
+        evictions.increment();
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, four per key, halved every 10x
+     * capacity increments so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int counters = Integer.highestOneBit(Math.max(capacity, 16) * 2 - 1) * 4;
+            this.table = new long[counters / 16];
+            this.mask = table.length - 1;
+            this.sampleSize = capacity * 10;
+        }
+
+        void increment(String key) {
+            int h = key.hashCode();
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(h, i);
+                int shift = offsetOf(h, i);
+                if (((table[index] >>> shift) & 0xF) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(String key) {
+            int h = key.hashCode();
+            int min = 15;
+            for (int i = 0; i < 4; i++) {
+                min = Math.min(min, (int) ((table[indexOf(h, i)] >>> offsetOf(h, i)) & 0xF));
+            }
+            return min;
+        }
+
+        private int indexOf(int h, int i) {
+            long hash = (h + SEEDS[i]) * SEEDS[i];
+            return (int) (hash >>> 40) & mask;
+        }
+
+        // Each hash uses its own 4-bit counter within the chosen word
+        private int offsetOf(int h, int i) {
+            long hash = (h + SEEDS[i]) * SEEDS[i];
+            return (int) ((hash >>> 20) & 15) << 2;
+        }
+    }
+}
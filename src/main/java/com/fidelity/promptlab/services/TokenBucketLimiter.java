@@ -0,0 +1,195 @@
+package com.fidelity.promptlab.services;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Keyed token-bucket rate limiter with bounded memory.
+ *
+ * Each bucket is a single AtomicLong packing the last refill time (upper 40
+ * bits, milliseconds since the limiter started) and the available tokens
+ * (lower 24 bits, in thousandths of a token), updated with a CAS loop, so a
+ * check is one map lookup plus one CAS and never blocks.
+ *
+ * Buckets are created on first use. A bucket that has refilled to capacity
+ * holds no information, so it is dropped by an incremental sweep that runs on
+ * inserts (at most once per millisecond) once the table passes 90% of
+ * maxKeys. If the table is still full, new keys share a fixed array of
+ * overflow buckets chosen by hash; that can
+ * only over-limit colliding keys, never under-limit, which is the safe
+ * direction under a key-spraying attack.
+ */
+public class TokenBucketLimiter {
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI = 1000;
+    private static final int SWEEP_BATCH = 1024;
+    // Marks a bucket removed by the sweeper; callers holding it look the key up again
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    private final long capacityMilli;
+    private final double refillMilliPerMs;
+    private final int maxKeys;
+    private final LongSupplier nanoTime;
+    private final long startNanos;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLongArray overflow;
+    private final Object sweepLock = new Object();
+    private final AtomicLong lastSweepMillis = new AtomicLong(-1);
+    private Iterator<Map.Entry<String, AtomicLong>> sweepCursor;
+
+    /**
+     * @param capacity        maximum burst, in tokens (at most 16,000)
+     * @param refillPerMinute tokens added per minute
+     * @param maxKeys         buckets tracked individually before falling back to overflow buckets
+     * @param overflowBuckets size of the shared overflow array
+     */
+    public TokenBucketLimiter(int capacity, double refillPerMinute, int maxKeys, int overflowBuckets) {
+        this(capacity, refillPerMinute, maxKeys, overflowBuckets, System::nanoTime);
+    }
+
+    public TokenBucketLimiter(int capacity, double refillPerMinute, int maxKeys, int overflowBuckets,
+                              LongSupplier nanoTime) {
+        if (capacity < 1 || capacity * MILLI > TOKEN_MASK) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + TOKEN_MASK / MILLI);
+        }
+        if (refillPerMinute <= 0 || maxKeys < 1 || overflowBuckets < 1) {
+            throw new IllegalArgumentException("Refill rate, key limit and overflow size must be positive");
+        }
+        this.capacityMilli = capacity * MILLI;
+        this.refillMilliPerMs = refillPerMinute * MILLI / 60_000.0;
+        this.maxKeys = maxKeys;
+        this.nanoTime = nanoTime;
+        this.startNanos = nanoTime.getAsLong();
+        this.overflow = new AtomicLongArray(overflowBuckets);
+        for (int i = 0; i < overflowBuckets; i++) {
+            overflow.set(i, capacityMilli);
+        }
+    }
+
+    /**
+     * Takes one token for the key if available.
+     */
+    public boolean tryAcquire(String key) {
+        long now = nowMillis();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = bucketFor(key, now);
+            if (bucket == null) {
+                return tryAcquireOverflow(key, now);
+            }
+        }
+        while (true) {
+            long state = bucket.get();
+            if (state == EVICTED) {
+                bucket = bucketFor(key, now);
+                if (bucket == null) {
+                    return tryAcquireOverflow(key, now);
+                }
+                continue;
+            }
+            long next = take(refill(state, now));
+            if (next < 0) {
+                return false;
+            }
+            if (bucket.compareAndSet(state, next)) {
+                return true;
+            }
+        }
+    }
+
+    public int trackedKeys() {
+        return buckets.size();
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private AtomicLong bucketFor(String key, long now) {
+        if (buckets.size() >= maxKeys * 9L / 10) {
+            // At most one sweep per millisecond, so a table full of active buckets does not
+            // turn every new key into a scan
+            long last = lastSweepMillis.get();
+            if (last != now && lastSweepMillis.compareAndSet(last, now)) {
+                sweep(now);
+            }
+            if (buckets.size() >= maxKeys) {
+                return null;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(pack(now, capacityMilli)));
+    }
+
+    private boolean tryAcquireOverflow(String key, long now) {
+        int slot = Math.floorMod(key.hashCode() * 0x9E3779B9, overflow.length());
+        while (true) {
+            long state = overflow.get(slot);
+            long next = take(refill(state, now));
+            if (next < 0) {
+                return false;
+            }
+            if (overflow.compareAndSet(slot, state, next)) {
+                return true;
+            }
+        }
+    }
+
+    // Removes buckets that have refilled to capacity, resuming where the previous sweep stopped
+    private void sweep(long now) {
+        synchronized (sweepLock) {
+            for (int i = 0; i < SWEEP_BATCH; i++) {
+                if (sweepCursor == null || !sweepCursor.hasNext()) {
+                    sweepCursor = buckets.entrySet().iterator();
+                    if (!sweepCursor.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<String, AtomicLong> entry = sweepCursor.next();
+                long state = entry.getValue().get();
+                if (state != EVICTED && (refill(state, now) & TOKEN_MASK) >= capacityMilli
+                        && entry.getValue().compareAndSet(state, EVICTED)) {
+                    // The CAS fails if a take raced us, so no take is ever lost with the bucket
+                    buckets.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private long refill(long state, long now) {
+        long last = state >>> TOKEN_BITS;
+        long tokens = state & TOKEN_MASK;
+        long elapsed = now - last;
+        if (elapsed <= 0 || tokens >= capacityMilli) {
+            return tokens >= capacityMilli ? pack(now, capacityMilli) : state;
+        }
+        long added = (long) (elapsed * refillMilliPerMs);
+        if (added == 0) {
+            return state;
+        }
+        long refilled = tokens + added;
+        if (refilled >= capacityMilli) {
+            return pack(now, capacityMilli);
+        }
+        // Advance only by the time actually converted into tokens so fractions are not lost
+        return pack(last + (long) Math.ceil(added / refillMilliPerMs), refilled);
+    }
+
+    private static long take(long state) {
+        long tokens = state & TOKEN_MASK;
+        return tokens < MILLI ? -1 : state - MILLI;
+    }
+
+    private static long pack(long millis, long milliTokens) {
+        return (millis << TOKEN_BITS) | milliTokens;
+    }
+
+    private long nowMillis() {
+        return (nanoTime.getAsLong() - startNanos) / 1_000_000;
+    }
+}
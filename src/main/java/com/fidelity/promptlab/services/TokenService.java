@@ -0,0 +1,259 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.Result;
+import com.fidelity.promptlab.models.TokenClaims;
+import com.fidelity.promptlab.models.User;
+import com.fidelity.promptlab.models.UserRole;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Issues and verifies HMAC-SHA256 signed session tokens.
+ *
+ * Token format: base64url(payload) "." base64url(HMAC(payload)), where the
+ * payload is {@code 2|tokenId|userId|role|generation|issuedAtSeconds|expiresAtSeconds}.
+ * Verification needs no user lookup: the claims are in the token.
+ *
+ * Hot path: tokens that verified recently sit in a bounded session cache, so
+ * a repeat verification is a map hit plus expiry and revocation checks, with
+ * no HMAC. Revocation is O(1) by token id, or per user by bumping the user's
+ * generation counter, which invalidates every token carrying an older one.
+ * A counter rather than a timestamp, so a token issued right after a
+ * revocation is valid and one issued right before it is not, whatever the
+ * clock resolution.
+ *
+ * The no-arg constructor generates a random key, so tokens do not survive a
+ * restart; production deployments pass a shared key.
+ */
+@Service
+public class TokenService {
+    public static final Duration DEFAULT_TTL = Duration.ofHours(1);
+    public static final int DEFAULT_CACHE_SIZE = 100_000;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String VERSION = "2";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final Duration ttl;
+    private final int maxCachedSessions;
+    private final Clock clock;
+
+    private final Map<String, TokenClaims> sessionCache = new ConcurrentHashMap<>();
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+    // Only users that have been revoked at least once have an entry; absent means generation 0
+    private final Map<String, AtomicLong> userGenerations = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final AtomicLong revocationsSincePurge = new AtomicLong();
+
+    public TokenService() {
+        this(randomKey(), DEFAULT_TTL, DEFAULT_CACHE_SIZE, Clock.systemUTC());
+    }
+
+    public TokenService(byte[] secret, Duration ttl, int maxCachedSessions, Clock clock) {
+        if (secret == null || secret.length < 32) {
+            throw new IllegalArgumentException("Signing key must be at least 256 bits");
+        }
+        this.key = new SecretKeySpec(secret.clone(), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.ttl = ttl;
+        this.maxCachedSessions = maxCachedSessions;
+        this.clock = clock;
+    }
+
+    /**
+     * Issues a token for the user that expires after the configured TTL.
+     */
+    public String issue(User user) {
+        if (user.getId() == null || user.getId().indexOf('|') >= 0) {
+            throw new IllegalArgumentException("User id must be present and must not contain '|'");
+        }
+        long issuedAt = clock.instant().getEpochSecond();
+        long expiresAt = issuedAt + ttl.toSeconds();
+        UserRole role = user.getRole() != null ? user.getRole() : UserRole.CUSTOMER;
+        String payload = String.join("|", VERSION, UUID.randomUUID().toString(), user.getId(), role.name(),
+                Long.toString(generationOf(user.getId())), Long.toString(issuedAt), Long.toString(expiresAt));
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload));
+    }
+
+    /**
+     * Verifies a token, using the session cache when possible.
+     */
+    public Result<TokenClaims, ApiError> verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return invalid();
+        }
+        Instant now = clock.instant();
+        TokenClaims cached = sessionCache.get(token);
+        if (cached != null) {
+            cacheHits.increment();
+            return checkState(cached, now, token);
+        }
+        cacheMisses.increment();
+
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return invalid();
+        }
+        String encodedPayload = token.substring(0, dot);
+        byte[] signature;
+        String payload;
+        try {
+            signature = DECODER.decode(token.substring(dot + 1));
+            payload = new String(DECODER.decode(encodedPayload), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return invalid();
+        }
+        if (!MessageDigest.isEqual(signature, sign(encodedPayload))) {
+            return invalid();
+        }
+
+        TokenClaims claims = parse(payload);
+        if (claims == null) {
+            return invalid();
+        }
+        Result<TokenClaims, ApiError> result = checkState(claims, now, null);
+        if (result.isSuccess()) {
+            cache(token, claims);
+        }
+        return result;
+    }
+
+    /**
+     * Revokes a single token. Returns false if the token is not valid.
+     */
+    public boolean revoke(String token) {
+        Result<TokenClaims, ApiError> verified = verify(token);
+        if (verified.isFailure()) {
+            return false;
+        }
+        TokenClaims claims = verified.getOrThrow();
+        revokedTokens.put(claims.tokenId(), claims.expiresAt());
+        sessionCache.remove(token);
+        if (revocationsSincePurge.incrementAndGet() % 1024 == 0) {
+            purgeExpiredRevocations();
+        }
+        return true;
+    }
+
+    /**
+     * Revokes every token issued to the user up to now (logout everywhere,
+     * password change, account lock). Tokens issued afterwards are valid.
+     */
+    public void revokeAllForUser(String userId) {
+        userGenerations.computeIfAbsent(userId, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public long getCacheHits() { return cacheHits.sum(); }
+    public long getCacheMisses() { return cacheMisses.sum(); }
+    public int getCachedSessionCount() { return sessionCache.size(); }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private Result<TokenClaims, ApiError> checkState(TokenClaims claims, Instant now, String cachedToken) {
+        if (claims.isExpiredAt(now)) {
+            if (cachedToken != null) {
+                sessionCache.remove(cachedToken);
+            }
+            return Result.failure(new ApiError("TOKEN_EXPIRED", "Session has expired"));
+        }
+        if (revokedTokens.containsKey(claims.tokenId())) {
+            return Result.failure(new ApiError("TOKEN_REVOKED", "Session has been revoked"));
+        }
+        if (claims.generation() < generationOf(claims.userId())) {
+            return Result.failure(new ApiError("TOKEN_REVOKED", "Session has been revoked"));
+        }
+        return Result.success(claims);
+    }
+
+    private long generationOf(String userId) {
+        AtomicLong generation = userGenerations.get(userId);
+        return generation == null ? 0 : generation.get();
+    }
+
+    private static TokenClaims parse(String payload) {
+        String[] parts = payload.split("\\|", -1);
+        if (parts.length != 7 || !VERSION.equals(parts[0])) {
+            return null;
+        }
+        try {
+            return new TokenClaims(parts[1], parts[2], UserRole.valueOf(parts[3]),
+                    Instant.ofEpochSecond(Long.parseLong(parts[5])),
+                    Instant.ofEpochSecond(Long.parseLong(parts[6])),
+                    Long.parseLong(parts[4]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void cache(String token, TokenClaims claims) {
+        if (sessionCache.size() >= maxCachedSessions) {
+            evict();
+        }
+        sessionCache.put(token, claims);
+    }
+
+    // Drops expired sessions first, then arbitrary ones, down to 90% of capacity
+    private void evict() {
+        Instant now = clock.instant();
+        int target = maxCachedSessions - Math.max(1, maxCachedSessions / 10);
+        sessionCache.values().removeIf(claims -> claims.isExpiredAt(now));
+        Iterator<String> it = sessionCache.keySet().iterator();
+        while (sessionCache.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void purgeExpiredRevocations() {
+        Instant now = clock.instant();
+        revokedTokens.values().removeIf(expiresAt -> !now.isBefore(expiresAt));
+    }
+
+    private byte[] sign(String encodedPayload) {
+        return macs.get().doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static Result<TokenClaims, ApiError> invalid() {
+        return Result.failure(new ApiError("TOKEN_INVALID", "Session token is invalid"));
+    }
+
+    private static byte[] randomKey() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+}
@@ -0,0 +1,145 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Ordered indexes over one portfolio's transactions.
+ *
+ * Every transaction is indexed by (executedAt, id) in a primary index and in
+ * secondary indexes by type, by symbol and by (symbol, type), so each query
+ * shape is a range scan over an already-sorted map. Seeking to a keyset
+ * cursor is O(log n) regardless of page depth.
+ *
+ * executedAt is captured when the transaction is added; mutating it afterwards
+ * does not re-index the transaction.
+ */
+public class TransactionIndex {
+
+    /**
+     * Sort key for transactions: execution time, then id as a tie-breaker.
+     */
+    public record Key(LocalDateTime executedAt, String id) implements Comparable<Key> {
+        private static final Comparator<Key> ORDER = Comparator
+                .comparing(Key::executedAt)
+                .thenComparing(Key::id);
+
+        /** Smallest key at the given time, for inclusive lower bounds. */
+        public static Key lowest(LocalDateTime at) {
+            return new Key(at, "");
+        }
+
+        /** Key sorting after every real id at the given time, for inclusive upper bounds. */
+        public static Key highest(LocalDateTime at) {
+            return new Key(at, "\uFFFF");
+        }
+
+        public static Key of(Transaction transaction) {
+            return new Key(transaction.getExecutedAt(), transaction.getId());
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private final NavigableMap<Key, Transaction> byTime = new ConcurrentSkipListMap<>();
+    private final Map<Transaction.TransactionType, NavigableMap<Key, Transaction>> byType =
+            Collections.synchronizedMap(new EnumMap<>(Transaction.TransactionType.class));
+    private final Map<String, NavigableMap<Key, Transaction>> bySymbol = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<Key, Transaction>> bySymbolAndType = new ConcurrentHashMap<>();
+
+    public void add(Transaction transaction) {
+        if (transaction.getExecutedAt() == null || transaction.getId() == null) {
+            throw new IllegalArgumentException("Transaction must have an id and executedAt to be indexed");
+        }
+        Key key = Key.of(transaction);
+        byTime.put(key, transaction);
+        if (transaction.getType() != null) {
+            byType.computeIfAbsent(transaction.getType(), t -> new ConcurrentSkipListMap<>()).put(key, transaction);
+        }
+        if (transaction.getSymbol() != null) {
+            bySymbol.computeIfAbsent(transaction.getSymbol(), s -> new ConcurrentSkipListMap<>()).put(key, transaction);
+            if (transaction.getType() != null) {
+                bySymbolAndType.computeIfAbsent(compositeKey(transaction.getSymbol(), transaction.getType()),
+                        s -> new ConcurrentSkipListMap<>()).put(key, transaction);
+            }
+        }
+    }
+
+    /**
+     * Returns the index that serves a type/symbol filter exactly, so no
+     * residual filtering is needed. Null arguments mean "any".
+     */
+    public NavigableMap<Key, Transaction> select(Transaction.TransactionType type, String symbol) {
+        NavigableMap<Key, Transaction> index;
+        if (type != null && symbol != null) {
+            index = bySymbolAndType.get(compositeKey(symbol, type));
+        } else if (symbol != null) {
+            index = bySymbol.get(symbol);
+        } else if (type != null) {
+            index = byType.get(type);
+        } else {
+            index = byTime;
+        }
+        return index != null ? index : Collections.emptyNavigableMap();
+    }
+
+    /**
+     * Range view in the requested direction, bounded by an inclusive date range
+     * and an exclusive keyset cursor. All bounds are optional. A cursor outside
+     * the date range either leaves it unchanged or empties it, so a stale
+     * cursor never fails the query.
+     */
+    public NavigableMap<Key, Transaction> range(
+            Transaction.TransactionType type,
+            String symbol,
+            LocalDateTime from,
+            LocalDateTime to,
+            Key after,
+            boolean descending) {
+
+        Key lower = from == null ? null : Key.lowest(from);
+        Key upper = to == null ? null : Key.highest(to);
+        boolean lowerInclusive = true;
+        boolean upperInclusive = true;
+        // The cursor only narrows the side the scan is moving away from
+        if (after != null && descending && (upper == null || after.compareTo(upper) <= 0)) {
+            upper = after;
+            upperInclusive = false;
+        } else if (after != null && !descending && (lower == null || after.compareTo(lower) >= 0)) {
+            lower = after;
+            lowerInclusive = false;
+        }
+        if (lower != null && upper != null && lower.compareTo(upper) > 0) {
+            return Collections.emptyNavigableMap();
+        }
+
+        NavigableMap<Key, Transaction> view = select(type, symbol);
+        if (lower != null && upper != null) {
+            view = view.subMap(lower, lowerInclusive, upper, upperInclusive);
+        } else if (lower != null) {
+            view = view.tailMap(lower, lowerInclusive);
+        } else if (upper != null) {
+            view = view.headMap(upper, upperInclusive);
+        }
+        return descending ? view.descendingMap() : view;
+    }
+
+    public int size() {
+        return byTime.size();
+    }
+
+    private static String compositeKey(String symbol, Transaction.TransactionType type) {
+        return symbol + '\u0000' + type.name();
+    }
+}
@@ -0,0 +1,257 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.OhlcvBar;
+import com.fidelity.promptlab.models.Transaction;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-symbol OHLCV rollups at minute, hour and day granularity.
+ *
+ * Each recorded fill updates one bucket at every granularity, for its
+ * portfolio and for the symbol across all portfolios, so nothing is ever
+ * re-aggregated from raw transactions. A range query reads whole days for
+ * the middle of the range, whole hours for the partial days at its edges and
+ * minutes only for the partial hours, so a multi-month query merges a few
+ * hundred buckets however many fills it covers.
+ *
+ * Only settled fills are rolled up: COMPLETED BUY and SELL transactions with
+ * a symbol, a positive quantity and a price. PortfolioService feeds it only
+ * from TransactionCompleted, which is published once per fill, so a fill that
+ * fails or is cancelled never reaches a bucket; buckets cannot be un-merged,
+ * and every call is counted. That subscription drops rather than blocks the
+ * write path, so a fill can be missed under sustained overload; the bus's
+ * dropped count for "rollups" says how many. Buckets are aligned to UTC,
+ * treating executedAt as UTC, and are captured when the fill is rolled up:
+ * later edits to it are not reflected.
+ *
+ * Usage:
+ *   Optional<OhlcvBar> q1 = rollups.aggregate(portfolioId, "AAPL", jan1, apr1);
+ *   q1.flatMap(OhlcvBar::getVwap);
+ *   List<OhlcvBar> hourly = rollups.getBars(null, "AAPL", Granularity.HOUR, from, to);
+ */
+@Service
+public class TransactionRollupService {
+
+    public enum Granularity {
+        MINUTE(60), HOUR(3_600), DAY(86_400);
+
+        private final long seconds;
+
+        Granularity(long seconds) {
+            this.seconds = seconds;
+        }
+
+        public long seconds() { return seconds; }
+
+        long floor(long epochSecond) {
+            return Math.floorDiv(epochSecond, seconds) * seconds;
+        }
+
+        long ceil(long epochSecond) {
+            return -Math.floorDiv(-epochSecond, seconds) * seconds;
+        }
+    }
+
+    // portfolioId is null for the symbol's rollup across all portfolios
+    private record SeriesKey(String portfolioId, String symbol) {}
+
+    private final Map<SeriesKey, Series> series = new ConcurrentHashMap<>();
+
+    /**
+     * Folds a settled fill into its buckets; unsettled and ineligible
+     * transactions are ignored. Call once per fill.
+     */
+    public void record(Transaction transaction) {
+        if (!isRollable(transaction)) {
+            return;
+        }
+        LocalDateTime executedAt = transaction.getExecutedAt();
+        long epochSecond = executedAt.toEpochSecond(ZoneOffset.UTC);
+        long at = epochSecond * 1_000_000_000L + executedAt.getNano();
+        String symbol = transaction.getSymbol();
+        long quantity = transaction.getQuantity();
+        BigDecimal price = transaction.getPrice();
+        BigDecimal notional = price.multiply(BigDecimal.valueOf(quantity));
+
+        series.computeIfAbsent(new SeriesKey(transaction.getPortfolioId(), symbol), k -> new Series())
+                .add(epochSecond, at, price, quantity, notional);
+        series.computeIfAbsent(new SeriesKey(null, symbol), k -> new Series())
+                .add(epochSecond, at, price, quantity, notional);
+    }
+
+    /**
+     * Non-empty buckets of one granularity starting in [from, to), oldest first.
+     *
+     * @param portfolioId the portfolio, or null for all portfolios
+     */
+    public List<OhlcvBar> getBars(String portfolioId, String symbol, Granularity granularity,
+                                  LocalDateTime from, LocalDateTime to) {
+        Series s = series.get(new SeriesKey(portfolioId, symbol));
+        if (s == null) {
+            return List.of();
+        }
+        long lo = granularity.floor(from.toEpochSecond(ZoneOffset.UTC));
+        long hi = to.toEpochSecond(ZoneOffset.UTC);
+        List<OhlcvBar> bars = new ArrayList<>();
+        synchronized (s) {
+            for (Map.Entry<Long, Bucket> e : s.buckets.get(granularity).subMap(lo, true, hi, false).entrySet()) {
+                bars.add(e.getValue().toBar(symbol, e.getKey(), e.getKey() + granularity.seconds()));
+            }
+        }
+        return bars;
+    }
+
+    /**
+     * One bar covering [from, to), rounded outward to whole minutes, or empty
+     * if nothing traded.
+     *
+     * @param portfolioId the portfolio, or null for all portfolios
+     */
+    public Optional<OhlcvBar> aggregate(String portfolioId, String symbol, LocalDateTime from, LocalDateTime to) {
+        Series s = series.get(new SeriesKey(portfolioId, symbol));
+        if (s == null) {
+            return Optional.empty();
+        }
+        long lo = Granularity.MINUTE.floor(from.toEpochSecond(ZoneOffset.UTC));
+        long hi = Granularity.MINUTE.ceil(to.toEpochSecond(ZoneOffset.UTC));
+        if (lo >= hi) {
+            return Optional.empty();
+        }
+        Bucket total = new Bucket();
+        synchronized (s) {
+            s.cover(Granularity.DAY, lo, hi, total);
+        }
+        return total.count == 0 ? Optional.empty() : Optional.of(total.toBar(symbol, lo, hi));
+    }
+
+    private static boolean isRollable(Transaction t) {
+        return (t.getType() == Transaction.TransactionType.BUY || t.getType() == Transaction.TransactionType.SELL)
+                && t.getStatus() == Transaction.TransactionStatus.COMPLETED
+                && t.getSymbol() != null
+                && t.getQuantity() > 0
+                && t.getPrice() != null
+                && t.getExecutedAt() != null;
+    }
+
+    // ==================== Internals ====================
+
+    // One symbol's buckets at every granularity, keyed by bucket start (epoch seconds)
+    private static final class Series {
+        final Map<Granularity, NavigableMap<Long, Bucket>> buckets = new EnumMap<>(Granularity.class);
+
+        Series() {
+            for (Granularity g : Granularity.values()) {
+                buckets.put(g, new TreeMap<>());
+            }
+        }
+
+        synchronized void add(long epochSecond, long at, BigDecimal price, long quantity, BigDecimal notional) {
+            for (Granularity g : Granularity.values()) {
+                buckets.get(g).computeIfAbsent(g.floor(epochSecond), k -> new Bucket())
+                        .add(at, price, quantity, notional);
+            }
+        }
+
+        // Merges [lo, hi) into total using the coarsest buckets that fit entirely inside it
+        void cover(Granularity level, long lo, long hi, Bucket total) {
+            if (lo >= hi) {
+                return;
+            }
+            if (level == Granularity.MINUTE) {
+                mergeRange(level, lo, hi, total);
+                return;
+            }
+            Granularity finer = Granularity.values()[level.ordinal() - 1];
+            long alignedLo = level.ceil(lo);
+            long alignedHi = level.floor(hi);
+            if (alignedLo >= alignedHi) {
+                cover(finer, lo, hi, total);
+                return;
+            }
+            cover(finer, lo, alignedLo, total);
+            mergeRange(level, alignedLo, alignedHi, total);
+            cover(finer, alignedHi, hi, total);
+        }
+
+        private void mergeRange(Granularity level, long lo, long hi, Bucket total) {
+            for (Bucket bucket : buckets.get(level).subMap(lo, true, hi, false).values()) {
+                total.merge(bucket);
+            }
+        }
+    }
+
+    // Mutable aggregate; open and close are ordered by execution time in epoch nanos
+    private static final class Bucket {
+        long openAt = Long.MAX_VALUE;
+        long closeAt = Long.MIN_VALUE;
+        BigDecimal open;
+        BigDecimal close;
+        BigDecimal high;
+        BigDecimal low;
+        long count;
+        long volume;
+        BigDecimal notional = BigDecimal.ZERO;
+
+        void add(long at, BigDecimal price, long quantity, BigDecimal fillNotional) {
+            if (at < openAt) {
+                openAt = at;
+                open = price;
+            }
+            if (at >= closeAt) {
+                closeAt = at;
+                close = price;
+            }
+            if (high == null || price.compareTo(high) > 0) {
+                high = price;
+            }
+            if (low == null || price.compareTo(low) < 0) {
+                low = price;
+            }
+            count++;
+            volume += quantity;
+            notional = notional.add(fillNotional);
+        }
+
+        void merge(Bucket other) {
+            if (other.count == 0) {
+                return;
+            }
+            if (other.openAt < openAt) {
+                openAt = other.openAt;
+                open = other.open;
+            }
+            if (other.closeAt >= closeAt) {
+                closeAt = other.closeAt;
+                close = other.close;
+            }
+            if (high == null || other.high.compareTo(high) > 0) {
+                high = other.high;
+            }
+            if (low == null || other.low.compareTo(low) < 0) {
+                low = other.low;
+            }
+            count += other.count;
+            volume += other.volume;
+            notional = notional.add(other.notional);
+        }
+
+        OhlcvBar toBar(String symbol, long start, long end) {
+            return new OhlcvBar(symbol,
+                    LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC),
+                    LocalDateTime.ofEpochSecond(end, 0, ZoneOffset.UTC),
+                    open, high, low, close, count, volume, notional);
+        }
+    }
+}
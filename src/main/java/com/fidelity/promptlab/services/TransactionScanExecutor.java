@@ -0,0 +1,294 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.Page;
+import com.fidelity.promptlab.models.Result;
+import com.fidelity.promptlab.models.Transaction;
+import com.fidelity.promptlab.models.TransactionScanQuery;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a {@link TransactionScanQuery} across many portfolios in parallel.
+ *
+ * The portfolio set is split recursively on a fork-join pool. Each leaf pushes
+ * the type/symbol/date filters down into the portfolio's {@link TransactionIndex}
+ * and reads at most {@code limit} rows per portfolio, since no portfolio can
+ * contribute more than that to the result. Leaves k-way merge their portfolios'
+ * runs and parents merge their children's results, truncating to {@code limit}
+ * at every level so buffered rows stay bounded.
+ *
+ * A scan with more matches than {@code limit} is never cut short silently: the
+ * page carries a keyset cursor after its last row, and the query resumed with
+ * {@link TransactionScanQuery#after(String)} seeks every portfolio past it.
+ *
+ * Every buffered row is charged against a per-query budget, once per
+ * portfolio run; a query that would exceed it fails fast with
+ * QUERY_BUDGET_EXCEEDED instead of growing the heap.
+ *
+ * Usage:
+ *   TransactionScanExecutor executor = new TransactionScanExecutor(portfolioService);
+ *   TransactionScanExecutor.ScanHandle handle = executor.submit(query);
+ *   Result<Page<Transaction>, ApiError> result = handle.join();
+ */
+public class TransactionScanExecutor {
+    public static final int DEFAULT_CHUNK_SIZE = 32;
+    public static final long DEFAULT_MAX_BUFFERED_ROWS = 1_000_000;
+
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    private final PortfolioService portfolioService;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final long maxBufferedRows;
+
+    public TransactionScanExecutor(PortfolioService portfolioService) {
+        this(portfolioService, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, DEFAULT_MAX_BUFFERED_ROWS);
+    }
+
+    public TransactionScanExecutor(PortfolioService portfolioService, ForkJoinPool pool,
+                                   int chunkSize, long maxBufferedRows) {
+        if (chunkSize < 1 || maxBufferedRows < 1) {
+            throw new IllegalArgumentException("Chunk size and row budget must be positive");
+        }
+        this.portfolioService = portfolioService;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.maxBufferedRows = maxBufferedRows;
+    }
+
+    /**
+     * Starts the scan and returns immediately.
+     *
+     * @throws IllegalArgumentException if the query's cursor is malformed
+     */
+    public ScanHandle submit(TransactionScanQuery query) {
+        TransactionIndex.Key after = query.cursor() == null ? null : KeysetCursor.decodeTransaction(query.cursor());
+        String[] portfolioIds = (query.portfolioIds() != null
+                ? query.portfolioIds()
+                : portfolioService.indexedPortfolioIds()).toArray(new String[0]);
+
+        ScanContext context = new ScanContext(query, after, maxBufferedRows);
+        ScanTask task = new ScanTask(context, portfolioIds, 0, portfolioIds.length);
+        pool.execute(task);
+        return new ScanHandle(task, context);
+    }
+
+    /**
+     * Runs the scan and waits for its result.
+     */
+    public Result<Page<Transaction>, ApiError> execute(TransactionScanQuery query) {
+        return submit(query).join();
+    }
+
+    /**
+     * Handle to a running scan.
+     */
+    public static final class ScanHandle {
+        private final ScanTask task;
+        private final ScanContext context;
+
+        private ScanHandle(ScanTask task, ScanContext context) {
+            this.task = task;
+            this.context = context;
+        }
+
+        /**
+         * Requests cancellation; in-flight leaves stop at their next check.
+         */
+        public void cancel() {
+            context.cancelled.set(true);
+            task.cancel(false);
+        }
+
+        public boolean isDone() {
+            return task.isDone();
+        }
+
+        /**
+         * Rows currently charged against the query's budget.
+         */
+        public long bufferedRows() {
+            return context.bufferedRows.get();
+        }
+
+        /**
+         * The matching rows, with a cursor to the rest when the scan stopped at the limit.
+         */
+        public Result<Page<Transaction>, ApiError> join() {
+            try {
+                List<Transaction> rows = task.join();
+                String nextCursor = context.truncated.get() && !rows.isEmpty()
+                        ? KeysetCursor.encode(TransactionIndex.Key.of(rows.get(rows.size() - 1)))
+                        : null;
+                return Result.success(new Page<>(rows, nextCursor));
+            } catch (CancellationException | BudgetExceededException e) {
+                // Sibling leaves stop with CancellationException once the budget trips, so check the flag
+                if (context.budgetExceeded.get()) {
+                    return Result.failure(new ApiError("QUERY_BUDGET_EXCEEDED",
+                            "Transaction scan exceeded its buffered row budget")
+                            .addDetail("maxBufferedRows", context.maxBufferedRows));
+                }
+                return Result.failure(new ApiError("QUERY_CANCELLED", "Transaction scan was cancelled"));
+            }
+        }
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private static final class ScanContext {
+        final TransactionScanQuery query;
+        final TransactionIndex.Key after;
+        final Comparator<Transaction> order;
+        final long maxBufferedRows;
+        final AtomicLong bufferedRows = new AtomicLong();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final AtomicBoolean budgetExceeded = new AtomicBoolean();
+        // Set once any matching row is left behind, whether unread or merged away
+        final AtomicBoolean truncated = new AtomicBoolean();
+
+        ScanContext(TransactionScanQuery query, TransactionIndex.Key after, long maxBufferedRows) {
+            this.query = query;
+            this.after = after;
+            this.maxBufferedRows = maxBufferedRows;
+            Comparator<Transaction> ascending = Comparator.comparing(TransactionIndex.Key::of);
+            this.order = query.descending() ? ascending.reversed() : ascending;
+        }
+
+        void reserve(long rows) {
+            if (bufferedRows.addAndGet(rows) > maxBufferedRows) {
+                budgetExceeded.set(true);
+                cancelled.set(true);
+                throw new BudgetExceededException();
+            }
+        }
+
+        void release(long rows) {
+            bufferedRows.addAndGet(-rows);
+        }
+
+        void checkCancelled() {
+            if (cancelled.get()) {
+                throw new CancellationException("Transaction scan cancelled");
+            }
+        }
+    }
+
+    private static final class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final class ScanTask extends RecursiveTask<List<Transaction>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ScanContext context;
+        private final String[] portfolioIds;
+        private final int from;
+        private final int to;
+
+        ScanTask(ScanContext context, String[] portfolioIds, int from, int to) {
+            this.context = context;
+            this.portfolioIds = portfolioIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Transaction> compute() {
+            context.checkCancelled();
+            if (to - from <= chunkSize) {
+                return scanChunk();
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(context, portfolioIds, from, mid);
+            ScanTask right = new ScanTask(context, portfolioIds, mid, to);
+            left.fork();
+            List<Transaction> rightRows = right.compute();
+            List<Transaction> leftRows = left.join();
+            return merge(List.of(leftRows, rightRows));
+        }
+
+        private List<Transaction> scanChunk() {
+            TransactionScanQuery query = context.query;
+            List<List<Transaction>> runs = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                TransactionIndex index = portfolioService.transactionIndex(portfolioIds[i]).orElse(null);
+                if (index == null) {
+                    continue;
+                }
+                NavigableMap<TransactionIndex.Key, Transaction> view = index.range(
+                        query.type(), query.symbol(), query.from(), query.to(), context.after, query.descending());
+                List<Transaction> run = new ArrayList<>();
+                Iterator<Transaction> rows = view.values().iterator();
+                while (rows.hasNext() && run.size() < query.limit()) {
+                    if (run.size() % CANCEL_CHECK_INTERVAL == 0) {
+                        context.checkCancelled();
+                    }
+                    run.add(rows.next());
+                }
+                if (rows.hasNext()) {
+                    context.truncated.set(true);
+                }
+                if (!run.isEmpty()) {
+                    // At most limit rows, so charging after the run is built overshoots by a bounded amount
+                    context.reserve(run.size());
+                    runs.add(run);
+                }
+            }
+            return merge(runs);
+        }
+
+        /**
+         * K-way merge of sorted runs, truncated to the query limit; rows that
+         * fall off the end are released from the budget.
+         */
+        private List<Transaction> merge(List<List<Transaction>> runs) {
+            long inputRows = 0;
+            for (List<Transaction> run : runs) {
+                inputRows += run.size();
+            }
+            if (runs.size() == 1 && inputRows <= context.query.limit()) {
+                return runs.get(0);
+            }
+
+            int limit = context.query.limit();
+            List<Transaction> merged = new ArrayList<>((int) Math.min(inputRows, limit));
+            PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(runs.size(), 1),
+                    (a, b) -> context.order.compare(runs.get(a[0]).get(a[1]), runs.get(b[0]).get(b[1])));
+            for (int r = 0; r < runs.size(); r++) {
+                if (!runs.get(r).isEmpty()) {
+                    heads.add(new int[]{r, 0});
+                }
+            }
+            while (!heads.isEmpty() && merged.size() < limit) {
+                int[] head = heads.poll();
+                List<Transaction> run = runs.get(head[0]);
+                merged.add(run.get(head[1]));
+                if (++head[1] < run.size()) {
+                    heads.add(head);
+                }
+            }
+            if (merged.size() < inputRows) {
+                context.truncated.set(true);
+                context.release(inputRows - merged.size());
+            }
+            return merged;
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.fidelity.promptlab.services;
 
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.PortfolioEvent;
+import com.fidelity.promptlab.models.Result;
 import com.fidelity.promptlab.models.Transaction;
+import com.fidelity.promptlab.models.UserRole;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -22,6 +28,22 @@ import java.util.stream.Collectors;
 @Service
 public class TransactionService {
 
+    private final PortfolioEventBus eventBus;
+    private final SymbolDirectory symbols;
+    // Resolved once so the per-transaction check is a single bitmap lookup
+    private final MarketCalendarService.SessionCalendar marketHours;
+    // Transaction() stamps executedAt with LocalDateTime.now(), the wall clock of this zone
+    private final ZoneId executionZone = ZoneId.systemDefault();
+    private final AdmissionController admission;
+
+    public TransactionService(PortfolioEventBus eventBus, SymbolDirectory symbols, MarketCalendarService calendars,
+                              AdmissionController admission) {
+        this.eventBus = eventBus;
+        this.symbols = symbols;
+        this.marketHours = calendars.defaultCalendar();
+        this.admission = admission;
+    }
+
     // Challenge: Complex validation needed
     // - Only checks 2 fields
     // - No Bean Validation annotations
@@ -33,12 +55,18 @@ public class TransactionService {
         // Minimal validation - participants should improve with prompts
         if (transaction.getSymbol() == null || transaction.getSymbol().isEmpty()) {
             errors.add("Symbol required");
+        } else if (!symbols.isEmpty() && !symbols.isKnown(transaction.getSymbol())) {
+            // Only enforced once a symbol list has been loaded
+            errors.add("Unknown symbol");
         }
         if (transaction.getQuantity() <= 0) {
             errors.add("Invalid quantity");
         }
-        // Missing: price > 0, valid type, portfolio exists, sufficient funds,
-        // symbol exists in market, market is open, etc.
+        if (isTrade(transaction) && transaction.getExecutedAt() != null
+                && !marketHours.isOpen(transaction.getExecutedAt(), executionZone)) {
+            errors.add("Market is closed");
+        }
+        // Missing: price > 0, valid type, portfolio exists, sufficient funds, etc.
 
         return errors;
     }
@@ -63,18 +91,28 @@ public class TransactionService {
     // - Direct status mutation (should be immutable)
     // - No status transition validation
     // - No idempotency
-    // - No event emission
+    // Publishes TransactionCompleted on the PortfolioEventBus, once per transaction; subscribers run off this thread
     public Transaction processTransaction(Transaction transaction) {
         // Bug: Mutates input object!
-        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        synchronized (transaction) {
+            if (transaction.getStatus() == Transaction.TransactionStatus.COMPLETED) {
+                return transaction;
+            }
+            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        }
+        eventBus.publish(new PortfolioEvent.TransactionCompleted(transaction.getPortfolioId(), transaction, Instant.now()));
         return transaction;
         // Should:
         // - Validate current status allows transition
         // - Create new transaction with updated status (immutable)
-        // - Publish TransactionCompletedEvent
         // - Handle failures with compensation
     }
 
+    // Admission-controlled entry point; fails with OVERLOADED when the caller's role is over its share
+    public Result<Transaction, ApiError> processTransaction(Transaction transaction, UserRole caller) {
+        return admission.execute(caller, () -> Result.success(processTransaction(transaction)));
+    }
+
     // Challenge: Generate transaction report - needs formatting
     // - Very basic string output
     // - No currency formatting
@@ -95,19 +133,29 @@ public class TransactionService {
     }
 
     // Challenge: Detect suspicious activity - needs pattern detection
-    // - Always returns false (placeholder)
-    // - No actual detection logic
+    // - Only flags trades outside market hours
+    // - No other detection logic
     // - No configurable thresholds
     // - No ML model integration
     public boolean detectSuspiciousActivity(List<Transaction> transactions) {
-        // Placeholder - needs real implementation
+        // Off-hours trading: one bitmap lookup per transaction
+        for (Transaction t : transactions) {
+            if (isTrade(t) && t.getExecutedAt() != null && !marketHours.isOpen(t.getExecutedAt(), executionZone)) {
+                return true;
+            }
+        }
         return false;
-        // Should detect:
+        // Should also detect:
         // - Rapid trading (>10 transactions per minute)
         // - Unusual amounts (>3 std dev from mean)
-        // - Off-hours trading
         // - Circular transactions (A->B->C->A)
         // - Velocity anomalies
         // - Pattern matching against known fraud patterns
     }
+
+    // Only buys and sells need the market to be open
+    private static boolean isTrade(Transaction transaction) {
+        return transaction.getType() == Transaction.TransactionType.BUY
+                || transaction.getType() == Transaction.TransactionType.SELL;
+    }
 }
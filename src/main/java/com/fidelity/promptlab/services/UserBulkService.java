@@ -0,0 +1,445 @@
+package com.fidelity.promptlab.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.AuditRecord;
+import com.fidelity.promptlab.models.Result;
+import com.fidelity.promptlab.models.User;
+import com.fidelity.promptlab.models.UserPreferences;
+import com.fidelity.promptlab.models.UserRole;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming bulk import and export of users as CSV or NDJSON.
+ *
+ * Import reads the file line by line in chunks. Chunks are parsed and
+ * validated in parallel, with a bounded number in flight so memory stays
+ * flat for any file size, and committed to the UserStore in file order with
+ * one bulk insert per chunk, so a duplicate email is resolved in favour of
+ * the first occurrence. Ids are random version 4 UUIDs; each chunk draws the
+ * bytes for all of its ids from the shared SecureRandom in one call rather
+ * than one call per user.
+ *
+ * CSV files need a header naming at least an email column; recognised
+ * columns are email, firstName, lastName and role. Quoted fields may contain
+ * commas and doubled quotes but not line breaks. NDJSON lines are objects
+ * with the same field names.
+ *
+ * Rows without a role become CUSTOMER accounts. A row may name a higher role
+ * only if the caller holds it; without a caller, any other role is rejected.
+ * Every created user gets its own CREATE audit record, as with
+ * UserService.createUser, plus one BULK_IMPORT summary per file.
+ *
+ * Export writes the same fields in both formats: id, email, firstName,
+ * lastName, role and createdAt. CSV fields containing a comma, quote or line
+ * break are quoted.
+ *
+ * Usage:
+ *   Result<UserBulkService.ImportReport, ApiError> report = bulk.importUsers(path, UserBulkService.Format.CSV);
+ *   report.getData().ifPresent(r -> log(r.rowsPerSecond()));
+ */
+@Service
+public class UserBulkService {
+    private static final int CHUNK_SIZE = 5_000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+    private static final String[] CSV_COLUMNS = {"email", "firstName", "lastName", "role"};
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    public record RowError(long line, String message) {}
+
+    public record ImportReport(
+        long rowsRead,
+        long imported,
+        long rejected,
+        List<RowError> errors,
+        Duration elapsed,
+        long rowsPerSecond
+    ) {}
+
+    public record ExportReport(long rows, Duration elapsed, long rowsPerSecond) {}
+
+    // One NDJSON line; also the parsed form of a CSV row
+    record Row(String email, String firstName, String lastName, String role) {}
+
+    // One exported NDJSON line, with the same fields as an exported CSV row
+    record ExportRow(String id, String email, String firstName, String lastName, String role, String createdAt) {}
+
+    private record Line(long number, String text) {}
+
+    private record ParsedChunk(List<User> users, List<Long> lineNumbers, List<RowError> errors) {}
+
+    private static final String AUDIT_ENTITY = "User";
+
+    private final UserStore users;
+    private final AuditLog auditLog;
+    private final AdmissionController admission;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final SecureRandom random = new SecureRandom();
+    private final int maxChunksInFlight = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+
+    public UserBulkService(UserService userService, AuditLog auditLog, AdmissionController admission) {
+        this.users = userService.store();
+        this.auditLog = auditLog;
+        this.admission = admission;
+    }
+
+    /**
+     * Imports on behalf of a caller, subject to admission control. Rows may
+     * grant roles up to the caller's own.
+     */
+    public Result<ImportReport, ApiError> importUsers(Path file, Format format, UserRole caller) {
+        UserRole ceiling = caller == null ? UserRole.CUSTOMER : caller;
+        return admission.execute(caller, () -> runImport(file, format, ceiling));
+    }
+
+    /**
+     * Exports on behalf of a caller, subject to admission control, so a bulk
+     * export is shed before it can crowd out customer calls.
+     */
+    public Result<ExportReport, ApiError> exportUsers(Path file, Format format, UserRole caller) {
+        return admission.execute(caller, () -> exportUsers(file, format));
+    }
+
+    /**
+     * Imports CUSTOMER accounts only; rows naming any other role are rejected.
+     */
+    public Result<ImportReport, ApiError> importUsers(Path file, Format format) {
+        return runImport(file, format, UserRole.CUSTOMER);
+    }
+
+    private Result<ImportReport, ApiError> runImport(Path file, Format format, UserRole ceiling) {
+        long started = System.nanoTime();
+        ImportTally tally = new ImportTally();
+        Deque<CompletableFuture<ParsedChunk>> inFlight = new ArrayDeque<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            int[] columns = null;
+            if (format == Format.CSV) {
+                String header = reader.readLine();
+                lineNumber++;
+                if (header == null) {
+                    return Result.failure(new ApiError("IMPORT_INVALID", "CSV file is empty"));
+                }
+                columns = csvColumns(header);
+                if (columns[0] < 0) {
+                    return Result.failure(new ApiError("IMPORT_INVALID", "CSV header has no email column")
+                            .addDetail("header", header));
+                }
+            }
+
+            List<Line> chunk = new ArrayList<>(CHUNK_SIZE);
+            String text;
+            while ((text = reader.readLine()) != null) {
+                lineNumber++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                chunk.add(new Line(lineNumber, text));
+                if (chunk.size() == CHUNK_SIZE) {
+                    submit(chunk, format, columns, ceiling, inFlight, tally);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(chunk, format, columns, ceiling, inFlight, tally);
+            }
+            while (!inFlight.isEmpty()) {
+                commit(inFlight.removeFirst().join(), tally);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            return Result.failure(new ApiError("IMPORT_IO_ERROR", "Could not read import file")
+                    .addDetail("file", file.toString())
+                    .addDetail("importedBeforeFailure", tally.imported));
+        } catch (CompletionException e) {
+            return Result.failure(new ApiError("IMPORT_FAILED", "Import aborted")
+                    .addDetail("importedBeforeFailure", tally.imported));
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        auditLog.record(AuditRecord.of(AUDIT_ENTITY, file.getFileName().toString(), "BULK_IMPORT", AuditRecord.diff()
+                .field("imported", null, tally.imported)
+                .field("rejected", null, tally.rejected)
+                .build()));
+        return Result.success(new ImportReport(tally.imported + tally.rejected, tally.imported, tally.rejected,
+                List.copyOf(tally.errors), elapsed, perSecond(tally.imported + tally.rejected, elapsed)));
+    }
+
+    /**
+     * Streams every live user to the file, replacing it.
+     */
+    public Result<ExportReport, ApiError> exportUsers(Path file, Format format) {
+        long started = System.nanoTime();
+        long[] rows = {0};
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (format == Format.CSV) {
+                writer.write("id,email,firstName,lastName,role,createdAt\n");
+            }
+            users.forEachLive(user -> {
+                try {
+                    writer.write(format == Format.CSV ? toCsv(user) : toJson(user));
+                    writer.write('\n');
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            return Result.failure(new ApiError("EXPORT_IO_ERROR", "Could not write export file")
+                    .addDetail("file", file.toString())
+                    .addDetail("rowsWritten", rows[0]));
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        return Result.success(new ExportReport(rows[0], elapsed, perSecond(rows[0], elapsed)));
+    }
+
+    // ============================================================
+    // Import internals
+    // ============================================================
+
+    private static final class ImportTally {
+        long imported;
+        long rejected;
+        final List<RowError> errors = new ArrayList<>();
+
+        void reject(RowError error) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+
+    private void submit(List<Line> chunk, Format format, int[] columns, UserRole ceiling,
+                        Deque<CompletableFuture<ParsedChunk>> inFlight, ImportTally tally) {
+        // Bounded read-ahead: commit the oldest chunk before parsing more
+        while (inFlight.size() >= maxChunksInFlight) {
+            commit(inFlight.removeFirst().join(), tally);
+        }
+        inFlight.addLast(CompletableFuture.supplyAsync(() -> parse(chunk, format, columns, ceiling)));
+    }
+
+    private void commit(ParsedChunk chunk, ImportTally tally) {
+        chunk.errors().forEach(tally::reject);
+        if (chunk.users().isEmpty()) {
+            return;
+        }
+        List<User> duplicates = users.addAll(chunk.users());
+        tally.imported += chunk.users().size() - duplicates.size();
+        // Duplicates come back in chunk order, so one pass splits created users from rejected rows
+        List<User> parsed = chunk.users();
+        int next = 0;
+        for (int i = 0; i < parsed.size(); i++) {
+            User user = parsed.get(i);
+            if (next < duplicates.size() && duplicates.get(next) == user) {
+                next++;
+                tally.reject(new RowError(chunk.lineNumbers().get(i), "Email already in use"));
+            } else {
+                auditLog.record(AuditRecord.of(AUDIT_ENTITY, user.getId(), "CREATE", AuditRecord.diff()
+                        .field("email", null, user.getEmail())
+                        .field("firstName", null, user.getFirstName())
+                        .field("lastName", null, user.getLastName())
+                        .field("role", null, user.getRole())
+                        .build()));
+            }
+        }
+    }
+
+    private ParsedChunk parse(List<Line> chunk, Format format, int[] columns, UserRole ceiling) {
+        List<User> parsed = new ArrayList<>(chunk.size());
+        List<Long> lineNumbers = new ArrayList<>(chunk.size());
+        List<RowError> errors = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        // 16 random bytes per row from one SecureRandom call; rows that fail validation leave theirs unused
+        byte[] idBytes = new byte[chunk.size() * 16];
+        random.nextBytes(idBytes);
+        ByteBuffer ids = ByteBuffer.wrap(idBytes);
+        for (Line line : chunk) {
+            Row row;
+            try {
+                row = format == Format.CSV ? csvRow(line.text(), columns) : objectMapper.readValue(line.text(), Row.class);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                errors.add(new RowError(line.number(), "Malformed row"));
+                continue;
+            }
+            String problem = validate(row, ceiling);
+            if (problem != null) {
+                errors.add(new RowError(line.number(), problem));
+                continue;
+            }
+            parsed.add(toUser(row, randomId(ids), now));
+            lineNumbers.add(line.number());
+        }
+        return new ParsedChunk(parsed, lineNumbers, errors);
+    }
+
+    // Version 4 and IETF variant bits, so ids are indistinguishable from UUID.randomUUID()
+    private static String randomId(ByteBuffer bytes) {
+        long high = (bytes.getLong() & ~0xF000L) | 0x4000L;
+        long low = (bytes.getLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(high, low).toString();
+    }
+
+    private static String validate(Row row, UserRole ceiling) {
+        if (row == null || row.email() == null || row.email().isBlank()) {
+            return "Email is required";
+        }
+        if (!EMAIL.matcher(row.email().trim()).matches()) {
+            return "Email is invalid";
+        }
+        if (row.role() != null && !row.role().isBlank()) {
+            UserRole role;
+            try {
+                role = UserRole.valueOf(row.role().trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return "Unknown role: " + row.role();
+            }
+            if (!ceiling.canGrant(role)) {
+                return "Not permitted to grant role: " + role;
+            }
+        }
+        return null;
+    }
+
+    private static User toUser(Row row, String id, LocalDateTime createdAt) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(row.email().trim());
+        user.setFirstName(row.firstName());
+        user.setLastName(row.lastName());
+        user.setRole(row.role() == null || row.role().isBlank()
+                ? UserRole.CUSTOMER
+                : UserRole.valueOf(row.role().trim().toUpperCase(Locale.ROOT)));
+        user.setCreatedAt(createdAt);
+        user.setPreferences(new UserPreferences());
+        return user;
+    }
+
+    // Index of each known column in the header, or -1 when absent
+    private static int[] csvColumns(String header) {
+        List<String> names = splitCsv(header);
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int c = 0; c < CSV_COLUMNS.length; c++) {
+            columns[c] = -1;
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).trim().equalsIgnoreCase(CSV_COLUMNS[c])) {
+                    columns[c] = i;
+                    break;
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static Row csvRow(String text, int[] columns) {
+        List<String> fields = splitCsv(text);
+        return new Row(field(fields, columns[0]), field(fields, columns[1]),
+                field(fields, columns[2]), field(fields, columns[3]));
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index < 0 || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 fields on a single line; throws IllegalArgumentException on an unterminated quote
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    // ============================================================
+    // Export internals
+    // ============================================================
+
+    private static String toCsv(User user) {
+        return String.join(",", csvEscape(user.getId()), csvEscape(user.getEmail()),
+                csvEscape(user.getFirstName()), csvEscape(user.getLastName()),
+                user.getRole() == null ? "" : user.getRole().name(),
+                user.getCreatedAt() == null ? "" : user.getCreatedAt().toString());
+    }
+
+    private static String csvEscape(String value) {
+        if (value == null) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    private String toJson(User user) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(new ExportRow(user.getId(), user.getEmail(), user.getFirstName(),
+                user.getLastName(), user.getRole() == null ? null : user.getRole().name(),
+                user.getCreatedAt() == null ? null : user.getCreatedAt().toString()));
+    }
+
+    private static long perSecond(long rows, Duration elapsed) {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return rows * 1_000_000_000L / nanos;
+    }
+}
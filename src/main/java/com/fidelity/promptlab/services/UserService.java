@@ -1,12 +1,19 @@
 package com.fidelity.promptlab.services;
 
 import com.fidelity.promptlab.models.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
 
 /**
  * This service has intentional issues for participants to improve with good prompts.
@@ -15,18 +22,54 @@ import java.util.UUID;
  * 1. Login returns raw Map instead of proper LoginResponse
  * 2. No input validation on createUser
  * 3. Returns null instead of Optional
- * 4. O(n) email lookup instead of indexed query
- * 5. Missing audit logging on updateUser
- * 6. Hard delete with no soft delete option
- * 7. No @Transactional annotations
- * 8. No @Cacheable for frequently accessed data
+ * 4. No @Transactional annotations
+ * 5. No @Cacheable for frequently accessed data
+ *
+ * Users are kept in a UserStore: id and email lookups are O(1) and deletes
+ * are soft, with tombstones purged by the store's background compactor.
+ * Mutations are written to the AuditLog with field-level before/after diffs.
+ * The container closes the service on shutdown, which stops the compactor.
  */
 @Service
-public class UserService {
+public class UserService implements AutoCloseable {
+    private static final String AUDIT_ENTITY = "User";
 
     // Challenge: In-memory storage instead of repository
     // Should use: private final UserRepository userRepository;
-    private final Map<String, User> users = new HashMap<>();
+    private final UserStore users;
+
+    private final TokenService tokenService;
+    private final CredentialService credentialService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final PortfolioService portfolioService;
+    private final AuditLog auditLog;
+
+    @Autowired
+    public UserService(TokenService tokenService, CredentialService credentialService,
+                       LoginRateLimiter loginRateLimiter, PortfolioService portfolioService, AuditLog auditLog) {
+        this(tokenService, credentialService, loginRateLimiter, portfolioService, auditLog, new UserStore());
+        users.startCompactor(Duration.ofMinutes(1), 1_000);
+    }
+
+    public UserService(TokenService tokenService, CredentialService credentialService,
+                       LoginRateLimiter loginRateLimiter, PortfolioService portfolioService, AuditLog auditLog,
+                       UserStore users) {
+        this.tokenService = tokenService;
+        this.credentialService = credentialService;
+        this.loginRateLimiter = loginRateLimiter;
+        this.portfolioService = portfolioService;
+        this.auditLog = auditLog;
+        this.users = users;
+    }
+
+    /**
+     * Stops the store's compactor. Spring calls this on context shutdown, as it
+     * does for any AutoCloseable singleton.
+     */
+    @Override
+    public void close() {
+        users.shutdown();
+    }
 
     // Challenge: This login method is incomplete and insecure
     // - Returns raw Map instead of Result<LoginResponse, AuthError>
@@ -48,10 +91,77 @@ public class UserService {
         return result;
     }
 
+    // Verifies the password on CredentialService's pool and issues a signed token via TokenService
+    // Blocks the caller until the check completes; prefer authenticateAsync on event-loop threads
+    public LoginResponse authenticate(LoginRequest request) {
+        return authenticateAsync(request).join();
+    }
+
+    public CompletableFuture<LoginResponse> authenticateAsync(LoginRequest request) {
+        return authenticateAsync(request, null);
+    }
+
+    // Rate-limited per account and per client address before any hashing work is queued
+    public CompletableFuture<LoginResponse> authenticateAsync(LoginRequest request, String clientAddress) {
+        if (loginRateLimiter.check(request.email(), clientAddress) != LoginRateLimiter.Decision.ALLOWED) {
+            return CompletableFuture.completedFuture(LoginResponse.failure("Too many login attempts, try again later"));
+        }
+        User user = findByEmail(request.email());
+        String storedHash = user == null ? null : user.getPasswordHash();
+
+        return credentialService.verify(request.password(), storedHash).thenApply(result -> {
+            if (result.isFailure()) {
+                return LoginResponse.failure(result.getError().get().getMessage());
+            }
+            CredentialService.CredentialCheck check = result.getOrThrow();
+            if (user == null || !check.matches()) {
+                return LoginResponse.failure("Invalid email or password");
+            }
+            if (check.upgradedHash() != null) {
+                // Parameters were raised since this hash was stored; swap it while we have the plaintext
+                user.setPasswordHash(check.upgradedHash());
+            }
+            user.setLastLogin(LocalDateTime.now());
+            return LoginResponse.success(tokenService.issue(user), user);
+        });
+    }
+
+    // Hashes on CredentialService's pool; returns false if the user is unknown or hashing was rejected
+    public boolean setPassword(String id, String password) {
+        User user = users.get(id).orElse(null);
+        if (user == null) {
+            return false;
+        }
+        Result<String, ApiError> hashed = credentialService.hash(password).join();
+        if (hashed.isFailure()) {
+            return false;
+        }
+        storePasswordHash(user, hashed.getOrThrow());
+        return true;
+    }
+
+    private void storePasswordHash(User user, String hash) {
+        user.setPasswordHash(hash);
+        tokenService.revokeAllForUser(user.getId());
+        // Hash values are never audited, only the fact that the password changed
+        auditLog.record(AuditRecord.of(AUDIT_ENTITY, user.getId(), "PASSWORD_CHANGE", List.of()));
+    }
+
     // Challenge: No input validation, accepts raw Map
     // Should accept: CreateUserRequest with @Valid
     // Should return: Result<User, ValidationError>
     public User createUser(Map<String, Object> data) {
+        // Hash before the user exists, so an overloaded hasher never leaves a live account without a password
+        String passwordHash = null;
+        if (data.get("password") instanceof String password) {
+            Result<String, ApiError> hashed = credentialService.hash(password).join();
+            if (hashed.isFailure()) {
+                ApiError error = hashed.getError().orElseThrow();
+                throw new IllegalStateException(error.getCode() + ": " + error.getMessage());
+            }
+            passwordHash = hashed.getOrThrow();
+        }
+
         User user = new User();
         user.setId(UUID.randomUUID().toString());
         user.setEmail((String) data.get("email")); // Bug: No email validation
@@ -60,39 +170,44 @@ public class UserService {
         user.setRole(UserRole.CUSTOMER);
         user.setPreferences(new UserPreferences());
 
-        users.put(user.getId(), user);
+        users.add(user); // Throws if the email belongs to another live user
+        auditLog.record(AuditRecord.of(AUDIT_ENTITY, user.getId(), "CREATE", AuditRecord.diff()
+                .field("email", null, user.getEmail())
+                .field("firstName", null, user.getFirstName())
+                .field("lastName", null, user.getLastName())
+                .field("role", null, user.getRole())
+                .build()));
+        if (passwordHash != null) {
+            storePasswordHash(user, passwordHash);
+        }
         return user;
     }
 
     // Challenge: Returns null instead of Optional
     // Should be: Optional<User> or throw EntityNotFoundException
     public User getUser(String id) {
-        return users.get(id); // Bug: Returns null if not found
+        return users.get(id).orElse(null); // Bug: Returns null if not found
     }
 
-    // Challenge: O(n) lookup - should use indexed query
-    // Should be: userRepository.findByEmail(email)
+    // Case-insensitive, O(1) through the store's email index; deleted users are not found
     public User findByEmail(String email) {
-        for (User user : users.values()) {
-            if (user.getEmail().equals(email)) { // Bug: NPE if email is null
-                return user;
-            }
-        }
-        return null;
+        return users.findByEmail(email).orElse(null);
     }
 
-    // Challenge: Missing audit logging
-    // Should: log who changed what, when, previous values
-    // Should: use @Transactional
+    // Audited with before/after values of the fields that actually changed
+    // Challenge: Should use @Transactional
     public User updateUser(String id, Map<String, Object> updates) {
-        User user = users.get(id);
+        User user = users.get(id).orElse(null);
         if (user == null) {
             throw new RuntimeException("User not found"); // Bug: Wrong exception type
         }
+        String previousEmail = user.getEmail();
+        String previousFirstName = user.getFirstName();
+        String previousLastName = user.getLastName();
 
         // Bug: No validation of update values
-        if (updates.containsKey("email")) {
-            user.setEmail((String) updates.get("email"));
+        if (updates.containsKey("email") && !users.changeEmail(id, (String) updates.get("email"))) {
+            throw new IllegalArgumentException("Email already in use");
         }
         if (updates.containsKey("firstName")) {
             user.setFirstName((String) updates.get("firstName"));
@@ -101,13 +216,66 @@ public class UserService {
             user.setLastName((String) updates.get("lastName"));
         }
 
+        List<AuditRecord.FieldChange> changes = AuditRecord.diff()
+                .field("email", previousEmail, user.getEmail())
+                .field("firstName", previousFirstName, user.getFirstName())
+                .field("lastName", previousLastName, user.getLastName())
+                .build();
+        if (!changes.isEmpty()) {
+            auditLog.record(AuditRecord.of(AUDIT_ENTITY, id, "UPDATE", changes));
+        }
         return user;
     }
 
-    // Challenge: Hard delete with no soft delete option
-    // Should: set deletedAt timestamp, not remove from DB
-    // Should: cascade or prevent if user has portfolios
-    public void deleteUser(String id) {
-        users.remove(id); // Bug: No confirmation, no soft delete, no cascade check
+    // Soft delete: stamps deletedAt and keeps a tombstone until the retention period passes
+    // Refused while the user still owns portfolios (checked through the portfolio userId index)
+    public Result<User, ApiError> deleteUser(String id) {
+        if (portfolioService.hasPortfolios(id)) {
+            return Result.failure(new ApiError("USER_HAS_PORTFOLIOS", "User still owns portfolios")
+                    .addDetail("userId", id));
+        }
+        Optional<User> deleted = users.delete(id);
+        if (deleted.isEmpty()) {
+            return Result.failure(new ApiError("USER_NOT_FOUND", "User not found").addDetail("userId", id));
+        }
+        tokenService.revokeAllForUser(id);
+        auditLog.record(AuditRecord.of(AUDIT_ENTITY, id, "DELETE", AuditRecord.diff()
+                .field("deletedAt", null, deleted.get().getDeletedAt().orElse(null))
+                .build()));
+        return Result.success(deleted.get());
+    }
+
+    // Immutable snapshot; safe to cache on the request thread
+    public Optional<PreferenceSnapshot> getPreferences(String id) {
+        return users.getPreferences(id);
+    }
+
+    // Optimistic update: fails with PREFERENCES_CONFLICT if expectedVersion is stale (-1 skips the check)
+    public Result<PreferenceSnapshot, ApiError> updatePreferences(String id, long expectedVersion,
+                                                                 UnaryOperator<PreferenceSnapshot> update) {
+        return users.updatePreferences(id, expectedVersion, update, (previous, next) ->
+                auditLog.record(AuditRecord.of(AUDIT_ENTITY, id, "PREFERENCES_UPDATE", AuditRecord.diff()
+                        .field("theme", previous.theme(), next.theme())
+                        .field("notifications", previous.notifications(), next.notifications())
+                        .field("twoFactorEnabled", previous.twoFactorEnabled(), next.twoFactorEnabled())
+                        .field("defaultCurrency", previous.defaultCurrency(), next.defaultCurrency())
+                        .build())));
+    }
+
+    // For notification and FX batch jobs; served from the store's currency index
+    public Set<String> findUserIdsByCurrency(String currency) {
+        return users.findUserIdsByCurrency(currency);
+    }
+
+    // Backing store for bulk loaders in this package
+    UserStore store() {
+        return users;
+    }
+
+    // Undoes a soft delete within the retention period, if the email has not been reused
+    public Optional<User> restoreUser(String id) {
+        Optional<User> restored = users.restore(id);
+        restored.ifPresent(user -> auditLog.record(AuditRecord.of(AUDIT_ENTITY, id, "RESTORE", List.of())));
+        return restored;
     }
 }
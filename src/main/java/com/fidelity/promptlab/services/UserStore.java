@@ -0,0 +1,414 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.PreferenceSnapshot;
+import com.fidelity.promptlab.models.Result;
+import com.fidelity.promptlab.models.User;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory user store with soft deletes.
+ *
+ * Live users and tombstoned users are kept in separate maps, so lookups by id
+ * and by email (case-insensitive) only ever touch live entries and stay O(1)
+ * without filtering on deletedAt. A deleted user's email is released at once.
+ *
+ * Tombstones are queued in deletion order. {@link #compact(int)} purges those
+ * older than the retention period, handing each to the archiver first, and
+ * does at most a fixed amount of work per call so a background tick never
+ * stalls writers for long. Reads are lock-free; writes are serialized so the
+ * id and email indexes always agree.
+ *
+ * Preferences are held as immutable PreferenceSnapshots swapped by CAS, with
+ * a per-currency index of live user ids kept in step for batch jobs. The
+ * user's legacy UserPreferences object is replaced (never mutated) on update.
+ *
+ * Lookups by id and email pass through {@link KeyFilter}s first, so ids and
+ * emails that were never stored are rejected without a map lookup.
+ */
+public class UserStore {
+    public static final Duration DEFAULT_RETENTION = Duration.ofDays(30);
+
+    private record Tombstone(String userId, LocalDateTime deletedAt) {}
+
+    private final Map<String, User> live = new ConcurrentHashMap<>();
+    private final Map<String, String> idsByEmail = new ConcurrentHashMap<>();
+    private final Map<String, User> tombstones = new ConcurrentHashMap<>();
+    private final Queue<Tombstone> purgeQueue = new ConcurrentLinkedQueue<>();
+    // Kept through soft deletes so versions survive a restore; dropped on purge
+    private final Map<String, AtomicReference<PreferenceSnapshot>> preferences = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> idsByCurrency = new ConcurrentHashMap<>();
+    private final KeyFilter idFilter = new KeyFilter(sink -> live.keySet().forEach(sink));
+    private final KeyFilter emailFilter = new KeyFilter(sink -> idsByEmail.keySet().forEach(sink));
+    private final Function<String, Optional<User>> liveLookup = id -> Optional.ofNullable(live.get(id));
+
+    private final Duration retention;
+    private final Clock clock;
+    private final Consumer<User> archiver;
+    private ScheduledExecutorService compactor;
+
+    public UserStore() {
+        this(DEFAULT_RETENTION, Clock.systemUTC(), user -> {});
+    }
+
+    /**
+     * @param archiver receives each tombstoned user just before it is purged
+     */
+    public UserStore(Duration retention, Clock clock, Consumer<User> archiver) {
+        if (retention.isNegative()) {
+            throw new IllegalArgumentException("Retention must not be negative");
+        }
+        this.retention = retention;
+        this.clock = clock;
+        this.archiver = archiver;
+    }
+
+    public Optional<User> get(String id) {
+        return id == null ? Optional.empty() : idFilter.guard(id, liveLookup);
+    }
+
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return emailFilter.guard(normalize(email), key -> {
+            String id = idsByEmail.get(key);
+            return id == null ? Optional.empty() : Optional.ofNullable(live.get(id));
+        });
+    }
+
+    public Optional<User> getDeleted(String id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(tombstones.get(id));
+    }
+
+    /**
+     * Adds a live user.
+     *
+     * @throws IllegalArgumentException if the id exists or the email belongs to another live user
+     */
+    public synchronized void add(User user) {
+        if (live.containsKey(user.getId()) || tombstones.containsKey(user.getId())) {
+            throw new IllegalArgumentException("User already exists: " + user.getId());
+        }
+        claimEmail(user.getId(), user.getEmail());
+        live.put(user.getId(), user);
+        idFilter.add(user.getId());
+        indexPreferences(user);
+    }
+
+    /**
+     * Adds many live users in one pass under a single lock. Users whose id or
+     * email is already taken (including by an earlier user in the same batch)
+     * are skipped and returned; everything else is indexed.
+     */
+    public synchronized List<User> addAll(List<User> batch) {
+        List<User> rejected = new ArrayList<>();
+        Map<String, User> accepted = new HashMap<>(batch.size() * 4 / 3 + 1);
+        Map<String, String> emails = new HashMap<>(batch.size() * 4 / 3 + 1);
+        for (User user : batch) {
+            String email = user.getEmail() == null ? null : normalize(user.getEmail());
+            boolean taken = live.containsKey(user.getId()) || tombstones.containsKey(user.getId())
+                    || accepted.containsKey(user.getId())
+                    || (email != null && (idsByEmail.containsKey(email) || emails.containsKey(email)));
+            if (taken) {
+                rejected.add(user);
+                continue;
+            }
+            accepted.put(user.getId(), user);
+            if (email != null) {
+                emails.put(email, user.getId());
+            }
+        }
+        idsByEmail.putAll(emails);
+        live.putAll(accepted);
+        emails.keySet().forEach(emailFilter::add);
+        accepted.keySet().forEach(idFilter::add);
+        accepted.values().forEach(this::indexPreferences);
+        return rejected;
+    }
+
+    /**
+     * Visits every live user; weakly consistent with concurrent writes.
+     */
+    public void forEachLive(Consumer<User> action) {
+        live.values().forEach(action);
+    }
+
+    /**
+     * Changes a live user's email and moves the index entry with it.
+     *
+     * @return false if the user is not live or the email belongs to another live user
+     */
+    public synchronized boolean changeEmail(String id, String email) {
+        User user = live.get(id);
+        if (user == null) {
+            return false;
+        }
+        String owner = email == null ? null : idsByEmail.get(normalize(email));
+        if (owner != null && !owner.equals(id)) {
+            return false;
+        }
+        releaseEmail(id, user.getEmail());
+        claimEmail(id, email);
+        user.setEmail(email);
+        return true;
+    }
+
+    /**
+     * Soft-deletes a live user: stamps deletedAt and moves it out of the live indexes.
+     */
+    public synchronized Optional<User> delete(String id) {
+        User user = live.remove(id);
+        if (user == null) {
+            return Optional.empty();
+        }
+        idFilter.onDeleted();
+        releaseEmail(id, user.getEmail());
+        AtomicReference<PreferenceSnapshot> ref = preferences.get(id);
+        if (ref != null) {
+            reindexCurrency(id, ref, ref.get().defaultCurrency());
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        user.setDeletedAt(now);
+        tombstones.put(id, user);
+        purgeQueue.add(new Tombstone(id, now));
+        return Optional.of(user);
+    }
+
+    /**
+     * Brings a tombstoned user back, unless it was purged or its email has since been taken.
+     */
+    public synchronized Optional<User> restore(String id) {
+        User user = tombstones.get(id);
+        if (user == null) {
+            return Optional.empty();
+        }
+        if (user.getEmail() != null && idsByEmail.containsKey(normalize(user.getEmail()))) {
+            return Optional.empty();
+        }
+        tombstones.remove(id);
+        // The queued tombstone is left behind; compact() skips entries that no longer match
+        user.setDeletedAt(null);
+        claimEmail(id, user.getEmail());
+        live.put(id, user);
+        idFilter.add(id);
+        indexPreferences(user);
+        return Optional.of(user);
+    }
+
+    public Optional<PreferenceSnapshot> getPreferences(String id) {
+        AtomicReference<PreferenceSnapshot> ref = id == null ? null : preferences.get(id);
+        return ref == null || !live.containsKey(id) ? Optional.empty() : Optional.of(ref.get());
+    }
+
+    /**
+     * Applies an update to a live user's preferences by compare-and-set.
+     *
+     * @param expectedVersion version the caller read, or -1 to apply to whatever is current (retrying on races)
+     */
+    public Result<PreferenceSnapshot, ApiError> updatePreferences(String id, long expectedVersion,
+                                                                 UnaryOperator<PreferenceSnapshot> update) {
+        return updatePreferences(id, expectedVersion, update, (previous, next) -> {});
+    }
+
+    /**
+     * As above; onUpdated receives the exact snapshot replaced and its replacement.
+     */
+    public Result<PreferenceSnapshot, ApiError> updatePreferences(String id, long expectedVersion,
+                                                                 UnaryOperator<PreferenceSnapshot> update,
+                                                                 BiConsumer<PreferenceSnapshot, PreferenceSnapshot> onUpdated) {
+        AtomicReference<PreferenceSnapshot> ref = id == null ? null : preferences.get(id);
+        if (ref == null || !live.containsKey(id)) {
+            return Result.failure(new ApiError("USER_NOT_FOUND", "User not found").addDetail("userId", id));
+        }
+        while (true) {
+            PreferenceSnapshot current = ref.get();
+            if (expectedVersion >= 0 && current.version() != expectedVersion) {
+                return Result.failure(new ApiError("PREFERENCES_CONFLICT", "Preferences were changed by another request")
+                        .addDetail("expectedVersion", expectedVersion)
+                        .addDetail("currentVersion", current.version()));
+            }
+            PreferenceSnapshot next = update.apply(current).withVersion(current.version() + 1);
+            if (ref.compareAndSet(current, next)) {
+                if (!Objects.equals(current.defaultCurrency(), next.defaultCurrency())) {
+                    reindexCurrency(id, ref, current.defaultCurrency(), next.defaultCurrency());
+                }
+                User user = live.get(id);
+                if (user != null) {
+                    synchronized (ref) {
+                        // Replace rather than mutate, so legacy readers never see a half-applied update
+                        user.setPreferences(ref.get().toPreferences());
+                    }
+                }
+                onUpdated.accept(current, next);
+                return Result.success(next);
+            }
+        }
+    }
+
+    /**
+     * Ids of live users whose default currency is the given code; a live, read-only view.
+     */
+    public Set<String> findUserIdsByCurrency(String currency) {
+        Set<String> ids = currency == null ? null : idsByCurrency.get(currency.toUpperCase(Locale.ROOT));
+        return ids == null ? Set.of() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Purges up to maxPurges tombstones older than the retention period.
+     *
+     * @return the number of users purged
+     */
+    public int compact(int maxPurges) {
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(retention);
+        int purged = 0;
+        // Stale entries (restored or re-deleted users) are cheap to drop but still bounded per tick
+        int budget = maxPurges * 4;
+        while (purged < maxPurges && budget-- > 0) {
+            Tombstone head = purgeQueue.peek();
+            if (head == null) {
+                break;
+            }
+            User user = tombstones.get(head.userId());
+            boolean current = user != null && head.deletedAt().equals(user.getDeletedAt().orElse(null));
+            if (current && head.deletedAt().isAfter(cutoff)) {
+                break;
+            }
+            purgeQueue.poll();
+            if (current && purge(head)) {
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * Runs {@link #compact(int)} on a daemon thread at a fixed interval. Idempotent.
+     */
+    public synchronized void startCompactor(Duration interval, int maxPurgesPerTick) {
+        if (compactor != null) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-store-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        compactor.scheduleWithFixedDelay(() -> compact(maxPurgesPerTick), millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (compactor != null) {
+            compactor.shutdown();
+            compactor = null;
+        }
+    }
+
+    public int liveCount() {
+        return live.size();
+    }
+
+    public int deletedCount() {
+        return tombstones.size();
+    }
+
+    public KeyFilter.Stats idFilterStats() {
+        return idFilter.stats();
+    }
+
+    public KeyFilter.Stats emailFilterStats() {
+        return emailFilter.stats();
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private synchronized boolean purge(Tombstone tombstone) {
+        User user = tombstones.get(tombstone.userId());
+        // Re-checked under the lock in case a restore raced the compactor
+        if (user == null || !tombstone.deletedAt().equals(user.getDeletedAt().orElse(null))) {
+            return false;
+        }
+        archiver.accept(user);
+        tombstones.remove(tombstone.userId());
+        preferences.remove(tombstone.userId());
+        return true;
+    }
+
+    private void indexPreferences(User user) {
+        AtomicReference<PreferenceSnapshot> ref = preferences.computeIfAbsent(user.getId(),
+                k -> new AtomicReference<>(PreferenceSnapshot.from(user.getPreferences())));
+        reindexCurrency(user.getId(), ref, ref.get().defaultCurrency());
+    }
+
+    // Sets membership for each touched currency from the snapshot current under the lock, so
+    // concurrent currency changes cannot leave a user listed under a stale currency
+    private void reindexCurrency(String id, AtomicReference<PreferenceSnapshot> ref, String... touched) {
+        synchronized (ref) {
+            String current = live.containsKey(id) ? currencyKey(ref.get().defaultCurrency()) : null;
+            for (String currency : touched) {
+                String key = currencyKey(currency);
+                if (key != null && !key.equals(current)) {
+                    Set<String> ids = idsByCurrency.get(key);
+                    if (ids != null) {
+                        ids.remove(id);
+                    }
+                }
+            }
+            if (current != null) {
+                idsByCurrency.computeIfAbsent(current, k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+    }
+
+    private static String currencyKey(String currency) {
+        return currency == null ? null : currency.toUpperCase(Locale.ROOT);
+    }
+
+    private void claimEmail(String id, String email) {
+        if (email == null) {
+            return;
+        }
+        String key = normalize(email);
+        String owner = idsByEmail.putIfAbsent(key, id);
+        if (owner != null && !owner.equals(id)) {
+            throw new IllegalArgumentException("Email already in use");
+        }
+        emailFilter.add(key);
+    }
+
+    private void releaseEmail(String id, String email) {
+        if (email != null && idsByEmail.remove(normalize(email), id)) {
+            emailFilter.onDeleted();
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,32 @@
+package com.fidelity.promptlab.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CurrencyTableTest {
+
+    @Test
+    void spellingsOfOneCodeShareAnOrdinalAndAreNotStored() {
+        CurrencyTable table = new CurrencyTable();
+        int eur = table.intern("EUR");
+
+        assertThat(table.intern("eur")).isEqualTo(eur);
+        assertThat(table.intern(" Eur ")).isEqualTo(eur);
+        assertThat(table.find("eUR")).contains(eur);
+        assertThat(table.size()).isEqualTo(2);
+        assertThat(table.code(eur)).isEqualTo("EUR");
+    }
+
+    @Test
+    void lookupNeverAddsCodes() {
+        CurrencyTable table = new CurrencyTable();
+
+        assertThat(table.lookup("usd")).isEqualTo(CurrencyTable.BASE);
+        assertThat(table.lookup("jpy")).isEqualTo(CurrencyTable.UNLISTED);
+        assertThatThrownBy(() -> table.lookup("XXQ")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(table.size()).isEqualTo(1);
+        assertThat(table.find("JPY")).isEmpty();
+    }
+}
@@ -0,0 +1,90 @@
+package com.fidelity.promptlab.models;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the {@link HoldingBook} layout against a List of {@link Holding}
+ * objects for valuation and sorting. Excluded from the default build; run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class HoldingBookBenchmarkTest {
+    private static final int POSITIONS = 5_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    @Test
+    void structureOfArraysAgainstObjectLayout() {
+        List<Holding> holdings = randomHoldings(new Random(7));
+        HoldingBook book = HoldingBook.of(holdings, new SymbolTable());
+
+        assertThat(book.totalMarketValue()).isEqualByComparingTo(objectMarketValue(holdings));
+
+        report("valuation", () -> objectMarketValue(holdings), book::totalMarketValue);
+        report("sort by market value", () -> {
+            List<Holding> copy = new ArrayList<>(holdings);
+            copy.sort(Comparator.comparing(Holding::getMarketValue).reversed());
+            return copy;
+        }, () -> {
+            book.sortByMarketValueDescending();
+            return book;
+        });
+
+        assertThat(book.toHolding(0).getMarketValue())
+                .isEqualByComparingTo(holdings.stream().map(Holding::getMarketValue).max(Comparator.naturalOrder()).orElseThrow());
+    }
+
+    private static BigDecimal objectMarketValue(List<Holding> holdings) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Holding h : holdings) {
+            total = total.add(h.getCurrentPrice().multiply(BigDecimal.valueOf(h.getQuantity())));
+        }
+        return total;
+    }
+
+    private static void report(String operation, Workload objects, Workload book) {
+        long objectNanos = measure(objects);
+        long bookNanos = measure(book);
+        System.out.printf("%-22s objects %8.1f us  book %8.1f us  (%.1fx)%n", operation,
+                objectNanos / 1_000.0, bookNanos / 1_000.0, (double) objectNanos / bookNanos);
+    }
+
+    private static long measure(Workload workload) {
+        Object sink = null;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink = workload.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink = workload.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertThat(sink).isNotNull();
+        return best;
+    }
+
+    private static List<Holding> randomHoldings(Random random) {
+        List<Holding> holdings = new ArrayList<>(POSITIONS);
+        for (int i = 0; i < POSITIONS; i++) {
+            holdings.add(new Holding("SYM" + i, "Company " + i, random.nextInt(10_000) + 1,
+                    BigDecimal.valueOf(random.nextInt(1_000_000), 2),
+                    BigDecimal.valueOf(random.nextInt(1_000_000), 2)));
+        }
+        return holdings;
+    }
+
+    @FunctionalInterface
+    private interface Workload {
+        Object run();
+    }
+}
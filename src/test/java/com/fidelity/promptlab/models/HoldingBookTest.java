@@ -0,0 +1,64 @@
+package com.fidelity.promptlab.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HoldingBookTest {
+
+    @Test
+    void removalsKeepEveryRemainingSymbolReachable() {
+        SymbolTable symbols = new SymbolTable();
+        HoldingBook book = new HoldingBook(symbols, 4);
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            ids.add(symbols.intern("SYM" + i));
+        }
+
+        // Interleave puts and removes so probe runs wrap and shift repeatedly
+        for (int step = 0; step < 50_000; step++) {
+            int id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(3) == 0) {
+                assertThat(book.remove(id)).isEqualTo(expected.remove(id) != null);
+            } else {
+                long quantity = random.nextInt(1_000) + 1;
+                book.put(id, quantity, 10_000, 20_000);
+                expected.put(id, quantity);
+            }
+        }
+
+        assertThat(book.size()).isEqualTo(expected.size());
+        for (int id : ids) {
+            int slot = book.slotOf(id);
+            if (expected.containsKey(id)) {
+                assertThat(book.symbolIdAt(slot)).isEqualTo(id);
+                assertThat(book.quantityAt(slot)).isEqualTo(expected.get(id));
+            } else {
+                assertThat(slot).isEqualTo(-1);
+            }
+        }
+    }
+
+    @Test
+    void removingTheLastSlotLeavesOthersInPlace() {
+        SymbolTable symbols = new SymbolTable();
+        HoldingBook book = new HoldingBook(symbols);
+        book.put("AAPL", "Apple", 10, new BigDecimal("100"), new BigDecimal("150"));
+        book.put("MSFT", "Microsoft", 5, new BigDecimal("200"), new BigDecimal("300"));
+
+        assertThat(book.remove(symbols.intern("MSFT"))).isTrue();
+        assertThat(book.remove(symbols.intern("MSFT"))).isFalse();
+
+        assertThat(book.slotOf(symbols.intern("AAPL"))).isZero();
+        assertThat(book.totalMarketValue()).isEqualByComparingTo("1500");
+    }
+}
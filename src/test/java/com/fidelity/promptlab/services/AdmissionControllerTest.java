@@ -0,0 +1,119 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.Result;
+import com.fidelity.promptlab.models.UserRole;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControllerTest {
+
+    @Test
+    void eachRoleIsHeldToItsShareOfTheLimit() {
+        AdmissionController admission = new AdmissionController();
+        List<AdmissionController.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            permits.add(admission.tryAcquire(UserRole.ADVISOR).getData().orElseThrow());
+        }
+
+        Result<AdmissionController.Permit, ApiError> advisor = admission.tryAcquire(UserRole.ADVISOR);
+        Result<AdmissionController.Permit, ApiError> customer = admission.tryAcquire(UserRole.CUSTOMER);
+
+        assertThat(advisor.getError()).hasValueSatisfying(e -> assertThat(e.getCode()).isEqualTo("OVERLOADED"));
+        assertThat(customer.isFailure()).isFalse();
+        customer.getData().ifPresent(permits::add);
+        permits.forEach(AdmissionController.Permit::close);
+        assertThat(admission.getMetrics().inFlight()).isZero();
+    }
+
+    @Test
+    void callsWithoutARoleAreHeldToTheSmallestShare() {
+        AdmissionController admission = new AdmissionController();
+        List<AdmissionController.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            permits.add(admission.tryAcquire(null).getData().orElseThrow());
+        }
+
+        Result<AdmissionController.Permit, ApiError> anonymous = admission.tryAcquire(null);
+
+        assertThat(anonymous.getError()).hasValueSatisfying(e -> {
+            assertThat(e.getCode()).isEqualTo("OVERLOADED");
+            assertThat(e.getDetails()).containsEntry("role", UserRole.ADVISOR);
+        });
+        assertThat(admission.getMetrics().admitted()).containsEntry(UserRole.ADVISOR, 10L)
+                .containsEntry(UserRole.CUSTOMER, 0L);
+        permits.forEach(AdmissionController.Permit::close);
+    }
+
+    @Test
+    void failuresFromManyThreadsBackTheLimitOffToTheFloor() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(new AdmissionController.Settings(20, 4, 100,
+                Map.of(UserRole.CUSTOMER, 1.0, UserRole.ADMIN, 1.0, UserRole.ADVISOR, 1.0), 10, 50));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    admission.tryAcquire(UserRole.CUSTOMER).getData().ifPresent(permit -> {
+                        permit.markFailed();
+                        permit.close();
+                    });
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Hundreds of windows, each cutting 10%, with no window lost to lock contention
+        assertThat(admission.getLimit()).isEqualTo(4);
+        assertThat(admission.getMetrics().inFlight()).isZero();
+    }
+
+    @Test
+    void limitSettlesNearBackendCapacity() throws InterruptedException {
+        AdmissionController admission = new AdmissionController();
+        Semaphore backend = new Semaphore(8);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 48; t++) {
+            threads.add(new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    Result<Integer, ApiError> result = admission.execute(UserRole.CUSTOMER, () -> {
+                        backend.acquireUninterruptibly();
+                        try {
+                            TimeUnit.MILLISECONDS.sleep(2);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            backend.release();
+                        }
+                        return Result.success(1);
+                    });
+                    if (result.isFailure()) {
+                        try {
+                            TimeUnit.MILLISECONDS.sleep(1);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Well below the 1,000 ceiling: calls queued on the backend show up as latency and hold the limit down
+        assertThat(admission.getLimit()).isBetween(4, 32);
+        assertThat(admission.getMetrics().noLoadLatencyMicros()).isPositive();
+    }
+}
@@ -0,0 +1,142 @@
+package com.fidelity.promptlab.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fidelity.promptlab.models.AuditRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditLogTest {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyAcceptedRecordIsDurableOnceUnderConcurrentLoad() throws Exception {
+        Path file = dir.resolve("audit.ndjson");
+        AuditLog.Settings defaults = AuditLog.Settings.defaults(file);
+        // A small ring forces producers through BLOCK back-pressure as well as the fast path
+        AuditLog log = new AuditLog(new AuditLog.Settings(file, 1 << 10, defaults.maxBatchSize(),
+                defaults.fsyncInterval(), AuditLog.OverflowPolicy.BLOCK));
+        int threads = 8;
+        int perThread = 25_000;
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String entity = "E" + t;
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    log.record(AuditRecord.of("Test", entity, "WRITE", List.of()));
+                }
+            }));
+        }
+
+        long started = System.nanoTime();
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertThat(log.flush(Duration.ofSeconds(30))).isTrue();
+        long elapsed = System.nanoTime() - started;
+        AuditLog.Metrics metrics = log.getMetrics();
+        log.close();
+
+        int total = threads * perThread;
+        System.out.printf("audit log: %d records in %d ms (%.0f/s), %d fsyncs, fsync p99 %d us%n", total,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), total / (elapsed / 1e9), metrics.fsyncs(),
+                metrics.fsyncP99Micros());
+        assertThat(metrics.durable()).isEqualTo(total);
+        assertThat(metrics.failed()).isZero();
+        // Batching: far fewer fsyncs than records
+        assertThat(metrics.fsyncs()).isLessThan(total / 10);
+        Set<Long> sequences = new HashSet<>();
+        for (String line : Files.readAllLines(file)) {
+            sequences.add(JSON.readTree(line).get("sequence").asLong());
+        }
+        assertThat(sequences).hasSize(total);
+        assertThat(sequences).contains(1L, (long) total);
+    }
+
+    @Test
+    void aBatchThatFailsMidWriteLeavesNoTornLine() throws Exception {
+        Path file = dir.resolve("audit.ndjson");
+        FailingChannel channel = new FailingChannel(FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        AuditLog log = new AuditLog(AuditLog.Settings.defaults(file), channel);
+
+        log.record(AuditRecord.of("Test", "before", "WRITE", List.of()));
+        assertThat(log.flush(Duration.ofSeconds(5))).isTrue();
+        channel.failNextWrite = true;
+        log.record(AuditRecord.of("Test", "failed", "WRITE", List.of()));
+        log.flush(Duration.ofSeconds(5));
+        assertThat(log.getMetrics().failed()).isEqualTo(1);
+        log.record(AuditRecord.of("Test", "after", "WRITE", List.of()));
+        assertThat(log.flush(Duration.ofSeconds(5))).isTrue();
+        log.close();
+
+        List<String> entities = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            JsonNode node = JSON.readTree(line);
+            entities.add(node.get("entityId").asText());
+        }
+        assertThat(entities).containsExactly("before", "after");
+    }
+
+    // Writes half of the next buffer, then fails, as a full disk would
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        volatile boolean failNextWrite;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (failNextWrite) {
+                failNextWrite = false;
+                ByteBuffer half = src.duplicate();
+                half.limit(src.position() + src.remaining() / 2);
+                delegate.write(half);
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(src);
+        }
+
+        @Override public int read(ByteBuffer dst) throws IOException { return delegate.read(dst); }
+        @Override public long read(ByteBuffer[] dsts, int offset, int length) throws IOException { return delegate.read(dsts, offset, length); }
+        @Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { return delegate.write(srcs, offset, length); }
+        @Override public long position() throws IOException { return delegate.position(); }
+        @Override public FileChannel position(long newPosition) throws IOException { delegate.position(newPosition); return this; }
+        @Override public long size() throws IOException { return delegate.size(); }
+        @Override public FileChannel truncate(long size) throws IOException { delegate.truncate(size); return this; }
+        @Override public void force(boolean metaData) throws IOException { delegate.force(metaData); }
+        @Override public long transferTo(long position, long count, WritableByteChannel target) throws IOException { return delegate.transferTo(position, count, target); }
+        @Override public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException { return delegate.transferFrom(src, position, count); }
+        @Override public int read(ByteBuffer dst, long position) throws IOException { return delegate.read(dst, position); }
+        @Override public int write(ByteBuffer src, long position) throws IOException { return delegate.write(src, position); }
+        @Override public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException { return delegate.map(mode, position, size); }
+        @Override public FileLock lock(long position, long size, boolean shared) throws IOException { return delegate.lock(position, size, shared); }
+        @Override public FileLock tryLock(long position, long size, boolean shared) throws IOException { return delegate.tryLock(position, size, shared); }
+        @Override protected void implCloseChannel() throws IOException { delegate.close(); }
+    }
+}
@@ -0,0 +1,75 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.Holding;
+import com.fidelity.promptlab.models.Portfolio;
+import com.fidelity.promptlab.models.PortfolioExposure;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ExposureIndexServiceTest {
+
+    @RegisterExtension
+    final PortfolioFixture fixture = new PortfolioFixture();
+
+    private PortfolioService portfolios;
+    private ExposureIndexService index;
+
+    @BeforeEach
+    void setUp() {
+        FxRateService fx = fixture.fx();
+        portfolios = fixture.portfolios();
+        index = new ExposureIndexService(portfolios, new PortfolioAnalyticsService(portfolios, fx), fx);
+    }
+
+    @Test
+    void seedingAPriceRevaluesHoldersPostedWithoutOne() {
+        portfolios.savePortfolio(portfolio("A",
+                holding("XYZ", 100, null), holding("ABC", 10, new BigDecimal("10"))));
+        portfolios.savePortfolio(portfolio("B", holding("XYZ", 1, new BigDecimal("5"))));
+
+        List<PortfolioExposure> holders = index.topHolders("XYZ", 10);
+
+        // A holds 500 of XYZ and 100 of ABC
+        assertThat(holders).extracting(PortfolioExposure::portfolioId).containsExactly("B", "A");
+        assertThat(holders.get(1).weight()).isEqualByComparingTo("0.8333");
+        assertThat(holders).allSatisfy(h -> assertThat(h.weight()).isLessThanOrEqualTo(BigDecimal.ONE));
+        assertThat(index.holdersAbove("ABC", new BigDecimal("0.5"))).isEmpty();
+    }
+
+    @Test
+    void reindexesOnSavesOnly() {
+        PortfolioService service = mock(PortfolioService.class);
+
+        new ExposureIndexService(service, mock(PortfolioAnalyticsService.class), mock(FxRateService.class));
+
+        verify(service).addSaveListener(any());
+        verify(service, never()).addChangeListener(any());
+    }
+
+    private static Portfolio portfolio(String id, Holding... holdings) {
+        Portfolio portfolio = new Portfolio();
+        portfolio.setId(id);
+        portfolio.setUserId("user-" + id);
+        portfolio.setHoldings(new ArrayList<>(List.of(holdings)));
+        return portfolio;
+    }
+
+    private static Holding holding(String symbol, int quantity, BigDecimal currentPrice) {
+        Holding holding = new Holding();
+        holding.setSymbol(symbol);
+        holding.setQuantity(quantity);
+        holding.setCurrentPrice(currentPrice);
+        return holding;
+    }
+}
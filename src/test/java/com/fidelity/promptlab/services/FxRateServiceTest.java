@@ -0,0 +1,31 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FxRateServiceTest {
+
+    @Test
+    void conversionsDoNotGrowTheCurrencyTable() {
+        FxRateService fx = new FxRateService(FxRateSource.fixed(
+                Map.of("USD", BigDecimal.ONE, "EUR", new BigDecimal("1.10"))));
+        int before = fx.currencies().size();
+
+        assertThat(fx.convert(new BigDecimal("10"), "usd", " eur").getData())
+                .hasValueSatisfying(v -> assertThat(v.setScale(4, RoundingMode.HALF_UP)).isEqualByComparingTo("9.0909"));
+        assertThat(fx.convert(BigDecimal.TEN, "USD", "JPY").getError())
+                .hasValueSatisfying(e -> assertThat(e.getCode()).isEqualTo("FX_RATE_UNAVAILABLE"));
+        assertThat(fx.convert(BigDecimal.TEN, "USD", "NOPE").getError())
+                .hasValueSatisfying(e -> assertThat(e.getCode()).isEqualTo("INVALID_CURRENCY"));
+        for (String spelling : new String[] {"jpy", "Jpy", "gbp", " chf"}) {
+            fx.ordinalOf(spelling);
+        }
+
+        assertThat(fx.currencies().size()).isEqualTo(before);
+    }
+}
@@ -0,0 +1,112 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.Portfolio;
+import com.fidelity.promptlab.models.Result;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgedPortfolioFetcherTest {
+    private static final long SINGLE_LATENCY_MILLIS = 2;
+    private static final long BULK_LATENCY_MILLIS = 60;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/api/users/", exchange -> {
+            String userId = exchange.getRequestURI().getPath().split("/")[3];
+            respond(exchange, SINGLE_LATENCY_MILLIS, portfoliosOf(userId));
+        });
+        server.createContext("/api/portfolios", exchange -> {
+            String ids = URLDecoder.decode(exchange.getRequestURI().getRawQuery().substring("userIds=".length()),
+                    StandardCharsets.UTF_8);
+            String body = List.of(ids.split(",")).stream()
+                    .map(id -> "\"" + id + "\":" + portfoliosOf(id))
+                    .collect(Collectors.joining(",", "{", "}"));
+            respond(exchange, BULK_LATENCY_MILLIS, body);
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void bulkAndSingleEndpointsKeepSeparateHedgeDelays() {
+        HedgedPortfolioFetcher fetcher = new HedgedPortfolioFetcher(client(), new HedgedPortfolioFetcher.Settings(
+                true, 2, Duration.ofMillis(1), true,
+                Duration.ofMillis(500), Duration.ofMillis(1), Duration.ofSeconds(2), 64));
+
+        // 128 two-user bulk requests in parallel, then 128 one-user requests, one at a time
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            users.add("bulk-" + i);
+        }
+        Map<String, Result<List<Portfolio>, ApiError>> bulkResults = fetcher.fetchAll(users).join();
+        for (int i = 0; i < 128; i++) {
+            assertThat(fetcher.fetch("single-" + i).join().isFailure()).isFalse();
+        }
+
+        HedgedPortfolioFetcher.Metrics metrics = fetcher.getMetrics();
+        assertThat(bulkResults.values()).allSatisfy(r -> assertThat(r.isFailure()).isFalse());
+        // A batch window can fire between two users and send one alone, so not quite all 128
+        assertThat(metrics.bulkRequests()).isGreaterThan(100);
+        // The single-user delay tracks its own fast endpoint, not the slow bulk samples
+        assertThat(metrics.singleHedgeDelayMicros()).isLessThan(TimeUnit.MILLISECONDS.toMicros(BULK_LATENCY_MILLIS / 2));
+        assertThat(metrics.bulkHedgeDelayMicros()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(BULK_LATENCY_MILLIS));
+    }
+
+    private RemotePortfolioClient client() {
+        URI base = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/api");
+        RemotePortfolioClient.Settings defaults = RemotePortfolioClient.Settings.defaults(base);
+        return new RemotePortfolioClient(new RemotePortfolioClient.Settings(base, defaults.connectTimeout(),
+                defaults.requestTimeout(), defaults.maxAttempts(), defaults.initialBackoff(), defaults.maxBackoff(),
+                defaults.maxConcurrentRequests(), 1_000, defaults.openDuration()));
+    }
+
+    private static String portfoliosOf(String userId) {
+        return "[{\"id\":\"P-" + userId + "\",\"userId\":\"" + userId + "\"}]";
+    }
+
+    private static void respond(HttpExchange exchange, long delayMillis, String json) throws IOException {
+        try (exchange) {
+            TimeUnit.MILLISECONDS.sleep(delayMillis);
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyFilterTest {
+
+    @Test
+    void measuredFalsePositiveRateStaysUnderTargetAcrossGrowthAndRebuild() {
+        Map<String, Boolean> store = new ConcurrentHashMap<>();
+        // Runs rebuilds on the calling thread, so the filter is settled after each add
+        KeyFilter filter = new KeyFilter(sink -> store.keySet().forEach(sink),
+                KeyFilter.DEFAULT_EXPECTED_KEYS, KeyFilter.DEFAULT_FALSE_POSITIVE_RATE,
+                KeyFilter.DEFAULT_REBUILD_RATIO, Runnable::run);
+        int keys = 1_000_000;
+        for (int i = 0; i < keys; i++) {
+            String key = UUID.randomUUID().toString();
+            store.put(key, Boolean.TRUE);
+            filter.add(key);
+        }
+
+        for (String key : store.keySet()) {
+            assertThat(filter.guard(key, k -> Optional.ofNullable(store.get(k)))).isPresent();
+        }
+        for (int i = 0; i < keys; i++) {
+            filter.guard(UUID.randomUUID().toString(), k -> Optional.ofNullable(store.get(k)));
+        }
+
+        KeyFilter.Stats stats = filter.stats();
+        assertThat(stats.rebuilds()).as("growth past the stage limit rebuilds").isPositive();
+        assertThat(stats.rejected() + stats.falsePositives()).isEqualTo(keys);
+        assertThat(stats.measuredFalsePositiveRate()).isLessThan(KeyFilter.DEFAULT_FALSE_POSITIVE_RATE);
+        assertThat(stats.measuredFalsePositiveRate()).isLessThan(stats.expectedFalsePositiveRate() * 3);
+    }
+
+    @Test
+    void rebuildKeepsKeysAddedWhileItRuns() throws InterruptedException {
+        Map<String, Boolean> store = new ConcurrentHashMap<>();
+        KeyFilter filter = new KeyFilter(sink -> store.keySet().forEach(sink),
+                1_000, KeyFilter.DEFAULT_FALSE_POSITIVE_RATE, KeyFilter.DEFAULT_REBUILD_RATIO,
+                ForkJoinPool.commonPool());
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 300_000; i++) {
+                String key = "portfolio-" + i;
+                store.put(key, Boolean.TRUE);
+                filter.add(key);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            filter.rebuild();
+        }
+        writer.join();
+
+        for (String key : store.keySet()) {
+            assertThat(filter.mightContain(key)).as(key).isTrue();
+        }
+        assertThat(filter.stats().rebuilds()).isGreaterThan(1);
+    }
+}
@@ -0,0 +1,35 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    @Test
+    void transactionKeysRoundTripToTheNanosecond() {
+        TransactionIndex.Key key = new TransactionIndex.Key(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 123_456_789), "a:b");
+
+        String cursor = KeysetCursor.encode(key);
+
+        assertThat(KeysetCursor.decodeTransaction(cursor)).isEqualTo(key);
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void idsRoundTrip() {
+        assertThat(KeysetCursor.decodeId(KeysetCursor.encodeId("P-1:x/y"))).isEqualTo("P-1:x/y");
+    }
+
+    @Test
+    void aCursorOfOneKindIsRejectedAsTheOther() {
+        String idCursor = KeysetCursor.encodeId("P1");
+        String transactionCursor = KeysetCursor.encode(new TransactionIndex.Key(LocalDateTime.of(2024, 1, 2, 15, 0), "T1"));
+
+        assertThatThrownBy(() -> KeysetCursor.decodeTransaction(idCursor)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KeysetCursor.decodeId(transactionCursor)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,50 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadReplayHarnessTest {
+
+    @RegisterExtension
+    final PortfolioFixture fixture = new PortfolioFixture();
+
+    private UserService users;
+    private LoadReplayHarness harness;
+
+    @BeforeEach
+    void setUp() {
+        FxRateService fx = fixture.fx();
+        AdmissionController admission = fixture.admission();
+        PortfolioService portfolios = fixture.portfolios();
+        TransactionService transactions = new TransactionService(fixture.eventBus(), new SymbolDirectory(),
+                new MarketCalendarService(), admission);
+        users = new UserService(new TokenService(), new CredentialService(), new LoginRateLimiter(),
+                portfolios, fixture.auditLog());
+        harness = new LoadReplayHarness(users, portfolios, transactions,
+                new PortfolioAnalyticsService(portfolios, fx));
+    }
+
+    @AfterEach
+    void tearDown() {
+        users.close();
+    }
+
+    @Test
+    void replaysEveryOperationWithoutErrorsFromManyThreads() {
+        SyntheticWorkload workload = SyntheticWorkload.generate(new SyntheticWorkload.Settings(
+                3L, 200, 100, 5, 40, 3_000, 1_000, 20.0, 25.0, 1.1, LocalDateTime.of(2024, 1, 2, 14, 30)));
+
+        LoadReplayHarness.Report report = harness.run(workload, new LoadReplayHarness.Settings(8, 20_000, 2.0, 7L));
+
+        assertThat(report.byOperation()).containsKeys(LoadReplayHarness.Operation.values());
+        assertThat(report.byOperation().values()).allSatisfy(stats -> assertThat(stats.errors()).isZero());
+        assertThat(report.byOperation().get(LoadReplayHarness.Operation.RECORD_TRANSACTION).count())
+                .isEqualTo(workload.trades().size());
+    }
+}
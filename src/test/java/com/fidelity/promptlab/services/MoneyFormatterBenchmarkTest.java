@@ -0,0 +1,99 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.NumberFormat;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares {@link MoneyFormatter} against a {@link NumberFormat#getCurrencyInstance}
+ * built per call, the way report code formatted amounts before. Excluded from
+ * the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class MoneyFormatterBenchmarkTest {
+    private static final int AMOUNTS = 10_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 30;
+
+    @Test
+    void compiledFormatAgainstNumberFormatPerCall() {
+        BigDecimal[] amounts = randomAmounts(new Random(11));
+        MoneyFormatter formatter = new MoneyFormatter();
+        Currency eur = Currency.getInstance("EUR");
+        MoneyFormatter.CompiledFormat compiled = formatter.compile(eur, Locale.GERMANY);
+
+        assertThat(compiled.format(amounts[0])).isEqualTo(numberFormat(eur, Locale.GERMANY).format(amounts[0]));
+
+        long perCall = measure(() -> {
+            long length = 0;
+            for (BigDecimal amount : amounts) {
+                length += numberFormat(eur, Locale.GERMANY).format(amount).length();
+            }
+            return length;
+        });
+        long cachedLookup = measure(() -> {
+            long length = 0;
+            for (BigDecimal amount : amounts) {
+                length += formatter.format(amount, "EUR", Locale.GERMANY).length();
+            }
+            return length;
+        });
+        StringBuilder line = new StringBuilder(64);
+        long reusedBuilder = measure(() -> {
+            long length = 0;
+            for (BigDecimal amount : amounts) {
+                line.setLength(0);
+                length += compiled.appendTo(line, amount).length();
+            }
+            return length;
+        });
+
+        System.out.printf("%,d amounts  NumberFormat per call %8.1f us  format() %8.1f us (%.1fx)"
+                        + "  compiled appendTo %8.1f us (%.1fx)%n", AMOUNTS,
+                perCall / 1_000.0, cachedLookup / 1_000.0, (double) perCall / cachedLookup,
+                reusedBuilder / 1_000.0, (double) perCall / reusedBuilder);
+    }
+
+    private static NumberFormat numberFormat(Currency currency, Locale locale) {
+        NumberFormat format = NumberFormat.getCurrencyInstance(locale);
+        format.setCurrency(currency);
+        format.setRoundingMode(RoundingMode.HALF_EVEN);
+        return format;
+    }
+
+    private static long measure(Workload workload) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += workload.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += workload.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertThat(sink).isPositive();
+        return best;
+    }
+
+    private static BigDecimal[] randomAmounts(Random random) {
+        BigDecimal[] amounts = new BigDecimal[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            amounts[i] = BigDecimal.valueOf(random.nextLong(-1_000_000_000L, 1_000_000_000L), 3);
+        }
+        return amounts;
+    }
+
+    @FunctionalInterface
+    private interface Workload {
+        long run();
+    }
+}
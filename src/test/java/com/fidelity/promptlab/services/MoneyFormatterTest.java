@@ -0,0 +1,94 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.NumberFormat;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MoneyFormatterTest {
+    private static final List<Locale> LOCALES = List.of(
+            Locale.US, Locale.GERMANY, Locale.FRANCE, Locale.JAPAN, Locale.UK,
+            Locale.forLanguageTag("de-CH"), Locale.forLanguageTag("en-IN"),
+            Locale.forLanguageTag("ar-SA"), Locale.forLanguageTag("nl-NL"));
+
+    // USD 2 minor units, JPY 0, BHD 3, XAU -1 (pseudo-currency, shown without decimals)
+    private static final List<String> CURRENCIES = List.of("USD", "EUR", "JPY", "BHD", "XAU");
+
+    private static final List<String> AMOUNTS = List.of(
+            "0", "1", "-1", "0.5", "1.5", "2.5", "-2.5", "0.125", "0.135", "-0.015", "-0.0005",
+            "999.9995", "1234.5", "-1234.5678", "1000000", "-987654321.987654321",
+            "123456789012345.67", "-12345678901234567.891",
+            // Beyond 18 significant digits: the slow path
+            "123456789012345678901234.5678", "-99999999999999999999.9999", "1E+25");
+
+    private final MoneyFormatter formatter = new MoneyFormatter();
+
+    @Test
+    void matchesNumberFormatAcrossLocalesAndCurrencies() {
+        for (Locale locale : LOCALES) {
+            for (String code : CURRENCIES) {
+                Currency currency = Currency.getInstance(code);
+                NumberFormat reference = reference(currency, locale);
+                for (String text : AMOUNTS) {
+                    BigDecimal amount = new BigDecimal(text);
+                    // The one documented difference: NumberFormat signs an amount that rounds to zero
+                    BigDecimal expected = roundsToZero(amount, currency) ? BigDecimal.ZERO : amount;
+                    assertThat(formatter.format(amount, code, locale))
+                            .as("%s %s %s", text, code, locale)
+                            .isEqualTo(reference.format(expected));
+                }
+            }
+        }
+    }
+
+    @Test
+    void usesTheCurrencyMinorUnits() {
+        assertThat(formatter.format(new BigDecimal("1234.5"), "JPY", Locale.US)).isEqualTo("¥1,234");
+        assertThat(formatter.format(new BigDecimal("1234.5"), "BHD", Locale.US)).isEqualTo("BHD1,234.500");
+        assertThat(formatter.format(new BigDecimal("1234.5"), "XAU", Locale.US)).isEqualTo("XAU1,234");
+        assertThat(formatter.format(new BigDecimal("-1234.5"), "USD", Locale.US)).isEqualTo("-$1,234.50");
+    }
+
+    @Test
+    void amountsRoundingToZeroAreNeverSigned() {
+        // NumberFormat prints "-$0.00" here; see the class javadoc
+        assertThat(formatter.format(new BigDecimal("-0.004"), "USD", Locale.US)).isEqualTo("$0.00");
+        assertThat(formatter.format(new BigDecimal("-0.4"), "JPY", Locale.US)).isEqualTo("¥0");
+        assertThat(formatter.format(new BigDecimal("-0.0004"), "BHD", Locale.US)).isEqualTo("BHD0.000");
+    }
+
+    @Test
+    void compiledFormatAppendsIntoAReusedBuilder() {
+        MoneyFormatter.CompiledFormat eur = formatter.compile(Currency.getInstance("EUR"), Locale.GERMANY);
+        StringBuilder line = new StringBuilder();
+        eur.appendTo(line, new BigDecimal("1234.5")).append(" | ");
+        eur.appendTo(line, new BigDecimal("-0.125"));
+
+        assertThat(line.toString()).isEqualTo(
+                reference(Currency.getInstance("EUR"), Locale.GERMANY).format(new BigDecimal("1234.5"))
+                        + " | "
+                        + reference(Currency.getInstance("EUR"), Locale.GERMANY).format(new BigDecimal("-0.125")));
+        assertThat(formatter.compile(Currency.getInstance("EUR"), Locale.GERMANY)).isSameAs(eur);
+    }
+
+    private static boolean roundsToZero(BigDecimal amount, Currency currency) {
+        return amount.setScale(Math.max(0, currency.getDefaultFractionDigits()), RoundingMode.HALF_EVEN).signum() == 0;
+    }
+
+    // NumberFormat configured the way the class javadoc promises to match
+    private static NumberFormat reference(Currency currency, Locale locale) {
+        NumberFormat format = NumberFormat.getCurrencyInstance(locale);
+        format.setCurrency(currency);
+        int digits = Math.max(0, currency.getDefaultFractionDigits());
+        format.setMinimumFractionDigits(digits);
+        format.setMaximumFractionDigits(digits);
+        format.setRoundingMode(RoundingMode.HALF_EVEN);
+        return format;
+    }
+}
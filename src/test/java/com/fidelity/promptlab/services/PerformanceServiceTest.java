@@ -0,0 +1,77 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PerformanceServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 2);
+
+    @RegisterExtension
+    final PortfolioFixture fixture = new PortfolioFixture();
+
+    private PortfolioService portfolios;
+    private PerformanceService performance;
+
+    @BeforeEach
+    void setUp() {
+        portfolios = fixture.portfolios();
+        performance = new PerformanceService(portfolios);
+    }
+
+    @Test
+    void dividendPerSharePriceDoesNotRevalueThePosition() {
+        record(Transaction.TransactionType.BUY, DAY, new BigDecimal("100"));
+        record(Transaction.TransactionType.DIVIDEND, DAY.plusDays(1), new BigDecimal("0.50"));
+
+        // No closes at all, so positions are valued at the last fill price
+        performance.rebuild("P1", PriceSeries.of(Map.of()), DAY.plusDays(1));
+
+        PerformanceService.DailyRollup afterDividend = performance.getRollup("P1", DAY.plusDays(1)).orElseThrow();
+        assertThat(afterDividend.endValue()).isEqualByComparingTo("1000");
+        assertThat(afterDividend.income()).isEqualByComparingTo("5");
+    }
+
+    @Test
+    void onlySettledTransactionsCount() {
+        record(Transaction.TransactionType.BUY, DAY, new BigDecimal("100"));
+        record(Transaction.TransactionType.BUY, DAY, new BigDecimal("100"), Transaction.TransactionStatus.PENDING);
+        record(Transaction.TransactionType.BUY, DAY, new BigDecimal("100"), Transaction.TransactionStatus.FAILED);
+        record(Transaction.TransactionType.DIVIDEND, DAY.plusDays(1), new BigDecimal("0.50"),
+                Transaction.TransactionStatus.PENDING);
+
+        performance.rebuild("P1", PriceSeries.of(Map.of()), DAY.plusDays(1));
+
+        PerformanceService.DailyRollup first = performance.getRollup("P1", DAY).orElseThrow();
+        assertThat(first.netFlow()).isEqualByComparingTo("1000");
+        assertThat(first.endValue()).isEqualByComparingTo("1000");
+        assertThat(performance.getRollup("P1", DAY.plusDays(1)).orElseThrow().income()).isEqualByComparingTo("0");
+    }
+
+    private void record(Transaction.TransactionType type, LocalDate date, BigDecimal price) {
+        record(type, date, price, Transaction.TransactionStatus.COMPLETED);
+    }
+
+    private void record(Transaction.TransactionType type, LocalDate date, BigDecimal price,
+                        Transaction.TransactionStatus status) {
+        Transaction transaction = new Transaction();
+        transaction.setPortfolioId("P1");
+        transaction.setType(type);
+        transaction.setSymbol("AAPL");
+        transaction.setQuantity(10);
+        transaction.setPrice(price);
+        transaction.setExecutedAt(LocalDateTime.of(date, LocalTime.NOON));
+        transaction.setStatus(status);
+        portfolios.recordTransaction(transaction);
+    }
+}
@@ -0,0 +1,77 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.Holding;
+import com.fidelity.promptlab.models.Portfolio;
+import com.fidelity.promptlab.models.PortfolioAnalytics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+class PortfolioAnalyticsServiceTest {
+
+    @RegisterExtension
+    final PortfolioFixture fixture = new PortfolioFixture();
+
+    private PortfolioService portfolios;
+    private PortfolioAnalyticsService analytics;
+
+    @BeforeEach
+    void setUp() {
+        FxRateService fx = fixture.fx();
+        portfolios = fixture.portfolios();
+        analytics = new PortfolioAnalyticsService(portfolios, fx);
+    }
+
+    @Test
+    void firstTickForAnUnpricedHoldingInvalidatesTheSnapshot() {
+        Portfolio portfolio = new Portfolio();
+        portfolio.setId("P1");
+        portfolio.setUserId("U1");
+        Holding unpriced = new Holding();
+        unpriced.setSymbol("NEW");
+        unpriced.setQuantity(5);
+        portfolio.setHoldings(new ArrayList<>(List.of(
+                new Holding("AAPL", "Apple", 10, new BigDecimal("100"), new BigDecimal("150")), unpriced)));
+        portfolios.savePortfolio(portfolio);
+        PortfolioAnalytics before = analytics.getAnalytics("P1").orElseThrow();
+        assertThat(before.totalValue()).isEqualByComparingTo("1500");
+
+        analytics.onPriceTick("NEW", new BigDecimal("30"));
+
+        assertThat(analytics.getAnalytics("P1").orElseThrow().totalValue()).isEqualByComparingTo("1650");
+    }
+
+    @Test
+    void aSaveRacingTheFirstComputeIsNotLost() {
+        portfolios.savePortfolio(portfolio(10));
+        PortfolioService racing = spy(portfolios);
+        PortfolioAnalyticsService raced = new PortfolioAnalyticsService(racing, new FxRateService());
+        // The first read returns the old portfolio, then a save lands before the compute finishes
+        doAnswer(invocation -> {
+            Object read = invocation.callRealMethod();
+            portfolios.savePortfolio(portfolio(20));
+            return read;
+        }).doCallRealMethod().when(racing).getPortfolio("P1");
+
+        raced.getAnalytics("P1");
+
+        assertThat(raced.getAnalytics("P1").orElseThrow().totalValue()).isEqualByComparingTo("3000");
+    }
+
+    private static Portfolio portfolio(int shares) {
+        Portfolio portfolio = new Portfolio();
+        portfolio.setId("P1");
+        portfolio.setUserId("U1");
+        portfolio.setHoldings(new ArrayList<>(List.of(
+                new Holding("AAPL", "Apple", shares, new BigDecimal("100"), new BigDecimal("150")))));
+        return portfolio;
+    }
+}
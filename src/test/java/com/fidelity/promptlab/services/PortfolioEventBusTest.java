@@ -0,0 +1,165 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.PortfolioEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PortfolioEventBusTest {
+    private final PortfolioEventBus bus = new PortfolioEventBus(new PortfolioEventBus.Settings(4, 2));
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        bus.close();
+    }
+
+    @Test
+    void eventsForOnePortfolioArriveInPublishOrder() throws InterruptedException {
+        Map<String, List<Long>> seen = new ConcurrentHashMap<>();
+        PortfolioEventBus.Subscription subscription = bus.subscribe("order", 7, 100_000,
+                PortfolioEventBus.Backpressure.BLOCK, events -> {
+                    for (PortfolioEvent event : events) {
+                        seen.computeIfAbsent(event.portfolioId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                                .add(event.occurredAt().getEpochSecond());
+                    }
+                });
+
+        for (long sequence = 0; sequence < 20_000; sequence++) {
+            bus.publish(event("P" + (sequence % 25), sequence));
+        }
+
+        await(() -> subscription.getMetrics().delivered() == 20_000);
+        assertThat(seen).hasSize(25);
+        for (List<Long> sequences : seen.values()) {
+            assertThat(sequences).hasSize(800).isSorted();
+        }
+        assertThat(bus.getPublished()).isEqualTo(20_000);
+    }
+
+    @Test
+    void handlersReceiveBatchesOfAtMostMaxBatchSize() throws InterruptedException {
+        List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        PortfolioEventBus.Subscription subscription = bus.subscribe("batches", 10, 1_000,
+                PortfolioEventBus.Backpressure.BLOCK, events -> {
+                    sizes.add(events.size());
+                    awaitRelease();
+                });
+
+        for (long sequence = 0; sequence < 95; sequence++) {
+            bus.publish(event("P1", sequence));
+        }
+        release.countDown();
+
+        await(() -> subscription.getMetrics().delivered() == 95);
+        assertThat(sizes).allSatisfy(size -> assertThat(size).isBetween(1, 10));
+        // Everything queued behind the first batch is delivered in full batches
+        assertThat(sizes).contains(10);
+    }
+
+    @Test
+    void dropLosesEventsBeyondMaxPendingAndCountsThem() throws InterruptedException {
+        PortfolioEventBus.Subscription subscription = bus.subscribe("drop", 100, 5,
+                PortfolioEventBus.Backpressure.DROP, events -> awaitRelease());
+
+        for (long sequence = 0; sequence < 20; sequence++) {
+            bus.publish(event("P1", sequence));
+        }
+        release.countDown();
+
+        await(() -> subscription.getMetrics().pending() == 0);
+        PortfolioEventBus.SubscriberMetrics metrics = subscription.getMetrics();
+        assertThat(metrics.delivered()).isEqualTo(5);
+        assertThat(metrics.dropped()).isEqualTo(15);
+    }
+
+    @Test
+    void blockMakesPublishersWaitAndLosesNothing() throws InterruptedException {
+        PortfolioEventBus.Subscription subscription = bus.subscribe("block", 100, 2,
+                PortfolioEventBus.Backpressure.BLOCK, events -> awaitRelease());
+        Thread publisher = new Thread(() -> {
+            for (long sequence = 0; sequence < 6; sequence++) {
+                bus.publish(event("P1", sequence));
+            }
+        });
+
+        publisher.start();
+        publisher.join(200);
+        assertThat(publisher.isAlive()).isTrue();
+
+        release.countDown();
+        publisher.join(5_000);
+        assertThat(publisher.isAlive()).isFalse();
+        await(() -> subscription.getMetrics().delivered() == 6);
+        assertThat(subscription.getMetrics().dropped()).isZero();
+    }
+
+    @Test
+    void aFailingBatchIsCountedAndTheLaneKeepsMoving() throws InterruptedException {
+        PortfolioEventBus.Subscription subscription = bus.subscribe("failing", 1, 100,
+                PortfolioEventBus.Backpressure.BLOCK, events -> {
+                    if (events.get(0).occurredAt().getEpochSecond() % 2 == 0) {
+                        throw new IllegalStateException("handler failure");
+                    }
+                });
+
+        for (long sequence = 0; sequence < 10; sequence++) {
+            bus.publish(event("P1", sequence));
+        }
+
+        await(() -> subscription.getMetrics().pending() == 0);
+        assertThat(subscription.getMetrics().failedBatches()).isEqualTo(5);
+        assertThat(subscription.getMetrics().delivered()).isEqualTo(5);
+    }
+
+    @Test
+    void closeDeliversEverythingAlreadyQueued() throws InterruptedException {
+        // Batches of one, so the lane needs far more than one run to drain after close
+        PortfolioEventBus.Subscription subscription = bus.subscribe("close", 1, 1_000,
+                PortfolioEventBus.Backpressure.BLOCK, events -> awaitRelease());
+        for (long sequence = 0; sequence < 100; sequence++) {
+            bus.publish(event("P1", sequence));
+        }
+
+        bus.close();
+        bus.publish(event("P1", 100));
+        release.countDown();
+
+        await(() -> subscription.getMetrics().delivered() == 100);
+        assertThat(subscription.getMetrics().pending()).isZero();
+        assertThat(bus.getPublished()).isEqualTo(100);
+    }
+
+    // The sequence number rides in occurredAt
+    private static PortfolioEvent event(String portfolioId, long sequence) {
+        return new PortfolioEvent.PortfolioSaved(portfolioId, null, Instant.ofEpochSecond(sequence));
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
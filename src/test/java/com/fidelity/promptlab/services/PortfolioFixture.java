@@ -0,0 +1,71 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The AuditLog, PortfolioEventBus and PortfolioService most service tests
+ * build on. Every test gets fresh instances writing under a temp directory
+ * of its own, created before the test class's @BeforeEach methods run and
+ * closed and deleted after its @AfterEach methods.
+ *
+ * Usage:
+ *   @RegisterExtension
+ *   final PortfolioFixture fixture = new PortfolioFixture();
+ *
+ *   performance = new PerformanceService(fixture.portfolios());
+ */
+final class PortfolioFixture implements BeforeEachCallback, AfterEachCallback {
+    private Path dir;
+    private AuditLog auditLog;
+    private PortfolioEventBus eventBus;
+    private FxRateService fx;
+    private TransactionRollupService rollups;
+    private AdmissionController admission;
+    private PortfolioService portfolios;
+
+    @Override
+    public void beforeEach(ExtensionContext context) throws IOException {
+        dir = Files.createTempDirectory("portfolio-fixture");
+        auditLog = new AuditLog(AuditLog.Settings.defaults(auditFile()));
+        eventBus = new PortfolioEventBus();
+        fx = new FxRateService();
+        rollups = new TransactionRollupService();
+        admission = new AdmissionController();
+        portfolios = new PortfolioService(auditLog, eventBus, fx, rollups, admission);
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) throws IOException {
+        eventBus.close();
+        auditLog.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    Path auditFile() {
+        return dir.resolve("audit.ndjson");
+    }
+
+    AuditLog auditLog() { return auditLog; }
+
+    PortfolioEventBus eventBus() { return eventBus; }
+
+    FxRateService fx() { return fx; }
+
+    TransactionRollupService rollups() { return rollups; }
+
+    AdmissionController admission() { return admission; }
+
+    PortfolioService portfolios() { return portfolios; }
+}
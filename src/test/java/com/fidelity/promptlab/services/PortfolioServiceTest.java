@@ -0,0 +1,245 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.Page;
+import com.fidelity.promptlab.models.Portfolio;
+import com.fidelity.promptlab.models.Transaction;
+import com.fidelity.promptlab.models.TransactionQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PortfolioServiceTest {
+
+    @RegisterExtension
+    final PortfolioFixture fixture = new PortfolioFixture();
+
+    private PortfolioService service;
+
+    @BeforeEach
+    void setUp() {
+        service = fixture.portfolios();
+    }
+
+    @Test
+    void getPortfolioNeverReturnsAnOlderSaveUnderConcurrentWriters() throws InterruptedException {
+        int portfolios = 200;
+        AtomicLongArray completed = new AtomicLongArray(portfolios);
+        for (int i = 0; i < portfolios; i++) {
+            service.savePortfolio(portfolio(i, 0));
+        }
+        AtomicReference<String> staleRead = new AtomicReference<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int i = random.nextInt(portfolios);
+                    synchronized (completed) {
+                        long next = completed.get(i) + 1;
+                        service.savePortfolio(portfolio(i, next));
+                        completed.set(i, next);
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < 4; r++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int i = random.nextInt(portfolios);
+                    long before = completed.get(i);
+                    long seen = Long.parseLong(service.getPortfolio(id(i)).orElseThrow().getName());
+                    if (seen < before) {
+                        staleRead.compareAndSet(null, id(i) + " read " + seen + " after save " + before);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(staleRead.get()).isNull();
+        assertThat(service.portfolioCacheMetrics().staleReads()).isPositive();
+    }
+
+    @Test
+    void recordTransactionRejectsAMissingPortfolioIdBeforeWritingAnything() {
+        List<Transaction> recorded = new ArrayList<>();
+        service.addTransactionListener(recorded::add);
+        Transaction transaction = new Transaction();
+        transaction.setType(Transaction.TransactionType.BUY);
+        transaction.setSymbol("AAPL");
+
+        assertThatThrownBy(() -> service.recordTransaction(transaction))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(recorded).isEmpty();
+        assertThat(service.indexedPortfolioIds()).isEmpty();
+    }
+
+    @Test
+    void changingUserIdOnTheSavedInstanceMovesItInTheIndex() {
+        Portfolio portfolio = portfolio(1, 0);
+        service.savePortfolio(portfolio);
+
+        portfolio.setUserId("other");
+        service.savePortfolio(portfolio);
+        assertThat(service.getPortfoliosByUser("user-1")).isEmpty();
+        assertThat(service.getPortfoliosByUser("other")).containsExactly(portfolio);
+
+        portfolio.setUserId(null);
+        service.savePortfolio(portfolio);
+        assertThat(service.hasPortfolios("other")).isFalse();
+    }
+
+    @Test
+    void nullUserIdOwnsNothing() {
+        service.savePortfolio(portfolio(1, 0));
+
+        assertThat(service.getPortfoliosByUser(null)).isEmpty();
+        assertThat(service.hasPortfolios(null)).isFalse();
+        assertThat(service.findPortfoliosByUser(null, 10, null)).isEqualTo(Page.empty());
+    }
+
+    @Test
+    void findPortfoliosByUserPagesInIdOrderAndEndsOnAnExactBoundary() {
+        for (int i = 0; i < 60; i += 10) {
+            service.savePortfolio(portfolio(i, 0)); // all owned by user-0
+        }
+
+        Page<Portfolio> first = service.findPortfoliosByUser("user-0", 3, null);
+        Page<Portfolio> second = service.findPortfoliosByUser("user-0", 3, first.nextCursor());
+
+        assertThat(first.items()).extracting(Portfolio::getId).containsExactly("P0", "P10", "P20");
+        assertThat(second.items()).extracting(Portfolio::getId).containsExactly("P30", "P40", "P50");
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void queryTransactionsVisitsEachTransactionOnceAcrossExecutedAtTies() {
+        List<Transaction> recorded = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            // Five transactions share each timestamp, so page edges fall inside ties
+            recorded.add(service.recordTransaction(transaction(i / 5, i % 2 == 0 ? "AAPL" : "MSFT",
+                    i % 3 == 0 ? Transaction.TransactionType.SELL : Transaction.TransactionType.BUY)));
+        }
+        Comparator<Transaction> order = Comparator.comparing(Transaction::getExecutedAt)
+                .thenComparing(Transaction::getId);
+
+        assertThat(allPages(TransactionQuery.forPortfolio("P1").limit(4)))
+                .containsExactlyElementsOf(recorded.stream().sorted(order).toList());
+        assertThat(allPages(TransactionQuery.forPortfolio("P1").newestFirst().limit(4)))
+                .containsExactlyElementsOf(recorded.stream().sorted(order.reversed()).toList());
+    }
+
+    @Test
+    void typeAndSymbolFiltersHoldOnEveryPage() {
+        List<Transaction> expected = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Transaction.TransactionType type = i % 3 == 0 ? Transaction.TransactionType.SELL : Transaction.TransactionType.BUY;
+            String symbol = i % 2 == 0 ? "AAPL" : "MSFT";
+            Transaction t = service.recordTransaction(transaction(i / 4, symbol, type));
+            if (type == Transaction.TransactionType.SELL && symbol.equals("AAPL")) {
+                expected.add(t);
+            }
+        }
+
+        List<Transaction> sells = allPages(TransactionQuery.forPortfolio("P1")
+                .withType(Transaction.TransactionType.SELL).withSymbol("AAPL").limit(2));
+
+        assertThat(sells).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(sells).allSatisfy(t -> {
+            assertThat(t.getType()).isEqualTo(Transaction.TransactionType.SELL);
+            assertThat(t.getSymbol()).isEqualTo("AAPL");
+        });
+    }
+
+    @Test
+    void anExactlyFullLastPageHasNoNextCursor() {
+        for (int i = 0; i < 6; i++) {
+            service.recordTransaction(transaction(i, "AAPL", Transaction.TransactionType.BUY));
+        }
+
+        Page<Transaction> first = service.queryTransactions(TransactionQuery.forPortfolio("P1").limit(3));
+        Page<Transaction> last = service.queryTransactions(TransactionQuery.forPortfolio("P1").limit(3)
+                .after(first.nextCursor()));
+
+        assertThat(first.hasMore()).isTrue();
+        assertThat(last.items()).hasSize(3);
+        assertThat(last.nextCursor()).isNull();
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        service.savePortfolio(portfolio(0, 0));
+        service.recordTransaction(transaction(0, "AAPL", Transaction.TransactionType.BUY));
+        String portfolioCursor = KeysetCursor.encodeId("P0");
+        String encodedGarbage = Base64.getUrlEncoder().encodeToString("t1:soon:0:abc".getBytes(StandardCharsets.UTF_8));
+
+        for (String cursor : List.of("not base64!", "", portfolioCursor, encodedGarbage)) {
+            assertThatThrownBy(() -> service.queryTransactions(TransactionQuery.forPortfolio("P1").after(cursor)))
+                    .as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid page cursor");
+        }
+        Page<Transaction> page = service.queryTransactions(TransactionQuery.forPortfolio("P1"));
+        assertThatThrownBy(() -> service.findPortfoliosByUser("user-0", 10, KeysetCursor.encode(
+                new TransactionIndex.Key(page.items().get(0).getExecutedAt(), page.items().get(0).getId()))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid page cursor");
+    }
+
+    private List<Transaction> allPages(TransactionQuery query) {
+        List<Transaction> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<Transaction> page = service.queryTransactions(query.after(cursor));
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(query.limit());
+            all.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return all;
+    }
+
+    private static Transaction transaction(int minute, String symbol, Transaction.TransactionType type) {
+        Transaction transaction = new Transaction();
+        transaction.setPortfolioId("P1");
+        transaction.setType(type);
+        transaction.setSymbol(symbol);
+        transaction.setQuantity(1);
+        transaction.setPrice(BigDecimal.TEN);
+        transaction.setExecutedAt(LocalDateTime.of(2024, 1, 2, 15, 0).plusMinutes(minute));
+        return transaction;
+    }
+
+    private static Portfolio portfolio(int i, long version) {
+        Portfolio portfolio = new Portfolio();
+        portfolio.setId(id(i));
+        portfolio.setUserId("user-" + (i % 10));
+        // The name carries the save's version so readers can tell saves apart
+        portfolio.setName(Long.toString(version));
+        return portfolio;
+    }
+
+    private static String id(int i) {
+        return "P" + i;
+    }
+}
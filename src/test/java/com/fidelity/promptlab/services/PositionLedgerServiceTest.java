@@ -0,0 +1,159 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.Position;
+import com.fidelity.promptlab.models.PositionSnapshot;
+import com.fidelity.promptlab.models.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PositionLedgerServiceTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 2, 15, 0);
+
+    @RegisterExtension
+    final PortfolioFixture fixture = new PortfolioFixture();
+
+    private PortfolioService portfolios;
+    private PositionLedgerService ledger;
+
+    @BeforeEach
+    void setUp() {
+        portfolios = fixture.portfolios();
+        ledger = new PositionLedgerService(portfolios, ForkJoinPool.commonPool(), 3);
+    }
+
+    @Test
+    void addingReaveragesCostIncludingFeesAndReducingLeavesIt() {
+        record("P1", 0, Transaction.TransactionType.BUY, "AAPL", 10, "100", "10");
+        record("P1", 1, Transaction.TransactionType.BUY, "AAPL", 10, "110", null);
+        assertThat(position("P1", 1)).isEqualTo(new Position("AAPL", 20, new BigDecimal("105.5000")));
+
+        record("P1", 2, Transaction.TransactionType.SELL, "AAPL", 5, "120", "1");
+
+        assertThat(position("P1", 2)).isEqualTo(new Position("AAPL", 15, new BigDecimal("105.5000")));
+    }
+
+    @Test
+    void crossingZeroStartsAgainAtTheTradePriceAndZeroClosesThePosition() {
+        record("P1", 0, Transaction.TransactionType.BUY, "AAPL", 10, "100", null);
+        record("P1", 1, Transaction.TransactionType.SELL, "AAPL", 15, "120", "3");
+        assertThat(position("P1", 1)).isEqualTo(new Position("AAPL", -5, new BigDecimal("120.2000")));
+
+        record("P1", 2, Transaction.TransactionType.BUY, "AAPL", 5, "90", null);
+
+        assertThat(ledger.positionsAsOf("P1", START.plusMinutes(2)).orElseThrow().positions()).isEmpty();
+    }
+
+    @Test
+    void transferWithoutAPriceCarriesTheAverageCost() {
+        record("P1", 0, Transaction.TransactionType.BUY, "AAPL", 10, "100", null);
+        record("P1", 1, Transaction.TransactionType.TRANSFER, "AAPL", 5, null, null);
+        record("P1", 2, Transaction.TransactionType.TRANSFER, "MSFT", 4, null, null);
+
+        assertThat(ledger.positionsAsOf("P1", START.plusMinutes(2)).orElseThrow().positions()).containsExactly(
+                new Position("AAPL", 15, new BigDecimal("100.0000")),
+                new Position("MSFT", 4, new BigDecimal("0.0000")));
+    }
+
+    @Test
+    void dividendsAndFailedOrCancelledTradesLeavePositionsAlone() {
+        record("P1", 0, Transaction.TransactionType.BUY, "AAPL", 10, "100", null);
+        record("P1", 1, Transaction.TransactionType.DIVIDEND, "AAPL", 10, "2", null);
+        record("P1", 2, Transaction.TransactionType.BUY, "AAPL", 10, "50", null)
+                .setStatus(Transaction.TransactionStatus.FAILED);
+        record("P1", 3, Transaction.TransactionType.SELL, "AAPL", 10, "150", null)
+                .setStatus(Transaction.TransactionStatus.CANCELLED);
+
+        assertThat(position("P1", 3)).isEqualTo(new Position("AAPL", 10, new BigDecimal("100.0000")));
+    }
+
+    @Test
+    void asOfQueriesAtAndBetweenCheckpointsMatchAFullReplay() {
+        for (int minute = 0; minute < 10; minute++) {
+            record("P1", minute, Transaction.TransactionType.BUY, "AAPL", 1, Integer.toString(100 + minute), null);
+        }
+        // The first replay leaves checkpoints after the 3rd, 6th and 9th transactions (minutes 2, 5, 8)
+        assertThat(ledger.positionsAsOf("P1", START.plusMinutes(9)).orElseThrow().replayedTransactions()).isEqualTo(10);
+
+        PositionSnapshot atCheckpoint = ledger.positionsAsOf("P1", START.plusMinutes(5)).orElseThrow();
+        PositionSnapshot betweenCheckpoints = ledger.positionsAsOf("P1", START.plusMinutes(7).plusSeconds(30)).orElseThrow();
+
+        assertThat(atCheckpoint.replayedTransactions()).isZero();
+        assertThat(betweenCheckpoints.replayedTransactions()).isEqualTo(2);
+        PositionLedgerService fullReplay = new PositionLedgerService(portfolios, ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+        assertThat(atCheckpoint.positions())
+                .isEqualTo(fullReplay.positionsAsOf("P1", START.plusMinutes(5)).orElseThrow().positions())
+                .containsExactly(new Position("AAPL", 6, new BigDecimal("102.5000")));
+        assertThat(betweenCheckpoints.positions())
+                .isEqualTo(fullReplay.positionsAsOf("P1", START.plusMinutes(7).plusSeconds(30)).orElseThrow().positions());
+    }
+
+    @Test
+    void aBackDatedTransactionInvalidatesTheCheckpointsItChanges() {
+        for (int minute = 0; minute < 10; minute++) {
+            record("P1", minute, Transaction.TransactionType.BUY, "AAPL", 1, "100", null);
+        }
+        ledger.positionsAsOf("P1", START.plusMinutes(9));
+
+        Transaction backDated = transaction("P1", 0, Transaction.TransactionType.BUY, "AAPL", 10, "200", null);
+        backDated.setExecutedAt(START.plusMinutes(4).plusSeconds(30));
+        portfolios.recordTransaction(backDated);
+
+        PositionSnapshot after = ledger.positionsAsOf("P1", START.plusMinutes(9)).orElseThrow();
+        assertThat(after.positions()).containsExactly(new Position("AAPL", 20, new BigDecimal("150.0000")));
+        // Replayed from the checkpoint at minute 2, the last one before the back-dated fill
+        assertThat(after.replayedTransactions()).isEqualTo(8);
+        assertThat(ledger.positionsAsOf("P1", START.plusMinutes(3)).orElseThrow().positions())
+                .containsExactly(new Position("AAPL", 4, new BigDecimal("100.0000")));
+    }
+
+    @Test
+    void rebuildAllReplaysEveryPortfolioAndLeavesCheckpoints() {
+        for (int minute = 0; minute < 7; minute++) {
+            record("P1", minute, Transaction.TransactionType.BUY, "AAPL", 1, "100", null);
+        }
+        for (int minute = 0; minute < 4; minute++) {
+            record("P2", minute, Transaction.TransactionType.SELL, "MSFT", 2, "50", null);
+        }
+
+        PositionLedgerService.RebuildReport report = ledger.rebuildAll();
+
+        assertThat(report.portfolios()).isEqualTo(2);
+        assertThat(report.transactions()).isEqualTo(11);
+        assertThat(report.checkpoints()).isEqualTo(2 + 1);
+        PositionSnapshot p2 = ledger.currentPositions("P2").orElseThrow();
+        assertThat(p2.positions()).containsExactly(new Position("MSFT", -8, new BigDecimal("50.0000")));
+        assertThat(p2.replayedTransactions()).isEqualTo(1);
+        assertThat(ledger.positionsAsOf("P3", START)).isEmpty();
+    }
+
+    private Position position(String portfolioId, int minute) {
+        PositionSnapshot snapshot = ledger.positionsAsOf(portfolioId, START.plusMinutes(minute)).orElseThrow();
+        assertThat(snapshot.positions()).hasSize(1);
+        return snapshot.positions().get(0);
+    }
+
+    private Transaction record(String portfolioId, int minute, Transaction.TransactionType type, String symbol,
+                               int quantity, String price, String fees) {
+        return portfolios.recordTransaction(transaction(portfolioId, minute, type, symbol, quantity, price, fees));
+    }
+
+    private static Transaction transaction(String portfolioId, int minute, Transaction.TransactionType type,
+                                           String symbol, int quantity, String price, String fees) {
+        Transaction transaction = new Transaction();
+        transaction.setPortfolioId(portfolioId);
+        transaction.setType(type);
+        transaction.setSymbol(symbol);
+        transaction.setQuantity(quantity);
+        transaction.setPrice(price == null ? null : new BigDecimal(price));
+        transaction.setFees(fees == null ? null : new BigDecimal(fees));
+        transaction.setExecutedAt(START.plusMinutes(minute));
+        return transaction;
+    }
+}
@@ -0,0 +1,106 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and memory bound of {@link TokenBucketLimiter} and
+ * {@link LoginRateLimiter} under a 1M distinct-key spray. Excluded from the
+ * default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class RateLimiterBenchmarkTest {
+    private static final int KEYS = 1_000_000;
+    private static final int THREADS = 8;
+    private static final int MAX_KEYS = 100_000;
+
+    @Test
+    void distinctKeySprayStaysBoundedAndFast() throws InterruptedException {
+        String[] keys = keys("10.");
+        // Warm-up on a throwaway limiter so the measured runs are compiled
+        TokenBucketLimiter warmup = new TokenBucketLimiter(5, 5, MAX_KEYS, 1 << 16);
+        run(1, i -> warmup.tryAcquire(keys[i]));
+
+        TokenBucketLimiter single = new TokenBucketLimiter(5, 5, MAX_KEYS, 1 << 16);
+        report("1M keys, 1 thread", run(1, i -> single.tryAcquire(keys[i])), single);
+        assertThat(single.trackedKeys()).isLessThanOrEqualTo(MAX_KEYS);
+
+        TokenBucketLimiter shared = new TokenBucketLimiter(5, 5, MAX_KEYS, 1 << 16);
+        report("1M keys, " + THREADS + " threads", run(THREADS, i -> shared.tryAcquire(keys[i])), shared);
+        // The size check and the insert are not one atomic step, so racing inserts may overshoot by a few
+        assertThat(shared.trackedKeys()).isLessThanOrEqualTo(MAX_KEYS + THREADS);
+    }
+
+    @Test
+    void sweepsReclaimRefilledBucketsAtFullRate() throws InterruptedException {
+        String[] keys = keys("172.");
+        AtomicLong clock = new AtomicLong();
+        TokenBucketLimiter limiter = new TokenBucketLimiter(5, 5, MAX_KEYS, 1 << 16, clock::get);
+
+        long nanos = run(1, i -> {
+            if (i % 50_000 == 0) {
+                clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+            }
+            limiter.tryAcquire(keys[i]);
+        });
+
+        report("1M keys with sweeps", nanos, limiter);
+        assertThat(limiter.trackedKeys()).isLessThanOrEqualTo(MAX_KEYS);
+    }
+
+    @Test
+    void loginLimiterAtDefaultSettings() throws InterruptedException {
+        String[] addresses = keys("192.");
+        LoginRateLimiter limiter = new LoginRateLimiter();
+
+        long nanos = run(THREADS, i -> limiter.check("user" + (i & 0xFFFF) + "@example.com", addresses[i]));
+
+        System.out.printf("%-28s %6.0f ns/check wall  accounts %,d  addresses %,d  rejected %,d%n",
+                "login, " + THREADS + " threads", (double) nanos / KEYS,
+                limiter.getTrackedAccounts(), limiter.getTrackedAddresses(),
+                limiter.getAccountRejections() + limiter.getAddressRejections());
+        assertThat(limiter.getTrackedAddresses()).isLessThanOrEqualTo(LoginRateLimiter.Settings.defaults().maxTrackedKeys() + THREADS);
+    }
+
+    private static String[] keys(String prefix) {
+        String[] keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = prefix + (i >>> 16) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+        }
+        return keys;
+    }
+
+    // Splits the key range across threads; returns wall-clock nanos
+    private static long run(int threads, IntConsumer check) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        int share = KEYS / threads;
+        for (int t = 0; t < threads; t++) {
+            int from = t * share;
+            int to = t == threads - 1 ? KEYS : from + share;
+            workers.add(new Thread(() -> {
+                for (int i = from; i < to; i++) {
+                    check.accept(i);
+                }
+            }));
+        }
+        long started = System.nanoTime();
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private static void report(String scenario, long nanos, TokenBucketLimiter limiter) {
+        System.out.printf("%-28s %6.0f ns/check wall  %,d tracked%n", scenario, (double) nanos / KEYS,
+                limiter.trackedKeys());
+    }
+}
@@ -0,0 +1,159 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.Portfolio;
+import com.fidelity.promptlab.models.Result;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RemotePortfolioClientTest {
+    private static final String PORTFOLIOS = "[{\"id\":\"P1\",\"userId\":\"U1\",\"name\":\"Core\"}]";
+
+    // One scripted reply per request; an empty script answers 200 with PORTFOLIOS
+    private record Reply(int status, long delayMillis) {}
+
+    private final Queue<Reply> script = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService serverThreads;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/api/users/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void retriesThrottlingAndServerErrorsUntilSuccess() {
+        script.add(new Reply(429, 0));
+        script.add(new Reply(503, 0));
+        RemotePortfolioClient client = client(3, Duration.ofSeconds(2), 20, Duration.ofSeconds(30));
+
+        Result<List<Portfolio>, ApiError> result = client.fetchUserPortfolios("U1").join();
+
+        assertThat(result.getData()).hasValueSatisfying(portfolios ->
+                assertThat(portfolios).extracting(Portfolio::getId).containsExactly("P1"));
+        assertThat(hits).hasValue(3);
+        assertThat(client.getInFlightRequests()).isZero();
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() {
+        script.add(new Reply(404, 0));
+        RemotePortfolioClient client = client(3, Duration.ofSeconds(2), 20, Duration.ofSeconds(30));
+
+        Result<List<Portfolio>, ApiError> result = client.fetchUserPortfolios("missing").join();
+
+        assertThat(result.getError()).hasValueSatisfying(e -> assertThat(e.getCode()).isEqualTo("NOT_FOUND"));
+        assertThat(hits).hasValue(1);
+    }
+
+    @Test
+    void slowResponsesTimeOutAndAreRetried() {
+        script.add(new Reply(200, 1_000));
+        script.add(new Reply(200, 1_000));
+        RemotePortfolioClient client = client(2, Duration.ofMillis(200), 20, Duration.ofSeconds(30));
+
+        long started = System.nanoTime();
+        Result<List<Portfolio>, ApiError> result = client.fetchUserPortfolios("U1").join();
+
+        assertThat(result.getError()).hasValueSatisfying(e -> {
+            assertThat(e.getCode()).isEqualTo("REMOTE_TIMEOUT");
+            assertThat(e.getDetails()).containsEntry("attempts", 2);
+        });
+        assertThat(hits).hasValue(2);
+        // Two timed-out attempts, not two full server delays
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(1_500);
+    }
+
+    @Test
+    void breakerOpensFailsFastAndClosesAfterASuccessfulHalfOpenTrial() throws InterruptedException {
+        script.add(new Reply(500, 0));
+        script.add(new Reply(500, 0));
+        script.add(new Reply(500, 0));
+        RemotePortfolioClient client = client(1, Duration.ofSeconds(2), 2, Duration.ofMillis(300));
+
+        client.fetchUserPortfolios("U1").join();
+        client.fetchUserPortfolios("U1").join();
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        Result<List<Portfolio>, ApiError> rejected = client.fetchUserPortfolios("U1").join();
+        assertThat(rejected.getError()).hasValueSatisfying(e -> assertThat(e.getCode()).isEqualTo("CIRCUIT_OPEN"));
+        assertThat(hits).as("an open breaker does not reach the server").hasValue(2);
+
+        // A failed trial re-opens the breaker for another full interval
+        TimeUnit.MILLISECONDS.sleep(350);
+        client.fetchUserPortfolios("U1").join();
+        assertThat(hits).hasValue(3);
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(client.fetchUserPortfolios("U1").join().getError())
+                .hasValueSatisfying(e -> assertThat(e.getCode()).isEqualTo("CIRCUIT_OPEN"));
+
+        TimeUnit.MILLISECONDS.sleep(350);
+        Result<List<Portfolio>, ApiError> trial = client.fetchUserPortfolios("U1").join();
+
+        assertThat(trial.isFailure()).isFalse();
+        assertThat(hits).hasValue(4);
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private RemotePortfolioClient client(int maxAttempts, Duration requestTimeout, int failureThreshold,
+                                         Duration openDuration) {
+        URI base = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/api");
+        return new RemotePortfolioClient(new RemotePortfolioClient.Settings(base, Duration.ofSeconds(1),
+                requestTimeout, maxAttempts, Duration.ofMillis(5), Duration.ofMillis(20), 16,
+                failureThreshold, openDuration));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        hits.incrementAndGet();
+        Reply reply = script.poll();
+        try (exchange) {
+            if (reply != null && reply.delayMillis() > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(reply.delayMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            int status = reply == null ? 200 : reply.status();
+            byte[] body = (status == 200 ? PORTFOLIOS : "{}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException e) {
+                // The client gave up on a delayed reply
+            }
+        }
+    }
+}
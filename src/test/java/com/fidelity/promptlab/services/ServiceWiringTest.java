@@ -0,0 +1,60 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServiceWiringTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void servicesWithSeveralConstructorsWireThroughTheAnnotatedOne() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(AuditLog.class,
+                    () -> new AuditLog(AuditLog.Settings.defaults(dir.resolve("audit.ndjson"))));
+            context.register(PortfolioEventBus.class, FxRateService.class, TransactionRollupService.class,
+                    AdmissionController.class, PortfolioService.class, PositionLedgerService.class,
+                    TokenService.class, CredentialService.class, LoginRateLimiter.class, UserService.class);
+            context.refresh();
+
+            assertThat(context.getBean(PositionLedgerService.class)).isNotNull();
+            assertThat(context.getBean(UserService.class).store()).isNotNull();
+        }
+    }
+
+    @Test
+    void closingTheContextStopsTheUserStoreCompactor() throws InterruptedException {
+        Set<Thread> before = compactorThreads();
+        Set<Thread> started;
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(AuditLog.class,
+                    () -> new AuditLog(AuditLog.Settings.defaults(dir.resolve("audit.ndjson"))));
+            context.register(PortfolioEventBus.class, FxRateService.class, TransactionRollupService.class,
+                    AdmissionController.class, PortfolioService.class, TokenService.class,
+                    CredentialService.class, LoginRateLimiter.class, UserService.class);
+            context.refresh();
+
+            started = compactorThreads();
+            started.removeAll(before);
+            assertThat(started).hasSize(1);
+        }
+
+        Thread compactor = started.iterator().next();
+        compactor.join(5_000);
+        assertThat(compactor.isAlive()).isFalse();
+    }
+
+    private static Set<Thread> compactorThreads() {
+        Set<Thread> threads = new HashSet<>(Thread.getAllStackTraces().keySet());
+        threads.removeIf(thread -> !thread.getName().equals("user-store-compactor") || !thread.isAlive());
+        return threads;
+    }
+}
@@ -0,0 +1,131 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredCacheTest {
+
+    @Test
+    void invalidateMakesNextReadReload() {
+        Map<String, Long> store = new ConcurrentHashMap<>(Map.of("a", 1L));
+        TieredCache<Long> cache = new TieredCache<>(TieredCache.Settings.defaults());
+
+        assertThat(cache.get("a", store::get)).isEqualTo(1L);
+        store.put("a", 2L);
+        cache.invalidate("a");
+
+        assertThat(cache.get("a", store::get)).isEqualTo(2L);
+        assertThat(cache.metrics().staleReads()).isEqualTo(1);
+    }
+
+    @Test
+    void nullLoadsAreNotCached() {
+        TieredCache<Long> cache = new TieredCache<>(TieredCache.Settings.defaults());
+
+        assertThat(cache.get("missing", key -> null)).isNull();
+        assertThat(cache.get("missing", key -> 5L)).isEqualTo(5L);
+    }
+
+    @Test
+    void frequentKeysSurviveAScan() {
+        TieredCache<Long> cache = new TieredCache<>(new TieredCache.Settings(500, 1));
+        long hotReads = 0;
+        long hotLoads = 0;
+        long scan = 0;
+        for (int i = 0; i < 300_000; i++) {
+            if (i % 3 == 0) {
+                cache.get("scan-" + scan++, key -> 1L);
+            } else {
+                hotReads++;
+                boolean[] loaded = {false};
+                cache.get("hot-" + (i % 300), key -> {
+                    loaded[0] = true;
+                    return 1L;
+                });
+                if (loaded[0]) {
+                    hotLoads++;
+                }
+            }
+        }
+        assertThat((double) hotLoads / hotReads).isLessThan(0.01);
+    }
+
+    @Test
+    void neverServesAValueOlderThanTheLastCompletedWrite() throws InterruptedException {
+        int keys = 2_000;
+        Map<String, Long> store = new ConcurrentHashMap<>();
+        AtomicLongArray completed = new AtomicLongArray(keys);
+        for (int i = 0; i < keys; i++) {
+            store.put("k" + i, 0L);
+        }
+        // Small shared tier and near cache, so evictions and slot collisions happen too
+        TieredCache<Long> cache = new TieredCache<>(new TieredCache.Settings(500, 64));
+        // Yields between reading the store and returning, like a slow repository call,
+        // so writes land inside loads often enough to expose a version stamp taken too late
+        Function<String, Long> slowLoad = key -> {
+            Long value = store.get(key);
+            Thread.yield();
+            return value;
+        };
+        AtomicLong reads = new AtomicLong();
+        AtomicReference<String> staleRead = new AtomicReference<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < 3; w++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int k = skewedKey(random, keys, 100);
+                    // Writes to one key are serialised, as a store would; the write completes at invalidate
+                    synchronized (store) {
+                        long next = store.get("k" + k) + 1;
+                        store.put("k" + k, next);
+                        cache.invalidate("k" + k);
+                        completed.set(k, next);
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < 5; r++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int k = skewedKey(random, keys, 150);
+                    long before = completed.get(k);
+                    long seen = cache.get("k" + k, slowLoad);
+                    reads.incrementAndGet();
+                    if (seen < before) {
+                        staleRead.compareAndSet(null, "k" + k + " read " + seen + " after write " + before);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(staleRead.get()).isNull();
+        assertThat(reads.get()).isPositive();
+        TieredCache.Metrics metrics = cache.metrics();
+        assertThat(metrics.nearHits() + metrics.sharedHits()).isPositive();
+        assertThat(metrics.staleReads()).isPositive();
+    }
+
+    private static int skewedKey(ThreadLocalRandom random, int keys, double spread) {
+        return (int) Math.min(keys - 1, Math.abs(random.nextGaussian()) * spread);
+    }
+}
@@ -0,0 +1,44 @@
+package com.fidelity.promptlab.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketLimiterTest {
+
+    @Test
+    void burstIsSpentThenRefilledOverTime() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 60, 1_000, 16, clock::get);
+
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isFalse();
+        assertThat(limiter.tryAcquire("b")).isTrue();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isFalse();
+    }
+
+    @Test
+    void sprayedKeysStayWithinTheTableBound() {
+        AtomicLong clock = new AtomicLong();
+        int maxKeys = 10_000;
+        TokenBucketLimiter limiter = new TokenBucketLimiter(5, 5, maxKeys, 1 << 10, clock::get);
+
+        for (int i = 0; i < 200_000; i++) {
+            limiter.tryAcquire("key-" + i);
+            if (i % 5_000 == 0) {
+                // Long enough for earlier buckets to refill, so sweeps can reclaim them
+                clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+            }
+        }
+
+        assertThat(limiter.trackedKeys()).isLessThanOrEqualTo(maxKeys);
+    }
+}
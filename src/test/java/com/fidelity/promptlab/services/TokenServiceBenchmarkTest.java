@@ -0,0 +1,94 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Per-thread {@link TokenService#verify} throughput on the session-cache hit
+ * path and on the HMAC path. Excluded from the default build; run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class TokenServiceBenchmarkTest {
+    private static final int TOKENS = 200_000;
+    private static final int CACHED_VERIFICATIONS = 2_000_000;
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    @Test
+    void verifyThroughputPerThread() throws InterruptedException {
+        for (int threads : new int[] {1, THREADS}) {
+            // HMAC path: every token is verified for the first time, so none is in the cache yet
+            TokenService fresh = service();
+            String[] tokens = issue(fresh, TOKENS);
+            long hmacNanos = run(threads, TOKENS, i -> fresh.verify(tokens[i]).isSuccess());
+            report("HMAC", threads, TOKENS, hmacNanos);
+            assertThat(fresh.getCacheMisses()).isEqualTo(TOKENS);
+
+            // Cache hit path: a small working set of sessions verified over and over
+            TokenService warm = service();
+            String[] sessions = issue(warm, 1_024);
+            for (String session : sessions) {
+                warm.verify(session);
+            }
+            long hitNanos = run(threads, CACHED_VERIFICATIONS,
+                    i -> warm.verify(sessions[i & (sessions.length - 1)]).isSuccess());
+            report("cache hit", threads, CACHED_VERIFICATIONS, hitNanos);
+            assertThat(warm.getCacheHits()).isEqualTo(CACHED_VERIFICATIONS);
+        }
+    }
+
+    private static TokenService service() {
+        return new TokenService(new byte[32], TokenService.DEFAULT_TTL, TOKENS, Clock.systemUTC());
+    }
+
+    private static String[] issue(TokenService service, int count) {
+        String[] tokens = new String[count];
+        User user = new User();
+        for (int i = 0; i < count; i++) {
+            user.setId("U" + i);
+            tokens[i] = service.issue(user);
+        }
+        return tokens;
+    }
+
+    // Splits [0, operations) across threads; returns wall-clock nanos
+    private static long run(int threads, int operations, IntPredicate verify) throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        int share = operations / threads;
+        for (int t = 0; t < threads; t++) {
+            int from = t * share;
+            int to = t == threads - 1 ? operations : from + share;
+            workers.add(new Thread(() -> {
+                for (int i = from; i < to; i++) {
+                    if (!verify.test(i)) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        long started = System.nanoTime();
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - started;
+        assertThat(failures).hasValue(0);
+        return elapsed;
+    }
+
+    private static void report(String path, int threads, int operations, long nanos) {
+        // Per-thread cost: wall time times threads, over the operations each thread shared
+        System.out.printf("verify %-10s %2d threads  %7.0f ns/verify per thread  %,12.0f verifies/s total%n",
+                path, threads, (double) nanos * threads / operations, operations / (nanos / 1e9));
+    }
+}
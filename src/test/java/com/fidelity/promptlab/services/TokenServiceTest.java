@@ -0,0 +1,35 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenServiceTest {
+
+    @Test
+    void revokeAllCoversEarlierTokensButNotOnesIssuedLaterInTheSameSecond() {
+        // A frozen clock: every token below is issued in the same second
+        TokenService tokens = new TokenService(new byte[32], TokenService.DEFAULT_TTL, 100,
+                Clock.fixed(Instant.parse("2024-01-02T15:00:00.500Z"), ZoneOffset.UTC));
+        User user = new User();
+        user.setId("U1");
+        String before = tokens.issue(user);
+        assertThat(tokens.verify(before).isSuccess()).isTrue();
+
+        tokens.revokeAllForUser("U1");
+        String after = tokens.issue(user);
+
+        assertThat(tokens.verify(before).getError())
+                .hasValueSatisfying(e -> assertThat(e.getCode()).isEqualTo("TOKEN_REVOKED"));
+        assertThat(tokens.verify(after).isSuccess()).isTrue();
+        assertThat(tokens.verify(after).isSuccess()).as("from the session cache").isTrue();
+
+        tokens.revokeAllForUser("U1");
+        assertThat(tokens.verify(after).isFailure()).isTrue();
+    }
+}
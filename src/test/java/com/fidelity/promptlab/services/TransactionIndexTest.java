@@ -0,0 +1,64 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionIndexTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 1, 2, 0, 0);
+
+    private final TransactionIndex index = new TransactionIndex();
+
+    @BeforeEach
+    void setUp() {
+        for (int hour = 0; hour < 10; hour++) {
+            Transaction transaction = new Transaction();
+            transaction.setId("t" + hour);
+            transaction.setExecutedAt(DAY.plusHours(hour));
+            transaction.setType(Transaction.TransactionType.BUY);
+            transaction.setSymbol("AAPL");
+            index.add(transaction);
+        }
+    }
+
+    @Test
+    void cursorInsideTheRangeResumesAfterIt() {
+        TransactionIndex.Key cursor = new TransactionIndex.Key(DAY.plusHours(4), "t4");
+
+        assertThat(index.range(null, null, DAY.plusHours(2), DAY.plusHours(6), cursor, false).keySet())
+                .extracting(TransactionIndex.Key::id).containsExactly("t5", "t6");
+        assertThat(index.range(null, null, DAY.plusHours(2), DAY.plusHours(6), cursor, true).keySet())
+                .extracting(TransactionIndex.Key::id).containsExactly("t3", "t2");
+    }
+
+    @Test
+    void cursorPastTheRangeGivesAnEmptyPage() {
+        TransactionIndex.Key late = new TransactionIndex.Key(DAY.plusHours(8), "t8");
+        TransactionIndex.Key early = new TransactionIndex.Key(DAY.plusHours(1), "t1");
+
+        assertThat(index.range(null, null, DAY.plusHours(2), DAY.plusHours(6), late, false)).isEmpty();
+        assertThat(index.range(Transaction.TransactionType.BUY, "AAPL", DAY.plusHours(2), DAY.plusHours(6),
+                early, true)).isEmpty();
+    }
+
+    @Test
+    void cursorBeforeTheRangeLeavesItWhole() {
+        TransactionIndex.Key early = new TransactionIndex.Key(DAY.plusHours(1), "t1");
+        TransactionIndex.Key late = new TransactionIndex.Key(DAY.plusHours(8), "t8");
+
+        assertThat(index.range(null, null, DAY.plusHours(2), DAY.plusHours(4), early, false).keySet())
+                .extracting(TransactionIndex.Key::id).containsExactly("t2", "t3", "t4");
+        assertThat(index.range(null, null, DAY.plusHours(2), DAY.plusHours(4), late, true).keySet())
+                .extracting(TransactionIndex.Key::id).containsExactly("t4", "t3", "t2");
+    }
+
+    @Test
+    void invertedDateRangeIsEmpty() {
+        assertThat(index.range(null, null, DAY.plusHours(6), DAY.plusHours(2), null, false)).isEmpty();
+    }
+}
@@ -0,0 +1,112 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.OhlcvBar;
+import com.fidelity.promptlab.models.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionRollupServiceTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 1, 2, 0, 0);
+    private static final LocalDateTime TO = FROM.plusDays(1);
+
+    @RegisterExtension
+    final PortfolioFixture fixture = new PortfolioFixture();
+
+    private TransactionRollupService rollups;
+
+    @BeforeEach
+    void setUp() {
+        rollups = fixture.rollups();
+    }
+
+    @Test
+    void onlySettledFillsAreRolledUp() {
+        Transaction pending = fill(10, "100");
+        Transaction cancelled = fill(20, "90");
+        cancelled.setStatus(Transaction.TransactionStatus.CANCELLED);
+        Transaction completed = fill(5, "101");
+        completed.setStatus(Transaction.TransactionStatus.COMPLETED);
+
+        rollups.record(pending);
+        rollups.record(cancelled);
+        rollups.record(completed);
+
+        OhlcvBar bar = rollups.aggregate("P1", "AAPL", FROM, TO).orElseThrow();
+        assertThat(bar.count()).isEqualTo(1);
+        assertThat(bar.volume()).isEqualTo(5);
+    }
+
+    @Test
+    void pendingFillsAreRolledUpWhenTheyCompleteAndNeverIfTheyFail() throws InterruptedException {
+        PortfolioService portfolios = fixture.portfolios();
+        TransactionService transactions = new TransactionService(fixture.eventBus(), new SymbolDirectory(),
+                new MarketCalendarService(), new AdmissionController());
+        Transaction failed = portfolios.recordTransaction(fill(20, "90"));
+        failed.setStatus(Transaction.TransactionStatus.FAILED);
+        Transaction settled = portfolios.recordTransaction(fill(10, "100"));
+        assertThat(rollups.aggregate("P1", "AAPL", FROM, TO)).isEmpty();
+
+        transactions.processTransaction(settled);
+
+        OhlcvBar bar = awaitBar();
+        assertThat(bar.count()).isEqualTo(1);
+        assertThat(bar.volume()).isEqualTo(10);
+        assertThat(bar.low()).isEqualByComparingTo("100");
+    }
+
+    @Test
+    void eachFillIsRolledUpOnceWhetherRecordedSettledOrSettledTwice() throws InterruptedException {
+        PortfolioService portfolios = fixture.portfolios();
+        TransactionService transactions = new TransactionService(fixture.eventBus(), new SymbolDirectory(),
+                new MarketCalendarService(), new AdmissionController());
+        Transaction recordedSettled = fill(5, "101");
+        recordedSettled.setStatus(Transaction.TransactionStatus.COMPLETED);
+        portfolios.recordTransaction(recordedSettled);
+        transactions.processTransaction(recordedSettled);
+        Transaction settledTwice = portfolios.recordTransaction(fill(10, "100"));
+        transactions.processTransaction(settledTwice);
+        transactions.processTransaction(settledTwice);
+        // Events for one portfolio arrive in order: once this later, cheaper fill is in, so is any duplicate
+        Transaction marker = fill(1, "99");
+        marker.setStatus(Transaction.TransactionStatus.COMPLETED);
+        portfolios.recordTransaction(marker);
+
+        OhlcvBar bar = awaitBar(b -> b.low().compareTo(new BigDecimal("99")) == 0);
+        assertThat(bar.count()).isEqualTo(3);
+        assertThat(bar.volume()).isEqualTo(16);
+    }
+
+    private OhlcvBar awaitBar() throws InterruptedException {
+        return awaitBar(b -> true);
+    }
+
+    private OhlcvBar awaitBar(Predicate<OhlcvBar> ready) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Optional<OhlcvBar> bar = rollups.aggregate("P1", "AAPL", FROM, TO);
+        while (bar.filter(ready).isEmpty() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+            bar = rollups.aggregate("P1", "AAPL", FROM, TO);
+        }
+        return bar.orElseThrow();
+    }
+
+    private static Transaction fill(int quantity, String price) {
+        Transaction transaction = new Transaction();
+        transaction.setPortfolioId("P1");
+        transaction.setType(Transaction.TransactionType.BUY);
+        transaction.setSymbol("AAPL");
+        transaction.setQuantity(quantity);
+        transaction.setPrice(new BigDecimal(price));
+        transaction.setExecutedAt(FROM.plusHours(15));
+        return transaction;
+    }
+}
@@ -0,0 +1,91 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.Page;
+import com.fidelity.promptlab.models.Result;
+import com.fidelity.promptlab.models.Transaction;
+import com.fidelity.promptlab.models.TransactionScanQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionScanExecutorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 2, 10, 0);
+
+    @RegisterExtension
+    final PortfolioFixture fixture = new PortfolioFixture();
+
+    private PortfolioService portfolios;
+
+    @BeforeEach
+    void setUp() {
+        portfolios = fixture.portfolios();
+        // 40 portfolios with 25 transactions each, interleaved in time
+        for (int p = 0; p < 40; p++) {
+            for (int t = 0; t < 25; t++) {
+                Transaction transaction = new Transaction();
+                transaction.setPortfolioId("P" + p);
+                transaction.setType(t % 2 == 0 ? Transaction.TransactionType.BUY : Transaction.TransactionType.SELL);
+                transaction.setSymbol("AAPL");
+                transaction.setQuantity(1);
+                transaction.setExecutedAt(START.plusMinutes(t * 40L + p));
+                portfolios.recordTransaction(transaction);
+            }
+        }
+    }
+
+    @Test
+    void scanPastTheLimitReturnsACursorThatResumesWithoutGapsOrRepeats() {
+        TransactionScanExecutor executor = new TransactionScanExecutor(portfolios, ForkJoinPool.commonPool(), 4,
+                TransactionScanExecutor.DEFAULT_MAX_BUFFERED_ROWS);
+        for (boolean newestFirst : new boolean[]{false, true}) {
+            TransactionScanQuery query = TransactionScanQuery.allPortfolios().limit(150);
+            query = newestFirst ? query.newestFirst() : query;
+            List<Transaction> all = new ArrayList<>();
+            int pages = 0;
+            String cursor = null;
+            do {
+                Page<Transaction> page = executor.execute(query.after(cursor)).getData().orElseThrow();
+                assertThat(page.items()).hasSizeLessThanOrEqualTo(150);
+                all.addAll(page.items());
+                cursor = page.nextCursor();
+                pages++;
+            } while (cursor != null);
+
+            Comparator<Transaction> order = Comparator.comparing(TransactionIndex.Key::of);
+            assertThat(all).hasSize(1_000).doesNotHaveDuplicates()
+                    .isSortedAccordingTo(newestFirst ? order.reversed() : order);
+            assertThat(pages).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void scanThatFitsTheLimitHasNoCursor() {
+        TransactionScanExecutor executor = new TransactionScanExecutor(portfolios);
+
+        Page<Transaction> page = executor.execute(TransactionScanQuery.allPortfolios()
+                .withType(Transaction.TransactionType.BUY).limit(520)).getData().orElseThrow();
+
+        assertThat(page.items()).hasSize(520);
+        assertThat(page.hasMore()).isFalse();
+    }
+
+    @Test
+    void rowBudgetIsStillEnforced() {
+        TransactionScanExecutor executor = new TransactionScanExecutor(portfolios, ForkJoinPool.commonPool(), 4, 100);
+
+        Result<Page<Transaction>, ApiError> result = executor.execute(TransactionScanQuery.allPortfolios());
+
+        assertThat(result.isFailure()).isTrue();
+        assertThat(result.getError()).hasValueSatisfying(e -> assertThat(e.getCode()).isEqualTo("QUERY_BUDGET_EXCEEDED"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionServiceTest {
+
+    private TimeZone originalZone;
+    private PortfolioEventBus eventBus;
+
+    @BeforeEach
+    void setUp() {
+        originalZone = TimeZone.getDefault();
+        eventBus = new PortfolioEventBus();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TimeZone.setDefault(originalZone);
+        eventBus.close();
+    }
+
+    @Test
+    void marketHoursAreCheckedAgainstTheWallClockTransactionsAreStampedIn() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        TransactionService service = service();
+
+        // 10:00 New York is in session; read as UTC it would be 05:00 New York
+        assertThat(service.validateTransaction(trade(LocalDateTime.of(2024, 1, 2, 10, 0))))
+                .doesNotContain("Market is closed");
+        // 17:00 New York is after the close; read as UTC it would be noon New York
+        assertThat(service.validateTransaction(trade(LocalDateTime.of(2024, 1, 2, 17, 0))))
+                .contains("Market is closed");
+    }
+
+    @Test
+    void suspiciousActivityUsesTheSameZone() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+        TransactionService service = service();
+
+        // 23:30 Tokyo is 09:30 New York, the open
+        assertThat(service.detectSuspiciousActivity(List.of(trade(LocalDateTime.of(2024, 1, 2, 23, 30)))))
+                .isFalse();
+        assertThat(service.detectSuspiciousActivity(List.of(trade(LocalDateTime.of(2024, 1, 2, 12, 0)))))
+                .isTrue();
+    }
+
+    private TransactionService service() {
+        return new TransactionService(eventBus, new SymbolDirectory(), new MarketCalendarService(),
+                new AdmissionController());
+    }
+
+    private static Transaction trade(LocalDateTime executedAt) {
+        Transaction transaction = new Transaction();
+        transaction.setType(Transaction.TransactionType.BUY);
+        transaction.setSymbol("AAPL");
+        transaction.setQuantity(10);
+        transaction.setExecutedAt(executedAt);
+        return transaction;
+    }
+}
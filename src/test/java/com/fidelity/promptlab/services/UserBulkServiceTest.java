@@ -0,0 +1,167 @@
+package com.fidelity.promptlab.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fidelity.promptlab.models.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserBulkServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @RegisterExtension
+    final PortfolioFixture fixture = new PortfolioFixture();
+
+    private UserService userService;
+    private UserBulkService bulk;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService(new TokenService(), new CredentialService(), new LoginRateLimiter(),
+                fixture.portfolios(), fixture.auditLog());
+        bulk = new UserBulkService(userService, fixture.auditLog(), new AdmissionController());
+    }
+
+    @AfterEach
+    void tearDown() {
+        userService.close();
+    }
+
+    @Test
+    void importedIdsAreIndependentRandomUuids() throws IOException {
+        StringBuilder csv = new StringBuilder("email,firstName\n");
+        for (int i = 0; i < 12_000; i++) {
+            csv.append("user").append(i).append("@example.com,User").append(i).append('\n');
+        }
+        Path file = Files.writeString(dir.resolve("users.csv"), csv);
+
+        assertThat(bulk.importUsers(file, UserBulkService.Format.CSV).getData())
+                .hasValueSatisfying(report -> assertThat(report.imported()).isEqualTo(12_000));
+
+        List<UUID> ids = new ArrayList<>();
+        userService.store().forEachLive(user -> ids.add(UUID.fromString(user.getId())));
+        Set<Long> highBits = new HashSet<>();
+        for (UUID id : ids) {
+            assertThat(id.version()).isEqualTo(4);
+            assertThat(id.variant()).isEqualTo(2);
+            highBits.add(id.getMostSignificantBits());
+        }
+        // A shared prefix with a counter below it would collapse these to a handful of values
+        assertThat(highBits).hasSize(ids.size());
+    }
+
+    @Test
+    void rowsCannotGrantARoleAboveTheCallers() throws IOException {
+        Path file = Files.writeString(dir.resolve("roles.ndjson"), """
+                {"email":"admin@example.com","role":"ADMIN"}
+                {"email":"advisor@example.com","role":"advisor"}
+                {"email":"customer@example.com"}
+                """);
+
+        UserBulkService.ImportReport asAdvisor = bulk.importUsers(file, UserBulkService.Format.NDJSON, UserRole.ADVISOR)
+                .getData().orElseThrow();
+        assertThat(asAdvisor.imported()).isEqualTo(2);
+        assertThat(asAdvisor.errors()).containsExactly(
+                new UserBulkService.RowError(1, "Not permitted to grant role: ADMIN"));
+        assertThat(userService.store().findByEmail("advisor@example.com"))
+                .hasValueSatisfying(u -> assertThat(u.getRole()).isEqualTo(UserRole.ADVISOR));
+        assertThat(userService.store().findByEmail("customer@example.com"))
+                .hasValueSatisfying(u -> assertThat(u.getRole()).isEqualTo(UserRole.CUSTOMER));
+
+        Path more = Files.writeString(dir.resolve("more.ndjson"), """
+                {"email":"second-advisor@example.com","role":"ADVISOR"}
+                {"email":"second-customer@example.com","role":"CUSTOMER"}
+                """);
+        UserBulkService.ImportReport withoutCaller = bulk.importUsers(more, UserBulkService.Format.NDJSON)
+                .getData().orElseThrow();
+        assertThat(withoutCaller.imported()).isEqualTo(1);
+        assertThat(withoutCaller.errors()).extracting(UserBulkService.RowError::message)
+                .containsExactly("Not permitted to grant role: ADVISOR");
+    }
+
+    @Test
+    void everyImportedUserHasACreateAuditRecord() throws IOException {
+        userService.createUser(Map.of("email", "taken@example.com"));
+        Path file = Files.writeString(dir.resolve("users.csv"), """
+                email,firstName
+                one@example.com,One
+                taken@example.com,Taken
+                two@example.com,Two
+                """);
+
+        bulk.importUsers(file, UserBulkService.Format.CSV);
+        assertThat(fixture.auditLog().flush(Duration.ofSeconds(5))).isTrue();
+
+        Set<String> created = new HashSet<>();
+        List<String> summaries = new ArrayList<>();
+        ObjectMapper json = new ObjectMapper();
+        for (String line : Files.readAllLines(fixture.auditFile())) {
+            JsonNode record = json.readTree(line);
+            switch (record.get("action").asText()) {
+                case "CREATE" -> created.add(record.get("entityId").asText());
+                case "BULK_IMPORT" -> summaries.add(record.get("entityId").asText());
+                default -> { }
+            }
+        }
+        Set<String> ids = new HashSet<>();
+        userService.store().forEachLive(user -> ids.add(user.getId()));
+        assertThat(created).isEqualTo(ids).hasSize(3);
+        assertThat(summaries).containsExactly("users.csv");
+    }
+
+    @Test
+    void csvExportQuotesLineBreaks() throws IOException {
+        userService.createUser(Map.of("email", "multi@example.com", "firstName", "Ann\nMarie", "lastName", "O\rNeil"));
+        Path file = dir.resolve("users.csv");
+
+        bulk.exportUsers(file, UserBulkService.Format.CSV);
+
+        String body = Files.readString(file);
+        assertThat(body).contains(",\"Ann\nMarie\",\"O\rNeil\",");
+    }
+
+    @Test
+    void csvAndNdjsonExportsCarryTheSameFields() throws IOException {
+        Path input = Files.writeString(dir.resolve("input.ndjson"),
+                "{\"email\":\"same@example.com\",\"firstName\":\"Sam\",\"role\":\"ADVISOR\"}\n");
+        bulk.importUsers(input, UserBulkService.Format.NDJSON, UserRole.ADVISOR);
+        Path csvFile = dir.resolve("users.csv");
+        Path jsonFile = dir.resolve("users.ndjson");
+
+        bulk.exportUsers(csvFile, UserBulkService.Format.CSV);
+        bulk.exportUsers(jsonFile, UserBulkService.Format.NDJSON);
+
+        List<String> csv = Files.readAllLines(csvFile);
+        List<String> header = UserBulkService.splitCsv(csv.get(0));
+        List<String> row = UserBulkService.splitCsv(csv.get(1));
+        JsonNode json = new ObjectMapper().readTree(Files.readAllLines(jsonFile).get(0));
+        List<String> jsonFields = new ArrayList<>();
+        json.fieldNames().forEachRemaining(jsonFields::add);
+
+        assertThat(jsonFields).containsExactlyElementsOf(header);
+        for (int i = 0; i < header.size(); i++) {
+            JsonNode value = json.get(header.get(i));
+            assertThat(value.isNull() ? "" : value.asText()).as(header.get(i)).isEqualTo(row.get(i));
+        }
+        assertThat(json.get("id").asText()).isNotEmpty();
+        assertThat(json.get("createdAt").asText()).isNotEmpty();
+    }
+}
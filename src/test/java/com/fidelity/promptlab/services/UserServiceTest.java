@@ -0,0 +1,79 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.LoginRequest;
+import com.fidelity.promptlab.models.LoginResponse;
+import com.fidelity.promptlab.models.Result;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserServiceTest {
+
+    @RegisterExtension
+    final PortfolioFixture fixture = new PortfolioFixture();
+
+    private CredentialService credentials;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        credentials = mock(CredentialService.class);
+        userService = new UserService(new TokenService(), credentials, new LoginRateLimiter(),
+                fixture.portfolios(), fixture.auditLog());
+    }
+
+    @AfterEach
+    void tearDown() {
+        userService.close();
+    }
+
+    @Test
+    void createUserFailsWithoutCreatingAnAccountWhenHashingIsOverloaded() {
+        when(credentials.hash(anyString())).thenReturn(CompletableFuture.completedFuture(
+                Result.failure(new ApiError("AUTH_OVERLOADED", "Too many concurrent sign-in attempts"))));
+
+        assertThatThrownBy(() -> userService.createUser(
+                Map.of("email", "busy@example.com", "firstName", "Bo", "password", "s3cret-pass")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("AUTH_OVERLOADED");
+
+        assertThat(userService.findByEmail("busy@example.com")).isNull();
+    }
+
+    @Test
+    void authenticateIssuesNoTokenForAWrongPassword() {
+        when(credentials.hash(anyString())).thenReturn(CompletableFuture.completedFuture(Result.success("hashed")));
+        when(credentials.verify(anyString(), any())).thenAnswer(call -> CompletableFuture.completedFuture(
+                Result.success(new CredentialService.CredentialCheck("right-pass".equals(call.getArgument(0)), null))));
+        userService.createUser(Map.of("email", "login@example.com", "firstName", "Lo", "password", "right-pass"));
+
+        LoginResponse wrong = userService.authenticate(new LoginRequest("login@example.com", "wrong-pass"));
+        LoginResponse right = userService.authenticate(new LoginRequest("login@example.com", "right-pass"));
+
+        assertThat(wrong.isSuccess()).isFalse();
+        assertThat(wrong.getToken()).isEmpty();
+        assertThat(right.isSuccess()).isTrue();
+        assertThat(right.getToken()).isPresent();
+    }
+
+    @Test
+    void createUserStoresTheHash() {
+        when(credentials.hash(anyString())).thenReturn(CompletableFuture.completedFuture(Result.success("hashed")));
+
+        userService.createUser(Map.of("email", "ok@example.com", "firstName", "Ok", "password", "s3cret-pass"));
+
+        assertThat(userService.findByEmail("ok@example.com").getPasswordHash()).isEqualTo("hashed");
+    }
+}
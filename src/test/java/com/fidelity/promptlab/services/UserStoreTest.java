@@ -0,0 +1,117 @@
+package com.fidelity.promptlab.services;
+
+import com.fidelity.promptlab.models.ApiError;
+import com.fidelity.promptlab.models.PreferenceSnapshot;
+import com.fidelity.promptlab.models.User;
+import com.fidelity.promptlab.models.UserPreferences;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserStoreTest {
+    private static final List<String> CURRENCIES = List.of("USD", "EUR", "GBP");
+
+    private final UserStore store = new UserStore();
+
+    @Test
+    void aStaleVersionConflictsAndMinusOneAppliesToWhateverIsCurrent() {
+        store.add(user("U1"));
+
+        assertThat(store.updatePreferences("U1", 1, p -> p.withTheme(UserPreferences.Theme.DARK)).getData())
+                .hasValueSatisfying(p -> assertThat(p.version()).isEqualTo(2));
+        assertThat(store.updatePreferences("U1", 1, p -> p.withNotifications(false)).getError())
+                .hasValueSatisfying(e -> {
+                    assertThat(e.getCode()).isEqualTo("PREFERENCES_CONFLICT");
+                    assertThat(e.getDetails()).containsEntry("expectedVersion", 1L).containsEntry("currentVersion", 2L);
+                });
+
+        PreferenceSnapshot retried = store.updatePreferences("U1", -1, p -> p.withNotifications(false))
+                .getData().orElseThrow();
+        assertThat(retried.version()).isEqualTo(3);
+        assertThat(retried.theme()).isEqualTo(UserPreferences.Theme.DARK);
+        assertThat(retried.notifications()).isFalse();
+        assertThat(store.get("U1").orElseThrow().getPreferences().isNotifications()).isFalse();
+    }
+
+    @Test
+    void changingTheDefaultCurrencyMovesTheUserInTheIndex() {
+        store.add(user("U1"));
+        assertThat(store.findUserIdsByCurrency("USD")).containsExactly("U1");
+
+        store.updatePreferences("U1", -1, p -> p.withDefaultCurrency("EUR"));
+
+        assertThat(store.findUserIdsByCurrency("USD")).isEmpty();
+        assertThat(store.findUserIdsByCurrency("eur")).containsExactly("U1");
+        assertThat(store.get("U1").orElseThrow().getPreferences().getDefaultCurrency()).isEqualTo("EUR");
+    }
+
+    @Test
+    void deleteUnindexesAndRestoreReindexesWithTheVersionKept() {
+        store.add(user("U1"));
+        store.updatePreferences("U1", -1, p -> p.withDefaultCurrency("EUR"));
+
+        store.delete("U1");
+        assertThat(store.findUserIdsByCurrency("EUR")).isEmpty();
+        assertThat(store.getPreferences("U1")).isEmpty();
+        assertThat(store.updatePreferences("U1", -1, p -> p.withDefaultCurrency("GBP")).getError())
+                .map(ApiError::getCode).hasValue("USER_NOT_FOUND");
+
+        store.restore("U1");
+        assertThat(store.findUserIdsByCurrency("EUR")).containsExactly("U1");
+        assertThat(store.getPreferences("U1")).hasValueSatisfying(p -> assertThat(p.version()).isEqualTo(2));
+    }
+
+    @Test
+    void concurrentCurrencyChangesLeaveEachLiveUserIndexedUnderItsCurrentCurrencyOnly() throws InterruptedException {
+        int users = 8;
+        for (int i = 0; i < users; i++) {
+            store.add(user("U" + i));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1_500);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String currency = CURRENCIES.get(random.nextInt(CURRENCIES.size()));
+                    store.updatePreferences("U" + random.nextInt(users), -1, p -> p.withDefaultCurrency(currency));
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < deadline) {
+                String id = "U" + random.nextInt(users);
+                store.delete(id);
+                store.restore(id);
+            }
+        }));
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < users; i++) {
+            String id = "U" + i;
+            String current = store.getPreferences(id).map(PreferenceSnapshot::defaultCurrency).orElse(null);
+            for (String currency : CURRENCIES) {
+                assertThat(store.findUserIdsByCurrency(currency).contains(id))
+                        .as("%s under %s, current %s", id, currency, current)
+                        .isEqualTo(currency.equals(current));
+            }
+        }
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(id.toLowerCase() + "@example.com");
+        user.setPreferences(new UserPreferences());
+        return user;
+    }
+}